@@ -4,14 +4,16 @@ import com.zaxxer.hikari.HikariDataSource;
 import nl.gogognome.dataaccess.migrations.DatabaseMigratorDAO;
 import nl.gogognome.dataaccess.transaction.CompositeDatasourceTransaction;
 import nl.gogognome.dataaccess.transaction.NewTransaction;
+import nl.gogognome.jobscheduler.jobingester.JobIngester;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterProperties;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterRunner;
+import nl.gogognome.jobscheduler.jobingester.database.DatabaseCommandSource;
 import nl.gogognome.jobscheduler.jobingester.database.JobCommandDAO;
-import nl.gogognome.jobscheduler.jobingester.database.JobIngester;
-import nl.gogognome.jobscheduler.jobingester.database.JobIngesterProperties;
-import nl.gogognome.jobscheduler.jobingester.database.JobIngesterRunner;
 import nl.gogognome.jobscheduler.jobpersister.database.DatabaseJobPersister;
 import nl.gogognome.jobscheduler.jobpersister.database.DatabaseJobPersisterProperties;
 import nl.gogognome.jobscheduler.jobpersister.database.ScheduledJobDAO;
 import nl.gogognome.jobscheduler.runnablejobfinder.FifoRunnableJobFinder;
+import nl.gogognome.jobscheduler.scheduler.CapacityLimits;
 import nl.gogognome.jobscheduler.scheduler.JobScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +22,9 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Configuration
 public class BeanConfiguration {
@@ -27,8 +32,16 @@ public class BeanConfiguration {
     private final Logger logger = LoggerFactory.getLogger(JobRequestController.class);
 
     @Bean
-    public JobScheduler jobScheduler(DatabaseJobPersister databaseJobPersister) {
-        return new JobScheduler(new FifoRunnableJobFinder(), databaseJobPersister);
+    public JobScheduler jobScheduler(Properties properties, DatabaseJobPersister databaseJobPersister) {
+        JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), databaseJobPersister);
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited()
+                .withMaxNrJobs(properties.getMaxNrJobs())
+                .withMaxMemoryBytes(properties.getMaxMemoryBytes())
+                .withOverflowPolicy(properties.getOverflowPolicy()));
+        if (properties.getHorizonMilliseconds() > 0) {
+            jobScheduler.setHorizon(Duration.ofMillis(properties.getHorizonMilliseconds()));
+        }
+        return jobScheduler;
     }
 
     @ConfigurationProperties("database")
@@ -59,9 +72,14 @@ public class BeanConfiguration {
         return new JobCommandDAO(jobIngesterProperties);
     }
 
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService jobIngesterFetchExecutor() {
+        return Executors.newSingleThreadExecutor();
+    }
+
     @Bean
-    public JobIngester jobIngester(JobScheduler jobScheduler, JobCommandDAO jobCommandDAO) {
-        return new JobIngester(jobScheduler, jobCommandDAO);
+    public JobIngester jobIngester(JobScheduler jobScheduler, JobCommandDAO jobCommandDAO, ExecutorService jobIngesterFetchExecutor) {
+        return new JobIngester(jobScheduler, new DatabaseCommandSource(jobCommandDAO), jobIngesterFetchExecutor);
     }
 
     @Bean
@@ -1,19 +1,31 @@
 package nl.gogognome;
 
-import nl.gogognome.jobscheduler.jobingester.database.JobIngesterRunner;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterRunner;
+import nl.gogognome.jobscheduler.scheduler.IllegalJobStateException;
 import nl.gogognome.jobscheduler.scheduler.Job;
+import nl.gogognome.jobscheduler.scheduler.JobPage;
+import nl.gogognome.jobscheduler.scheduler.JobQuery;
 import nl.gogognome.jobscheduler.scheduler.JobScheduler;
+import nl.gogognome.jobscheduler.scheduler.JobState;
+import nl.gogognome.jobscheduler.scheduler.ScheduledJob;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.DependsOn;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.nio.charset.Charset;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.Base64;
+import java.util.List;
+import java.util.Set;
 
 @RestController
 @DependsOn("dataSourceInit")
@@ -48,26 +60,134 @@ public class JobRequestController {
     }
 
     @RequestMapping("/nextjob")
-    public JobResponse nextJob(@RequestParam(value="requesterId") String requesterId) {
+    public JobResponse nextJob(@RequestParam(value="requesterId") String requesterId,
+                               @RequestParam(value="acceptedTypes", required=false) Set<String> acceptedTypes) {
         logger.trace("nextJob called for requester " + requesterId);
 
         try {
-            Job job = jobScheduler.startNextRunnableJob(requesterId, properties.getRequestTimeoutMilliseconds());
+            reclaimJobsOfDeadRequesters();
+            Job job = jobScheduler.startNextRunnableJob(requesterId, acceptedTypes, properties.getRequestTimeoutMilliseconds());
             if (job != null) {
                 logger.debug("found job " + job.getId());
-                JobResponse response = new JobResponse();
-                response.setJobAvailable(true);
-                response.setJobId(job.getId());
-                response.setJobData(job.getData());
-                return response;
+                return buildJobResponse(job);
             } else {
                 logger.debug("timed out - no job found");
                 return new JobResponse();
             }
-        } catch (Exception e) {
+        } catch (IllegalJobStateException e) {
+            // The job scheduler found a job in an unexpected state, so only reloading all jobs can repair it.
+            // Other exceptions leave the jobs unchanged, because jobs are persisted before they are started.
             jobScheduler.loadPersistedJobs();
             throw e;
         }
     }
 
+    @RequestMapping("/nextjobs")
+    public JobsResponse nextJobs(@RequestParam(value="requesterId") String requesterId,
+                                 @RequestParam(value="maxNrJobs") int maxNrJobs,
+                                 @RequestParam(value="acceptedTypes", required=false) Set<String> acceptedTypes) {
+        logger.trace("nextJobs called for requester " + requesterId + " with at most " + maxNrJobs + " jobs");
+
+        try {
+            reclaimJobsOfDeadRequesters();
+            List<Job> jobs = jobScheduler.startNextRunnableJobs(requesterId, acceptedTypes,
+                    Math.min(maxNrJobs, properties.getMaxNrJobsPerRequest()), properties.getRequestTimeoutMilliseconds());
+            logger.debug("found " + jobs.size() + " jobs");
+            JobsResponse response = new JobsResponse();
+            for (Job job : jobs) {
+                response.getJobs().add(buildJobResponse(job));
+            }
+            return response;
+        } catch (IllegalJobStateException e) {
+            // The job scheduler found a job in an unexpected state, so only reloading all jobs can repair it.
+            // Other exceptions leave the jobs unchanged, because jobs are persisted before they are started.
+            jobScheduler.loadPersistedJobs();
+            throw e;
+        }
+    }
+
+    @RequestMapping("/heartbeat")
+    public void heartbeat(@RequestParam(value="requesterId") String requesterId) {
+        logger.trace("heartbeat called for requester " + requesterId);
+        jobScheduler.heartbeat(requesterId);
+    }
+
+    @RequestMapping("/jobs")
+    public JobStatusesResponse jobs(@RequestParam(value="state", required=false) JobState state,
+                                    @RequestParam(value="type", required=false) String type,
+                                    @RequestParam(value="requesterId", required=false) String requesterId,
+                                    @RequestParam(value="scheduledAtOrAfter", required=false) String scheduledAtOrAfter,
+                                    @RequestParam(value="scheduledBefore", required=false) String scheduledBefore,
+                                    @RequestParam(value="cursor", required=false) String cursor,
+                                    @RequestParam(value="limit", required=false) Integer limit) {
+        logger.trace("jobs called");
+        JobPage page;
+        try {
+            JobQuery query = new JobQuery()
+                    .withState(state)
+                    .withType(type)
+                    .withRequesterId(requesterId)
+                    .withScheduledAtOrAfter(parseInstant("scheduledAtOrAfter", scheduledAtOrAfter))
+                    .withScheduledBefore(parseInstant("scheduledBefore", scheduledBefore))
+                    .withCursor(cursor)
+                    .withLimit(Math.min(limit != null ? limit : JobQuery.DEFAULT_LIMIT, properties.getMaxNrJobsPerRequest()));
+            // The cursor is only parsed when the query is executed
+            page = jobScheduler.findJobs(query);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        JobStatusesResponse response = new JobStatusesResponse();
+        for (ScheduledJob scheduledJob : page.getJobs()) {
+            response.getJobs().add(buildJobStatusResponse(scheduledJob));
+        }
+        response.setNextCursor(page.getNextCursor());
+        return response;
+    }
+
+    private Instant parseInstant(String parameterName, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "The parameter " + parameterName + " must be an instant in ISO-8601 format, like 2018-03-01T12:00:00Z", e);
+        }
+    }
+
+    private void reclaimJobsOfDeadRequesters() {
+        if (properties.getRequesterHeartbeatTimeoutMilliseconds() > 0) {
+            List<Job> jobs = jobScheduler.reclaimJobsOfDeadRequesters(
+                    Duration.ofMillis(properties.getRequesterHeartbeatTimeoutMilliseconds()));
+            if (!jobs.isEmpty()) {
+                logger.info("reclaimed " + jobs.size() + " jobs of requesters that stopped sending heartbeats");
+            }
+        }
+    }
+
+    private JobResponse buildJobResponse(Job job) {
+        JobResponse response = new JobResponse();
+        response.setJobAvailable(true);
+        response.setJobId(job.getId());
+        response.setJobData(job.getData());
+        return response;
+    }
+
+    private JobStatusResponse buildJobStatusResponse(ScheduledJob scheduledJob) {
+        JobStatusResponse response = new JobStatusResponse();
+        response.setJobId(scheduledJob.getJob().getId());
+        response.setType(scheduledJob.getJob().getType());
+        response.setState(scheduledJob.getState().name());
+        response.setRequesterId(scheduledJob.getRequesterId());
+        response.setScheduledAtInstant(toString(scheduledJob.getJob().getScheduledAtInstant()));
+        response.setTimeoutAtInstant(toString(scheduledJob.getTimeoutAtInstant()));
+        return response;
+    }
+
+    private String toString(Instant instant) {
+        return instant != null ? instant.toString() : null;
+    }
+
 }
@@ -0,0 +1,59 @@
+package nl.gogognome;
+
+public class JobStatusResponse {
+
+    private String jobId;
+    private String type;
+    private String state;
+    private String requesterId;
+    private String scheduledAtInstant;
+    private String timeoutAtInstant;
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getRequesterId() {
+        return requesterId;
+    }
+
+    public void setRequesterId(String requesterId) {
+        this.requesterId = requesterId;
+    }
+
+    public String getScheduledAtInstant() {
+        return scheduledAtInstant;
+    }
+
+    public void setScheduledAtInstant(String scheduledAtInstant) {
+        this.scheduledAtInstant = scheduledAtInstant;
+    }
+
+    public String getTimeoutAtInstant() {
+        return timeoutAtInstant;
+    }
+
+    public void setTimeoutAtInstant(String timeoutAtInstant) {
+        this.timeoutAtInstant = timeoutAtInstant;
+    }
+}
@@ -0,0 +1,26 @@
+package nl.gogognome;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class JobStatusesResponse {
+
+    private List<JobStatusResponse> jobs = new ArrayList<>();
+    private String nextCursor;
+
+    public List<JobStatusResponse> getJobs() {
+        return jobs;
+    }
+
+    public void setJobs(List<JobStatusResponse> jobs) {
+        this.jobs = jobs;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
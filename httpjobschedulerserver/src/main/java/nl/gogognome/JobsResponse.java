@@ -0,0 +1,17 @@
+package nl.gogognome;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class JobsResponse {
+
+    private List<JobResponse> jobs = new ArrayList<>();
+
+    public List<JobResponse> getJobs() {
+        return jobs;
+    }
+
+    public void setJobs(List<JobResponse> jobs) {
+        this.jobs = jobs;
+    }
+}
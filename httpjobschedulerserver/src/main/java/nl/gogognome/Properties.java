@@ -1,5 +1,6 @@
 package nl.gogognome;
 
+import nl.gogognome.jobscheduler.scheduler.OverflowPolicy;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -8,6 +9,12 @@ import org.springframework.stereotype.Component;
 public class Properties {
 
     private int requestTimeoutMilliseconds = 30*1000;
+    private int maxNrJobsPerRequest = 100;
+    private int requesterHeartbeatTimeoutMilliseconds = 0;
+    private int maxNrJobs = 0;
+    private long maxMemoryBytes = 0;
+    private long horizonMilliseconds = 0;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
     private String databaseConnectionUrl = "jdbc:h2:mem:httpjobscheduler" + System.currentTimeMillis() ;
     private String databaseUsername = "sa";
     private String databasePassword = "";
@@ -20,6 +27,54 @@ public class Properties {
         this.requestTimeoutMilliseconds = requestTimeoutMilliseconds;
     }
 
+    public int getMaxNrJobsPerRequest() {
+        return maxNrJobsPerRequest;
+    }
+
+    public void setMaxNrJobsPerRequest(int maxNrJobsPerRequest) {
+        this.maxNrJobsPerRequest = maxNrJobsPerRequest;
+    }
+
+    public int getRequesterHeartbeatTimeoutMilliseconds() {
+        return requesterHeartbeatTimeoutMilliseconds;
+    }
+
+    public void setRequesterHeartbeatTimeoutMilliseconds(int requesterHeartbeatTimeoutMilliseconds) {
+        this.requesterHeartbeatTimeoutMilliseconds = requesterHeartbeatTimeoutMilliseconds;
+    }
+
+    public int getMaxNrJobs() {
+        return maxNrJobs;
+    }
+
+    public void setMaxNrJobs(int maxNrJobs) {
+        this.maxNrJobs = maxNrJobs;
+    }
+
+    public long getMaxMemoryBytes() {
+        return maxMemoryBytes;
+    }
+
+    public void setMaxMemoryBytes(long maxMemoryBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    public long getHorizonMilliseconds() {
+        return horizonMilliseconds;
+    }
+
+    public void setHorizonMilliseconds(long horizonMilliseconds) {
+        this.horizonMilliseconds = horizonMilliseconds;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
     public String getDatabaseConnectionUrl() {
         return databaseConnectionUrl;
     }
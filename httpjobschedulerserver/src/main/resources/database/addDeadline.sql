@@ -0,0 +1,3 @@
+ALTER TABLE NlGogognomeJobsToIngest ADD COLUMN deadline TIMESTAMP NULL;
+
+ALTER TABLE NlGogognomeJobs ADD COLUMN deadline TIMESTAMP NULL;
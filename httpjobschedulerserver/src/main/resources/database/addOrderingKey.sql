@@ -0,0 +1,3 @@
+ALTER TABLE NlGogognomeJobsToIngest ADD COLUMN orderingKey VARCHAR(1000) NULL;
+
+ALTER TABLE NlGogognomeJobs ADD COLUMN orderingKey VARCHAR(1000) NULL;
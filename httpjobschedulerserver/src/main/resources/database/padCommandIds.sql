@@ -0,0 +1 @@
+UPDATE NlGogognomeJobsToIngest SET command_id = LPAD(command_id, 19, '0') WHERE REGEXP_LIKE(command_id, '^[0-9]{1,18}$');
\ No newline at end of file
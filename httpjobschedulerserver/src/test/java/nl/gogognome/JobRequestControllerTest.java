@@ -0,0 +1,52 @@
+package nl.gogognome;
+
+import nl.gogognome.jobscheduler.jobingester.JobIngesterRunner;
+import nl.gogognome.jobscheduler.runnablejobfinder.FifoRunnableJobFinder;
+import nl.gogognome.jobscheduler.scheduler.JobPersister;
+import nl.gogognome.jobscheduler.scheduler.JobScheduler;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class JobRequestControllerTest {
+
+    private final JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), mock(JobPersister.class));
+    private final JobRequestController controller =
+            new JobRequestController(jobScheduler, new Properties(), mock(JobIngesterRunner.class));
+
+    @Test
+    void jobs_noParameters_returnsEmptyPage() {
+        JobStatusesResponse response = controller.jobs(null, null, null, null, null, null, null);
+
+        assertTrue(response.getJobs().isEmpty());
+    }
+
+    @Test
+    void jobs_malformedCursor_badRequest() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> controller.jobs(null, null, null, null, null, "no-valid-cursor", null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+
+    @Test
+    void jobs_limitZero_badRequest() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> controller.jobs(null, null, null, null, null, null, 0));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+
+    @Test
+    void jobs_malformedInstant_badRequest() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> controller.jobs(null, null, null, "yesterday", null, null, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+}
@@ -2,10 +2,11 @@ package nl.gogognome.integration;
 
 
 import nl.gogognome.JobResponse;
+import nl.gogognome.JobsResponse;
 import nl.gogognome.Properties;
-import nl.gogognome.jobscheduler.jobingester.database.Command;
+import nl.gogognome.jobscheduler.jobingester.Command;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterProperties;
 import nl.gogognome.jobscheduler.jobingester.database.JobIngestTestService;
-import nl.gogognome.jobscheduler.jobingester.database.JobIngesterProperties;
 import nl.gogognome.jobscheduler.scheduler.Job;
 import org.junit.Before;
 import org.junit.Test;
@@ -75,6 +76,33 @@ public class IngestAndProcessTest {
         jobIngestTestService.waitUntilJobsAreIngested();
     }
 
+    @Test
+    public void createTwoJobsOfSameType_getJobsViaHttpRequest_getsBothJobs() {
+        Job job1 = buildJob("batch-1");
+        Job job2 = buildJob("batch-2");
+        jobIngestTestService.createJobCommand(Command.SCHEDULE, job1);
+        jobIngestTestService.createJobCommand(Command.SCHEDULE, job2);
+        jobIngestTestService.waitUntilJobsAreIngested();
+
+        ResponseEntity<JobsResponse> response =
+                restTemplate.getForEntity("/nextjobs?requesterId={requesterId}&maxNrJobs=10", JobsResponse.class, "batchRequesterId");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().getJobs().size());
+
+        jobIngestTestService.createJobCommand(Command.JOB_FINISHED, job1);
+        jobIngestTestService.createJobCommand(Command.JOB_FINISHED, job2);
+        jobIngestTestService.waitUntilJobsAreIngested();
+    }
+
+    @Test
+    public void malformedInstant_getJobsViaHttpRequest_getsBadRequest() {
+        ResponseEntity<String> response =
+                restTemplate.getForEntity("/jobs?scheduledBefore={scheduledBefore}", String.class, "yesterday");
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
     @Test
     public void performanceTest_manyJobs_oneThread() throws InterruptedException {
         requestJobsWithMultipleThreads(10000, 1);
@@ -1,6 +1,9 @@
 package nl.gogognome.jobscheduler.jobingester.database;
 
 import nl.gogognome.dataaccess.transaction.NewTransaction;
+import nl.gogognome.jobscheduler.jobingester.Command;
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterProperties;
 import nl.gogognome.jobscheduler.scheduler.Job;
 import org.springframework.stereotype.Component;
 
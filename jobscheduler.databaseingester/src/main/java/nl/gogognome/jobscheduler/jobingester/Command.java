@@ -1,4 +1,4 @@
-package nl.gogognome.jobscheduler.jobingester.database;
+package nl.gogognome.jobscheduler.jobingester;
 
 public enum Command {
     SCHEDULE,
@@ -0,0 +1,71 @@
+package nl.gogognome.jobscheduler.jobingester;
+
+import java.util.List;
+
+/**
+ * A source of job commands for the {@link JobIngester}. The job ingester reads the commands in batches, forwards
+ * them to the job scheduler and lets the command source remove the handled commands.
+ *
+ * <p>The job ingester reads the next batch while the current batch is handled, so a command source must allow
+ * {@link #findJobCommands(String)} to be called by another thread than the methods that handle a batch.
+ */
+public interface CommandSource {
+
+    /**
+     * Finds the next batch of job commands ordered by command id.
+     * @param afterCommandId the command id of the last command of the previous batch; null to start with the first
+     *                       command. An ingestion always starts with null.
+     * @return the job commands; an empty list if there are no more job commands
+     */
+    List<JobCommand> findJobCommands(String afterCommandId);
+
+    /**
+     * Handles a complete batch as returned by {@link #findJobCommands(String)} in one unit of work. The handler
+     * forwards the commands to the job scheduler; the handled commands it returns are removed from the command
+     * source in the same unit of work. If the handler throws an exception, then no command is removed.
+     * @param afterCommandId the command id that was passed to {@link #findJobCommands(String)} to read the batch
+     * @param batch the batch
+     * @param handler the handler
+     */
+    void handleJobCommands(String afterCommandId, List<JobCommand> batch, JobCommandsHandler handler);
+
+    /**
+     * Handles a part of a batch as returned by {@link #findJobCommands(String)} in one unit of work, like
+     * {@link #handleJobCommands(String, List, JobCommandsHandler)}. The job ingester uses this method to handle the
+     * partitions of a batch, and to handle the commands of a failed batch one by one. The partitions of a batch are
+     * handled concurrently, by different threads, so a command source must allow that and must remove exactly the
+     * handled commands, not a range of command ids.
+     * @param jobCommands the job commands
+     * @param handler the handler
+     */
+    void handleJobCommands(List<JobCommand> jobCommands, JobCommandsHandler handler);
+
+    /**
+     * @return true if rejected job commands can be quarantined; false if a rejected command must fail its batch
+     */
+    boolean isQuarantineEnabled();
+
+    /**
+     * Quarantines a job command that the job scheduler rejected. This method is called by a
+     * {@link JobCommandsHandler}, so the command is only quarantined if the unit of work succeeds.
+     * @param jobCommand the job command
+     * @param error a description of why the job command was rejected
+     * @throws IllegalStateException if quarantining has not been enabled
+     */
+    void quarantineJobCommand(JobCommand jobCommand, String error);
+
+    /**
+     * Adds a listener that is called when new job commands may have become available. A command source that
+     * cannot detect new job commands ignores the listener, so that the job commands are only found by polling.
+     * @param listener the listener
+     */
+    default void addListener(Runnable listener) {
+    }
+
+    /**
+     * Removes a listener that was added with {@link #addListener(Runnable)}.
+     * @param listener the listener
+     */
+    default void removeListener(Runnable listener) {
+    }
+}
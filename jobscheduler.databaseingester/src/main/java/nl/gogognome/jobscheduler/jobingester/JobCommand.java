@@ -1,4 +1,4 @@
-package nl.gogognome.jobscheduler.jobingester.database;
+package nl.gogognome.jobscheduler.jobingester;
 
 import nl.gogognome.jobscheduler.scheduler.Job;
 
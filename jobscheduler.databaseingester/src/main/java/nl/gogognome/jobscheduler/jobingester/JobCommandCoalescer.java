@@ -0,0 +1,131 @@
+package nl.gogognome.jobscheduler.jobingester;
+
+import nl.gogognome.jobscheduler.scheduler.JobScheduler;
+import nl.gogognome.jobscheduler.scheduler.JobState;
+import nl.gogognome.jobscheduler.scheduler.ScheduledJob;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static nl.gogognome.jobscheduler.scheduler.JobState.ERROR;
+import static nl.gogognome.jobscheduler.scheduler.JobState.IDLE;
+import static nl.gogognome.jobscheduler.scheduler.JobState.RUNNING;
+
+/**
+ * Folds the commands for the same job within a batch into their net effect, so that the job scheduler and its
+ * persister only handle the commands that change the end result. For example, a job that is scheduled and removed
+ * again within the same batch need not be added to the job scheduler at all.
+ *
+ * <p>Whatever the commands for a job are, their net effect is that the job present before the batch is removed
+ * or not, followed by scheduling a new job or not. So only the command that removes the job present before the
+ * batch and the last command that schedules a new job are kept; the other commands have no net effect. Handling the
+ * remaining commands one after the other gives exactly the same jobs as handling all commands. To guarantee this,
+ * the commands for a job are only folded if the job scheduler is certain to accept each of them:
+ * <ul>
+ *     <li>the job scheduler keeps all persisted jobs in memory and has no capacity limits, so the state of each job
+ *     is known and scheduling never depends on the other jobs;</li>
+ *     <li>none of the commands would be rejected, for example finishing a job that is not running;</li>
+ *     <li>none of the jobs has a coalescing key, because scheduling a job with a coalescing key depends on the
+ *     other idle jobs.</li>
+ * </ul>
+ * Otherwise all commands for the job are kept.
+ */
+class JobCommandCoalescer {
+
+    private final JobScheduler jobScheduler;
+
+    JobCommandCoalescer(JobScheduler jobScheduler) {
+        this.jobScheduler = jobScheduler;
+    }
+
+    /**
+     * Finds the commands of a batch that have no net effect. Call this method from within
+     * {@link JobScheduler#runBatch(Runnable)}, so that the jobs do not change until the batch has been handled.
+     * @param jobCommands the commands of the batch, ordered by command id
+     * @return the commands that need not be forwarded to the job scheduler
+     */
+    Set<JobCommand> findCommandsWithoutNetEffect(List<JobCommand> jobCommands) {
+        if (!jobScheduler.keepsAllJobsInMemory() || !jobScheduler.getCapacityLimits().isUnlimited()) {
+            return Collections.emptySet();
+        }
+
+        Map<String, List<JobCommand>> jobIdToJobCommands = new HashMap<>();
+        for (JobCommand jobCommand : jobCommands) {
+            jobIdToJobCommands.computeIfAbsent(jobCommand.getJob().getId(), jobId -> new ArrayList<>()).add(jobCommand);
+        }
+
+        Set<JobCommand> commandsWithoutNetEffect = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<String, List<JobCommand>> entry : jobIdToJobCommands.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                ScheduledJob scheduledJob = jobScheduler.getJobsSnapshot().findById(entry.getKey());
+                addCommandsWithoutNetEffect(scheduledJob, entry.getValue(), commandsWithoutNetEffect);
+            }
+        }
+        return commandsWithoutNetEffect;
+    }
+
+    /**
+     * Replays the commands for one job on its state. If all commands are accepted, then all commands except the one
+     * that removes the original job and the last one that schedules a new job are added to the set.
+     * @param scheduledJob the job before the batch; null if the job does not exist
+     * @param jobCommands the commands for the job, ordered by command id
+     * @param commandsWithoutNetEffect the set to which the commands without net effect are added
+     */
+    private void addCommandsWithoutNetEffect(ScheduledJob scheduledJob, List<JobCommand> jobCommands,
+                                             Set<JobCommand> commandsWithoutNetEffect) {
+        if (scheduledJob != null && scheduledJob.getJob().getCoalescingKey() != null) {
+            return;
+        }
+        JobState state = scheduledJob != null ? scheduledJob.getState() : null;
+        JobCommand removeCommand = null;
+        JobCommand scheduleCommand = null;
+        for (JobCommand jobCommand : jobCommands) {
+            switch (jobCommand.getCommand()) {
+                case SCHEDULE:
+                    if (state != null || jobCommand.getJob().getCoalescingKey() != null) {
+                        return;
+                    }
+                    state = IDLE;
+                    scheduleCommand = jobCommand;
+                    break;
+                case RESCHEDULE:
+                    if (state != RUNNING) {
+                        return;
+                    }
+                    state = IDLE;
+                    break;
+                case JOB_FAILED:
+                    if (state != RUNNING) {
+                        return;
+                    }
+                    state = ERROR;
+                    break;
+                case JOB_FINISHED:
+                case REMOVE:
+                    if (state == null || jobCommand.getCommand() == Command.JOB_FINISHED && state != RUNNING) {
+                        return;
+                    }
+                    state = null;
+                    if (scheduleCommand == null) {
+                        removeCommand = jobCommand; // removes the job that existed before the batch
+                    }
+                    scheduleCommand = null;
+                    break;
+            }
+        }
+
+        if (scheduledJob != null && removeCommand == null) {
+            return; // the state of the original job has been changed by a single command; nothing to fold
+        }
+        for (JobCommand jobCommand : jobCommands) {
+            if (jobCommand != removeCommand && jobCommand != scheduleCommand) {
+                commandsWithoutNetEffect.add(jobCommand);
+            }
+        }
+    }
+}
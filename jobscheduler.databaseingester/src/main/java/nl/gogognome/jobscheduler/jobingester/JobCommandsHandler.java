@@ -0,0 +1,16 @@
+package nl.gogognome.jobscheduler.jobingester;
+
+import java.util.List;
+
+/**
+ * Handles job commands within a unit of work of a {@link CommandSource}.
+ */
+public interface JobCommandsHandler {
+
+    /**
+     * Handles job commands.
+     * @param jobCommands the job commands
+     * @return the job commands that have been handled and must be removed from the command source
+     */
+    List<JobCommand> handle(List<JobCommand> jobCommands);
+}
@@ -0,0 +1,464 @@
+package nl.gogognome.jobscheduler.jobingester;
+
+import nl.gogognome.jobscheduler.scheduler.DuplicateJobException;
+import nl.gogognome.jobscheduler.scheduler.IllegalJobStateException;
+import nl.gogognome.jobscheduler.scheduler.Job;
+import nl.gogognome.jobscheduler.scheduler.JobScheduler;
+import nl.gogognome.jobscheduler.scheduler.UnknownJobException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import static java.util.Collections.singletonList;
+
+public class JobIngester {
+
+    private final JobScheduler jobScheduler;
+    private final CommandSource commandSource;
+    private final Executor fetchExecutor;
+    private final Executor partitionExecutor;
+    private final int nrPartitions;
+    private final JobCommandCoalescer jobCommandCoalescer;
+
+    /**
+     * Creates a job ingester that reads job commands from a command source in the calling thread.
+     * @param jobScheduler the job scheduler
+     * @param commandSource the command source
+     */
+    public JobIngester(JobScheduler jobScheduler, CommandSource commandSource) {
+        this(jobScheduler, commandSource, Runnable::run);
+    }
+
+    /**
+     * Creates a job ingester that reads the next batch of job commands with the specified executor, while the
+     * current batch is forwarded to the job scheduler. Use a single thread executor, so that reading a batch
+     * overlaps with handling the previous batch and ingestion is bounded by the slower of the two.
+     * @param jobScheduler the job scheduler
+     * @param commandSource the command source
+     * @param fetchExecutor the executor that reads batches of job commands
+     */
+    public JobIngester(JobScheduler jobScheduler, CommandSource commandSource, Executor fetchExecutor) {
+        this(jobScheduler, commandSource, fetchExecutor, Runnable::run, 1);
+    }
+
+    /**
+     * Creates a job ingester that splits each batch of job commands into partitions and handles the partitions
+     * concurrently with the partition executor, each in a unit of work of its own. All commands for a job end up in
+     * the same partition, and so do the commands for jobs with the same ordering key or coalescing key, so these
+     * commands are still handled in order.
+     *
+     * <p>The job scheduler only holds its lock while a partition changes the jobs, not while the unit of work of the
+     * partition commits, see {@link JobScheduler#runBatchCommittedConcurrently(Consumer)}. So the transactions of
+     * the partitions, with the inserted jobs and the deleted job commands, commit concurrently. If a horizon has
+     * been set or jobs can be spilled, then the job scheduler holds its lock until a partition has committed, so then
+     * the partitions are handled one after the other.
+     * @param jobScheduler the job scheduler
+     * @param commandSource the command source
+     * @param fetchExecutor the executor that reads batches of job commands
+     * @param partitionExecutor the executor that handles the partitions; it should have a thread per partition
+     * @param nrPartitions the number of partitions
+     */
+    public JobIngester(JobScheduler jobScheduler, CommandSource commandSource, Executor fetchExecutor,
+                       Executor partitionExecutor, int nrPartitions) {
+        if (nrPartitions < 1) {
+            throw new IllegalArgumentException("nrPartitions must be at least one");
+        }
+        this.jobScheduler = jobScheduler;
+        this.commandSource = commandSource;
+        this.fetchExecutor = fetchExecutor;
+        this.partitionExecutor = partitionExecutor;
+        this.nrPartitions = nrPartitions;
+        this.jobCommandCoalescer = new JobCommandCoalescer(jobScheduler);
+    }
+
+    /**
+     * Adds a listener that the command source calls when new job commands may have become available,
+     * see {@link CommandSource#addListener(Runnable)}.
+     * @param listener the listener
+     */
+    public void addListener(Runnable listener) {
+        commandSource.addListener(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        commandSource.removeListener(listener);
+    }
+
+    /**
+     * Reads job commands from the command source and forwards them to the job scheduler. The commands are read and
+     * handled in batches, from the database of at most {@link JobIngesterProperties#getMaxBatchSize()} commands,
+     * each in a transaction of its own, so the memory used and the duration of the transactions do not depend on
+     * the number of commands waiting in the database. The next batch starts after the last command of the current
+     * batch, so it is read by the fetch executor while the current batch is handled. Batches are handled one after
+     * the other in order of command id, which keeps the order of the commands of each job.
+     *
+     * <p>While the job scheduler has no capacity for a job of some type, commands that schedule a job of that type are
+     * left in the command source, together with all later commands for the same job. They are handled by a later call
+     * once the job scheduler has room again. Commands for other jobs are still handled, so that jobs that finish
+     * free up room in the job scheduler.
+     *
+     * <p>Commands that the job scheduler rejects, like a command to finish an unknown job, are quarantined by the
+     * command source, for the database in the quarantine table, so that they neither block the other commands nor
+     * are read again. If quarantining has not been enabled, then a rejected command rolls back its batch. The job
+     * scheduler undoes the changes of a batch that is rolled back, see {@link JobScheduler#runBatch(Runnable)}.
+     * If a batch fails for another reason, like a job persister that cannot store a job, and quarantining has been
+     * enabled, then its commands are handled one by one up to the command that fails. That command is not
+     * quarantined; its exception is thrown, so that the command and the commands after it are read again by a later
+     * call.
+     *
+     * <p>Commands for the same job within a batch are folded into their net effect when that is certain to give the
+     * same result, see {@link JobCommandCoalescer}. For example, a job that is scheduled and removed within one
+     * batch is never added to the job scheduler. Commands without net effect are deleted like handled commands.
+     *
+     * <p>If the job ingester has multiple partitions, then the partitions of a batch are handled concurrently. The
+     * next batch is handled once all partitions of the current batch have been handled. If a partition fails, then
+     * the other partitions of the batch are still committed, but no further batches are handled.
+     * @return the number of job commands handled
+     */
+    public int ingestJobs() {
+        Set<String> postponedJobIds = ConcurrentHashMap.newKeySet();
+        int nrHandledJobCommands = 0;
+        String afterCommandId = null;
+        CompletableFuture<List<JobCommand>> nextBatch = fetchBatchAfter(afterCommandId);
+        while (true) {
+            List<JobCommand> jobCommands = await(nextBatch);
+            if (jobCommands.isEmpty()) {
+                return nrHandledJobCommands;
+            }
+            String lastCommandId = jobCommands.get(jobCommands.size() - 1).getCommandId();
+            nextBatch = fetchBatchAfter(lastCommandId);
+            nrHandledJobCommands += ingestPartitions(afterCommandId, jobCommands, postponedJobIds);
+            afterCommandId = lastCommandId;
+        }
+    }
+
+    private CompletableFuture<List<JobCommand>> fetchBatchAfter(String afterCommandId) {
+        return CompletableFuture.supplyAsync(() -> commandSource.findJobCommands(afterCommandId), fetchExecutor);
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Splits a batch into partitions and ingests the partitions concurrently. Waits until all partitions have been
+     * ingested. A batch that is not split is handled as a whole, so that its handled commands can be removed with
+     * a range delete.
+     * @param afterCommandId the command id after which the batch was read
+     * @param jobCommands the job commands
+     * @param postponedJobIds the ids of the jobs whose commands are postponed; jobs postponed by this batch are added
+     * @return the number of job commands handled
+     */
+    private int ingestPartitions(String afterCommandId, List<JobCommand> jobCommands, Set<String> postponedJobIds) {
+        List<List<JobCommand>> partitions = splitIntoPartitions(jobCommands);
+        if (partitions.size() == 1) {
+            return ingestBatchIsolatingFailures(jobCommands, postponedJobIds,
+                    handler -> commandSource.handleJobCommands(afterCommandId, jobCommands, handler), false);
+        }
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(partitions.size());
+        for (List<JobCommand> partition : partitions) {
+            futures.add(CompletableFuture.supplyAsync(() -> ingestBatchIsolatingFailures(partition, postponedJobIds,
+                    handler -> commandSource.handleJobCommands(partition, handler), true), partitionExecutor));
+        }
+
+        int nrHandledJobCommands = 0;
+        RuntimeException exception = null;
+        for (CompletableFuture<Integer> future : futures) {
+            try {
+                nrHandledJobCommands += await(future);
+            } catch (RuntimeException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return nrHandledJobCommands;
+    }
+
+    /**
+     * Splits a batch into partitions by the hash of the job id. The job scheduler relates jobs with the same
+     * ordering key, which are started in order, and jobs with the same coalescing key, which are coalesced, so the
+     * commands for such jobs are put in the partition of the first of these jobs. If a command relates jobs that
+     * are already in different partitions, then the batch is not split at all.
+     * @param jobCommands the job commands
+     * @return the partitions that contain commands
+     */
+    private List<List<JobCommand>> splitIntoPartitions(List<JobCommand> jobCommands) {
+        if (nrPartitions == 1) {
+            return singletonList(jobCommands);
+        }
+        List<List<JobCommand>> partitions = new ArrayList<>(nrPartitions);
+        for (int i = 0; i < nrPartitions; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        Map<String, Integer> jobIdToPartition = new HashMap<>();
+        Map<String, Integer> orderingKeyToPartition = new HashMap<>();
+        Map<String, Integer> coalescingKeyToPartition = new HashMap<>();
+        for (JobCommand j : jobCommands) {
+            Job job = j.getJob();
+            Set<Integer> relatedPartitions = new HashSet<>();
+            addPartitionOfKey(relatedPartitions, jobIdToPartition, job.getId());
+            addPartitionOfKey(relatedPartitions, orderingKeyToPartition, job.getOrderingKey());
+            addPartitionOfKey(relatedPartitions, coalescingKeyToPartition, job.getCoalescingKey());
+            if (relatedPartitions.size() > 1) {
+                return singletonList(jobCommands);
+            }
+            int partition = relatedPartitions.isEmpty()
+                    ? Math.floorMod(job.getId().hashCode(), nrPartitions) : relatedPartitions.iterator().next();
+            partitions.get(partition).add(j);
+            jobIdToPartition.put(job.getId(), partition);
+            if (job.getOrderingKey() != null) {
+                orderingKeyToPartition.put(job.getOrderingKey(), partition);
+            }
+            if (job.getCoalescingKey() != null) {
+                coalescingKeyToPartition.put(job.getCoalescingKey(), partition);
+            }
+        }
+
+        List<List<JobCommand>> nonEmptyPartitions = new ArrayList<>(nrPartitions);
+        for (List<JobCommand> partition : partitions) {
+            if (!partition.isEmpty()) {
+                nonEmptyPartitions.add(partition);
+            }
+        }
+        return nonEmptyPartitions;
+    }
+
+    private static void addPartitionOfKey(Set<Integer> partitions, Map<String, Integer> keyToPartition, String key) {
+        Integer partition = key != null ? keyToPartition.get(key) : null;
+        if (partition != null) {
+            partitions.add(partition);
+        }
+    }
+
+    /**
+     * Ingests a batch like {@link #ingestBatch(List, Set, Consumer, boolean)}. If the batch fails for another reason than a
+     * command that the job scheduler rejects, for example because the job persister cannot store a job, then the
+     * unit of work of the batch has been undone and the commands are ingested again one by one, each in a unit of
+     * work of its own, so that the commands before the failing command are handled. A command that is rejected by
+     * the job scheduler with an {@link UnknownJobException}, {@link DuplicateJobException} or
+     * {@link IllegalJobStateException} is quarantined. Any other exception is thrown, because it may well be caused
+     * by a temporary problem, like a database that is down, so the failing command and the commands after it are
+     * retried by the next attempt to ingest jobs. If quarantining has not been enabled, then the exception of the
+     * batch is thrown at once.
+     *
+     * <p>The commands are ingested one by one in batches that hold the lock of the job scheduler until they have
+     * committed. These batches wait until the other partitions have been committed, so a partition that failed
+     * because another partition changed the same job is ingested one by one without problems.
+     * @param jobCommands the job commands
+     * @param postponedJobIds the ids of the jobs whose commands are postponed; jobs postponed by this batch are added
+     * @param unitOfWork runs the handler in a unit of work of the command source
+     * @param commitConcurrently true if the unit of work may commit while other partitions change the jobs
+     * @return the number of job commands handled
+     */
+    private int ingestBatchIsolatingFailures(List<JobCommand> jobCommands, Set<String> postponedJobIds,
+                                             Consumer<JobCommandsHandler> unitOfWork, boolean commitConcurrently) {
+        try {
+            return ingestBatch(jobCommands, postponedJobIds, unitOfWork, commitConcurrently);
+        } catch (RuntimeException e) {
+            if (!commandSource.isQuarantineEnabled()) {
+                throw e;
+            }
+        }
+
+        int nrHandledJobCommands = 0;
+        for (JobCommand j : jobCommands) {
+            List<JobCommand> singleCommand = singletonList(j);
+            try {
+                nrHandledJobCommands += ingestBatch(singleCommand, postponedJobIds,
+                        handler -> commandSource.handleJobCommands(singleCommand, handler), false);
+            } catch (UnknownJobException | DuplicateJobException | IllegalJobStateException e) {
+                commandSource.handleJobCommands(singleCommand, commands -> {
+                    commandSource.quarantineJobCommand(j, e.toString());
+                    return commands;
+                });
+                nrHandledJobCommands++;
+            }
+        }
+        return nrHandledJobCommands;
+    }
+
+    /**
+     * Forwards a batch of job commands to the job scheduler and removes the handled commands from the command source
+     * in one unit of work.
+     * @param jobCommands the job commands
+     * @param postponedJobIds the ids of the jobs whose commands are postponed; jobs postponed by this batch are added
+     * @param unitOfWork runs the handler in a unit of work of the command source
+     * @param commitConcurrently true if the unit of work may commit while other partitions change the jobs
+     * @return the number of job commands handled
+     */
+    private int ingestBatch(List<JobCommand> jobCommands, Set<String> postponedJobIds, Consumer<JobCommandsHandler> unitOfWork,
+                            boolean commitConcurrently) {
+        List<JobCommand> handledJobCommands = new ArrayList<>(jobCommands.size());
+        Set<String> newlyPostponedJobIds = new HashSet<>();
+        JobCommandsHandler handler = batch -> {
+            handledJobCommands.clear();
+            newlyPostponedJobIds.clear();
+            Set<JobCommand> commandsWithoutNetEffect = findCommandsWithoutNetEffect(batch, postponedJobIds);
+            List<JobCommand> jobResultCommands = new ArrayList<>();
+            for (JobCommand j : batch) {
+                if (!canBeForwardedTogether(jobResultCommands, j)) {
+                    forwardJobResultsToJobScheduler(jobResultCommands);
+                    handledJobCommands.addAll(jobResultCommands);
+                    jobResultCommands.clear();
+                }
+                String jobId = j.getJob().getId();
+                if (postponedJobIds.contains(jobId) || newlyPostponedJobIds.contains(jobId)
+                        || j.getCommand() == Command.SCHEDULE && !jobScheduler.hasCapacityFor(j.getJob().getType())) {
+                    newlyPostponedJobIds.add(jobId);
+                    continue;
+                }
+                if (commandsWithoutNetEffect.contains(j)) {
+                    handledJobCommands.add(j);
+                    continue;
+                }
+                if (isJobResult(j)) {
+                    jobResultCommands.add(j);
+                    continue;
+                }
+                forwardOrQuarantine(j);
+                handledJobCommands.add(j);
+            }
+            forwardJobResultsToJobScheduler(jobResultCommands);
+            handledJobCommands.addAll(jobResultCommands);
+            return handledJobCommands;
+        };
+        // If the batch fails, its unit of work is undone and the job scheduler undoes the changes of the batch
+        if (commitConcurrently) {
+            jobScheduler.runBatchCommittedConcurrently(runAction -> unitOfWork.accept(batch -> {
+                runAction.accept(() -> handler.handle(batch));
+                return handledJobCommands;
+            }));
+        } else {
+            jobScheduler.runBatch(() -> unitOfWork.accept(handler));
+        }
+        postponedJobIds.addAll(newlyPostponedJobIds);
+        return handledJobCommands.size();
+    }
+
+    private Set<JobCommand> findCommandsWithoutNetEffect(List<JobCommand> jobCommands, Set<String> postponedJobIds) {
+        List<JobCommand> jobCommandsToHandle = new ArrayList<>(jobCommands.size());
+        for (JobCommand j : jobCommands) {
+            if (!postponedJobIds.contains(j.getJob().getId())) {
+                jobCommandsToHandle.add(j);
+            }
+        }
+        return jobCommandCoalescer.findCommandsWithoutNetEffect(jobCommandsToHandle);
+    }
+
+    private static boolean isJobResult(JobCommand jobCommand) {
+        return jobCommand.getCommand() == Command.JOB_FINISHED || jobCommand.getCommand() == Command.JOB_FAILED;
+    }
+
+    /**
+     * Determines whether a job command can join the consecutive job results that have not been forwarded yet.
+     * Only results of the same kind for distinct jobs are forwarded together.
+     */
+    private static boolean canBeForwardedTogether(List<JobCommand> jobResultCommands, JobCommand jobCommand) {
+        if (jobResultCommands.isEmpty()) {
+            return true;
+        }
+        if (jobCommand.getCommand() != jobResultCommands.get(0).getCommand()) {
+            return false;
+        }
+        for (JobCommand j : jobResultCommands) {
+            if (j.getJob().getId().equals(jobCommand.getJob().getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forwards consecutive job results of the same kind with one call to {@link JobScheduler#jobsFinished(List)} or
+     * {@link JobScheduler#jobsFailed(List)}, for example the results of a batch of jobs executed by one requester.
+     * If the job scheduler rejects the results, then none of them has had an effect, so they are forwarded one by one
+     * to find out which results must be quarantined.
+     * @param jobResultCommands the job commands with the results; all have the same command
+     */
+    private void forwardJobResultsToJobScheduler(List<JobCommand> jobResultCommands) {
+        if (jobResultCommands.isEmpty()) {
+            return;
+        }
+        if (jobResultCommands.size() == 1) {
+            forwardOrQuarantine(jobResultCommands.get(0));
+            return;
+        }
+        List<String> jobIds = new ArrayList<>(jobResultCommands.size());
+        for (JobCommand j : jobResultCommands) {
+            jobIds.add(j.getJob().getId());
+        }
+        try {
+            if (jobResultCommands.get(0).getCommand() == Command.JOB_FINISHED) {
+                jobScheduler.jobsFinished(jobIds);
+            } else {
+                jobScheduler.jobsFailed(jobIds);
+            }
+        } catch (UnknownJobException | IllegalJobStateException e) {
+            for (JobCommand j : jobResultCommands) {
+                forwardOrQuarantine(j);
+            }
+        }
+    }
+
+    private void forwardOrQuarantine(JobCommand jobCommand) {
+        try {
+            forwardToJobScheduler(jobCommand);
+        } catch (UnknownJobException | DuplicateJobException | IllegalJobStateException e) {
+            if (!commandSource.isQuarantineEnabled()) {
+                throw e;
+            }
+            commandSource.quarantineJobCommand(jobCommand, e.toString());
+        }
+    }
+
+    /**
+     * Forwards a job command to the job scheduler. The job scheduler validates a command before it changes
+     * any state, so if it rejects the command with an {@link UnknownJobException}, {@link DuplicateJobException}
+     * or {@link IllegalJobStateException}, then the command has had no effect and the other commands of the batch
+     * can still be handled.
+     * @param jobCommand the job command
+     */
+    private void forwardToJobScheduler(JobCommand jobCommand) {
+        String jobId = jobCommand.getJob().getId();
+        switch (jobCommand.getCommand()) {
+            case SCHEDULE:
+                jobScheduler.schedule(jobCommand.getJob());
+                break;
+            case RESCHEDULE:
+                jobScheduler.reschedule(jobCommand.getJob());
+                break;
+            case JOB_FINISHED:
+                jobScheduler.jobFinished(jobId);
+                break;
+            case JOB_FAILED:
+                jobScheduler.jobFailed(jobId);
+                break;
+            case REMOVE:
+                jobScheduler.remove(jobId);
+                break;
+        }
+    }
+}
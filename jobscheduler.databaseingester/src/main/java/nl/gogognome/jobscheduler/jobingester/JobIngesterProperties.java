@@ -0,0 +1,204 @@
+package nl.gogognome.jobscheduler.jobingester;
+
+public class JobIngesterProperties {
+
+    private String connectionName = "nl.gogognome.jobscheduler.jobingester";
+    private String tableName = "NlGogognomeJobsToIngest";
+    private String commandIdSequence = "command_id_sequence";
+    private String commandIdColumn = "command_id";
+    private String commandColumn = "command";
+    private String idColumn = "id";
+    private String scheduledAtInstantColumn = "scheduledAtInstant";
+    private String typeColumn = "type";
+    private String dataColumn = "data";
+    private String deadlineColumn = "deadline";
+    private String orderingKeyColumn = "orderingKey";
+    private String coalescingKeyColumn = "coalescingKey";
+    private String quarantineTableName = null;
+    private String errorColumn = "error";
+    private String selectJobCommandsQuery = null;
+    private int maxBatchSize = 1000;
+
+    private long delayBetweenPolls = 1000L;
+    private boolean notificationsEnabled = false;
+    private long delayBetweenPollsWithNotifications = 30_000L;
+
+    public String getConnectionName() {
+        return connectionName;
+    }
+
+    public void setConnectionName(String connectionName) {
+        this.connectionName = connectionName;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public String getCommandIdSequence() {
+        return commandIdSequence;
+    }
+
+    public void setCommandIdSequence(String commandIdSequence) {
+        this.commandIdSequence = commandIdSequence;
+    }
+
+    public String getCommandIdColumn() {
+        return commandIdColumn;
+    }
+
+    public void setCommandIdColumn(String commandIdColumn) {
+        this.commandIdColumn = commandIdColumn;
+    }
+
+    public String getCommandColumn() {
+        return commandColumn;
+    }
+
+    public void setCommandColumn(String commandColumn) {
+        this.commandColumn = commandColumn;
+    }
+
+    public String getIdColumn() {
+        return idColumn;
+    }
+
+    public void setIdColumn(String idColumn) {
+        this.idColumn = idColumn;
+    }
+
+    public String getScheduledAtInstantColumn() {
+        return scheduledAtInstantColumn;
+    }
+
+    public void setScheduledAtInstantColumn(String scheduledAtInstantColumn) {
+        this.scheduledAtInstantColumn = scheduledAtInstantColumn;
+    }
+
+    public String getTypeColumn() {
+        return typeColumn;
+    }
+
+    public void setTypeColumn(String typeColumn) {
+        this.typeColumn = typeColumn;
+    }
+
+    public String getDataColumn() {
+        return dataColumn;
+    }
+
+    public void setDataColumn(String dataColumn) {
+        this.dataColumn = dataColumn;
+    }
+
+    public String getDeadlineColumn() {
+        return deadlineColumn;
+    }
+
+    public void setDeadlineColumn(String deadlineColumn) {
+        this.deadlineColumn = deadlineColumn;
+    }
+
+    public String getOrderingKeyColumn() {
+        return orderingKeyColumn;
+    }
+
+    public void setOrderingKeyColumn(String orderingKeyColumn) {
+        this.orderingKeyColumn = orderingKeyColumn;
+    }
+
+    public String getCoalescingKeyColumn() {
+        return coalescingKeyColumn;
+    }
+
+    public void setCoalescingKeyColumn(String coalescingKeyColumn) {
+        this.coalescingKeyColumn = coalescingKeyColumn;
+    }
+
+    /**
+     * @return the name of the table to which job commands that are rejected by the job scheduler are moved;
+     *         null, the default, if a rejected job command must roll back the batch it is part of
+     */
+    public String getQuarantineTableName() {
+        return quarantineTableName;
+    }
+
+    /**
+     * Enables quarantining of rejected job commands. The table must have been created before, for example with
+     * the migration {@code addQuarantineTable.sql}.
+     * @param quarantineTableName the name of the quarantine table, for example
+     *                            {@code NlGogognomeQuarantinedJobCommands}; null to disable quarantining
+     */
+    public void setQuarantineTableName(String quarantineTableName) {
+        this.quarantineTableName = quarantineTableName;
+    }
+
+    /**
+     * @return the column of the quarantine table that contains the reason why the job command was rejected
+     */
+    public String getErrorColumn() {
+        return errorColumn;
+    }
+
+    public void setErrorColumn(String errorColumn) {
+        this.errorColumn = errorColumn;
+    }
+
+    public long getDelayBetweenPolls() {
+        return delayBetweenPolls;
+    }
+
+    public void setDelayBetweenPolls(long delayBetweenPolls) {
+        this.delayBetweenPolls = delayBetweenPolls;
+    }
+
+    /**
+     * @return true if a database trigger notifies the job ingester runner about inserted job commands; false if
+     *         the job ingester runner relies on polling only
+     */
+    public boolean isNotificationsEnabled() {
+        return notificationsEnabled;
+    }
+
+    public void setNotificationsEnabled(boolean notificationsEnabled) {
+        this.notificationsEnabled = notificationsEnabled;
+    }
+
+    /**
+     * @return the maximum delay between polls if notifications are enabled. Polling is then only a safety net for
+     *         notifications that are missed, so this delay is much longer than {@link #getDelayBetweenPolls()}.
+     */
+    public long getDelayBetweenPollsWithNotifications() {
+        return delayBetweenPollsWithNotifications;
+    }
+
+    public void setDelayBetweenPollsWithNotifications(long delayBetweenPollsWithNotifications) {
+        this.delayBetweenPollsWithNotifications = delayBetweenPollsWithNotifications;
+    }
+
+    /**
+     * @return the maximum number of job commands that are read and handled in one transaction
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least one");
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public String getSelectJobCommandsQuery() {
+        return selectJobCommandsQuery;
+    }
+
+    public void setSelectJobCommandsQuery(String selectJobCommandsQuery) {
+        this.selectJobCommandsQuery = selectJobCommandsQuery;
+    }
+}
@@ -0,0 +1,124 @@
+package nl.gogognome.jobscheduler.jobingester;
+
+public class JobIngesterRunner {
+
+    private final JobIngesterProperties properties;
+    private final JobIngester jobIngester;
+    private final Runnable notificationListener = this::wakeUp;
+
+    private Thread thread;
+    private boolean threadRunning;
+    private boolean wakeUpRequested;
+    private final Object lock = new Object();
+
+    public JobIngesterRunner(JobIngesterProperties properties, JobIngester jobIngester) {
+        this.properties = properties;
+        this.jobIngester = jobIngester;
+    }
+
+    public void start() {
+        synchronized (lock) {
+            if (threadRunning) {
+                throw new IllegalStateException("The job ingester is still running");
+            }
+            threadRunning = true;
+            if (properties.isNotificationsEnabled()) {
+                jobIngester.addListener(notificationListener);
+            }
+            thread = new Thread(this::timerThread);
+            thread.start();
+        }
+    }
+
+    public void stop() {
+        synchronized (lock) {
+            if (!threadRunning) {
+                throw new IllegalStateException("The job ingester is not running");
+            }
+            threadRunning = false;
+            jobIngester.removeListener(notificationListener);
+            lock.notify();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            // ignore this exception
+        }
+        thread = null;
+    }
+
+    /**
+     * Wakes up the thread that ingests job commands, so that it reads the job commands immediately instead of
+     * after its current delay. Call this method after a transaction that inserted job commands has been committed
+     * in the same process. Polling remains for job commands that are inserted by other processes.
+     *
+     * <p>After a wake-up the delay between polls starts at one millisecond again. So if the thread is woken up
+     * just before the transaction has been committed, the job commands are still found within a few milliseconds.
+     * The transaction can also be committed much later, for example when the job commands were inserted within an
+     * enclosing transaction. Therefore, until job commands have been found, the delay does not grow beyond
+     * {@link JobIngesterProperties#getDelayBetweenPolls()}, also when notifications are enabled. If no job commands
+     * are found within {@link JobIngesterProperties#getDelayBetweenPollsWithNotifications()}, for example because
+     * the transaction was rolled back, the delay grows to its normal maximum again.
+     */
+    public void wakeUp() {
+        synchronized (lock) {
+            wakeUpRequested = true;
+            lock.notify();
+        }
+    }
+
+    private void timerThread() {
+        long maxDelayInMilliseconds = properties.isNotificationsEnabled()
+                ? properties.getDelayBetweenPollsWithNotifications() : properties.getDelayBetweenPolls();
+        long maxDelayWhileExpectingJobCommands = Math.min(properties.getDelayBetweenPolls(), maxDelayInMilliseconds);
+        long delayInMilliseconds = 1;
+        long delaySinceWakeUpInMilliseconds = maxDelayInMilliseconds;
+        while (true) {
+            synchronized (lock) {
+                if (!threadRunning) {
+                    return;
+                }
+            }
+
+            int nrCommandsHandled;
+            try {
+                nrCommandsHandled = jobIngester.ingestJobs();
+            } catch (Exception e) {
+                nrCommandsHandled = 0;
+            }
+
+            boolean wokenUp;
+            synchronized (lock) {
+                wokenUp = wakeUpRequested;
+                wakeUpRequested = false;
+            }
+
+            if (wokenUp) {
+                delaySinceWakeUpInMilliseconds = 0;
+            } else if (nrCommandsHandled > 0) {
+                delaySinceWakeUpInMilliseconds = maxDelayInMilliseconds;
+            }
+            boolean expectingJobCommands = delaySinceWakeUpInMilliseconds < maxDelayInMilliseconds;
+
+            delayInMilliseconds = nrCommandsHandled > 0 || wokenUp ? 1 : Math.min(2 * delayInMilliseconds,
+                    expectingJobCommands ? maxDelayWhileExpectingJobCommands : maxDelayInMilliseconds);
+            if (expectingJobCommands) {
+                delaySinceWakeUpInMilliseconds += delayInMilliseconds;
+            }
+            delayThread(delayInMilliseconds);
+        }
+    }
+
+    protected void delayThread(long delayInMilliseconds) {
+        synchronized (lock) {
+            if (wakeUpRequested) {
+                return;
+            }
+            try {
+                lock.wait(delayInMilliseconds);
+            } catch (InterruptedException e) {
+                // ignore this exception
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package nl.gogognome.jobscheduler.jobingester.database;
+
+import nl.gogognome.dataaccess.transaction.NewTransaction;
+import nl.gogognome.dataaccess.transaction.RequireTransaction;
+import nl.gogognome.jobscheduler.jobingester.CommandSource;
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+import nl.gogognome.jobscheduler.jobingester.JobCommandsHandler;
+
+import java.util.List;
+
+/**
+ * Reads job commands from a database table. Each batch is handled in a database transaction of its own, in which
+ * the handled commands are deleted. Changes that the job persister makes in the same database are part of that
+ * transaction.
+ */
+public class DatabaseCommandSource implements CommandSource {
+
+    private final JobCommandDAO jobCommandDAO;
+
+    /**
+     * Creates a command source for the table of a DAO.
+     * @param jobCommandDAO the DAO to read and delete job commands
+     */
+    public DatabaseCommandSource(JobCommandDAO jobCommandDAO) {
+        this.jobCommandDAO = jobCommandDAO;
+    }
+
+    @Override
+    public List<JobCommand> findJobCommands(String afterCommandId) {
+        return NewTransaction.returns(() -> jobCommandDAO.findJobCommands(afterCommandId));
+    }
+
+    /**
+     * Handles a batch in a transaction of its own. The handled commands are deleted with a range delete,
+     * see {@link JobCommandDAO#deleteJobCommands(String, List, List)}.
+     */
+    @Override
+    public void handleJobCommands(String afterCommandId, List<JobCommand> batch, JobCommandsHandler handler) {
+        NewTransaction.runs(() -> jobCommandDAO.deleteJobCommands(afterCommandId, batch, handler.handle(batch)));
+    }
+
+    /**
+     * Handles job commands in a transaction of its own. A range of command ids contains the other commands of the
+     * batch, so the handled commands are deleted by command id.
+     */
+    @Override
+    public void handleJobCommands(List<JobCommand> jobCommands, JobCommandsHandler handler) {
+        NewTransaction.runs(() -> jobCommandDAO.deleteJobCommands(handler.handle(jobCommands)));
+    }
+
+    @Override
+    public boolean isQuarantineEnabled() {
+        return jobCommandDAO.isQuarantineEnabled();
+    }
+
+    @Override
+    public void quarantineJobCommand(JobCommand jobCommand, String error) {
+        RequireTransaction.runs(() -> jobCommandDAO.quarantineJobCommand(jobCommand, error));
+    }
+
+    /**
+     * Adds a listener that is called by {@link JobCommandNotifications} for the table of this command source.
+     */
+    @Override
+    public void addListener(Runnable listener) {
+        JobCommandNotifications.addListener(jobCommandDAO.getProperties().getTableName(), listener);
+    }
+
+    @Override
+    public void removeListener(Runnable listener) {
+        JobCommandNotifications.removeListener(jobCommandDAO.getProperties().getTableName(), listener);
+    }
+}
@@ -3,19 +3,62 @@ package nl.gogognome.jobscheduler.jobingester.database;
 import nl.gogognome.dataaccess.dao.AbstractDomainClassDAO;
 import nl.gogognome.dataaccess.dao.NameValuePairs;
 import nl.gogognome.dataaccess.dao.ResultSetWrapper;
+import nl.gogognome.jobscheduler.jobingester.Command;
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterProperties;
 import nl.gogognome.jobscheduler.scheduler.Job;
+import nl.gogognome.jobscheduler.scheduler.SymbolTable;
 
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class JobCommandDAO extends AbstractDomainClassDAO<JobCommand>{
 
+    /** The number of digits of a command id taken from the sequence; enough for any positive long. */
+    private final static int COMMAND_ID_WIDTH = 19;
+
     private final JobIngesterProperties properties;
+    private final QuarantinedJobCommandDAO quarantinedJobCommandDAO;
 
     public JobCommandDAO(JobIngesterProperties properties) {
         super(properties.getTableName(), properties.getCommandIdSequence(), properties.getConnectionName());
         this.properties = properties;
+        this.quarantinedJobCommandDAO = properties.getQuarantineTableName() != null ? new QuarantinedJobCommandDAO(properties, this) : null;
+    }
+
+    JobIngesterProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Creates a job command. If the job command has no command id, then the command id is the next value of the
+     * command id sequence, padded with zeros to a fixed width. Command ids are strings, so without padding
+     * command id 10 would sort, and therefore be handled, before command id 9.
+     * @param jobCommand the job command
+     * @return the created job command
+     * @throws SQLException if a problem occurs
+     */
+    @Override
+    public JobCommand create(JobCommand jobCommand) throws SQLException {
+        if (jobCommand.getCommandId() == null && properties.getCommandIdSequence() != null) {
+            long sequenceValue = execute("SELECT NEXT VALUE FOR " + properties.getCommandIdSequence() + " AS next_value")
+                    .toList(result -> result.getLong("next_value")).get(0);
+            jobCommand = new JobCommand(formatCommandId(sequenceValue), jobCommand.getCommand(), jobCommand.getJob());
+        }
+        return super.create(jobCommand);
+    }
+
+    /**
+     * Formats a number as a command id that has a fixed width, so that command ids sort in the same order as the
+     * numbers. Use this method if your application takes command ids from a sequence itself.
+     * @param number the number, for example a value of the command id sequence
+     * @return the command id
+     */
+    public static String formatCommandId(long number) {
+        return String.format("%0" + COMMAND_ID_WIDTH + "d", number);
     }
 
     public List<JobCommand> findJobCommands() throws SQLException {
@@ -25,6 +68,100 @@ public class JobCommandDAO extends AbstractDomainClassDAO<JobCommand>{
         return execute(properties.getSelectJobCommandsQuery()).toList(this::getObjectFromResultSet);
     }
 
+    /**
+     * Finds a batch of at most {@link JobIngesterProperties#getMaxBatchSize()} job commands ordered by command id.
+     * Pass the command id of the last command of a batch to find the next batch. This way each batch is read
+     * with a range scan of the primary key, regardless of the number of commands that precede it.
+     *
+     * <p>If a select job commands query has been configured, then all commands returned by that query form a
+     * single batch.
+     * @param afterCommandId only commands with a larger command id are returned; null to start at the first command
+     * @return the job commands; an empty list if no more commands exist
+     * @throws SQLException if a problem occurs
+     */
+    public List<JobCommand> findJobCommands(String afterCommandId) throws SQLException {
+        if (properties.getSelectJobCommandsQuery() != null) {
+            return afterCommandId == null ? findJobCommands() : Collections.emptyList();
+        }
+        String commandIdColumn = properties.getCommandIdColumn();
+        String orderAndLimit = " ORDER BY " + commandIdColumn + " FETCH FIRST " + properties.getMaxBatchSize() + " ROWS ONLY";
+        if (afterCommandId == null) {
+            return execute("SELECT * FROM " + tableName + orderAndLimit).toList(this::getObjectFromResultSet);
+        }
+        return execute("SELECT * FROM " + tableName + " WHERE " + commandIdColumn + ">?" + orderAndLimit, afterCommandId)
+                .toList(this::getObjectFromResultSet);
+    }
+
+    /**
+     * Deletes the handled job commands of a batch that has been read by {@link #findJobCommands(String)}. Each
+     * run of consecutive handled commands is deleted with one range delete on the command id, so the statement
+     * does not grow with the size of the batch. Only commands that are not handled, because they have been
+     * postponed, split the batch into multiple runs.
+     *
+     * <p>Command ids need not be inserted in ascending order. For example, an application that generates its own
+     * command ids may insert a command with a command id that sorts before the command ids of commands that are
+     * being deleted. The number of commands in the range is counted first; if the range contains a command that
+     * is not part of the batch, then the commands of that run are deleted by their command ids instead.
+     *
+     * <p>If a select job commands query has been configured, then the batch need not contain all commands of a range,
+     * so the handled commands are deleted by their command ids instead.
+     * @param afterCommandId the command id that was passed to {@link #findJobCommands(String)} to read the batch
+     * @param batch the commands of the batch, ordered by command id
+     * @param handledJobCommands the handled commands of the batch, in the same order as in the batch
+     * @throws SQLException if a problem occurs or if a command is added to a range while the range is deleted
+     */
+    public void deleteJobCommands(String afterCommandId, List<JobCommand> batch, List<JobCommand> handledJobCommands) throws SQLException {
+        if (properties.getSelectJobCommandsQuery() != null) {
+            deleteJobCommands(handledJobCommands);
+            return;
+        }
+        String rangeStart = afterCommandId;
+        List<JobCommand> run = new ArrayList<>();
+        int handledIndex = 0;
+        for (JobCommand jobCommand : batch) {
+            if (handledIndex < handledJobCommands.size()
+                    && handledJobCommands.get(handledIndex).getCommandId().equals(jobCommand.getCommandId())) {
+                handledIndex++;
+                run.add(jobCommand);
+            } else {
+                deleteJobCommandRange(rangeStart, run);
+                rangeStart = jobCommand.getCommandId();
+                run.clear();
+            }
+        }
+        deleteJobCommandRange(rangeStart, run);
+    }
+
+    private void deleteJobCommandRange(String afterCommandId, List<JobCommand> run) throws SQLException {
+        if (run.isEmpty()) {
+            return;
+        }
+        String lastCommandId = run.get(run.size() - 1).getCommandId();
+        String commandIdColumn = properties.getCommandIdColumn();
+        String rangeCondition;
+        Object[] parameters;
+        if (afterCommandId == null) {
+            rangeCondition = " WHERE " + commandIdColumn + "<=?";
+            parameters = new Object[] { lastCommandId };
+        } else {
+            rangeCondition = " WHERE " + commandIdColumn + ">? AND " + commandIdColumn + "<=?";
+            parameters = new Object[] { afterCommandId, lastCommandId };
+        }
+
+        long nrCommandsInRange = execute("SELECT COUNT(*) AS nr_commands FROM " + tableName + rangeCondition, parameters)
+                .toList(result -> result.getLong("nr_commands")).get(0);
+        if (nrCommandsInRange != run.size()) {
+            deleteJobCommands(run);
+            return;
+        }
+
+        int nrDeletedRows = execute("DELETE FROM " + tableName + rangeCondition, parameters).getNumberModifiedRows();
+        if (nrDeletedRows != run.size()) {
+            throw new SQLException("Deleted " + nrDeletedRows + " instead of " + run.size() + " job commands up to command id "
+                    + lastCommandId + ". A job command has been added in this range while it was deleted.");
+        }
+    }
+
     public void deleteJobCommands(List<JobCommand> jobCommands) throws SQLException {
         if (!jobCommands.isEmpty()) {
             StringBuilder query = new StringBuilder();
@@ -44,15 +181,56 @@ public class JobCommandDAO extends AbstractDomainClassDAO<JobCommand>{
         }
     }
 
+    /**
+     * @return true if rejected job commands are moved to the quarantine table; false otherwise
+     */
+    public boolean isQuarantineEnabled() {
+        return quarantinedJobCommandDAO != null;
+    }
+
+    /**
+     * Adds a job command to the quarantine table. The job command must be deleted from the table of job commands
+     * separately, in the same transaction.
+     * @param jobCommand the job command
+     * @param error the reason why the job command was rejected
+     * @throws SQLException if a problem occurs
+     * @throws IllegalStateException if no quarantine table has been configured
+     */
+    public void quarantineJobCommand(JobCommand jobCommand, String error) throws SQLException {
+        getQuarantinedJobCommandDAO().create(new QuarantinedJobCommand(jobCommand, error));
+    }
+
+    /**
+     * @return the job commands in the quarantine table ordered by command id
+     * @throws SQLException if a problem occurs
+     * @throws IllegalStateException if no quarantine table has been configured
+     */
+    public List<QuarantinedJobCommand> findQuarantinedJobCommands() throws SQLException {
+        return getQuarantinedJobCommandDAO().findQuarantinedJobCommands();
+    }
+
+    private QuarantinedJobCommandDAO getQuarantinedJobCommandDAO() {
+        if (quarantinedJobCommandDAO == null) {
+            throw new IllegalStateException("No quarantine table has been configured");
+        }
+        return quarantinedJobCommandDAO;
+    }
+
     @Override
     protected JobCommand getObjectFromResultSet(ResultSetWrapper result) throws SQLException {
         String commandId = result.getString(properties.getCommandIdColumn());
 
         String id = result.getString(properties.getIdColumn());
-        String type = result.getString(properties.getTypeColumn());
+        String type = SymbolTable.jobTypes().intern(result.getString(properties.getTypeColumn()));
         String data = result.getString(properties.getDataColumn());
         Instant scheduledAtInstant = result.getInstant(properties.getScheduledAtInstantColumn());
-        Job job = new Job(id, type, data, scheduledAtInstant);
+        Instant deadline = result.getInstant(properties.getDeadlineColumn());
+        String orderingKey = result.getString(properties.getOrderingKeyColumn());
+        String coalescingKey = result.getString(properties.getCoalescingKeyColumn());
+        Job job = new Job(id, type, data, scheduledAtInstant)
+                .withDeadline(deadline)
+                .withOrderingKey(orderingKey)
+                .withCoalescingKey(coalescingKey);
 
         Command command = result.getEnum(Command.class, properties.getCommandColumn());
 
@@ -68,7 +246,10 @@ public class JobCommandDAO extends AbstractDomainClassDAO<JobCommand>{
                 .add(properties.getIdColumn(), job.getId())
                 .add(properties.getScheduledAtInstantColumn(), job.getScheduledAtInstant())
                 .add(properties.getTypeColumn(), job.getType())
-                .add(properties.getDataColumn(), job.getData());
+                .add(properties.getDataColumn(), job.getData())
+                .add(properties.getDeadlineColumn(), job.getDeadline())
+                .add(properties.getOrderingKeyColumn(), job.getOrderingKey())
+                .add(properties.getCoalescingKeyColumn(), job.getCoalescingKey());
     }
 
     @Override
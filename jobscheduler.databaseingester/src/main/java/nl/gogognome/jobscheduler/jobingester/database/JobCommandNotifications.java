@@ -0,0 +1,63 @@
+package nl.gogognome.jobscheduler.jobingester.database;
+
+import nl.gogognome.jobscheduler.jobingester.JobIngesterRunner;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Keeps track of the listeners that want to be notified when job commands are inserted in a table. A database trigger
+ * that runs in the same process, like an H2 trigger, calls {@link #notifyListeners(String)} when job commands are
+ * inserted, so that {@link JobIngesterRunner}s in the same process can read the job commands without waiting for
+ * their next poll.
+ *
+ * <p>Table names are compared case-insensitively, because databases often report table names in upper case.
+ */
+public class JobCommandNotifications {
+
+    private final static Map<String, Set<Runnable>> TABLE_NAME_TO_LISTENERS = new ConcurrentHashMap<>();
+
+    private JobCommandNotifications() {
+    }
+
+    /**
+     * Adds a listener that is notified when job commands are inserted in a table.
+     * @param tableName the name of the table
+     * @param listener the listener
+     */
+    public static void addListener(String tableName, Runnable listener) {
+        TABLE_NAME_TO_LISTENERS.computeIfAbsent(normalize(tableName), t -> new CopyOnWriteArraySet<>()).add(listener);
+    }
+
+    /**
+     * Removes a listener that was added with {@link #addListener(String, Runnable)}.
+     * @param tableName the name of the table
+     * @param listener the listener
+     */
+    public static void removeListener(String tableName, Runnable listener) {
+        Set<Runnable> listeners = TABLE_NAME_TO_LISTENERS.get(normalize(tableName));
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Notifies the listeners of a table that job commands have been inserted in the table.
+     * @param tableName the name of the table
+     */
+    public static void notifyListeners(String tableName) {
+        Set<Runnable> listeners = TABLE_NAME_TO_LISTENERS.get(normalize(tableName));
+        if (listeners != null) {
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+    }
+
+    private static String normalize(String tableName) {
+        return tableName.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,25 @@
+package nl.gogognome.jobscheduler.jobingester.database;
+
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+
+/**
+ * A job command that the job scheduler rejected, together with the reason why it was rejected.
+ */
+public class QuarantinedJobCommand {
+
+    private final JobCommand jobCommand;
+    private final String error;
+
+    public QuarantinedJobCommand(JobCommand jobCommand, String error) {
+        this.jobCommand = jobCommand;
+        this.error = error;
+    }
+
+    public JobCommand getJobCommand() {
+        return jobCommand;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,45 @@
+package nl.gogognome.jobscheduler.jobingester.database;
+
+import nl.gogognome.dataaccess.dao.AbstractDomainClassDAO;
+import nl.gogognome.dataaccess.dao.NameValuePairs;
+import nl.gogognome.dataaccess.dao.ResultSetWrapper;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterProperties;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Stores job commands that the job scheduler rejected in the quarantine table. The quarantine table has the
+ * same columns as the table of job commands plus a column for the error.
+ */
+class QuarantinedJobCommandDAO extends AbstractDomainClassDAO<QuarantinedJobCommand> {
+
+    private final JobIngesterProperties properties;
+    private final JobCommandDAO jobCommandDAO;
+
+    QuarantinedJobCommandDAO(JobIngesterProperties properties, JobCommandDAO jobCommandDAO) {
+        super(properties.getQuarantineTableName(), null, properties.getConnectionName());
+        this.properties = properties;
+        this.jobCommandDAO = jobCommandDAO;
+    }
+
+    List<QuarantinedJobCommand> findQuarantinedJobCommands() throws SQLException {
+        return findAll(properties.getCommandIdColumn());
+    }
+
+    @Override
+    protected QuarantinedJobCommand getObjectFromResultSet(ResultSetWrapper result) throws SQLException {
+        return new QuarantinedJobCommand(jobCommandDAO.getObjectFromResultSet(result), result.getString(properties.getErrorColumn()));
+    }
+
+    @Override
+    protected NameValuePairs getNameValuePairs(QuarantinedJobCommand quarantinedJobCommand) {
+        return jobCommandDAO.getNameValuePairs(quarantinedJobCommand.getJobCommand())
+                .add(properties.getErrorColumn(), quarantinedJobCommand.getError());
+    }
+
+    @Override
+    protected String getPkColumn() {
+        return properties.getCommandIdColumn();
+    }
+}
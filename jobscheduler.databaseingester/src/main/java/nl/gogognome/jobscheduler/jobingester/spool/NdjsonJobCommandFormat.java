@@ -0,0 +1,108 @@
+package nl.gogognome.jobscheduler.jobingester.spool;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import nl.gogognome.jobscheduler.jobingester.Command;
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+import nl.gogognome.jobscheduler.scheduler.Job;
+import nl.gogognome.jobscheduler.scheduler.SymbolTable;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Converts job commands to and from lines of newline delimited JSON, for example:
+ * <pre>
+ * {"command":"SCHEDULE","id":"42","type":"email","data":"...","scheduledAtInstant":"2024-01-01T00:00:00Z"}
+ * </pre>
+ * The fields {@code type}, {@code data}, {@code scheduledAtInstant}, {@code deadline}, {@code orderingKey} and
+ * {@code coalescingKey} are optional, like the columns of the job command table.
+ */
+class NdjsonJobCommandFormat {
+
+    private final static Gson GSON = new Gson();
+
+    String format(JobCommand jobCommand) {
+        Job job = jobCommand.getJob();
+        JsonJobCommand json = new JsonJobCommand();
+        json.command = jobCommand.getCommand().name();
+        json.id = job.getId();
+        json.type = job.getType();
+        json.data = job.getData();
+        json.scheduledAtInstant = toString(job.getScheduledAtInstant());
+        json.deadline = toString(job.getDeadline());
+        json.orderingKey = job.getOrderingKey();
+        json.coalescingKey = job.getCoalescingKey();
+        return GSON.toJson(json);
+    }
+
+    /**
+     * Formats a line that could not be handled as a quarantine record.
+     * @param commandId the command id of the line
+     * @param line the line
+     * @param error a description of why the line could not be handled
+     * @return the quarantine record
+     */
+    String formatQuarantineRecord(String commandId, String line, String error) {
+        JsonObject json = new JsonObject();
+        json.addProperty("commandId", commandId);
+        json.addProperty("line", line);
+        json.addProperty("error", error);
+        return GSON.toJson(json);
+    }
+
+    /**
+     * Parses a line.
+     * @param commandId the command id of the job command
+     * @param line the line
+     * @return the job command
+     * @throws IllegalArgumentException if the line is not a valid job command
+     */
+    JobCommand parse(String commandId, String line) {
+        JsonJobCommand json;
+        try {
+            json = GSON.fromJson(line, JsonJobCommand.class);
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getMessage(), e);
+        }
+        if (json == null || json.command == null || json.id == null) {
+            throw new IllegalArgumentException("A job command must have a command and an id");
+        }
+
+        Command command;
+        try {
+            command = Command.valueOf(json.command);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown command: " + json.command);
+        }
+        Job job = new Job(json.id, SymbolTable.jobTypes().intern(json.type), json.data, toInstant(json.scheduledAtInstant))
+                .withDeadline(toInstant(json.deadline))
+                .withOrderingKey(json.orderingKey)
+                .withCoalescingKey(json.coalescingKey);
+        return new JobCommand(commandId, command, job);
+    }
+
+    private static String toString(Instant instant) {
+        return instant != null ? instant.toString() : null;
+    }
+
+    private static Instant toInstant(String instant) {
+        try {
+            return instant != null ? Instant.parse(instant) : null;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid instant: " + instant);
+        }
+    }
+
+    private static class JsonJobCommand {
+        String command;
+        String id;
+        String type;
+        String data;
+        String scheduledAtInstant;
+        String deadline;
+        String orderingKey;
+        String coalescingKey;
+    }
+}
@@ -0,0 +1,459 @@
+package nl.gogognome.jobscheduler.jobingester.spool;
+
+import nl.gogognome.jobscheduler.jobingester.CommandSource;
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+import nl.gogognome.jobscheduler.jobingester.JobCommandsHandler;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Reads job commands from spool files in a directory, without a database. A spool file contains one job command per
+ * line in newline delimited JSON, see {@link NdjsonJobCommandFormat}. Producers write a spool file under a temporary
+ * name and rename it to a name ending with {@value #SPOOL_FILE_EXTENSION} once it is complete, for example with a
+ * {@link SpoolFileWriter}. Spool files are read in order of file name.
+ *
+ * <p>Before a spool file is read, it is claimed by atomically moving it to the subdirectory
+ * {@value #PROCESSING_DIRECTORY}. A rename is atomic, so each complete spool file is handed over to exactly one
+ * command source. Only one command source may read a spool directory at a time, because the files in the
+ * subdirectory {@value #PROCESSING_DIRECTORY} belong to it.
+ *
+ * <p>The lines of the handled commands of a claimed spool file are recorded in a progress file next to it, with the
+ * extension {@value #PROGRESS_FILE_EXTENSION}. The progress file is written under a temporary name and atomically
+ * renamed before {@link #handleJobCommands(List, JobCommandsHandler)} returns, so a crash leaves either the old or
+ * the new progress. A later ingestion, also by a new command source after a restart, skips the recorded lines, so
+ * handled commands are not handled again. Only a crash while a batch is being handled, before its progress has been
+ * written, makes the commands of that batch be read again. A spool file of which all lines have been handled is
+ * deleted together with its progress file. Lines that are not valid job commands and commands that the job scheduler
+ * rejects are appended to {@value #QUARANTINE_FILE} in the subdirectory {@value #QUARANTINE_DIRECTORY}.
+ *
+ * <p>Each batch is handled without a database transaction. So use a job persister that does not need one, or one
+ * that starts a transaction per change; the job scheduler undoes the changes in memory of a batch that fails, but
+ * not the changes that have been persisted.
+ */
+public class SpoolDirectoryCommandSource implements CommandSource, Closeable {
+
+    final static String SPOOL_FILE_EXTENSION = ".ndjson";
+    final static String TEMPORARY_FILE_EXTENSION = ".tmp";
+    final static String PROGRESS_FILE_EXTENSION = ".progress";
+    final static String PROCESSING_DIRECTORY = "processing";
+    final static String QUARANTINE_DIRECTORY = "quarantine";
+    final static String QUARANTINE_FILE = "quarantined-job-commands.ndjson";
+
+    private final Path spoolDirectory;
+    private final Path processingDirectory;
+    private final Path quarantineFile;
+    private final int maxBatchSize;
+    private final NdjsonJobCommandFormat format = new NdjsonJobCommandFormat();
+
+    private final Object lock = new Object();
+    private final Deque<String> fileNamesToRead = new ArrayDeque<>();
+    private final Map<String, SpoolFile> nameToClaimedFile = new HashMap<>();
+    private SpoolFile fileBeingRead;
+    private String lastCommandIdRead;
+    private final ThreadLocal<List<String>> quarantineRecordsOfCurrentThread = new ThreadLocal<>();
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private WatchService watchService;
+
+    /**
+     * Creates a command source for a spool directory. The subdirectories are created if they do not exist.
+     * @param spoolDirectory the spool directory
+     * @param maxBatchSize the maximum number of job commands per batch
+     * @throws IOException if the subdirectories could not be created
+     */
+    public SpoolDirectoryCommandSource(Path spoolDirectory, int maxBatchSize) throws IOException {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least one");
+        }
+        this.spoolDirectory = spoolDirectory;
+        this.processingDirectory = spoolDirectory.resolve(PROCESSING_DIRECTORY);
+        this.quarantineFile = spoolDirectory.resolve(QUARANTINE_DIRECTORY).resolve(QUARANTINE_FILE);
+        this.maxBatchSize = maxBatchSize;
+        Files.createDirectories(processingDirectory);
+        Files.createDirectories(quarantineFile.getParent());
+    }
+
+    /**
+     * Finds the next batch of job commands. A batch can contain the commands of multiple spool files. If the
+     * command id is null, then the spool files of a previous ingestion are released first, and the spool files that
+     * are present at this moment are read by this ingestion.
+     */
+    @Override
+    public List<JobCommand> findJobCommands(String afterCommandId) {
+        synchronized (lock) {
+            try {
+                if (afterCommandId == null) {
+                    startIngestion();
+                } else if (!afterCommandId.equals(lastCommandIdRead)) {
+                    return Collections.emptyList(); // the batch belongs to an ingestion that has failed
+                }
+                List<JobCommand> batch = readBatch();
+                if (!batch.isEmpty()) {
+                    lastCommandIdRead = batch.get(batch.size() - 1).getCommandId();
+                }
+                return batch;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void handleJobCommands(String afterCommandId, List<JobCommand> batch, JobCommandsHandler handler) {
+        handleJobCommands(batch, handler);
+    }
+
+    @Override
+    public void handleJobCommands(List<JobCommand> jobCommands, JobCommandsHandler handler) {
+        List<String> quarantineRecords = new ArrayList<>();
+        List<JobCommand> handledJobCommands;
+        quarantineRecordsOfCurrentThread.set(quarantineRecords);
+        try {
+            handledJobCommands = handler.handle(jobCommands);
+        } finally {
+            quarantineRecordsOfCurrentThread.remove();
+        }
+
+        synchronized (lock) {
+            try {
+                appendToQuarantineFile(quarantineRecords);
+                Set<SpoolFile> spoolFiles = new LinkedHashSet<>();
+                for (JobCommand jobCommand : jobCommands) {
+                    SpoolFile spoolFile = nameToClaimedFile.get(getFileName(jobCommand));
+                    if (spoolFile != null) {
+                        spoolFile.nrCommandsProcessed++;
+                        spoolFiles.add(spoolFile);
+                    }
+                }
+                for (JobCommand jobCommand : handledJobCommands) {
+                    SpoolFile spoolFile = nameToClaimedFile.get(getFileName(jobCommand));
+                    if (spoolFile != null) {
+                        spoolFile.removedLines.set(getLineIndex(jobCommand));
+                    }
+                }
+                for (SpoolFile spoolFile : spoolFiles) {
+                    if (!releaseIfProcessed(spoolFile)) {
+                        saveProgress(spoolFile);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public boolean isQuarantineEnabled() {
+        return true;
+    }
+
+    @Override
+    public void quarantineJobCommand(JobCommand jobCommand, String error) {
+        List<String> quarantineRecords = quarantineRecordsOfCurrentThread.get();
+        if (quarantineRecords == null) {
+            throw new IllegalStateException("Job commands can only be quarantined while job commands are handled");
+        }
+        quarantineRecords.add(format.formatQuarantineRecord(jobCommand.getCommandId(), format.format(jobCommand), error));
+    }
+
+    /**
+     * Adds a listener that is called when a spool file has been added to the spool directory. The spool directory
+     * is watched with a {@link WatchService} while there are listeners.
+     */
+    @Override
+    public void addListener(Runnable listener) {
+        synchronized (lock) {
+            listeners.add(listener);
+            if (watchService == null) {
+                startWatching();
+            }
+        }
+    }
+
+    @Override
+    public void removeListener(Runnable listener) {
+        synchronized (lock) {
+            listeners.remove(listener);
+            if (listeners.isEmpty()) {
+                stopWatching();
+            }
+        }
+    }
+
+    /**
+     * Releases the spool files that are being read and stops watching the spool directory.
+     * @throws IOException if a problem occurs
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            listeners.clear();
+            stopWatching();
+            releaseClaimedFiles();
+            fileNamesToRead.clear();
+        }
+    }
+
+    private void startIngestion() throws IOException {
+        releaseClaimedFiles();
+        lastCommandIdRead = null;
+        Set<String> fileNames = new TreeSet<>();
+        addSpoolFileNames(processingDirectory, fileNames);
+        addSpoolFileNames(spoolDirectory, fileNames);
+        fileNamesToRead.clear();
+        fileNamesToRead.addAll(fileNames);
+    }
+
+    private void addSpoolFileNames(Path directory, Set<String> fileNames) throws IOException {
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + SPOOL_FILE_EXTENSION)) {
+            for (Path path : paths) {
+                if (Files.isRegularFile(path)) {
+                    fileNames.add(path.getFileName().toString());
+                }
+            }
+        }
+    }
+
+    private List<JobCommand> readBatch() throws IOException {
+        List<JobCommand> batch = new ArrayList<>();
+        while (batch.size() < maxBatchSize) {
+            if (fileBeingRead == null) {
+                fileBeingRead = claimNextFile();
+                if (fileBeingRead == null) {
+                    break;
+                }
+            }
+
+            SpoolFile spoolFile = fileBeingRead;
+            String line = spoolFile.reader.readLine();
+            if (line == null) {
+                spoolFile.closeReader();
+                spoolFile.fullyRead = true;
+                fileBeingRead = null;
+                releaseIfProcessed(spoolFile);
+                continue;
+            }
+
+            int lineIndex = spoolFile.nrLinesRead++;
+            if (spoolFile.removedLines.get(lineIndex)) {
+                continue; // handled by a previous ingestion
+            }
+            if (line.trim().isEmpty()) {
+                spoolFile.removedLines.set(lineIndex);
+                continue;
+            }
+            String commandId = buildCommandId(spoolFile.name, lineIndex);
+            try {
+                batch.add(format.parse(commandId, line));
+                spoolFile.nrCommandsRead++;
+            } catch (IllegalArgumentException e) {
+                appendToQuarantineFile(Collections.singletonList(format.formatQuarantineRecord(commandId, line, e.getMessage())));
+                spoolFile.removedLines.set(lineIndex);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Claims the next spool file of this ingestion by moving it to the processing directory, unless it is already
+     * there. The lines handled by previous ingestions are read from the progress file of a spool file that is
+     * already in the processing directory.
+     * @return the spool file; null if there are no more spool files to read
+     */
+    private SpoolFile claimNextFile() throws IOException {
+        while (!fileNamesToRead.isEmpty()) {
+            String fileName = fileNamesToRead.poll();
+            Path path = processingDirectory.resolve(fileName);
+            Path progressFile = processingDirectory.resolve(fileName + PROGRESS_FILE_EXTENSION);
+            BitSet removedLines;
+            if (Files.exists(path)) {
+                removedLines = Files.exists(progressFile) ? BitSet.valueOf(Files.readAllBytes(progressFile)) : new BitSet();
+            } else {
+                try {
+                    Files.move(spoolDirectory.resolve(fileName), path, StandardCopyOption.ATOMIC_MOVE);
+                } catch (NoSuchFileException e) {
+                    continue; // the spool file has been removed
+                }
+                Files.deleteIfExists(progressFile); // left behind by a spool file with the same name
+                removedLines = new BitSet();
+            }
+            SpoolFile spoolFile = new SpoolFile(fileName, path, progressFile, removedLines,
+                    Files.newBufferedReader(path, StandardCharsets.UTF_8));
+            nameToClaimedFile.put(fileName, spoolFile);
+            return spoolFile;
+        }
+        return null;
+    }
+
+    private boolean releaseIfProcessed(SpoolFile spoolFile) throws IOException {
+        if (spoolFile.fullyRead && spoolFile.nrCommandsProcessed == spoolFile.nrCommandsRead) {
+            nameToClaimedFile.remove(spoolFile.name);
+            release(spoolFile);
+            return true;
+        }
+        return false;
+    }
+
+    private void releaseClaimedFiles() throws IOException {
+        for (SpoolFile spoolFile : nameToClaimedFile.values()) {
+            release(spoolFile);
+        }
+        nameToClaimedFile.clear();
+        fileBeingRead = null;
+    }
+
+    /**
+     * Stops reading a spool file. A spool file of which all lines have been handled is deleted, before its progress
+     * file, so that a crash in between leaves at most a progress file without spool file. Otherwise the spool file
+     * stays in the processing directory, so that the remaining commands are read by the next ingestion.
+     */
+    private void release(SpoolFile spoolFile) throws IOException {
+        spoolFile.closeReader();
+        if (spoolFile.fullyRead && spoolFile.removedLines.cardinality() == spoolFile.nrLinesRead) {
+            Files.delete(spoolFile.path);
+            Files.deleteIfExists(spoolFile.progressFile);
+        } else {
+            saveProgress(spoolFile);
+        }
+    }
+
+    /**
+     * Writes the lines that have been handled or quarantined to the progress file of a spool file. The progress file
+     * is written under a temporary name, synchronized with the storage device and then atomically renamed.
+     */
+    private void saveProgress(SpoolFile spoolFile) throws IOException {
+        if (spoolFile.removedLines.isEmpty()) {
+            return;
+        }
+        Path temporaryFile = processingDirectory.resolve(spoolFile.progressFile.getFileName() + TEMPORARY_FILE_EXTENSION);
+        Files.write(temporaryFile, spoolFile.removedLines.toByteArray(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        Files.move(temporaryFile, spoolFile.progressFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void appendToQuarantineFile(List<String> quarantineRecords) throws IOException {
+        if (!quarantineRecords.isEmpty()) {
+            Files.write(quarantineFile, quarantineRecords, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private void startWatching() {
+        WatchService newWatchService;
+        try {
+            newWatchService = spoolDirectory.getFileSystem().newWatchService();
+            spoolDirectory.register(newWatchService, StandardWatchEventKinds.ENTRY_CREATE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        watchService = newWatchService;
+        Thread thread = new Thread(() -> watch(newWatchService), "spool-directory-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void stopWatching() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // ignore this exception
+            }
+            watchService = null;
+        }
+    }
+
+    private void watch(WatchService watchService) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean spoolFileAdded = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    spoolFileAdded |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || event.context().toString().endsWith(SPOOL_FILE_EXTENSION);
+                }
+                key.reset();
+                if (spoolFileAdded) {
+                    for (Runnable listener : listeners) {
+                        listener.run();
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // the spool directory is no longer watched
+        }
+    }
+
+    /**
+     * Builds a command id from the name of the spool file and the index of the line. The line index is padded with
+     * zeros, so that command ids are ordered like the lines.
+     */
+    private static String buildCommandId(String fileName, int lineIndex) {
+        String index = Integer.toString(lineIndex);
+        return fileName + '#' + "0000000000".substring(index.length()) + index;
+    }
+
+    private static String getFileName(JobCommand jobCommand) {
+        String commandId = jobCommand.getCommandId();
+        return commandId.substring(0, commandId.lastIndexOf('#'));
+    }
+
+    private static int getLineIndex(JobCommand jobCommand) {
+        String commandId = jobCommand.getCommandId();
+        return Integer.parseInt(commandId.substring(commandId.lastIndexOf('#') + 1));
+    }
+
+    private static class SpoolFile {
+
+        private final String name;
+        private final Path path;
+        private final Path progressFile;
+        private BufferedReader reader;
+        private int nrLinesRead;
+        private int nrCommandsRead;
+        private int nrCommandsProcessed;
+        private boolean fullyRead;
+        private final BitSet removedLines;
+
+        SpoolFile(String name, Path path, Path progressFile, BitSet removedLines, BufferedReader reader) {
+            this.name = name;
+            this.path = path;
+            this.progressFile = progressFile;
+            this.removedLines = removedLines;
+            this.reader = reader;
+        }
+
+        void closeReader() throws IOException {
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package nl.gogognome.jobscheduler.jobingester.spool;
+
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes job commands to a spool directory that is read by a {@link SpoolDirectoryCommandSource}. Each call writes
+ * one spool file. The file is written under a temporary name and then atomically renamed, so the command source
+ * never reads a file that is only partly written. This class is thread safe.
+ *
+ * <p>Spool files are read in order of file name. The name of a spool file starts with the current time in
+ * milliseconds followed by the id of the writer and a sequence number, so the files of one writer are read in the
+ * order in which they were written.
+ */
+public class SpoolFileWriter {
+
+    private final Path spoolDirectory;
+    private final String writerId = UUID.randomUUID().toString();
+    private final AtomicLong sequenceNumber = new AtomicLong();
+    private final NdjsonJobCommandFormat format = new NdjsonJobCommandFormat();
+
+    public SpoolFileWriter(Path spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    /**
+     * Writes job commands to a new spool file.
+     * @param jobCommands the job commands; their command ids are ignored
+     * @return the spool file
+     * @throws IOException if a problem occurs
+     */
+    public Path write(List<JobCommand> jobCommands) throws IOException {
+        String fileName = String.format("%015d-%s-%09d%s", System.currentTimeMillis(), writerId,
+                sequenceNumber.incrementAndGet(), SpoolDirectoryCommandSource.SPOOL_FILE_EXTENSION);
+        Path temporaryFile = spoolDirectory.resolve(fileName + SpoolDirectoryCommandSource.TEMPORARY_FILE_EXTENSION);
+        try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            for (JobCommand jobCommand : jobCommands) {
+                writer.write(format.format(jobCommand));
+                writer.newLine();
+            }
+        }
+        return Files.move(temporaryFile, spoolDirectory.resolve(fileName), StandardCopyOption.ATOMIC_MOVE);
+    }
+}
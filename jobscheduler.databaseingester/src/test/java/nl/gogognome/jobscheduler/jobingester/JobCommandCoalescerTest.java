@@ -0,0 +1,251 @@
+package nl.gogognome.jobscheduler.jobingester;
+
+import nl.gogognome.jobscheduler.runnablejobfinder.FifoRunnableJobFinder;
+import nl.gogognome.jobscheduler.scheduler.CapacityLimits;
+import nl.gogognome.jobscheduler.scheduler.Job;
+import nl.gogognome.jobscheduler.scheduler.JobPersister;
+import nl.gogognome.jobscheduler.scheduler.JobScheduler;
+import nl.gogognome.jobscheduler.scheduler.JobSchedulerException;
+import nl.gogognome.jobscheduler.scheduler.JobState;
+import nl.gogognome.jobscheduler.scheduler.ScheduledJob;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static java.util.Collections.emptySet;
+import static nl.gogognome.jobscheduler.scheduler.JobState.*;
+import static org.junit.Assert.*;
+
+public class JobCommandCoalescerTest {
+
+    private final static Instant SCHEDULED_AT_INSTANT = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final InMemoryJobPersister jobPersister = new InMemoryJobPersister();
+    private final JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), jobPersister);
+    private final JobCommandCoalescer jobCommandCoalescer = new JobCommandCoalescer(jobScheduler);
+
+    @Test
+    public void scheduleAndRemoveNewJob_findCommandsWithoutNetEffect_returnsBothCommands() {
+        JobCommand schedule = command(Command.SCHEDULE, "1", "a");
+        JobCommand remove = command(Command.REMOVE, "1", null);
+
+        Set<JobCommand> commandsWithoutNetEffect = jobCommandCoalescer.findCommandsWithoutNetEffect(Arrays.asList(schedule, remove));
+
+        assertEquals(2, commandsWithoutNetEffect.size());
+        assertTrue(commandsWithoutNetEffect.contains(schedule));
+        assertTrue(commandsWithoutNetEffect.contains(remove));
+    }
+
+    @Test
+    public void rescheduleAndRemoveRunningJobAndScheduleItAgain_findCommandsWithoutNetEffect_returnsOnlyReschedule() {
+        persistAndLoad(new ScheduledJob(job("1", "a"), RUNNING, "requester", null));
+        JobCommand reschedule = command(Command.RESCHEDULE, "1", null);
+        JobCommand remove = command(Command.REMOVE, "1", null);
+        JobCommand schedule = command(Command.SCHEDULE, "1", "b");
+
+        Set<JobCommand> commandsWithoutNetEffect = jobCommandCoalescer.findCommandsWithoutNetEffect(Arrays.asList(reschedule, remove, schedule));
+
+        assertEquals(Collections.singleton(reschedule), commandsWithoutNetEffect);
+    }
+
+    @Test
+    public void commandThatWouldBeRejected_findCommandsWithoutNetEffect_returnsNoCommands() {
+        JobCommand schedule = command(Command.SCHEDULE, "1", "a");
+        JobCommand finished = command(Command.JOB_FINISHED, "1", null);
+        JobCommand remove = command(Command.REMOVE, "1", null);
+
+        Set<JobCommand> commandsWithoutNetEffect = jobCommandCoalescer.findCommandsWithoutNetEffect(Arrays.asList(schedule, finished, remove));
+
+        assertEquals(emptySet(), commandsWithoutNetEffect);
+    }
+
+    @Test
+    public void jobWithCoalescingKey_findCommandsWithoutNetEffect_returnsNoCommands() {
+        JobCommand schedule = new JobCommand(Command.SCHEDULE, job("1", "a").withCoalescingKey("reindex"));
+        JobCommand remove = command(Command.REMOVE, "1", null);
+
+        Set<JobCommand> commandsWithoutNetEffect = jobCommandCoalescer.findCommandsWithoutNetEffect(Arrays.asList(schedule, remove));
+
+        assertEquals(emptySet(), commandsWithoutNetEffect);
+    }
+
+    @Test
+    public void capacityLimitsSet_findCommandsWithoutNetEffect_returnsNoCommands() {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(100));
+
+        Set<JobCommand> commandsWithoutNetEffect = jobCommandCoalescer.findCommandsWithoutNetEffect(Arrays.asList(
+                command(Command.SCHEDULE, "1", "a"), command(Command.REMOVE, "1", null)));
+
+        assertEquals(emptySet(), commandsWithoutNetEffect);
+    }
+
+    @Test
+    public void randomCommands_handleCommandsWithNetEffect_sameResultAsHandlingAllCommands() {
+        Random random = new Random(46);
+        int nrSavedChanges = 0;
+        for (int round = 0; round < 2000; round++) {
+            List<ScheduledJob> initialJobs = buildRandomJobs(random);
+            List<JobCommand> jobCommands = buildRandomCommands(random);
+
+            InMemoryJobPersister sequentialPersister = new InMemoryJobPersister();
+            JobScheduler sequentialJobScheduler = new JobScheduler(new FifoRunnableJobFinder(), sequentialPersister);
+            sequentialPersister.createAll(initialJobs);
+            sequentialJobScheduler.loadPersistedJobs();
+            List<JobCommand> sequentialRejectedCommands = handle(sequentialJobScheduler, jobCommands, emptySet());
+
+            InMemoryJobPersister coalescedPersister = new InMemoryJobPersister();
+            JobScheduler coalescedJobScheduler = new JobScheduler(new FifoRunnableJobFinder(), coalescedPersister);
+            coalescedPersister.createAll(initialJobs);
+            coalescedJobScheduler.loadPersistedJobs();
+            List<JobCommand> coalescedRejectedCommands = new ArrayList<>();
+            coalescedJobScheduler.runBatch(() -> {
+                Set<JobCommand> commandsWithoutNetEffect = new JobCommandCoalescer(coalescedJobScheduler).findCommandsWithoutNetEffect(jobCommands);
+                coalescedRejectedCommands.addAll(handle(coalescedJobScheduler, jobCommands, commandsWithoutNetEffect));
+            });
+            nrSavedChanges += sequentialPersister.nrChanges - coalescedPersister.nrChanges;
+
+            String description = "initial jobs " + describe(initialJobs) + ", commands " + describeCommands(jobCommands);
+            assertEquals(description, sequentialRejectedCommands, coalescedRejectedCommands);
+            assertEquals(description, describe(sequentialPersister.findAllJobs()), describe(coalescedPersister.findAllJobs()));
+            assertEquals(description, describe(sequentialJobScheduler.findAllJobs()), describe(coalescedJobScheduler.findAllJobs()));
+        }
+        assertTrue(nrSavedChanges > 0);
+    }
+
+    private List<ScheduledJob> buildRandomJobs(Random random) {
+        List<ScheduledJob> jobs = new ArrayList<>();
+        JobState[] states = { IDLE, RUNNING, ERROR };
+        for (int id = 1; id <= 3; id++) {
+            if (random.nextBoolean()) {
+                JobState state = states[random.nextInt(states.length)];
+                jobs.add(new ScheduledJob(job(Integer.toString(id), "initial"), state, state == RUNNING ? "requester" : null, null));
+            }
+        }
+        return jobs;
+    }
+
+    private List<JobCommand> buildRandomCommands(Random random) {
+        List<JobCommand> jobCommands = new ArrayList<>();
+        int nrCommands = 1 + random.nextInt(8);
+        for (int i = 0; i < nrCommands; i++) {
+            Command command = Command.values()[random.nextInt(Command.values().length)];
+            jobCommands.add(command(command, Integer.toString(1 + random.nextInt(3)), "data-" + i));
+        }
+        return jobCommands;
+    }
+
+    /**
+     * Handles the commands like the job ingester does.
+     * @return the commands that were rejected by the job scheduler
+     */
+    private List<JobCommand> handle(JobScheduler jobScheduler, List<JobCommand> jobCommands, Set<JobCommand> commandsWithoutNetEffect) {
+        List<JobCommand> rejectedCommands = new ArrayList<>();
+        for (JobCommand jobCommand : jobCommands) {
+            if (commandsWithoutNetEffect.contains(jobCommand)) {
+                continue;
+            }
+            String jobId = jobCommand.getJob().getId();
+            try {
+                switch (jobCommand.getCommand()) {
+                    case SCHEDULE:
+                        jobScheduler.schedule(jobCommand.getJob());
+                        break;
+                    case RESCHEDULE:
+                        jobScheduler.reschedule(jobCommand.getJob());
+                        break;
+                    case JOB_FINISHED:
+                        jobScheduler.jobFinished(jobId);
+                        break;
+                    case JOB_FAILED:
+                        jobScheduler.jobFailed(jobId);
+                        break;
+                    case REMOVE:
+                        jobScheduler.remove(jobId);
+                        break;
+                }
+            } catch (JobSchedulerException e) {
+                rejectedCommands.add(jobCommand);
+            }
+        }
+        return rejectedCommands;
+    }
+
+    private void persistAndLoad(ScheduledJob scheduledJob) {
+        jobPersister.create(scheduledJob);
+        jobScheduler.loadPersistedJobs();
+    }
+
+    private static JobCommand command(Command command, String jobId, String data) {
+        return new JobCommand(command, job(jobId, data));
+    }
+
+    private static Job job(String id, String data) {
+        return new Job(id, "someType", data, SCHEDULED_AT_INSTANT);
+    }
+
+    private static String describe(Iterable<ScheduledJob> scheduledJobs) {
+        Map<String, String> jobIdToDescription = new TreeMap<>();
+        for (ScheduledJob scheduledJob : scheduledJobs) {
+            jobIdToDescription.put(scheduledJob.getJob().getId(), scheduledJob.getState() + "/" + scheduledJob.getJob().getData());
+        }
+        return jobIdToDescription.toString();
+    }
+
+    private static String describeCommands(List<JobCommand> jobCommands) {
+        List<String> descriptions = new ArrayList<>();
+        for (JobCommand jobCommand : jobCommands) {
+            descriptions.add(jobCommand.getCommand() + " " + jobCommand.getJob().getId());
+        }
+        return descriptions.toString();
+    }
+
+    private static class InMemoryJobPersister implements JobPersister {
+
+        private final Map<String, ScheduledJob> jobIdToJob = new LinkedHashMap<>();
+        private int nrChanges;
+
+        void createAll(List<ScheduledJob> jobs) {
+            for (ScheduledJob job : jobs) {
+                jobIdToJob.put(job.getJob().getId(), job);
+            }
+        }
+
+        @Override
+        public void create(ScheduledJob job) {
+            if (jobIdToJob.putIfAbsent(job.getJob().getId(), job) != null) {
+                throw new IllegalStateException("Job " + job.getJob().getId() + " already exists");
+            }
+            nrChanges++;
+        }
+
+        @Override
+        public void remove(String jobId) {
+            if (jobIdToJob.remove(jobId) == null) {
+                throw new IllegalStateException("Job " + jobId + " does not exist");
+            }
+            nrChanges++;
+        }
+
+        @Override
+        public void update(ScheduledJob job) {
+            if (jobIdToJob.replace(job.getJob().getId(), job) == null) {
+                throw new IllegalStateException("Job " + job.getJob().getId() + " does not exist");
+            }
+            nrChanges++;
+        }
+
+        @Override
+        public Iterable<ScheduledJob> findAllJobs() {
+            return new ArrayList<>(jobIdToJob.values());
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package nl.gogognome.jobscheduler.jobingester;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class JobIngesterRunnerTest {
+
+    private JobIngesterProperties properties = new JobIngesterProperties();
+    private JobIngester jobIngester = mock(JobIngester.class);
+    private JobIngesterRunnerSpy jobIngesterRunner = new JobIngesterRunnerSpy(properties, jobIngester);
+
+    static class JobIngesterRunnerSpy extends JobIngesterRunner {
+
+        private final List<Long> delaysInMilliseconds = new ArrayList<>();
+
+        public JobIngesterRunnerSpy(JobIngesterProperties properties, JobIngester jobIngester) {
+            super(properties, jobIngester);
+        }
+
+        @Override
+        protected void delayThread(long delayInMilliseconds) {
+            synchronized (delaysInMilliseconds) {
+                delaysInMilliseconds.add(delayInMilliseconds);
+                delaysInMilliseconds.notify();
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+
+        public List<Long> getDelaysInMilliseconds() {
+            synchronized (delaysInMilliseconds) {
+                return delaysInMilliseconds;
+            }
+        }
+
+        public void waitForNrIterations(int nrIterations) throws InterruptedException {
+            synchronized (delaysInMilliseconds) {
+                while (nrIterations > delaysInMilliseconds.size()) {
+                    delaysInMilliseconds.wait(10);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void timerThread_oneIteration_shouldIngestJobsOnce() throws InterruptedException {
+        jobIngesterRunner.start();
+        jobIngesterRunner.waitForNrIterations(1);
+        jobIngesterRunner.stop();
+
+        verify(jobIngester, times(1)).ingestJobs();
+    }
+
+    @Test
+    public void timerThread_twentyIterationsWithoutJobCommandsFound_timeoutShouldGrowExponentiallyAndBeLimitted() throws InterruptedException {
+        jobIngesterRunner.start();
+        jobIngesterRunner.waitForNrIterations(20);
+        jobIngesterRunner.stop();
+
+        List<Long> expectedDelays = asList(2L, 4L, 8L, 16L, 32L, 64L, 128L, 256L, 512L, 1000L,
+                1000L, 1000L, 1000L, 1000L, 1000L, 1000L, 1000L, 1000L, 1000L, 1000L);
+        assertEquals(expectedDelays, jobIngesterRunner.getDelaysInMilliseconds());
+    }
+
+    @Test
+    public void timerThread_twentyIterationsWithJobCommandsFound_timeoutShoulBeReset() throws InterruptedException {
+        when(jobIngester.ingestJobs()).thenReturn(1);
+
+        jobIngesterRunner.start();
+        jobIngesterRunner.waitForNrIterations(5);
+        jobIngesterRunner.stop();
+
+        List<Long> expectedDelays = asList(1L, 1L, 1L, 1L, 1L);
+        assertEquals(expectedDelays, jobIngesterRunner.getDelaysInMilliseconds());
+    }
+
+    @Test
+    public void timerThread_wakeUpWhileIngestingJobs_timeoutShouldBeReset() throws InterruptedException {
+        AtomicInteger nrIngests = new AtomicInteger();
+        when(jobIngester.ingestJobs()).thenAnswer(invocation -> {
+            if (nrIngests.incrementAndGet() == 5) {
+                jobIngesterRunner.wakeUp();
+            }
+            return 0;
+        });
+
+        jobIngesterRunner.start();
+        jobIngesterRunner.waitForNrIterations(7);
+        jobIngesterRunner.stop();
+
+        List<Long> expectedDelays = asList(2L, 4L, 8L, 16L, 1L, 2L, 4L);
+        assertEquals(expectedDelays, jobIngesterRunner.getDelaysInMilliseconds().subList(0, 7));
+    }
+
+    @Test
+    public void timerThread_notificationsEnabledAndJobCommandsInserted_timeoutShouldBeReset() throws InterruptedException {
+        properties.setNotificationsEnabled(true);
+        List<Runnable> listeners = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> listeners.add(invocation.getArgument(0))).when(jobIngester).addListener(any());
+        AtomicInteger nrIngests = new AtomicInteger();
+        when(jobIngester.ingestJobs()).thenAnswer(invocation -> {
+            if (nrIngests.incrementAndGet() == 3) {
+                for (Runnable listener : listeners) {
+                    listener.run();
+                }
+            }
+            return 0;
+        });
+
+        jobIngesterRunner.start();
+        jobIngesterRunner.waitForNrIterations(5);
+        jobIngesterRunner.stop();
+
+        List<Long> expectedDelays = asList(2L, 4L, 1L, 2L, 4L);
+        assertEquals(expectedDelays, jobIngesterRunner.getDelaysInMilliseconds().subList(0, 5));
+        assertEquals(1, listeners.size());
+        verify(jobIngester).removeListener(listeners.get(0));
+    }
+
+    @Test
+    public void timerThread_notificationsEnabledAndWokenUpBeforeJobCommandsAreCommitted_timeoutShouldBeLimitedUntilDelayWithNotificationsHasPassed() throws InterruptedException {
+        properties.setNotificationsEnabled(true);
+        properties.setDelayBetweenPollsWithNotifications(5000);
+        AtomicInteger nrIngests = new AtomicInteger();
+        when(jobIngester.ingestJobs()).thenAnswer(invocation -> {
+            if (nrIngests.incrementAndGet() == 1) {
+                jobIngesterRunner.wakeUp();
+            }
+            return 0;
+        });
+
+        jobIngesterRunner.start();
+        jobIngesterRunner.waitForNrIterations(17);
+        jobIngesterRunner.stop();
+
+        List<Long> expectedDelays = asList(1L, 2L, 4L, 8L, 16L, 32L, 64L, 128L, 256L, 512L, 1000L,
+                1000L, 1000L, 1000L, 2000L, 4000L, 5000L);
+        assertEquals(expectedDelays, jobIngesterRunner.getDelaysInMilliseconds().subList(0, 17));
+    }
+
+    @Test
+    public void timerThread_notificationsEnabledAndJobCommandsFoundAfterWakeUp_timeoutShouldGrowToDelayWithNotifications() throws InterruptedException {
+        properties.setNotificationsEnabled(true);
+        properties.setDelayBetweenPollsWithNotifications(5000);
+        AtomicInteger nrIngests = new AtomicInteger();
+        when(jobIngester.ingestJobs()).thenAnswer(invocation -> {
+            int nrIngest = nrIngests.incrementAndGet();
+            if (nrIngest == 1) {
+                jobIngesterRunner.wakeUp();
+            }
+            return nrIngest == 3 ? 1 : 0;
+        });
+
+        jobIngesterRunner.start();
+        jobIngesterRunner.waitForNrIterations(17);
+        jobIngesterRunner.stop();
+
+        List<Long> expectedDelays = asList(1L, 2L, 1L, 2L, 4L, 8L, 16L, 32L, 64L, 128L, 256L, 512L, 1024L,
+                2048L, 4096L, 5000L, 5000L);
+        assertEquals(expectedDelays, jobIngesterRunner.getDelaysInMilliseconds().subList(0, 17));
+    }
+
+    @Test
+    public void wakeUp_delayThread_returnsWithoutWaiting() {
+        JobIngesterRunner runner = new JobIngesterRunner(properties, jobIngester);
+        runner.wakeUp();
+
+        long start = System.nanoTime();
+        runner.delayThread(60_000);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    public void startTwice_shouldFail() {
+        jobIngesterRunner.start();
+
+        try {
+            jobIngesterRunner.start();
+            fail("Expected exception not thrown");
+        } catch (IllegalStateException e) {
+            assertEquals("The job ingester is still running", e.getMessage());
+        } finally {
+            jobIngesterRunner.stop();
+        }
+    }
+
+    @Test
+    public void stoppingTwice_shouldFail() {
+        jobIngesterRunner.start();
+        jobIngesterRunner.stop();
+
+        try {
+            jobIngesterRunner.stop();
+            fail("Expected exception not thrown");
+        } catch (IllegalStateException e) {
+            assertEquals("The job ingester is not running", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package nl.gogognome.jobscheduler.jobingester;
+
+import nl.gogognome.jobscheduler.jobingester.database.DatabaseCommandSource;
+import nl.gogognome.jobscheduler.jobingester.database.JobCommandDAO;
+import nl.gogognome.jobscheduler.scheduler.CapacityLimits;
+import nl.gogognome.jobscheduler.scheduler.Job;
+import nl.gogognome.jobscheduler.scheduler.JobScheduler;
+import nl.gogognome.jobscheduler.scheduler.JobsSnapshot;
+import nl.gogognome.jobscheduler.scheduler.UnknownJobException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class JobIngesterTest {
+
+    private JobScheduler jobScheduler = mock(JobScheduler.class);
+    private JobCommandDAO jobCommandDAO = mock(JobCommandDAO.class);
+    private JobIngester jobIngester = new JobIngester(jobScheduler, new DatabaseCommandSource(jobCommandDAO));
+
+    private List<JobCommand> jobCommandsInDatabase = new ArrayList<>();
+
+    @Before
+    public void initMocks() throws SQLException {
+        when(jobCommandDAO.findJobCommands(any())).thenReturn(jobCommandsInDatabase, emptyList());
+        when(jobScheduler.hasCapacityFor(anyString())).thenReturn(true);
+
+        doAnswer(invocationOnMock -> { ((Runnable)invocationOnMock.getArguments()[0]).run(); return null; })
+                .when(jobScheduler).runBatch(any(Runnable.class));
+        doAnswer(invocationOnMock -> { ((Consumer<Consumer<Runnable>>)invocationOnMock.getArguments()[0]).accept(Runnable::run); return null; })
+                .when(jobScheduler).runBatchCommittedConcurrently(any());
+    }
+
+    @Test
+    public void ingestJobs_zeroJobCommands_noCommandsForwardedToScheduler() throws SQLException {
+        jobCommandsInDatabase.clear();
+
+        jobIngester.ingestJobs();
+
+        verify(jobScheduler, never()).schedule(any(Job.class));
+        verify(jobScheduler, never()).reschedule(any(Job.class));
+        verify(jobScheduler, never()).jobFinished(any(String.class));
+        verify(jobScheduler, never()).jobFailed(any(String.class));
+        verify(jobCommandDAO, never()).deleteJobCommands(any(), anyList(), anyList());
+    }
+
+    @Test
+    public void ingestJobs_oneScheduleCommand_schedulesJobAndNoOtherCommandsForwardedToSchedulerAndJobDeletedFromDatabase() throws SQLException {
+        Job job = buildJob();
+        jobCommandsInDatabase.add(new JobCommand(Command.SCHEDULE, job));
+
+        jobIngester.ingestJobs();
+
+        verify(jobScheduler).schedule(eq(job));
+        verify(jobScheduler, never()).reschedule(any(Job.class));
+        verify(jobScheduler, never()).jobFinished(any(String.class));
+        verify(jobScheduler, never()).jobFailed(any(String.class));
+        verify(jobCommandDAO).deleteJobCommands(null, jobCommandsInDatabase, jobCommandsInDatabase);
+    }
+
+    @Test
+    public void ingestJobs_fiveJobCommandsWithDifferentCommands_eachOfTheCommandsAreHandledAndJobCommandsArDeletedFromDatabase() throws SQLException {
+        JobCommand jobCommand1 = JobCommandBuilder.buildJob("1", Command.SCHEDULE);
+        jobCommandsInDatabase.add(jobCommand1);
+        JobCommand jobCommand2 = JobCommandBuilder.buildJob("2", Command.RESCHEDULE);
+        jobCommandsInDatabase.add(jobCommand2);
+        JobCommand jobCommand3 = JobCommandBuilder.buildJob("3", Command.JOB_FINISHED);
+        jobCommandsInDatabase.add(jobCommand3);
+        JobCommand jobCommand4 = JobCommandBuilder.buildJob("4", Command.JOB_FAILED);
+        jobCommandsInDatabase.add(jobCommand4);
+        JobCommand jobCommand5 = JobCommandBuilder.buildJob("5", Command.REMOVE);
+        jobCommandsInDatabase.add(jobCommand5);
+
+        jobIngester.ingestJobs();
+
+        verify(jobScheduler).schedule(eq(jobCommand1.getJob()));
+        verify(jobScheduler).reschedule(eq(jobCommand2.getJob()));
+        verify(jobScheduler).jobFinished(eq(jobCommand3.getJob().getId()));
+        verify(jobScheduler).jobFailed(eq(jobCommand4.getJob().getId()));
+        verify(jobScheduler).remove(eq(jobCommand5.getJob().getId()));
+        verify(jobCommandDAO).deleteJobCommands(null, jobCommandsInDatabase, jobCommandsInDatabase);
+    }
+
+    @Test
+    public void ingestJobs_consecutiveJobResults_resultsAreForwardedTogether() throws SQLException {
+        JobCommand finishedCommand1 = JobCommandBuilder.buildJob("1", Command.JOB_FINISHED);
+        JobCommand finishedCommand2 = JobCommandBuilder.buildJob("2", Command.JOB_FINISHED);
+        JobCommand failedCommand3 = JobCommandBuilder.buildJob("3", Command.JOB_FAILED);
+        JobCommand failedCommand4 = JobCommandBuilder.buildJob("4", Command.JOB_FAILED);
+        jobCommandsInDatabase.addAll(Arrays.asList(finishedCommand1, finishedCommand2, failedCommand3, failedCommand4));
+
+        int nrHandledJobCommands = jobIngester.ingestJobs();
+
+        assertEquals(4, nrHandledJobCommands);
+        verify(jobScheduler).jobsFinished(Arrays.asList("1", "2"));
+        verify(jobScheduler).jobsFailed(Arrays.asList("3", "4"));
+        verify(jobScheduler, never()).jobFinished(any(String.class));
+        verify(jobScheduler, never()).jobFailed(any(String.class));
+        verify(jobCommandDAO).deleteJobCommands(null, jobCommandsInDatabase, jobCommandsInDatabase);
+    }
+
+    @Test
+    public void ingestJobs_jobSchedulerRejectsJobResults_resultsAreForwardedOneByOneAndRejectedResultIsQuarantined() throws SQLException {
+        JobCommand finishedCommand1 = JobCommandBuilder.buildJob("1", Command.JOB_FINISHED);
+        JobCommand finishedCommand2 = JobCommandBuilder.buildJob("2", Command.JOB_FINISHED);
+        jobCommandsInDatabase.addAll(Arrays.asList(finishedCommand1, finishedCommand2));
+        UnknownJobException exception = new UnknownJobException("No job exists with the id 1");
+        doThrow(exception).when(jobScheduler).jobsFinished(Arrays.asList("1", "2"));
+        doThrow(exception).when(jobScheduler).jobFinished("1");
+        when(jobCommandDAO.isQuarantineEnabled()).thenReturn(true);
+
+        int nrHandledJobCommands = jobIngester.ingestJobs();
+
+        assertEquals(2, nrHandledJobCommands);
+        verify(jobCommandDAO).quarantineJobCommand(finishedCommand1, exception.toString());
+        verify(jobScheduler).jobFinished("2");
+        verify(jobCommandDAO).deleteJobCommands(null, jobCommandsInDatabase, jobCommandsInDatabase);
+    }
+
+    @Test
+    public void ingestJobs_noCapacityForType_scheduleCommandAndLaterCommandsForSameJobArePostponed() throws SQLException {
+        JobCommand scheduleCommand = new JobCommand(Command.SCHEDULE, new Job("1", "email", null, Instant.now()));
+        jobCommandsInDatabase.add(scheduleCommand);
+        JobCommand removeCommand = new JobCommand(Command.REMOVE, new Job("1", null, null, null));
+        jobCommandsInDatabase.add(removeCommand);
+        JobCommand finishedCommand = JobCommandBuilder.buildJob("2", Command.JOB_FINISHED);
+        jobCommandsInDatabase.add(finishedCommand);
+        JobCommand otherTypeCommand = new JobCommand(Command.SCHEDULE, new Job("3", "sms", null, Instant.now()));
+        jobCommandsInDatabase.add(otherTypeCommand);
+        when(jobScheduler.hasCapacityFor("email")).thenReturn(false);
+
+        int nrCommandsHandled = jobIngester.ingestJobs();
+
+        assertEquals(2, nrCommandsHandled);
+        verify(jobScheduler, never()).schedule(scheduleCommand.getJob());
+        verify(jobScheduler, never()).remove(any(String.class));
+        verify(jobScheduler).jobFinished("2");
+        verify(jobScheduler).schedule(otherTypeCommand.getJob());
+        verify(jobCommandDAO).deleteJobCommands(null, jobCommandsInDatabase, Arrays.asList(finishedCommand, otherTypeCommand));
+    }
+
+    @Test
+    public void ingestJobs_commandsInTwoBatches_nextBatchIsFoundAfterLastCommandOfPreviousBatchAndPostponementsCarryOver() throws SQLException {
+        JobCommand scheduleCommand = new JobCommand("c1", Command.SCHEDULE, new Job("1", "email", null, Instant.now()));
+        JobCommand finishedCommand = new JobCommand("c2", Command.JOB_FINISHED, JobCommandBuilder.buildJob("2", Command.JOB_FINISHED).getJob());
+        JobCommand removeCommand = new JobCommand("c3", Command.REMOVE, new Job("1", null, null, null));
+        when(jobCommandDAO.findJobCommands(null)).thenReturn(Arrays.asList(scheduleCommand, finishedCommand));
+        when(jobCommandDAO.findJobCommands("c2")).thenReturn(singletonList(removeCommand));
+        when(jobCommandDAO.findJobCommands("c3")).thenReturn(emptyList());
+        when(jobScheduler.hasCapacityFor("email")).thenReturn(false);
+
+        int nrCommandsHandled = jobIngester.ingestJobs();
+
+        assertEquals(1, nrCommandsHandled);
+        verify(jobScheduler).jobFinished("2");
+        verify(jobScheduler, never()).remove(any(String.class));
+        verify(jobCommandDAO).deleteJobCommands(null, Arrays.asList(scheduleCommand, finishedCommand), singletonList(finishedCommand));
+        verify(jobCommandDAO).deleteJobCommands("c2", singletonList(removeCommand), emptyList());
+    }
+
+    @Test
+    public void ingestJobs_commandsInTwoBatches_nextBatchIsFetchedBeforeCurrentBatchIsApplied() throws SQLException {
+        JobCommand firstCommand = new JobCommand("c1", Command.SCHEDULE, new Job("1", "email", null, Instant.now()));
+        JobCommand secondCommand = new JobCommand("c2", Command.SCHEDULE, new Job("2", "email", null, Instant.now()));
+        when(jobCommandDAO.findJobCommands(null)).thenReturn(singletonList(firstCommand));
+        when(jobCommandDAO.findJobCommands("c1")).thenReturn(singletonList(secondCommand));
+        when(jobCommandDAO.findJobCommands("c2")).thenReturn(emptyList());
+
+        jobIngester.ingestJobs();
+
+        InOrder inOrder = inOrder(jobCommandDAO, jobScheduler);
+        inOrder.verify(jobCommandDAO).findJobCommands("c1");
+        inOrder.verify(jobScheduler).schedule(firstCommand.getJob());
+        inOrder.verify(jobCommandDAO).findJobCommands("c2");
+        inOrder.verify(jobScheduler).schedule(secondCommand.getJob());
+    }
+
+    @Test
+    public void ingestJobs_fetchExecutorWithOwnThread_allBatchesAreHandledInOrder() throws Exception {
+        ExecutorService fetchExecutor = Executors.newSingleThreadExecutor();
+        try {
+            JobIngester jobIngester = new JobIngester(jobScheduler, new DatabaseCommandSource(jobCommandDAO), fetchExecutor);
+            List<JobCommand> jobCommands = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                jobCommands.add(new JobCommand("c" + i, Command.SCHEDULE, new Job(Integer.toString(i), "email", null, Instant.now())));
+                when(jobCommandDAO.findJobCommands(i == 0 ? null : "c" + (i - 1))).thenReturn(singletonList(jobCommands.get(i)));
+            }
+            when(jobCommandDAO.findJobCommands("c9")).thenReturn(emptyList());
+
+            int nrCommandsHandled = jobIngester.ingestJobs();
+
+            assertEquals(10, nrCommandsHandled);
+            InOrder inOrder = inOrder(jobScheduler);
+            for (JobCommand jobCommand : jobCommands) {
+                inOrder.verify(jobScheduler).schedule(jobCommand.getJob());
+            }
+        } finally {
+            fetchExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void ingestJobs_commandsOfManyJobs_batchIsDeletedWithOneRangeDelete() throws SQLException {
+        for (int i = 0; i < 20; i++) {
+            jobCommandsInDatabase.add(JobCommandBuilder.buildJob(Integer.toString(i), Command.SCHEDULE));
+        }
+
+        int nrCommandsHandled = jobIngester.ingestJobs();
+
+        assertEquals(20, nrCommandsHandled);
+        verify(jobCommandDAO).deleteJobCommands(null, jobCommandsInDatabase, jobCommandsInDatabase);
+        verify(jobCommandDAO, never()).deleteJobCommands(anyList());
+    }
+
+    @Test
+    public void ingestJobs_multiplePartitions_commandsOfEachJobAreHandledInOrderAndDeletedByCommandId() throws SQLException {
+        ExecutorService partitionExecutor = Executors.newFixedThreadPool(4);
+        try {
+            JobIngester jobIngester = new JobIngester(jobScheduler, new DatabaseCommandSource(jobCommandDAO), Runnable::run, partitionExecutor, 4);
+            for (int i = 0; i < 20; i++) {
+                jobCommandsInDatabase.add(JobCommandBuilder.buildJob(Integer.toString(i), Command.SCHEDULE));
+            }
+            for (int i = 0; i < 20; i++) {
+                jobCommandsInDatabase.add(JobCommandBuilder.buildJob(Integer.toString(i), Command.RESCHEDULE));
+            }
+            List<JobCommand> deletedJobCommands = Collections.synchronizedList(new ArrayList<>());
+            doAnswer(invocation -> deletedJobCommands.addAll(invocation.getArgument(0)))
+                    .when(jobCommandDAO).deleteJobCommands(anyList());
+
+            int nrCommandsHandled = jobIngester.ingestJobs();
+
+            assertEquals(40, nrCommandsHandled);
+            for (int i = 0; i < 20; i++) {
+                InOrder inOrder = inOrder(jobScheduler);
+                inOrder.verify(jobScheduler).schedule(jobCommandsInDatabase.get(i).getJob());
+                inOrder.verify(jobScheduler).reschedule(jobCommandsInDatabase.get(20 + i).getJob());
+            }
+            assertEquals(new HashSet<>(jobCommandsInDatabase), new HashSet<>(deletedJobCommands));
+            assertEquals(40, deletedJobCommands.size());
+            verify(jobCommandDAO, never()).deleteJobCommands(any(), anyList(), anyList());
+            verify(jobScheduler, never()).runBatch(any(Runnable.class));
+        } finally {
+            partitionExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void ingestJobs_multiplePartitionsAndJobsWithSameOrderingKey_batchIsNotSplit() throws SQLException {
+        JobIngester jobIngester = new JobIngester(jobScheduler, new DatabaseCommandSource(jobCommandDAO), Runnable::run, Runnable::run, 4);
+        for (int i = 0; i < 20; i++) {
+            Job job = new Job(Integer.toString(i), "someType", null, Instant.now()).withOrderingKey("customer-1");
+            jobCommandsInDatabase.add(new JobCommand(Command.SCHEDULE, job));
+        }
+
+        int nrCommandsHandled = jobIngester.ingestJobs();
+
+        assertEquals(20, nrCommandsHandled);
+        InOrder inOrder = inOrder(jobScheduler);
+        for (JobCommand jobCommand : jobCommandsInDatabase) {
+            inOrder.verify(jobScheduler).schedule(jobCommand.getJob());
+        }
+        verify(jobCommandDAO).deleteJobCommands(null, jobCommandsInDatabase, jobCommandsInDatabase);
+    }
+
+    @Test
+    public void ingestJobs_onePartitionFails_exceptionIsThrownAndOtherPartitionsAreHandled() throws SQLException {
+        ExecutorService partitionExecutor = Executors.newFixedThreadPool(2);
+        try {
+            JobIngester jobIngester = new JobIngester(jobScheduler, new DatabaseCommandSource(jobCommandDAO), Runnable::run, partitionExecutor, 2);
+            JobCommand failingCommand = JobCommandBuilder.buildJob("0", Command.SCHEDULE);
+            JobCommand otherCommand = JobCommandBuilder.buildJob("1", Command.SCHEDULE);
+            jobCommandsInDatabase.addAll(Arrays.asList(failingCommand, otherCommand));
+            doThrow(new RuntimeException("Failed to add job")).when(jobScheduler).schedule(failingCommand.getJob());
+
+            try {
+                jobIngester.ingestJobs();
+                fail("Expected exception was not thrown");
+            } catch (RuntimeException e) {
+                assertEquals("Failed to add job", e.getMessage());
+            }
+
+            verify(jobScheduler).schedule(otherCommand.getJob());
+            verify(jobCommandDAO).deleteJobCommands(singletonList(otherCommand));
+            verify(jobCommandDAO, never()).deleteJobCommands(singletonList(failingCommand));
+        } finally {
+            partitionExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void createJobIngester_zeroPartitions_throwsException() {
+        try {
+            new JobIngester(jobScheduler, new DatabaseCommandSource(jobCommandDAO), Runnable::run, Runnable::run, 0);
+            fail("Expected exception was not thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("nrPartitions must be at least one", e.getMessage());
+        }
+    }
+
+    @Test
+    public void ingestJobs_jobScheduledAndRemovedInSameBatch_noCommandsForwardedToSchedulerAndBothCommandsDeleted() throws SQLException {
+        JobCommand scheduleCommand = JobCommandBuilder.buildJob("1", Command.SCHEDULE);
+        JobCommand removeCommand = JobCommandBuilder.buildJob("1", Command.REMOVE);
+        JobCommand otherScheduleCommand = JobCommandBuilder.buildJob("2", Command.SCHEDULE);
+        jobCommandsInDatabase.addAll(Arrays.asList(scheduleCommand, removeCommand, otherScheduleCommand));
+        when(jobScheduler.keepsAllJobsInMemory()).thenReturn(true);
+        when(jobScheduler.getCapacityLimits()).thenReturn(CapacityLimits.unlimited());
+        when(jobScheduler.getJobsSnapshot()).thenReturn(JobsSnapshot.empty());
+
+        int nrHandledJobCommands = jobIngester.ingestJobs();
+
+        assertEquals(3, nrHandledJobCommands);
+        verify(jobScheduler, never()).schedule(scheduleCommand.getJob());
+        verify(jobScheduler, never()).remove(any(String.class));
+        verify(jobScheduler).schedule(otherScheduleCommand.getJob());
+        verify(jobCommandDAO).deleteJobCommands(null, jobCommandsInDatabase, jobCommandsInDatabase);
+    }
+
+    @Test
+    public void ingestJobs_jobSchedulerRejectsCommand_commandIsQuarantinedAndOtherCommandsAreHandled() throws SQLException {
+        JobCommand finishedCommand = JobCommandBuilder.buildJob("1", Command.JOB_FINISHED);
+        JobCommand scheduleCommand = JobCommandBuilder.buildJob("2", Command.SCHEDULE);
+        jobCommandsInDatabase.addAll(Arrays.asList(finishedCommand, scheduleCommand));
+        UnknownJobException exception = new UnknownJobException("No job exists with the id 1");
+        doThrow(exception).when(jobScheduler).jobFinished("1");
+        when(jobCommandDAO.isQuarantineEnabled()).thenReturn(true);
+
+        int nrHandledJobCommands = jobIngester.ingestJobs();
+
+        assertEquals(2, nrHandledJobCommands);
+        verify(jobCommandDAO).quarantineJobCommand(finishedCommand, exception.toString());
+        verify(jobScheduler).schedule(scheduleCommand.getJob());
+        verify(jobCommandDAO).deleteJobCommands(null, jobCommandsInDatabase, jobCommandsInDatabase);
+        verify(jobScheduler, never()).loadPersistedJobs();
+    }
+
+    @Test
+    public void ingestJobs_jobSchedulerRejectsCommandAndQuarantineDisabled_batchFails() throws SQLException {
+        jobCommandsInDatabase.add(JobCommandBuilder.buildJob("1", Command.JOB_FINISHED));
+        doThrow(new UnknownJobException("No job exists with the id 1")).when(jobScheduler).jobFinished("1");
+
+        try {
+            jobIngester.ingestJobs();
+            fail("Expected exception was not thrown");
+        } catch (UnknownJobException e) {
+            assertEquals("No job exists with the id 1", e.getMessage());
+        }
+
+        verify(jobCommandDAO, never()).quarantineJobCommand(any(), any());
+        verify(jobCommandDAO, never()).deleteJobCommands(any(), anyList(), anyList());
+        verify(jobScheduler, never()).loadPersistedJobs();
+    }
+
+    @Test
+    public void ingestJobs_ingestingThrowsException_exceptionIsThrownAndPersistedJobsAreNotReloaded() {
+        Job job = buildJob();
+        jobCommandsInDatabase.add(new JobCommand(Command.SCHEDULE, job));
+        String message = "Failed to add job";
+        doThrow(new RuntimeException(message)).when(jobScheduler).schedule(job);
+
+        try {
+            jobIngester.ingestJobs();
+            fail("Expected exception was not thrown");
+        } catch (RuntimeException e) {
+            assertEquals(message, e.getMessage());
+        }
+
+        verify(jobScheduler, never()).loadPersistedJobs();
+    }
+
+    @Test
+    public void ingestJobs_persisterFailsForOneCommand_commandsBeforeFailingCommandAreHandledOneByOneAndExceptionIsThrown() throws SQLException {
+        JobCommand scheduleCommand1 = JobCommandBuilder.buildJob("1", Command.SCHEDULE);
+        JobCommand scheduleCommand2 = JobCommandBuilder.buildJob("2", Command.SCHEDULE);
+        JobCommand scheduleCommand3 = JobCommandBuilder.buildJob("3", Command.SCHEDULE);
+        jobCommandsInDatabase.addAll(Arrays.asList(scheduleCommand1, scheduleCommand2, scheduleCommand3));
+        RuntimeException exception = new RuntimeException("Connection lost");
+        doThrow(exception).when(jobScheduler).schedule(scheduleCommand2.getJob());
+        when(jobCommandDAO.isQuarantineEnabled()).thenReturn(true);
+
+        try {
+            jobIngester.ingestJobs();
+            fail("Expected exception was not thrown");
+        } catch (RuntimeException e) {
+            assertSame(exception, e);
+        }
+
+        verify(jobCommandDAO).deleteJobCommands(singletonList(scheduleCommand1));
+        verify(jobCommandDAO, never()).deleteJobCommands(singletonList(scheduleCommand2));
+        verify(jobCommandDAO, never()).deleteJobCommands(singletonList(scheduleCommand3));
+        verify(jobCommandDAO, never()).quarantineJobCommand(any(), any());
+    }
+
+    @Test
+    public void ingestJobs_persisterFailsForOneCommandAndQuarantineDisabled_exceptionIsThrownWithoutRetryingOneByOne() throws SQLException {
+        JobCommand scheduleCommand = JobCommandBuilder.buildJob("1", Command.SCHEDULE);
+        jobCommandsInDatabase.add(scheduleCommand);
+        doThrow(new RuntimeException("Connection lost")).when(jobScheduler).schedule(scheduleCommand.getJob());
+
+        try {
+            jobIngester.ingestJobs();
+            fail("Expected exception was not thrown");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        verify(jobScheduler, times(1)).schedule(scheduleCommand.getJob());
+        verify(jobCommandDAO, never()).deleteJobCommands(anyList());
+    }
+
+    private Job buildJob() {
+        return new Job("1", "someType", null, Instant.now());
+    }
+}
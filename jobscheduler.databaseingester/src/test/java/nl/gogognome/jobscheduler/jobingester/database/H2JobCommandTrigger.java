@@ -0,0 +1,44 @@
+package nl.gogognome.jobscheduler.jobingester.database;
+
+import nl.gogognome.jobscheduler.jobingester.JobIngesterProperties;
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+
+/**
+ * An H2 trigger that notifies the {@link JobCommandNotifications} listeners of the table of job commands when
+ * job commands are inserted. It lives in the tests, so that this module does not depend on H2; the README shows
+ * how to add it to an application that uses H2. Create it on the table of job commands as follows:
+ * <pre>
+ * CREATE TRIGGER NlGogognomeJobsToIngestInserted AFTER INSERT ON NlGogognomeJobsToIngest FOR EACH STATEMENT
+ * CALL 'nl.gogognome.jobscheduler.jobingester.database.H2JobCommandTrigger';
+ * </pre>
+ *
+ * <p>The trigger fires when the insert is executed, which is before the transaction is committed. Until the job
+ * ingester runner has found job commands after a notification, it polls at least every
+ * {@link JobIngesterProperties#getDelayBetweenPolls()} milliseconds instead of every
+ * {@link JobIngesterProperties#getDelayBetweenPollsWithNotifications()} milliseconds. So the job commands are found
+ * shortly after the transaction has been committed, also if the commit takes a while.
+ */
+public class H2JobCommandTrigger implements Trigger {
+
+    private String tableName;
+
+    @Override
+    public void init(Connection connection, String schemaName, String triggerName, String tableName, boolean before, int type) {
+        this.tableName = tableName;
+    }
+
+    @Override
+    public void fire(Connection connection, Object[] oldRow, Object[] newRow) {
+        JobCommandNotifications.notifyListeners(tableName);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void remove() {
+    }
+}
@@ -0,0 +1,112 @@
+package nl.gogognome.jobscheduler.jobingester.database;
+
+import nl.gogognome.dataaccess.migrations.DatabaseMigratorDAO;
+import nl.gogognome.dataaccess.transaction.CompositeDatasourceTransaction;
+import nl.gogognome.dataaccess.transaction.NewTransaction;
+import nl.gogognome.jobscheduler.jobingester.Command;
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+import nl.gogognome.jobscheduler.jobingester.JobCommandBuilder;
+import nl.gogognome.jobscheduler.jobingester.JobIngester;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterProperties;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterRunner;
+import nl.gogognome.jobscheduler.scheduler.Job;
+import nl.gogognome.jobscheduler.scheduler.JobScheduler;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class H2JobCommandTriggerTest {
+
+    private JobIngesterProperties properties = new JobIngesterProperties();
+    private Connection connectionToKeepInMemoryDatabaseAlive;
+    private JobCommandDAO jobCommandDAO;
+    private final AtomicInteger nrNotifications = new AtomicInteger();
+    private final Runnable listener = nrNotifications::incrementAndGet;
+
+    @Before
+    public void setupInMemoryDatabaseWithTrigger() throws SQLException {
+        String jdbcUrl = "jdbc:h2:mem:" + UUID.randomUUID();
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(jdbcUrl);
+        connectionToKeepInMemoryDatabaseAlive = dataSource.getConnection();
+        CompositeDatasourceTransaction.registerDataSource(properties.getConnectionName(), dataSource);
+
+        NewTransaction.runs(() -> new DatabaseMigratorDAO(properties.getConnectionName()).applyMigrationsFromResource("/database/_migrations.txt"));
+        try (Statement statement = connectionToKeepInMemoryDatabaseAlive.createStatement()) {
+            statement.execute("CREATE TRIGGER NlGogognomeJobsToIngestInserted AFTER INSERT ON NlGogognomeJobsToIngest "
+                    + "FOR EACH STATEMENT CALL '" + H2JobCommandTrigger.class.getName() + "'");
+        }
+
+        jobCommandDAO = new JobCommandDAO(properties);
+        JobCommandNotifications.addListener(properties.getTableName(), listener);
+    }
+
+    @After
+    public void removeInMemoryDatabase() throws SQLException {
+        JobCommandNotifications.removeListener(properties.getTableName(), listener);
+        connectionToKeepInMemoryDatabaseAlive.close();
+    }
+
+    @Test
+    public void jobCommandsInserted_listenerIsNotifiedForEachInsert() {
+        NewTransaction.runs(() -> {
+            jobCommandDAO.create(JobCommandBuilder.buildJob("1", Command.SCHEDULE));
+            jobCommandDAO.create(JobCommandBuilder.buildJob("2", Command.SCHEDULE));
+        });
+
+        assertEquals(2, nrNotifications.get());
+    }
+
+    @Test
+    public void jobCommandsDeleted_listenerIsNotNotified() {
+        JobCommand jobCommand = JobCommandBuilder.buildJob("1", Command.SCHEDULE);
+        NewTransaction.runs(() -> jobCommandDAO.create(jobCommand));
+        nrNotifications.set(0);
+
+        NewTransaction.runs(() -> jobCommandDAO.deleteJobCommands(jobCommandDAO.findJobCommands()));
+
+        assertEquals(0, nrNotifications.get());
+    }
+
+    @Test
+    public void listenerRemoved_jobCommandInserted_listenerIsNotNotified() {
+        JobCommandNotifications.removeListener(properties.getTableName(), listener);
+
+        NewTransaction.runs(() -> jobCommandDAO.create(JobCommandBuilder.buildJob("1", Command.SCHEDULE)));
+
+        assertEquals(0, nrNotifications.get());
+    }
+
+    @Test
+    public void jobCommandInsertedLongBeforeCommit_jobIngesterRunnerWithNotifications_ingestsJobCommandSoonAfterCommit() throws InterruptedException {
+        properties.setNotificationsEnabled(true);
+        JobScheduler jobScheduler = mock(JobScheduler.class);
+        when(jobScheduler.hasCapacityFor(anyString())).thenReturn(true);
+        doAnswer(invocationOnMock -> { ((Runnable)invocationOnMock.getArguments()[0]).run(); return null; })
+                .when(jobScheduler).runBatch(any(Runnable.class));
+        JobIngesterRunner jobIngesterRunner = new JobIngesterRunner(properties, new JobIngester(jobScheduler, new DatabaseCommandSource(jobCommandDAO)));
+
+        jobIngesterRunner.start();
+        try {
+            NewTransaction.runs(() -> {
+                jobCommandDAO.create(JobCommandBuilder.buildJob("1", Command.SCHEDULE));
+                Thread.sleep(2100);
+            });
+
+            verify(jobScheduler, timeout(1500)).schedule(any(Job.class));
+        } finally {
+            jobIngesterRunner.stop();
+        }
+    }
+}
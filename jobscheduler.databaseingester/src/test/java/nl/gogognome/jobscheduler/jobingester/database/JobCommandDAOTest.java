@@ -5,6 +5,10 @@ import nl.gogognome.dataaccess.migrations.DatabaseMigratorDAO;
 import nl.gogognome.dataaccess.transaction.CompositeDatasourceTransaction;
 import nl.gogognome.dataaccess.transaction.NewTransaction;
 import nl.gogognome.dataaccess.transaction.RequireTransaction;
+import nl.gogognome.jobscheduler.jobingester.Command;
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+import nl.gogognome.jobscheduler.jobingester.JobCommandBuilder;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterProperties;
 import nl.gogognome.jobscheduler.scheduler.Job;
 import org.h2.jdbcx.JdbcDataSource;
 import org.junit.After;
@@ -13,20 +17,24 @@ import org.junit.Test;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 public class JobCommandDAOTest {
 
     private JobIngesterProperties properties = new JobIngesterProperties();
-    @SuppressWarnings("unused")
     private Connection connectionToKeepInMemoryDatabaseAlive;
     private JobCommandDAO jobCommandDAO;
 
@@ -44,8 +52,8 @@ public class JobCommandDAOTest {
     }
 
     @After
-    public void removeInMemoryDatabase() {
-        connectionToKeepInMemoryDatabaseAlive = null;
+    public void removeInMemoryDatabase() throws SQLException {
+        connectionToKeepInMemoryDatabaseAlive.close();
     }
 
     @Test
@@ -75,6 +83,46 @@ public class JobCommandDAOTest {
         });
     }
 
+    @Test
+    public void findAll_jobWithDeadlineInDatabase_returnsJobWithDeadline() {
+        Instant deadline = Instant.now().plus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.MILLIS);
+        JobCommand jobCommand = new JobCommand(Command.SCHEDULE, JobCommandBuilder.buildJob("1", Command.SCHEDULE).getJob().withDeadline(deadline));
+
+        NewTransaction.runs(() -> {
+            jobCommandDAO.create(jobCommand);
+            List<JobCommand> jobCommands = jobCommandDAO.findJobCommands();
+
+            assertEquals(1, jobCommands.size());
+            assertEquals(deadline, jobCommands.get(0).getJob().getDeadline().truncatedTo(ChronoUnit.MILLIS));
+        });
+    }
+
+    @Test
+    public void findAll_jobWithOrderingKeyInDatabase_returnsJobWithOrderingKey() {
+        JobCommand jobCommand = new JobCommand(Command.SCHEDULE, JobCommandBuilder.buildJob("1", Command.SCHEDULE).getJob().withOrderingKey("customer-1"));
+
+        NewTransaction.runs(() -> {
+            jobCommandDAO.create(jobCommand);
+            List<JobCommand> jobCommands = jobCommandDAO.findJobCommands();
+
+            assertEquals(1, jobCommands.size());
+            assertEquals("customer-1", jobCommands.get(0).getJob().getOrderingKey());
+        });
+    }
+
+    @Test
+    public void findAll_jobWithCoalescingKeyInDatabase_returnsJobWithCoalescingKey() {
+        JobCommand jobCommand = new JobCommand(Command.SCHEDULE, JobCommandBuilder.buildJob("1", Command.SCHEDULE).getJob().withCoalescingKey("reindex-1"));
+
+        NewTransaction.runs(() -> {
+            jobCommandDAO.create(jobCommand);
+            List<JobCommand> jobCommands = jobCommandDAO.findJobCommands();
+
+            assertEquals(1, jobCommands.size());
+            assertEquals("reindex-1", jobCommands.get(0).getJob().getCoalescingKey());
+        });
+    }
+
     @Test
     public void findAll_twoJobCommandsPresentAndSelectJobCommandsQueryOnlyGetsFirstCommand_getsFirstRow() {
         properties.setSelectJobCommandsQuery("SELECT * FROM " + properties.getTableName() + " LIMIT 1");
@@ -92,6 +140,131 @@ public class JobCommandDAOTest {
         });
     }
 
+    @Test
+    public void findJobCommands_moreCommandsThanMaxBatchSize_returnsCommandsInBatchesOrderedByCommandId() {
+        properties.setMaxBatchSize(2);
+        NewTransaction.runs(() -> {
+            for (String commandId : asList("c3", "c1", "c2")) {
+                jobCommandDAO.create(new JobCommand(commandId, Command.SCHEDULE, JobCommandBuilder.buildJob(commandId, Command.SCHEDULE).getJob()));
+            }
+
+            List<JobCommand> firstBatch = jobCommandDAO.findJobCommands(null);
+            List<JobCommand> secondBatch = jobCommandDAO.findJobCommands("c2");
+            List<JobCommand> thirdBatch = jobCommandDAO.findJobCommands("c3");
+
+            assertEquals(asList("c1", "c2"), commandIds(firstBatch));
+            assertEquals(singletonList("c3"), commandIds(secondBatch));
+            assertEquals(emptyList(), thirdBatch);
+        });
+    }
+
+    @Test
+    public void create_commandIdsFromSequence_commandsAreFoundInOrderOfCreation() throws SQLException {
+        connectionToKeepInMemoryDatabaseAlive.createStatement().execute("ALTER SEQUENCE " + properties.getCommandIdSequence() + " RESTART WITH 9");
+        NewTransaction.runs(() -> {
+            jobCommandDAO.create(JobCommandBuilder.buildJob("1", Command.SCHEDULE));
+            jobCommandDAO.create(JobCommandBuilder.buildJob("1", Command.REMOVE));
+
+            List<JobCommand> jobCommands = jobCommandDAO.findJobCommands(null);
+
+            assertEquals(asList(JobCommandDAO.formatCommandId(9), JobCommandDAO.formatCommandId(10)), commandIds(jobCommands));
+            assertEquals(asList(Command.SCHEDULE, Command.REMOVE), jobCommands.stream().map(JobCommand::getCommand).collect(Collectors.toList()));
+        });
+    }
+
+    @Test
+    public void findJobCommands_selectJobCommandsQueryConfigured_returnsResultOfQueryAsSingleBatch() {
+        properties.setSelectJobCommandsQuery("SELECT * FROM " + properties.getTableName());
+        properties.setMaxBatchSize(1);
+        NewTransaction.runs(() -> {
+            jobCommandDAO.create(new JobCommand("c1", Command.SCHEDULE, JobCommandBuilder.buildJob("1", Command.SCHEDULE).getJob()));
+            jobCommandDAO.create(new JobCommand("c2", Command.SCHEDULE, JobCommandBuilder.buildJob("2", Command.SCHEDULE).getJob()));
+
+            assertEquals(2, jobCommandDAO.findJobCommands(null).size());
+            assertEquals(emptyList(), jobCommandDAO.findJobCommands("c2"));
+        });
+    }
+
+    @Test
+    public void deleteBatch_allCommandsHandled_deletesCommandsWithOneRangeDelete() {
+        NewTransaction.runs(() -> {
+            List<JobCommand> batch = createJobCommands("c1", "c2", "c3");
+            List<String> executedStatements = new ArrayList<>();
+            jobCommandDAO = recordingStatements(executedStatements);
+
+            jobCommandDAO.deleteJobCommands(null, batch, batch);
+
+            assertEquals(singletonList("DELETE FROM NlGogognomeJobsToIngest WHERE command_id<=?"),
+                    executedStatements.stream().filter(statement -> statement.startsWith("DELETE")).collect(Collectors.toList()));
+            assertNoJobCommandsPresent();
+        });
+    }
+
+    @Test
+    public void deleteBatch_postponedCommandInBatch_deletesOnlyHandledCommands() {
+        NewTransaction.runs(() -> {
+            createJobCommands("c0");
+            List<JobCommand> batch = createJobCommands("c1", "c2", "c3", "c4");
+
+            jobCommandDAO.deleteJobCommands("c0", batch, asList(batch.get(0), batch.get(2), batch.get(3)));
+
+            assertEquals(asList("c0", "c2"), commandIds(jobCommandDAO.findJobCommands(null)));
+        });
+    }
+
+    @Test
+    public void deleteBatch_commandAddedInRangeAfterBatchWasRead_deletesOnlyCommandsOfBatch() {
+        NewTransaction.runs(() -> {
+            List<JobCommand> batch = createJobCommands("c1", "c3");
+            createJobCommands("c2");
+
+            jobCommandDAO.deleteJobCommands(null, batch, batch);
+
+            assertEquals(singletonList("c2"), commandIds(jobCommandDAO.findJobCommands(null)));
+        });
+    }
+
+    @Test
+    public void deleteBatch_selectJobCommandsQueryConfigured_deletesHandledCommandsById() {
+        properties.setSelectJobCommandsQuery("SELECT * FROM " + properties.getTableName() + " WHERE command_id <> 'c2'");
+        NewTransaction.runs(() -> {
+            List<JobCommand> allCommands = createJobCommands("c1", "c2", "c3");
+            List<JobCommand> batch = asList(allCommands.get(0), allCommands.get(2));
+
+            jobCommandDAO.deleteJobCommands(null, batch, batch);
+
+            properties.setSelectJobCommandsQuery(null);
+            assertEquals(singletonList("c2"), commandIds(jobCommandDAO.findJobCommands(null)));
+        });
+    }
+
+    @Test
+    public void quarantineJobCommand_jobCommand_jobCommandIsStoredWithError() {
+        properties.setQuarantineTableName("NlGogognomeQuarantinedJobCommands");
+        jobCommandDAO = new JobCommandDAO(properties);
+        NewTransaction.runs(() -> {
+            JobCommand jobCommand = jobCommandDAO.create(JobCommandBuilder.buildJob("1", Command.JOB_FINISHED));
+
+            jobCommandDAO.quarantineJobCommand(jobCommand, "No job exists with the id 1");
+
+            List<QuarantinedJobCommand> quarantinedJobCommands = jobCommandDAO.findQuarantinedJobCommands();
+            assertEquals(1, quarantinedJobCommands.size());
+            assertEquals(jobCommand.getCommandId(), quarantinedJobCommands.get(0).getJobCommand().getCommandId());
+            assertEquals(Command.JOB_FINISHED, quarantinedJobCommands.get(0).getJobCommand().getCommand());
+            assertEquals("1", quarantinedJobCommands.get(0).getJobCommand().getJob().getId());
+            assertEquals("No job exists with the id 1", quarantinedJobCommands.get(0).getError());
+        });
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void quarantineJobCommand_noQuarantineTableConfigured_shouldFail() throws SQLException {
+        properties.setQuarantineTableName(null);
+        jobCommandDAO = new JobCommandDAO(properties);
+
+        assertFalse(jobCommandDAO.isQuarantineEnabled());
+        jobCommandDAO.quarantineJobCommand(JobCommandBuilder.buildJob("1", Command.JOB_FINISHED), "error");
+    }
+
     @Test
     public void delete_zeroJobCommandsToDelete_deletesNothing() {
         NewTransaction.runs(() -> {
@@ -160,4 +333,26 @@ public class JobCommandDAOTest {
     private void assertNoJobCommandsPresent() {
         RequireTransaction.runs(() -> assertEquals(0, jobCommandDAO.count(null)));
     }
+
+    private List<String> commandIds(List<JobCommand> jobCommands) {
+        return jobCommands.stream().map(JobCommand::getCommandId).collect(Collectors.toList());
+    }
+
+    private List<JobCommand> createJobCommands(String... commandIds) throws SQLException {
+        List<JobCommand> jobCommands = new ArrayList<>();
+        for (String commandId : commandIds) {
+            jobCommands.add(jobCommandDAO.create(new JobCommand(commandId, Command.SCHEDULE, JobCommandBuilder.buildJob(commandId, Command.SCHEDULE).getJob())));
+        }
+        return jobCommands;
+    }
+
+    private JobCommandDAO recordingStatements(List<String> executedStatements) {
+        return new JobCommandDAO(properties) {
+            @Override
+            protected QueryBuilder execute(String sqlStatement, Object... parameters) throws SQLException {
+                executedStatements.add(sqlStatement);
+                return super.execute(sqlStatement, parameters);
+            }
+        };
+    }
 }
@@ -0,0 +1,93 @@
+package nl.gogognome.jobscheduler.jobingester.database;
+
+import nl.gogognome.dataaccess.migrations.DatabaseMigratorDAO;
+import nl.gogognome.dataaccess.transaction.CompositeDatasourceTransaction;
+import nl.gogognome.dataaccess.transaction.NewTransaction;
+import nl.gogognome.jobscheduler.jobingester.Command;
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+import nl.gogognome.jobscheduler.jobingester.JobIngester;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterProperties;
+import nl.gogognome.jobscheduler.persister.NoOperationPersister;
+import nl.gogognome.jobscheduler.runnablejobfinder.TypeQueuesRunnableJobFinder;
+import nl.gogognome.jobscheduler.scheduler.Job;
+import nl.gogognome.jobscheduler.scheduler.JobScheduler;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures how many job commands per second a job ingester handles from an embedded H2 database, with one
+ * partition and with multiple partitions. The job scheduler uses a persister that does nothing, so the time is
+ * spent on reading and deleting job commands and on the job scheduler itself. The benchmark is ignored; the other
+ * test checks that partitions that commit concurrently handle and delete all job commands.
+ */
+public class JobIngesterThroughputTest {
+
+    private final static int NR_JOB_COMMANDS = 50_000;
+    private final static int[] NR_PARTITIONS = { 1, 2, 4, 8 };
+
+    @Ignore("This is a benchmark. Run it manually to compare the throughput of different numbers of partitions.")
+    @Test
+    public void compareThroughput() throws Exception {
+        for (int nrPartitions : NR_PARTITIONS) {
+            measureThroughput(nrPartitions); // warm up
+            long jobCommandsPerSecond = measureThroughput(nrPartitions);
+            System.out.println(nrPartitions + " partition(s): " + jobCommandsPerSecond + " job commands per second");
+        }
+    }
+
+    @Test
+    public void ingestJobs_fourPartitions_allJobsAreScheduledAndAllJobCommandsAreDeleted() throws Exception {
+        JobScheduler jobScheduler = new JobScheduler(new TypeQueuesRunnableJobFinder(), new NoOperationPersister());
+
+        ingestJobs(jobScheduler, 4, 5_000);
+
+        assertEquals(5_000, jobScheduler.findAllJobs().size());
+    }
+
+    private long measureThroughput(int nrPartitions) throws Exception {
+        JobScheduler jobScheduler = new JobScheduler(new TypeQueuesRunnableJobFinder(), new NoOperationPersister());
+        long start = System.nanoTime();
+        ingestJobs(jobScheduler, nrPartitions, NR_JOB_COMMANDS);
+        long durationNanos = System.nanoTime() - start;
+        return NR_JOB_COMMANDS * 1_000_000_000L / durationNanos;
+    }
+
+    private void ingestJobs(JobScheduler jobScheduler, int nrPartitions, int nrJobCommands) throws Exception {
+        JobIngesterProperties properties = new JobIngesterProperties();
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID());
+        ExecutorService fetchExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService partitionExecutor = Executors.newFixedThreadPool(nrPartitions);
+        try (Connection connectionToKeepInMemoryDatabaseAlive = dataSource.getConnection()) {
+            CompositeDatasourceTransaction.registerDataSource(properties.getConnectionName(), dataSource);
+            NewTransaction.runs(() -> new DatabaseMigratorDAO(properties.getConnectionName()).applyMigrationsFromResource("/database/_migrations.txt"));
+
+            JobCommandDAO jobCommandDAO = new JobCommandDAO(properties);
+            Instant now = Instant.now();
+            NewTransaction.runs(() -> {
+                for (int i = 0; i < nrJobCommands; i++) {
+                    jobCommandDAO.create(new JobCommand(Command.SCHEDULE, new Job(Integer.toString(i), "someType", null, now)));
+                }
+            });
+
+            JobIngester jobIngester = new JobIngester(jobScheduler, new DatabaseCommandSource(jobCommandDAO), fetchExecutor, partitionExecutor, nrPartitions);
+            int nrHandledJobCommands = jobIngester.ingestJobs();
+
+            assertEquals(nrJobCommands, nrHandledJobCommands);
+            assertTrue(NewTransaction.returns(jobCommandDAO::findJobCommands).isEmpty());
+        } finally {
+            fetchExecutor.shutdown();
+            partitionExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package nl.gogognome.jobscheduler.jobingester.spool;
+
+import nl.gogognome.jobscheduler.jobingester.Command;
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+import nl.gogognome.jobscheduler.scheduler.Job;
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static org.junit.Assert.*;
+
+public class NdjsonJobCommandFormatTest {
+
+    private final NdjsonJobCommandFormat format = new NdjsonJobCommandFormat();
+
+    @Test
+    public void formatAndParse_allFields_returnsEqualJobCommand() {
+        Job job = new Job("42", "email", "line 1\nline 2", Instant.parse("2024-01-01T00:00:00Z"))
+                .withDeadline(Instant.parse("2024-01-02T00:00:00Z"))
+                .withOrderingKey("customer-1")
+                .withCoalescingKey("reindex");
+
+        String line = format.format(new JobCommand(Command.SCHEDULE, job));
+        JobCommand jobCommand = format.parse("commandId", line);
+
+        assertFalse(line.contains("\n"));
+        assertEquals("commandId", jobCommand.getCommandId());
+        assertEquals(Command.SCHEDULE, jobCommand.getCommand());
+        assertEquals(job, jobCommand.getJob());
+        assertEquals(job.getType(), jobCommand.getJob().getType());
+        assertEquals(job.getData(), jobCommand.getJob().getData());
+        assertEquals(job.getScheduledAtInstant(), jobCommand.getJob().getScheduledAtInstant());
+        assertEquals(job.getDeadline(), jobCommand.getJob().getDeadline());
+        assertEquals(job.getOrderingKey(), jobCommand.getJob().getOrderingKey());
+        assertEquals(job.getCoalescingKey(), jobCommand.getJob().getCoalescingKey());
+    }
+
+    @Test
+    public void parse_onlyCommandAndId_returnsJobCommandWithoutOptionalFields() {
+        JobCommand jobCommand = format.parse("commandId", "{\"command\":\"JOB_FINISHED\",\"id\":\"42\"}");
+
+        assertEquals(Command.JOB_FINISHED, jobCommand.getCommand());
+        assertEquals("42", jobCommand.getJob().getId());
+        assertNull(jobCommand.getJob().getType());
+        assertNull(jobCommand.getJob().getScheduledAtInstant());
+    }
+
+    @Test
+    public void parse_invalidLines_throwsIllegalArgumentException() {
+        String[] invalidLines = {
+                "not json",
+                "{\"id\":\"42\"}",
+                "{\"command\":\"START\",\"id\":\"42\"}",
+                "{\"command\":\"SCHEDULE\",\"id\":\"42\",\"scheduledAtInstant\":\"yesterday\"}"
+        };
+        for (String line : invalidLines) {
+            try {
+                format.parse("commandId", line);
+                fail("Expected exception was not thrown for " + line);
+            } catch (IllegalArgumentException e) {
+                // expected exception
+            }
+        }
+    }
+}
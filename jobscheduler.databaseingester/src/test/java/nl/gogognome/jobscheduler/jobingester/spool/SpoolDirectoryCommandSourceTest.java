@@ -0,0 +1,248 @@
+package nl.gogognome.jobscheduler.jobingester.spool;
+
+import nl.gogognome.jobscheduler.jobingester.Command;
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+import nl.gogognome.jobscheduler.jobingester.JobIngester;
+import nl.gogognome.jobscheduler.persister.NoOperationPersister;
+import nl.gogognome.jobscheduler.runnablejobfinder.FifoRunnableJobFinder;
+import nl.gogognome.jobscheduler.scheduler.CapacityLimits;
+import nl.gogognome.jobscheduler.scheduler.Job;
+import nl.gogognome.jobscheduler.scheduler.JobScheduler;
+import nl.gogognome.jobscheduler.scheduler.ScheduledJob;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+public class SpoolDirectoryCommandSourceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AtomicReference<String> failCreateOfJobId = new AtomicReference<>();
+    private final AtomicReference<String> alwaysFailCreateOfJobId = new AtomicReference<>();
+    private final JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), new NoOperationPersister() {
+        @Override
+        public void create(ScheduledJob job) {
+            if (job.getJob().getId().equals(failCreateOfJobId.get())) {
+                failCreateOfJobId.set(null);
+                throw new IllegalStateException("Simulated failure");
+            }
+            if (job.getJob().getId().equals(alwaysFailCreateOfJobId.get())) {
+                throw new IllegalStateException("Simulated permanent failure");
+            }
+        }
+    });
+    private Path spoolDirectory;
+    private SpoolFileWriter spoolFileWriter;
+    private SpoolDirectoryCommandSource commandSource;
+    private JobIngester jobIngester;
+
+    @Before
+    public void initSpoolDirectory() throws IOException {
+        spoolDirectory = temporaryFolder.getRoot().toPath();
+        spoolFileWriter = new SpoolFileWriter(spoolDirectory);
+        commandSource = new SpoolDirectoryCommandSource(spoolDirectory, 2);
+        jobIngester = new JobIngester(jobScheduler, commandSource);
+    }
+
+    @After
+    public void closeCommandSource() throws IOException {
+        commandSource.close();
+    }
+
+    @Test
+    public void twoSpoolFiles_ingestJobs_handlesCommandsInOrderAndDeletesSpoolFiles() throws IOException {
+        spoolFileWriter.write(Arrays.asList(schedule("1"), schedule("2"), schedule("3")));
+        spoolFileWriter.write(Arrays.asList(command(Command.REMOVE, "2"), schedule("4")));
+
+        int nrHandledJobCommands = jobIngester.ingestJobs();
+
+        assertEquals(5, nrHandledJobCommands);
+        assertEquals(Arrays.asList("1", "3", "4"), findAllJobIds());
+        assertEquals(0, countSpoolFiles());
+    }
+
+    @Test
+    public void spoolFileWrittenDuringIngestion_ingestJobs_readByNextIngestion() throws IOException {
+        spoolFileWriter.write(singletonList(schedule("1")));
+        jobIngester.ingestJobs();
+        spoolFileWriter.write(singletonList(schedule("2")));
+
+        assertEquals(1, jobIngester.ingestJobs());
+        assertEquals(Arrays.asList("1", "2"), findAllJobIds());
+    }
+
+    @Test
+    public void noCapacityForJob_ingestJobs_postponedCommandsKeptUntilNextIngestion() throws IOException {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(1));
+        spoolFileWriter.write(Arrays.asList(schedule("1"), schedule("2"), command(Command.REMOVE, "2"), schedule("3")));
+
+        assertEquals(1, jobIngester.ingestJobs());
+        assertEquals(singletonList("1"), findAllJobIds());
+        assertEquals(1, countSpoolFiles());
+
+        jobScheduler.remove("1");
+        assertEquals(3, jobIngester.ingestJobs());
+        assertEquals(singletonList("3"), findAllJobIds());
+        assertEquals(0, countSpoolFiles());
+        assertEquals(0, countProgressFiles());
+    }
+
+    @Test
+    public void rejectedCommandAndInvalidLine_ingestJobs_quarantinedAndOtherCommandsHandled() throws IOException {
+        Path spoolFile = spoolFileWriter.write(Arrays.asList(command(Command.JOB_FINISHED, "unknown"), schedule("1")));
+        Files.write(spoolFile, singletonList("not a job command"), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        assertEquals(2, jobIngester.ingestJobs());
+
+        assertEquals(singletonList("1"), findAllJobIds());
+        assertEquals(0, countSpoolFiles());
+        List<String> quarantineRecords = Files.readAllLines(spoolDirectory.resolve(SpoolDirectoryCommandSource.QUARANTINE_DIRECTORY)
+                .resolve(SpoolDirectoryCommandSource.QUARANTINE_FILE), StandardCharsets.UTF_8);
+        assertEquals(2, quarantineRecords.size());
+        assertTrue(quarantineRecords.toString(), quarantineRecords.toString().contains("Invalid JSON"));
+        assertTrue(quarantineRecords.toString(), quarantineRecords.toString().contains("UnknownJobException"));
+    }
+
+    @Test
+    public void batchFailsOnce_ingestJobs_commandsOfFailedBatchHandledOneByOne() throws IOException {
+        spoolFileWriter.write(Arrays.asList(schedule("1"), schedule("2"), schedule("3"), schedule("4"), schedule("5")));
+        failCreateOfJobId.set("3");
+
+        assertEquals(5, jobIngester.ingestJobs());
+
+        assertEquals(Arrays.asList("1", "2", "3", "4", "5"), findAllJobIds());
+        assertEquals(0, countSpoolFiles());
+        assertFalse(Files.exists(spoolDirectory.resolve(SpoolDirectoryCommandSource.QUARANTINE_DIRECTORY)
+                .resolve(SpoolDirectoryCommandSource.QUARANTINE_FILE)));
+    }
+
+    @Test
+    public void commandFailsUntilProblemIsSolved_ingestJobs_commandIsNotQuarantinedButRetried() throws IOException {
+        spoolFileWriter.write(Arrays.asList(schedule("1"), schedule("2"), schedule("3"), schedule("4"), schedule("5")));
+        alwaysFailCreateOfJobId.set("3");
+
+        try {
+            jobIngester.ingestJobs();
+            fail("Expected exception was not thrown");
+        } catch (IllegalStateException e) {
+            assertEquals("Simulated permanent failure", e.getMessage());
+        }
+        assertEquals(Arrays.asList("1", "2"), findAllJobIds());
+
+        alwaysFailCreateOfJobId.set(null);
+        assertEquals(3, jobIngester.ingestJobs());
+
+        assertEquals(Arrays.asList("1", "2", "3", "4", "5"), findAllJobIds());
+        assertEquals(0, countSpoolFiles());
+        assertFalse(Files.exists(spoolDirectory.resolve(SpoolDirectoryCommandSource.QUARANTINE_DIRECTORY)
+                .resolve(SpoolDirectoryCommandSource.QUARANTINE_FILE)));
+    }
+
+    @Test
+    public void spoolFileLeftInProcessingDirectory_newCommandSource_readsSpoolFile() throws IOException {
+        Path spoolFile = spoolFileWriter.write(Arrays.asList(schedule("1"), schedule("2")));
+        Files.move(spoolFile, spoolDirectory.resolve(SpoolDirectoryCommandSource.PROCESSING_DIRECTORY).resolve(spoolFile.getFileName()));
+
+        try (SpoolDirectoryCommandSource newCommandSource = new SpoolDirectoryCommandSource(spoolDirectory, 10)) {
+            assertEquals(2, new JobIngester(jobScheduler, newCommandSource).ingestJobs());
+        }
+        assertEquals(Arrays.asList("1", "2"), findAllJobIds());
+        assertEquals(0, countSpoolFiles());
+    }
+
+    @Test
+    public void commandsHandledBeforeCrash_newCommandSource_handledCommandsAreNotHandledAgain() throws IOException {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(2));
+        spoolFileWriter.write(Arrays.asList(schedule("1"), schedule("2"), schedule("3"), schedule("4")));
+        assertEquals(2, jobIngester.ingestJobs());
+
+        // The command source is not closed, like after a crash
+        JobScheduler restartedJobScheduler = new JobScheduler(new FifoRunnableJobFinder(), new NoOperationPersister());
+        try (SpoolDirectoryCommandSource newCommandSource = new SpoolDirectoryCommandSource(spoolDirectory, 10)) {
+            assertEquals(2, new JobIngester(restartedJobScheduler, newCommandSource).ingestJobs());
+        }
+        assertEquals(Arrays.asList("3", "4"), findAllJobIds(restartedJobScheduler));
+        assertEquals(0, countSpoolFiles());
+        assertEquals(0, countProgressFiles());
+    }
+
+    @Test
+    public void listenerAdded_spoolFileWritten_listenerCalled() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        commandSource.addListener(latch::countDown);
+
+        spoolFileWriter.write(singletonList(schedule("1")));
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void invalidMaxBatchSize_constructor_shouldFail() throws IOException {
+        try {
+            new SpoolDirectoryCommandSource(spoolDirectory, 0);
+            fail("Expected exception was not thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("maxBatchSize must be at least one", e.getMessage());
+        }
+    }
+
+    private List<String> findAllJobIds() {
+        return findAllJobIds(jobScheduler);
+    }
+
+    private static List<String> findAllJobIds(JobScheduler jobScheduler) {
+        List<String> jobIds = new ArrayList<>();
+        for (ScheduledJob scheduledJob : jobScheduler.findAllJobs()) {
+            jobIds.add(scheduledJob.getJob().getId());
+        }
+        jobIds.sort(null);
+        return jobIds;
+    }
+
+    private int countSpoolFiles() throws IOException {
+        int nrSpoolFiles = 0;
+        for (Path directory : Arrays.asList(spoolDirectory, spoolDirectory.resolve(SpoolDirectoryCommandSource.PROCESSING_DIRECTORY))) {
+            nrSpoolFiles += countFiles(directory, SpoolDirectoryCommandSource.SPOOL_FILE_EXTENSION);
+        }
+        return nrSpoolFiles;
+    }
+
+    private int countProgressFiles() throws IOException {
+        return countFiles(spoolDirectory.resolve(SpoolDirectoryCommandSource.PROCESSING_DIRECTORY),
+                SpoolDirectoryCommandSource.PROGRESS_FILE_EXTENSION);
+    }
+
+    private int countFiles(Path directory, String extension) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return (int) paths.filter(path -> Files.isRegularFile(path) && path.toString().endsWith(extension)).count();
+        }
+    }
+
+    private static JobCommand schedule(String jobId) {
+        return command(Command.SCHEDULE, jobId);
+    }
+
+    private static JobCommand command(Command command, String jobId) {
+        return new JobCommand(command, new Job(jobId, "someType", "data", Instant.parse("2024-01-01T00:00:00Z")));
+    }
+}
@@ -0,0 +1,75 @@
+package nl.gogognome.jobscheduler.jobingester.spool;
+
+import nl.gogognome.jobscheduler.jobingester.Command;
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+import nl.gogognome.jobscheduler.jobingester.JobIngester;
+import nl.gogognome.jobscheduler.persister.NoOperationPersister;
+import nl.gogognome.jobscheduler.runnablejobfinder.TypeQueuesRunnableJobFinder;
+import nl.gogognome.jobscheduler.scheduler.Job;
+import nl.gogognome.jobscheduler.scheduler.JobScheduler;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures how many job commands per second a job ingester handles from a spool directory. The job scheduler uses
+ * a persister that does nothing, so the time is spent on reading and parsing the spool files, on removing them and
+ * on the job scheduler itself.
+ */
+public class SpoolDirectoryThroughputTest {
+
+    private final static int NR_SPOOL_FILES = 50;
+    private final static int NR_JOB_COMMANDS_PER_SPOOL_FILE = 10_000;
+    private final static int MAX_BATCH_SIZE = 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Ignore("This is a benchmark. Run it manually to measure the throughput of the spool directory command source.")
+    @Test
+    public void measureThroughput() throws Exception {
+        measureThroughput("warm-up"); // warm up
+        long jobCommandsPerSecond = measureThroughput("measurement");
+        System.out.println("Spool directory: " + jobCommandsPerSecond + " job commands per second");
+    }
+
+    private long measureThroughput(String name) throws Exception {
+        Path spoolDirectory = Files.createDirectory(temporaryFolder.getRoot().toPath().resolve(name));
+        SpoolFileWriter spoolFileWriter = new SpoolFileWriter(spoolDirectory);
+        Instant now = Instant.now();
+        for (int fileIndex = 0; fileIndex < NR_SPOOL_FILES; fileIndex++) {
+            List<JobCommand> jobCommands = new ArrayList<>(NR_JOB_COMMANDS_PER_SPOOL_FILE);
+            for (int i = 0; i < NR_JOB_COMMANDS_PER_SPOOL_FILE; i++) {
+                String jobId = fileIndex + "-" + i;
+                jobCommands.add(new JobCommand(Command.SCHEDULE, new Job(jobId, "someType", null, now)));
+            }
+            spoolFileWriter.write(jobCommands);
+        }
+
+        ExecutorService fetchExecutor = Executors.newSingleThreadExecutor();
+        try (SpoolDirectoryCommandSource commandSource = new SpoolDirectoryCommandSource(spoolDirectory, MAX_BATCH_SIZE)) {
+            JobScheduler jobScheduler = new JobScheduler(new TypeQueuesRunnableJobFinder(), new NoOperationPersister());
+            JobIngester jobIngester = new JobIngester(jobScheduler, commandSource, fetchExecutor);
+
+            long start = System.nanoTime();
+            int nrHandledJobCommands = jobIngester.ingestJobs();
+            long durationNanos = System.nanoTime() - start;
+            int nrJobCommands = NR_SPOOL_FILES * NR_JOB_COMMANDS_PER_SPOOL_FILE;
+            if (nrHandledJobCommands != nrJobCommands) {
+                throw new IllegalStateException("Handled " + nrHandledJobCommands + " instead of " + nrJobCommands + " job commands");
+            }
+            return nrJobCommands * 1_000_000_000L / durationNanos;
+        } finally {
+            fetchExecutor.shutdown();
+        }
+    }
+}
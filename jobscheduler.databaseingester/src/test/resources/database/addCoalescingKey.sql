@@ -0,0 +1 @@
+ALTER TABLE NlGogognomeJobsToIngest ADD COLUMN coalescingKey VARCHAR(1000) NULL;
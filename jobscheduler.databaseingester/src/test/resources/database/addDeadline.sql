@@ -0,0 +1 @@
+ALTER TABLE NlGogognomeJobsToIngest ADD COLUMN deadline TIMESTAMP NULL;
@@ -0,0 +1 @@
+ALTER TABLE NlGogognomeJobsToIngest ADD COLUMN orderingKey VARCHAR(1000) NULL;
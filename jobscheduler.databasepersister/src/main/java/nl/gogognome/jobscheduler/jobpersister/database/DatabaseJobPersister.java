@@ -4,6 +4,9 @@ import nl.gogognome.dataaccess.transaction.RequireTransaction;
 import nl.gogognome.jobscheduler.scheduler.JobPersister;
 import nl.gogognome.jobscheduler.scheduler.ScheduledJob;
 
+import java.time.Instant;
+import java.util.List;
+
 public class DatabaseJobPersister implements JobPersister {
 
     private final DatabaseJobPersisterProperties properties;
@@ -29,8 +32,32 @@ public class DatabaseJobPersister implements JobPersister {
         RequireTransaction.runs(() -> scheduledJobDAO.update(scheduledJob));
     }
 
+    @Override
+    public void updateAll(List<ScheduledJob> scheduledJobs) {
+        RequireTransaction.runs(() -> {
+            for (ScheduledJob scheduledJob : scheduledJobs) {
+                scheduledJobDAO.update(scheduledJob);
+            }
+        });
+    }
+
     @Override
     public Iterable<ScheduledJob> findAllJobs() {
         return RequireTransaction.returns(scheduledJobDAO::findAll);
     }
+
+    @Override
+    public ScheduledJob findById(String jobId) {
+        return RequireTransaction.returns(() -> scheduledJobDAO.findById(jobId));
+    }
+
+    @Override
+    public List<ScheduledJob> findIdleJobsScheduledBetween(Instant after, Instant notAfter) {
+        return RequireTransaction.returns(() -> scheduledJobDAO.findIdleJobsScheduledBetween(after, notAfter));
+    }
+
+    @Override
+    public List<ScheduledJob> findIdleJobsOfType(String type, Instant notAfter, int maxNrJobs) {
+        return RequireTransaction.returns(() -> scheduledJobDAO.findIdleJobsOfType(type, notAfter, maxNrJobs));
+    }
 }
@@ -11,6 +11,9 @@ public class DatabaseJobPersisterProperties {
     private String jobStateColumn = "state";
     private String requesterIdColumn = "requesterId";
     private String timeoutAtInstantColumn = "timeoutAtInstant";
+    private String deadlineColumn = "deadline";
+    private String orderingKeyColumn = "orderingKey";
+    private String coalescingKeyColumn = "coalescingKey";
 
     private long delayBetweenPolls = 1000L;
 
@@ -93,4 +96,28 @@ public class DatabaseJobPersisterProperties {
     public void setTimeoutAtInstantColumn(String timeoutAtInstantColumn) {
         this.timeoutAtInstantColumn = timeoutAtInstantColumn;
     }
+
+    public String getDeadlineColumn() {
+        return deadlineColumn;
+    }
+
+    public void setDeadlineColumn(String deadlineColumn) {
+        this.deadlineColumn = deadlineColumn;
+    }
+
+    public String getOrderingKeyColumn() {
+        return orderingKeyColumn;
+    }
+
+    public void setOrderingKeyColumn(String orderingKeyColumn) {
+        this.orderingKeyColumn = orderingKeyColumn;
+    }
+
+    public String getCoalescingKeyColumn() {
+        return coalescingKeyColumn;
+    }
+
+    public void setCoalescingKeyColumn(String coalescingKeyColumn) {
+        this.coalescingKeyColumn = coalescingKeyColumn;
+    }
 }
@@ -6,9 +6,11 @@ import nl.gogognome.dataaccess.dao.ResultSetWrapper;
 import nl.gogognome.jobscheduler.scheduler.Job;
 import nl.gogognome.jobscheduler.scheduler.JobState;
 import nl.gogognome.jobscheduler.scheduler.ScheduledJob;
+import nl.gogognome.jobscheduler.scheduler.SymbolTable;
 
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.List;
 
 public class ScheduledJobDAO extends AbstractDomainClassDAO<ScheduledJob>{
 
@@ -19,13 +21,44 @@ public class ScheduledJobDAO extends AbstractDomainClassDAO<ScheduledJob>{
         this.properties = properties;
     }
 
+    public ScheduledJob findById(String jobId) throws SQLException {
+        String query = "SELECT * FROM " + tableName + " WHERE " + properties.getIdColumn() + "=?";
+        List<ScheduledJob> jobs = execute(query, jobId).toList(this::getObjectFromResultSet);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    public List<ScheduledJob> findIdleJobsScheduledBetween(Instant after, Instant notAfter) throws SQLException {
+        String query = "SELECT * FROM " + tableName + " WHERE " + properties.getJobStateColumn() + "=? AND "
+                + properties.getScheduledAtInstantColumn() + ">? AND " + properties.getScheduledAtInstantColumn() + "<=?";
+        return execute(query, JobState.IDLE.name(), after, notAfter).toList(this::getObjectFromResultSet);
+    }
+
+    public List<ScheduledJob> findIdleJobsOfType(String type, Instant notAfter, int maxNrJobs) throws SQLException {
+        String scheduledAtInstantColumn = properties.getScheduledAtInstantColumn();
+        String query = "SELECT * FROM " + tableName + " WHERE " + properties.getJobStateColumn() + "=? AND "
+                + properties.getTypeColumn() + "=?";
+        if (notAfter == null) {
+            query += " ORDER BY " + scheduledAtInstantColumn + " FETCH FIRST " + maxNrJobs + " ROWS ONLY";
+            return execute(query, JobState.IDLE.name(), type).toList(this::getObjectFromResultSet);
+        }
+        query += " AND (" + scheduledAtInstantColumn + " IS NULL OR " + scheduledAtInstantColumn + "<=?)"
+                + " ORDER BY " + scheduledAtInstantColumn + " FETCH FIRST " + maxNrJobs + " ROWS ONLY";
+        return execute(query, JobState.IDLE.name(), type, notAfter).toList(this::getObjectFromResultSet);
+    }
+
     @Override
     protected ScheduledJob getObjectFromResultSet(ResultSetWrapper result) throws SQLException {
         String id = result.getString(properties.getIdColumn());
-        String type = result.getString(properties.getTypeColumn());
+        String type = SymbolTable.jobTypes().intern(result.getString(properties.getTypeColumn()));
         String data = result.getString(properties.getDataColumn());
         Instant scheduledAtInstant = result.getInstant(properties.getScheduledAtInstantColumn());
-        Job job = new Job(id, type, data, scheduledAtInstant);
+        Instant deadline = result.getInstant(properties.getDeadlineColumn());
+        String orderingKey = result.getString(properties.getOrderingKeyColumn());
+        String coalescingKey = result.getString(properties.getCoalescingKeyColumn());
+        Job job = new Job(id, type, data, scheduledAtInstant)
+                .withDeadline(deadline)
+                .withOrderingKey(orderingKey)
+                .withCoalescingKey(coalescingKey);
 
         JobState state = result.getEnum(JobState.class, properties.getJobStateColumn());
         String requesterId = result.getString(properties.getRequesterIdColumn());
@@ -40,6 +73,9 @@ public class ScheduledJobDAO extends AbstractDomainClassDAO<ScheduledJob>{
                 .add(properties.getScheduledAtInstantColumn(), scheduledJob.getJob().getScheduledAtInstant())
                 .add(properties.getTypeColumn(), scheduledJob.getJob().getType())
                 .add(properties.getDataColumn(), scheduledJob.getJob().getData())
+                .add(properties.getDeadlineColumn(), scheduledJob.getJob().getDeadline())
+                .add(properties.getOrderingKeyColumn(), scheduledJob.getJob().getOrderingKey())
+                .add(properties.getCoalescingKeyColumn(), scheduledJob.getJob().getCoalescingKey())
                 .add(properties.getJobStateColumn(), scheduledJob.getState())
                 .add(properties.getRequesterIdColumn(), scheduledJob.getRequesterId())
                 .add(properties.getTimeoutAtInstantColumn(), scheduledJob.getTimeoutAtInstant());
@@ -13,4 +13,8 @@ public class ScheduledJobBuilder {
         ScheduledJob scheduledJob = new ScheduledJob(JobBuilder.build(id), IDLE, "Piet Puk", Instant.now().plus(1, MINUTES));
         return scheduledJob;
     }
+
+    public static ScheduledJob buildWithDeadline(String id, Instant deadline) {
+        return new ScheduledJob(JobBuilder.build(id).withDeadline(deadline), IDLE, "Piet Puk", Instant.now().plus(1, MINUTES));
+    }
 }
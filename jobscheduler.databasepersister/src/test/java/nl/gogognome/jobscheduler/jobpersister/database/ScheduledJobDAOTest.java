@@ -3,6 +3,8 @@ package nl.gogognome.jobscheduler.jobpersister.database;
 import nl.gogognome.dataaccess.migrations.DatabaseMigratorDAO;
 import nl.gogognome.dataaccess.transaction.CompositeDatasourceTransaction;
 import nl.gogognome.dataaccess.transaction.NewTransaction;
+import nl.gogognome.jobscheduler.scheduler.Job;
+import nl.gogognome.jobscheduler.scheduler.JobState;
 import nl.gogognome.jobscheduler.scheduler.ScheduledJob;
 import org.h2.jdbcx.JdbcDataSource;
 import org.junit.After;
@@ -13,17 +15,18 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.*;
 
 public class ScheduledJobDAOTest {
 
     private final DatabaseJobPersisterProperties properties = new DatabaseJobPersisterProperties();
-    @SuppressWarnings("unused")
     private Connection connectionToKeepInMemoryDatabaseAlive;
     private ScheduledJobDAO scheduledJobDAO;
 
@@ -41,8 +44,24 @@ public class ScheduledJobDAOTest {
     }
 
     @After
-    public void removeInMemoryDatabase() {
-        connectionToKeepInMemoryDatabaseAlive = null;
+    public void removeInMemoryDatabase() throws SQLException {
+        connectionToKeepInMemoryDatabaseAlive.close();
+    }
+
+    @Test
+    public void createJobsOfSameTypeAndReadThemBack_typesAreInterned() {
+        ScheduledJob scheduledJob1 = ScheduledJobBuilder.build("1");
+        ScheduledJob scheduledJob2 = ScheduledJobBuilder.build("2");
+
+        NewTransaction.runs(() -> {
+            scheduledJobDAO.create(scheduledJob1);
+            scheduledJobDAO.create(scheduledJob2);
+
+            String type1 = scheduledJobDAO.get("1").getJob().getType();
+            String type2 = scheduledJobDAO.get("2").getJob().getType();
+            assertEquals(scheduledJob1.getJob().getType(), type1);
+            assertSame(type1, type2);
+        });
     }
 
     @Test
@@ -64,6 +83,63 @@ public class ScheduledJobDAOTest {
         });
     }
 
+    @Test
+    public void createJob_findById_findsJobOnlyForItsId() {
+        ScheduledJob scheduledJob = ScheduledJobBuilder.build("1");
+
+        NewTransaction.runs(() -> {
+            scheduledJobDAO.create(scheduledJob);
+
+            assertEquals("1", scheduledJobDAO.findById("1").getJob().getId());
+            assertNull(scheduledJobDAO.findById("2"));
+        });
+    }
+
+    @Test
+    public void createJobWithDeadlineAndReadItBack_shouldGetSameDeadlineAgain() {
+        ScheduledJob scheduledJob = ScheduledJobBuilder.buildWithDeadline("1", Instant.now().plus(1, ChronoUnit.HOURS));
+
+        NewTransaction.runs(() -> {
+            scheduledJobDAO.create(scheduledJob);
+
+            ScheduledJob readScheduledJob = scheduledJobDAO.get(scheduledJob.getJob().getId());
+            assertInstantsEqual(scheduledJob.getJob().getDeadline(), readScheduledJob.getJob().getDeadline());
+        });
+    }
+
+    @Test
+    public void createJobWithoutDeadlineAndReadItBack_shouldHaveNoDeadline() {
+        ScheduledJob scheduledJob = ScheduledJobBuilder.build("1");
+
+        NewTransaction.runs(() -> {
+            scheduledJobDAO.create(scheduledJob);
+
+            assertNull(scheduledJobDAO.get(scheduledJob.getJob().getId()).getJob().getDeadline());
+        });
+    }
+
+    @Test
+    public void createJobWithOrderingKeyAndReadItBack_shouldGetSameOrderingKeyAgain() {
+        ScheduledJob scheduledJob = new ScheduledJob(JobBuilder.build("1").withOrderingKey("customer-1"), JobState.IDLE, null, null);
+
+        NewTransaction.runs(() -> {
+            scheduledJobDAO.create(scheduledJob);
+
+            assertEquals("customer-1", scheduledJobDAO.get(scheduledJob.getJob().getId()).getJob().getOrderingKey());
+        });
+    }
+
+    @Test
+    public void createJobWithCoalescingKeyAndReadItBack_shouldGetSameCoalescingKeyAgain() {
+        ScheduledJob scheduledJob = new ScheduledJob(JobBuilder.build("1").withCoalescingKey("reindex-1"), JobState.IDLE, null, null);
+
+        NewTransaction.runs(() -> {
+            scheduledJobDAO.create(scheduledJob);
+
+            assertEquals("reindex-1", scheduledJobDAO.get(scheduledJob.getJob().getId()).getJob().getCoalescingKey());
+        });
+    }
+
     @Test
     public void findAll_noJobsCreated_returnsEmptyList() {
         List<ScheduledJob> scheduledJobs = NewTransaction.returns(() -> scheduledJobDAO.findAll());
@@ -91,6 +167,40 @@ public class ScheduledJobDAOTest {
         assertEquals(asList(scheduledJob1, scheduledJob2, scheduledJob3), scheduledJobs);
     }
 
+    @Test
+    public void findIdleJobsScheduledBetween_returnsOnlyIdleJobsWithinWindow() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        NewTransaction.runs(() -> {
+            scheduledJobDAO.create(new ScheduledJob(new Job("before", "Test", null, now), JobState.IDLE));
+            scheduledJobDAO.create(new ScheduledJob(new Job("within", "Test", null, now.plusSeconds(10)), JobState.IDLE));
+            scheduledJobDAO.create(new ScheduledJob(new Job("end", "Test", null, now.plusSeconds(20)), JobState.IDLE));
+            scheduledJobDAO.create(new ScheduledJob(new Job("running", "Test", null, now.plusSeconds(10)), JobState.RUNNING, "tester", null));
+            scheduledJobDAO.create(new ScheduledJob(new Job("after", "Test", null, now.plusSeconds(30)), JobState.IDLE));
+        });
+
+        List<ScheduledJob> scheduledJobs = NewTransaction.returns(() -> scheduledJobDAO.findIdleJobsScheduledBetween(now, now.plusSeconds(20)));
+
+        assertEquals(asList("within", "end"), scheduledJobs.stream().map(j -> j.getJob().getId()).sorted(Comparator.reverseOrder()).collect(toList()));
+    }
+
+    @Test
+    public void findIdleJobsOfType_returnsOldestIdleJobsOfTypeUpToMaximum() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        NewTransaction.runs(() -> {
+            scheduledJobDAO.create(new ScheduledJob(new Job("newest", "Test", null, now.plusSeconds(20)), JobState.IDLE));
+            scheduledJobDAO.create(new ScheduledJob(new Job("oldest", "Test", null, now), JobState.IDLE));
+            scheduledJobDAO.create(new ScheduledJob(new Job("old", "Test", null, now.plusSeconds(10)), JobState.IDLE));
+            scheduledJobDAO.create(new ScheduledJob(new Job("other-type", "Other", null, now), JobState.IDLE));
+            scheduledJobDAO.create(new ScheduledJob(new Job("running", "Test", null, now), JobState.RUNNING, "tester", null));
+        });
+
+        List<ScheduledJob> scheduledJobs = NewTransaction.returns(() -> scheduledJobDAO.findIdleJobsOfType("Test", null, 2));
+        List<ScheduledJob> scheduledJobsNotAfter = NewTransaction.returns(() -> scheduledJobDAO.findIdleJobsOfType("Test", now.plusSeconds(10), 10));
+
+        assertEquals(asList("oldest", "old"), scheduledJobs.stream().map(j -> j.getJob().getId()).collect(toList()));
+        assertEquals(asList("oldest", "old"), scheduledJobsNotAfter.stream().map(j -> j.getJob().getId()).collect(toList()));
+    }
+
     /**
      * Assert that two instants are equal. Since Java 9 the class {@link Instant} has nanosecond resolution. However,
      * instants that are read from the database do not have such a high resolution. This assert method compares two
@@ -0,0 +1 @@
+ALTER TABLE NlGogognomeJobs ADD COLUMN coalescingKey VARCHAR(1000) NULL;
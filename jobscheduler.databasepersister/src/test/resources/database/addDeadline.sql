@@ -0,0 +1 @@
+ALTER TABLE NlGogognomeJobs ADD COLUMN deadline TIMESTAMP NULL;
@@ -0,0 +1 @@
+ALTER TABLE NlGogognomeJobs ADD COLUMN orderingKey VARCHAR(1000) NULL;
@@ -0,0 +1 @@
+CREATE INDEX NlGogognomeJobsStateTypeScheduledAt ON NlGogognomeJobs (state, type, scheduledAtInstant);
@@ -0,0 +1,140 @@
+package nl.gogognome.jobscheduler.runnablejobfinder;
+
+import nl.gogognome.jobscheduler.scheduler.Job;
+import nl.gogognome.jobscheduler.scheduler.RunnableJobFinder;
+import nl.gogognome.jobscheduler.scheduler.ScheduledJob;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static nl.gogognome.jobscheduler.scheduler.JobState.IDLE;
+
+/**
+ * This runnable job finder adds support for coalescing jobs to another runnable job finder. It keeps a hash index
+ * from coalescing key to the ids of the idle jobs with that key, so the job scheduler can find out in O(1) time whether
+ * a newly scheduled job can be coalesced with an idle job. Usually there is at most one idle job per key, but a
+ * running job that becomes idle again, or a job restored by the job scheduler, can be a second one. The index keeps
+ * all of them, so when the first idle job starts or is removed, new jobs are coalesced with the next one.
+ *
+ * <p>Only idle jobs are indexed. A job that is already running may have missed the changes that caused a new job
+ * to be scheduled, so a new job with the same coalescing key is added as usual.
+ */
+public class CoalescingRunnableJobFinder implements RunnableJobFinder {
+
+    private final RunnableJobFinder delegate;
+    private final Map<String, Set<String>> coalescingKeyToIdleJobIds = new HashMap<>();
+
+    public CoalescingRunnableJobFinder(RunnableJobFinder delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ScheduledJob findById(String jobId) {
+        return delegate.findById(jobId);
+    }
+
+    @Override
+    public void addJob(ScheduledJob scheduledJob) {
+        delegate.addJob(scheduledJob);
+        addToIndex(scheduledJob);
+    }
+
+    @Override
+    public void updateJob(ScheduledJob scheduledJob) {
+        ScheduledJob oldScheduledJob = delegate.findById(scheduledJob.getJob().getId());
+        delegate.updateJob(scheduledJob);
+        removeFromIndex(oldScheduledJob);
+        addToIndex(scheduledJob);
+    }
+
+    @Override
+    public void removeJob(String jobId) {
+        ScheduledJob oldScheduledJob = delegate.findById(jobId);
+        delegate.removeJob(jobId);
+        removeFromIndex(oldScheduledJob);
+    }
+
+    @Override
+    public ScheduledJob findIdleJobByCoalescingKey(String coalescingKey) {
+        Set<String> jobIds = coalescingKeyToIdleJobIds.get(coalescingKey);
+        return jobIds != null ? delegate.findById(jobIds.iterator().next()) : null;
+    }
+
+    @Override
+    public ScheduledJob findNextRunnableJob() {
+        return delegate.findNextRunnableJob();
+    }
+
+    @Override
+    public ScheduledJob findNextRunnableJobOfType(String type) {
+        return delegate.findNextRunnableJobOfType(type);
+    }
+
+    @Override
+    public ScheduledJob findNextRunnableJobOfTypes(Set<String> types) {
+        return delegate.findNextRunnableJobOfTypes(types);
+    }
+
+    @Override
+    public Instant getNextRunnableInstant() {
+        return delegate.getNextRunnableInstant();
+    }
+
+    @Override
+    public Instant getNextRunnableInstant(Set<String> types) {
+        return delegate.getNextRunnableInstant(types);
+    }
+
+    @Override
+    public void batchStarted() {
+        delegate.batchStarted();
+    }
+
+    @Override
+    public void batchEnded(boolean undone) {
+        delegate.batchEnded(undone);
+    }
+
+    @Override
+    public List<ScheduledJob> findAllJobs() {
+        return delegate.findAllJobs();
+    }
+
+    @Override
+    public void removeAllScheduledJobs() {
+        delegate.removeAllScheduledJobs();
+        coalescingKeyToIdleJobIds.clear();
+    }
+
+    @Override
+    public int getEstimatedBytesPerJob() {
+        // A hash map entry for the coalescing key on top of what the delegate keeps
+        return delegate.getEstimatedBytesPerJob() + 40;
+    }
+
+    @Override
+    public Instant getTimeoutInstant(Job jobToStart) {
+        return delegate.getTimeoutInstant(jobToStart);
+    }
+
+    private void addToIndex(ScheduledJob scheduledJob) {
+        String coalescingKey = scheduledJob.getJob().getCoalescingKey();
+        if (coalescingKey != null && scheduledJob.getState() == IDLE) {
+            coalescingKeyToIdleJobIds.computeIfAbsent(coalescingKey, k -> new LinkedHashSet<>()).add(scheduledJob.getJob().getId());
+        }
+    }
+
+    private void removeFromIndex(ScheduledJob scheduledJob) {
+        String coalescingKey = scheduledJob != null ? scheduledJob.getJob().getCoalescingKey() : null;
+        if (coalescingKey != null) {
+            Set<String> jobIds = coalescingKeyToIdleJobIds.get(coalescingKey);
+            if (jobIds != null && jobIds.remove(scheduledJob.getJob().getId()) && jobIds.isEmpty()) {
+                coalescingKeyToIdleJobIds.remove(coalescingKey);
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package nl.gogognome.jobscheduler.runnablejobfinder;
+
+import nl.gogognome.jobscheduler.scheduler.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import static nl.gogognome.jobscheduler.scheduler.JobState.IDLE;
+
+/**
+ * This runnable job finder starts the runnable job with the earliest deadline first. Jobs without a deadline
+ * are started after all runnable jobs with a deadline, first in, first out.
+ *
+ * <p>Idle jobs that are not runnable yet wait in a heap ordered by their scheduled at instant. Once they become
+ * runnable they move to a heap ordered by deadline. Finding the next runnable job takes O(log n) time.
+ * Entries of jobs that are updated or removed are not removed from the heaps immediately, but are skipped
+ * when they reach the top of a heap.
+ *
+ * <p>Finding the next runnable job of specific types, for a batch or for a requester that accepts some types only,
+ * takes O(1) time if the next runnable job has one of these types. Otherwise the runnable jobs are scanned.
+ */
+public class EarliestDeadlineFirstRunnableJobFinder implements RunnableJobFinder {
+
+    private final static Comparator<HeapEntry> BY_SCHEDULED_AT_INSTANT =
+            Comparator.comparing((HeapEntry e) -> e.scheduledJob.getJob().getScheduledAtInstant(), Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparingLong(e -> e.sequenceNumber);
+
+    private final static Comparator<HeapEntry> BY_DEADLINE =
+            Comparator.comparing((HeapEntry e) -> e.scheduledJob.getJob().getDeadline(), Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(BY_SCHEDULED_AT_INSTANT);
+
+    private final static long TIMEOUT_MILLISECONDS = Duration.ofHours(1).toMillis();
+
+    private final Map<String, HeapEntry> idToEntry = new LinkedHashMap<>();
+    private final PriorityQueue<HeapEntry> notYetRunnableJobs = new PriorityQueue<>(BY_SCHEDULED_AT_INSTANT);
+    private final PriorityQueue<HeapEntry> runnableJobs = new PriorityQueue<>(BY_DEADLINE);
+    private long nextSequenceNumber;
+    private int nrStaleEntries;
+    private final Clock clock;
+
+    public EarliestDeadlineFirstRunnableJobFinder() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Creates a runnable job finder that uses the specified clock.
+     * @param clock the clock used to determine whether jobs are runnable and when started jobs time out
+     */
+    public EarliestDeadlineFirstRunnableJobFinder(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public ScheduledJob findById(String jobId) {
+        HeapEntry entry = idToEntry.get(jobId);
+        return entry != null ? entry.scheduledJob : null;
+    }
+
+    @Override
+    public void addJob(ScheduledJob scheduledJob) {
+        String jobId = scheduledJob.getJob().getId();
+        if (idToEntry.containsKey(jobId)) {
+            throw new DuplicateJobException("A job with id " + jobId + " already exists. Jobs must have a unique id!");
+        }
+        addEntry(scheduledJob, nextSequenceNumber++);
+    }
+
+    @Override
+    public void updateJob(ScheduledJob scheduledJob) {
+        String jobId = scheduledJob.getJob().getId();
+        HeapEntry oldEntry = idToEntry.get(jobId);
+        if (oldEntry == null) {
+            throw new UnknownJobException("A job with id " + jobId + " does not exist. Only existing jobs can be updated!");
+        }
+        addEntry(scheduledJob, oldEntry.sequenceNumber);
+        onHeapEntryBecameStale(oldEntry);
+    }
+
+    @Override
+    public void removeJob(String jobId) {
+        HeapEntry entry = idToEntry.remove(jobId);
+        if (entry == null) {
+            throw new UnknownJobException("Cannot remove job with id " + jobId + " because it does not exist!");
+        }
+        onHeapEntryBecameStale(entry);
+    }
+
+    @Override
+    public ScheduledJob findNextRunnableJob() {
+        Instant now = clock.instant();
+        while (!notYetRunnableJobs.isEmpty() && isRunnableAt(notYetRunnableJobs.peek(), now)) {
+            HeapEntry entry = notYetRunnableJobs.poll();
+            if (isStale(entry)) {
+                nrStaleEntries--;
+            } else {
+                runnableJobs.add(entry);
+            }
+        }
+
+        while (!runnableJobs.isEmpty()) {
+            HeapEntry entry = runnableJobs.peek();
+            if (!isStale(entry)) {
+                return entry.scheduledJob;
+            }
+            runnableJobs.poll();
+            nrStaleEntries--;
+        }
+        return null;
+    }
+
+    @Override
+    public ScheduledJob findNextRunnableJobOfType(String type) {
+        return findNextRunnableJobOfTypes(Collections.singleton(type));
+    }
+
+    @Override
+    public ScheduledJob findNextRunnableJobOfTypes(Set<String> types) {
+        ScheduledJob nextRunnableJob = findNextRunnableJob();
+        if (nextRunnableJob == null || types.contains(nextRunnableJob.getJob().getType())) {
+            return nextRunnableJob;
+        }
+        HeapEntry bestCandidate = null;
+        for (HeapEntry entry : runnableJobs) {
+            if (!isStale(entry) && types.contains(entry.scheduledJob.getJob().getType())
+                    && (bestCandidate == null || BY_DEADLINE.compare(entry, bestCandidate) < 0)) {
+                bestCandidate = entry;
+            }
+        }
+        return bestCandidate != null ? bestCandidate.scheduledJob : null;
+    }
+
+    @Override
+    public List<ScheduledJob> findAllJobs() {
+        List<ScheduledJob> scheduledJobs = new ArrayList<>(idToEntry.size());
+        for (HeapEntry entry : idToEntry.values()) {
+            scheduledJobs.add(entry.scheduledJob);
+        }
+        return scheduledJobs;
+    }
+
+    @Override
+    public void removeAllScheduledJobs() {
+        idToEntry.clear();
+        notYetRunnableJobs.clear();
+        runnableJobs.clear();
+        nrStaleEntries = 0;
+    }
+
+    @Override
+    public int getEstimatedBytesPerJob() {
+        // A linked hash map entry, a heap entry and a priority queue slot
+        return 80;
+    }
+
+    @Override
+    public Instant getTimeoutInstant(Job jobToStart) {
+        return Instant.ofEpochMilli(clock.millis() + TIMEOUT_MILLISECONDS);
+    }
+
+    private void addEntry(ScheduledJob scheduledJob, long sequenceNumber) {
+        HeapEntry entry = new HeapEntry(scheduledJob, sequenceNumber);
+        idToEntry.put(scheduledJob.getJob().getId(), entry);
+        if (scheduledJob.getState() != IDLE) {
+            return;
+        }
+        if (isRunnableAt(entry, clock.instant())) {
+            runnableJobs.add(entry);
+        } else {
+            notYetRunnableJobs.add(entry);
+        }
+    }
+
+    private boolean isRunnableAt(HeapEntry entry, Instant now) {
+        Instant scheduledAtInstant = entry.scheduledJob.getJob().getScheduledAtInstant();
+        return scheduledAtInstant == null || !scheduledAtInstant.isAfter(now);
+    }
+
+    /**
+     * An entry is stale if its job has been updated or removed after the entry was added to a heap.
+     */
+    private boolean isStale(HeapEntry entry) {
+        return idToEntry.get(entry.scheduledJob.getJob().getId()) != entry;
+    }
+
+    private void onHeapEntryBecameStale(HeapEntry entry) {
+        if (entry.scheduledJob.getState() != IDLE) {
+            return; // only entries of idle jobs are present in the heaps
+        }
+        nrStaleEntries++;
+        if (nrStaleEntries > 1000 && nrStaleEntries > idToEntry.size()) {
+            removeStaleEntries(notYetRunnableJobs);
+            removeStaleEntries(runnableJobs);
+            nrStaleEntries = 0;
+        }
+    }
+
+    private void removeStaleEntries(PriorityQueue<HeapEntry> heap) {
+        heap.removeIf(this::isStale);
+    }
+
+    private static class HeapEntry {
+        private final ScheduledJob scheduledJob;
+        private final long sequenceNumber;
+
+        HeapEntry(ScheduledJob scheduledJob, long sequenceNumber) {
+            this.scheduledJob = scheduledJob;
+            this.sequenceNumber = sequenceNumber;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package nl.gogognome.jobscheduler.runnablejobfinder;
 
 import nl.gogognome.jobscheduler.scheduler.*;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -11,7 +12,22 @@ import static nl.gogognome.jobscheduler.scheduler.JobState.IDLE;
 
 public class FifoRunnableJobFinder implements RunnableJobFinder {
 
+    private final static long TIMEOUT_MILLISECONDS = Duration.ofHours(1).toMillis();
+
     private final ArrayList<ScheduledJob> scheduledJobs = new ArrayList<>();
+    private final Clock clock;
+
+    public FifoRunnableJobFinder() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Creates a runnable job finder that uses the specified clock.
+     * @param clock the clock used to determine whether jobs are runnable and when started jobs time out
+     */
+    public FifoRunnableJobFinder(Clock clock) {
+        this.clock = clock;
+    }
 
     @Override
     public void addJob(ScheduledJob scheduledJob) {
@@ -53,11 +69,21 @@ public class FifoRunnableJobFinder implements RunnableJobFinder {
 
     @Override
     public ScheduledJob findNextRunnableJob() {
-        Instant now = Instant.now();
+        return findNextRunnableJob(null);
+    }
+
+    @Override
+    public ScheduledJob findNextRunnableJobOfType(String type) {
+        return findNextRunnableJob(type);
+    }
+
+    private ScheduledJob findNextRunnableJob(String type) {
+        long now = clock.millis();
         ScheduledJob bestCandidate = null;
-        for (ScheduledJob scheduledJob : scheduledJobs) {
-            if (scheduledJob.getState() == IDLE) {
-                if (scheduledJob.getJob().getScheduledAtInstant() != null && scheduledJob.getJob().getScheduledAtInstant().isAfter(now)) {
+        for (int i = 0; i < scheduledJobs.size(); i++) {
+            ScheduledJob scheduledJob = scheduledJobs.get(i);
+            if (scheduledJob.getState() == IDLE && (type == null || type.equals(scheduledJob.getJob().getType()))) {
+                if (scheduledJob.getJob().getScheduledAtInstant() != null && scheduledJob.getJob().getScheduledAtInstant().toEpochMilli() > now) {
                     continue;
                 }
                 if (bestCandidate == null || bestCandidate.getJob().getScheduledAtInstant().isAfter(scheduledJob.getJob().getScheduledAtInstant())) {
@@ -81,8 +107,14 @@ public class FifoRunnableJobFinder implements RunnableJobFinder {
         scheduledJobs.clear();
     }
 
+    @Override
+    public int getEstimatedBytesPerJob() {
+        // A slot in the array list, including the spare capacity of the list
+        return 8;
+    }
+
     @Override
     public Instant getTimeoutInstant(Job jobToStart) {
-        return Instant.now().plus(Duration.ofHours(1));
+        return Instant.ofEpochMilli(clock.millis() + TIMEOUT_MILLISECONDS);
     }
 }
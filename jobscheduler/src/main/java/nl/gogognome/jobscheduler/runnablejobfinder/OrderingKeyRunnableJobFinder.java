@@ -0,0 +1,339 @@
+package nl.gogognome.jobscheduler.runnablejobfinder;
+
+import nl.gogognome.jobscheduler.scheduler.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static nl.gogognome.jobscheduler.scheduler.JobState.IDLE;
+import static nl.gogognome.jobscheduler.scheduler.JobState.RUNNING;
+
+/**
+ * This runnable job finder executes jobs with the same ordering key one at a time, in the order in which they
+ * were added. Jobs with different ordering keys are executed in parallel. A job without ordering key is
+ * treated as if it has an ordering key of its own.
+ *
+ * <p>Each ordering key has its own queue of idle jobs. A queue is ready if no job of the queue is running and
+ * its first job is runnable. The ready queues are kept in the order in which they became ready, so
+ * finding the next runnable job takes O(1) time, regardless of the number of ordering keys. When a job finishes
+ * or fails, the next job of its ordering key becomes runnable in O(1) time. A queue whose first job
+ * has a scheduled at instant in the future waits in a heap until that instant has passed. Note that such a job
+ * also blocks the jobs that were added after it with the same ordering key.
+ *
+ * <p>Finding the next runnable job of specific types, for a batch or for a requester that accepts some types only,
+ * scans the ready queues in the order in which they became ready until the first job of a queue has one of these
+ * types.
+ *
+ * <p>Queues are removed as soon as they have no more idle or running jobs, so memory usage depends on
+ * the number of jobs, not on the number of ordering keys that have ever been used.
+ *
+ * <p>During a batch of the job scheduler, the order of the idle jobs of an ordering key is recorded before the
+ * first idle job is taken from its queue. If the batch is undone, the jobs that the batch removed have been added
+ * again at the end of their queues, so the recorded order is restored. Batches that commit concurrently overlap;
+ * then the order is recorded once for all overlapping batches, before the first of them took a job from the queue.
+ */
+public class OrderingKeyRunnableJobFinder implements RunnableJobFinder {
+
+    private final static long TIMEOUT_MILLISECONDS = Duration.ofHours(1).toMillis();
+
+    private final Map<String, ScheduledJob> idToScheduledJob = new LinkedHashMap<>();
+    private final Map<String, KeyQueue> orderingKeyToQueue = new HashMap<>();
+    private final Map<String, KeyQueue> jobIdToQueueOfJobWithoutOrderingKey = new HashMap<>();
+    private final LinkedHashSet<KeyQueue> readyQueues = new LinkedHashSet<>();
+    private final PriorityQueue<DelayedQueue> delayedQueues = new PriorityQueue<>(
+            Comparator.comparing((DelayedQueue d) -> d.firstJob.getJob().getScheduledAtInstant()));
+    private final Clock clock;
+    /** The ids of the idle jobs per ordering key before the current batches changed them; null outside a batch. */
+    private Map<String, List<String>> orderingKeyToIdleJobIdsBeforeBatch;
+    private int nrBatches;
+
+    public OrderingKeyRunnableJobFinder() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Creates a runnable job finder that uses the specified clock.
+     * @param clock the clock used to determine whether jobs are runnable and when started jobs time out
+     */
+    public OrderingKeyRunnableJobFinder(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public ScheduledJob findById(String jobId) {
+        return idToScheduledJob.get(jobId);
+    }
+
+    @Override
+    public void addJob(ScheduledJob scheduledJob) {
+        String jobId = scheduledJob.getJob().getId();
+        if (idToScheduledJob.containsKey(jobId)) {
+            throw new DuplicateJobException("A job with id " + jobId + " already exists. Jobs must have a unique id!");
+        }
+        idToScheduledJob.put(jobId, scheduledJob);
+
+        KeyQueue queue = getOrCreateQueue(scheduledJob.getJob());
+        if (scheduledJob.getState() == IDLE) {
+            queue.idleJobs.addLast(scheduledJob);
+        } else if (scheduledJob.getState() == RUNNING) {
+            queue.runningJob = scheduledJob;
+        }
+        onQueueChanged(queue);
+    }
+
+    @Override
+    public void updateJob(ScheduledJob scheduledJob) {
+        String jobId = scheduledJob.getJob().getId();
+        ScheduledJob oldScheduledJob = idToScheduledJob.get(jobId);
+        if (oldScheduledJob == null) {
+            throw new UnknownJobException("A job with id " + jobId + " does not exist. Only existing jobs can be updated!");
+        }
+        idToScheduledJob.put(jobId, scheduledJob);
+
+        KeyQueue oldQueue = getOrCreateQueue(oldScheduledJob.getJob());
+        KeyQueue queue = getOrCreateQueue(scheduledJob.getJob());
+        if (oldQueue == queue && oldScheduledJob.getState() == IDLE && scheduledJob.getState() == IDLE) {
+            replaceIdleJob(queue, oldScheduledJob, scheduledJob);
+        } else {
+            detach(oldQueue, oldScheduledJob);
+            if (scheduledJob.getState() == IDLE) {
+                if (oldQueue == queue && oldScheduledJob.getState() == RUNNING) {
+                    // A rescheduled job was the first job of its queue, so it keeps that position.
+                    queue.idleJobs.addFirst(scheduledJob);
+                } else {
+                    queue.idleJobs.addLast(scheduledJob);
+                }
+            } else if (scheduledJob.getState() == RUNNING) {
+                queue.runningJob = scheduledJob;
+            }
+            if (oldQueue != queue) {
+                onQueueChanged(oldQueue);
+            }
+        }
+        onQueueChanged(queue);
+    }
+
+    @Override
+    public void removeJob(String jobId) {
+        ScheduledJob scheduledJob = idToScheduledJob.remove(jobId);
+        if (scheduledJob == null) {
+            throw new UnknownJobException("Cannot remove job with id " + jobId + " because it does not exist!");
+        }
+        KeyQueue queue = getOrCreateQueue(scheduledJob.getJob());
+        detach(queue, scheduledJob);
+        onQueueChanged(queue);
+    }
+
+    @Override
+    public ScheduledJob findNextRunnableJob() {
+        Instant now = clock.instant();
+        while (!delayedQueues.isEmpty() && !delayedQueues.peek().firstJob.getJob().getScheduledAtInstant().isAfter(now)) {
+            DelayedQueue delayedQueue = delayedQueues.poll();
+            KeyQueue queue = delayedQueue.queue;
+            if (queue.delayedFirstJob == delayedQueue.firstJob) {
+                queue.delayedFirstJob = null;
+                onQueueChanged(queue);
+            }
+        }
+
+        if (readyQueues.isEmpty()) {
+            return null;
+        }
+        return readyQueues.iterator().next().idleJobs.peekFirst();
+    }
+
+    @Override
+    public ScheduledJob findNextRunnableJobOfType(String type) {
+        return findNextRunnableJobOfTypes(Collections.singleton(type));
+    }
+
+    @Override
+    public ScheduledJob findNextRunnableJobOfTypes(Set<String> types) {
+        findNextRunnableJob(); // makes delayed queues whose first job has become runnable ready
+        for (KeyQueue queue : readyQueues) {
+            ScheduledJob firstJob = queue.idleJobs.peekFirst();
+            if (types.contains(firstJob.getJob().getType())) {
+                return firstJob;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void batchStarted() {
+        if (nrBatches++ == 0) {
+            orderingKeyToIdleJobIdsBeforeBatch = new HashMap<>();
+        }
+    }
+
+    @Override
+    public void batchEnded(boolean undone) {
+        Map<String, List<String>> orderingKeyToIdleJobIds = orderingKeyToIdleJobIdsBeforeBatch;
+        if (--nrBatches == 0) {
+            orderingKeyToIdleJobIdsBeforeBatch = null;
+        }
+        if (!undone) {
+            return;
+        }
+        // Jobs that were not recorded have been added later and stay behind the recorded jobs, so restoring the
+        // order does not disturb the jobs of overlapping batches
+        for (Map.Entry<String, List<String>> entry : orderingKeyToIdleJobIds.entrySet()) {
+            KeyQueue queue = orderingKeyToQueue.get(entry.getKey());
+            if (queue != null) {
+                restoreOrder(queue, entry.getValue());
+                onQueueChanged(queue);
+            }
+        }
+    }
+
+    @Override
+    public List<ScheduledJob> findAllJobs() {
+        return new ArrayList<>(idToScheduledJob.values());
+    }
+
+    @Override
+    public void removeAllScheduledJobs() {
+        idToScheduledJob.clear();
+        orderingKeyToQueue.clear();
+        jobIdToQueueOfJobWithoutOrderingKey.clear();
+        readyQueues.clear();
+        delayedQueues.clear();
+    }
+
+    @Override
+    public int getEstimatedBytesPerJob() {
+        // A linked hash map entry and a queue slot, plus a queue of its own for a job without ordering key
+        return 160;
+    }
+
+    @Override
+    public Instant getTimeoutInstant(Job jobToStart) {
+        return Instant.ofEpochMilli(clock.millis() + TIMEOUT_MILLISECONDS);
+    }
+
+    private KeyQueue getOrCreateQueue(Job job) {
+        if (job.getOrderingKey() != null) {
+            return orderingKeyToQueue.computeIfAbsent(job.getOrderingKey(), key -> new KeyQueue(key, true));
+        }
+        return jobIdToQueueOfJobWithoutOrderingKey.computeIfAbsent(job.getId(), id -> new KeyQueue(id, false));
+    }
+
+    private void detach(KeyQueue queue, ScheduledJob scheduledJob) {
+        if (scheduledJob.getState() == IDLE) {
+            recordOrderBeforeBatch(queue);
+            if (queue.idleJobs.peekFirst() == scheduledJob) {
+                queue.idleJobs.pollFirst();
+            } else {
+                queue.idleJobs.remove(scheduledJob);
+            }
+        } else if (queue.runningJob != null && queue.runningJob.equals(scheduledJob)) {
+            queue.runningJob = null;
+        }
+    }
+
+    private void replaceIdleJob(KeyQueue queue, ScheduledJob oldScheduledJob, ScheduledJob newScheduledJob) {
+        if (queue.idleJobs.peekFirst() == oldScheduledJob) {
+            queue.idleJobs.pollFirst();
+            queue.idleJobs.addFirst(newScheduledJob);
+            return;
+        }
+        ArrayDeque<ScheduledJob> idleJobs = new ArrayDeque<>(queue.idleJobs.size());
+        for (ScheduledJob idleJob : queue.idleJobs) {
+            idleJobs.addLast(idleJob == oldScheduledJob ? newScheduledJob : idleJob);
+        }
+        queue.idleJobs = idleJobs;
+    }
+
+    private void recordOrderBeforeBatch(KeyQueue queue) {
+        if (orderingKeyToIdleJobIdsBeforeBatch == null || !queue.isOrderingKey
+                || orderingKeyToIdleJobIdsBeforeBatch.containsKey(queue.key)) {
+            return;
+        }
+        List<String> idleJobIds = new ArrayList<>(queue.idleJobs.size());
+        for (ScheduledJob idleJob : queue.idleJobs) {
+            idleJobIds.add(idleJob.getJob().getId());
+        }
+        orderingKeyToIdleJobIdsBeforeBatch.put(queue.key, idleJobIds);
+    }
+
+    /**
+     * Puts the idle jobs of a queue in the recorded order. Jobs that were not recorded keep their order and are
+     * put after the recorded jobs.
+     */
+    private void restoreOrder(KeyQueue queue, List<String> idleJobIds) {
+        Map<String, ScheduledJob> idToIdleJob = new LinkedHashMap<>();
+        for (ScheduledJob idleJob : queue.idleJobs) {
+            idToIdleJob.put(idleJob.getJob().getId(), idleJob);
+        }
+        ArrayDeque<ScheduledJob> idleJobs = new ArrayDeque<>(queue.idleJobs.size());
+        for (String jobId : idleJobIds) {
+            ScheduledJob idleJob = idToIdleJob.remove(jobId);
+            if (idleJob != null) {
+                idleJobs.addLast(idleJob);
+            }
+        }
+        idleJobs.addAll(idToIdleJob.values());
+        queue.idleJobs = idleJobs;
+    }
+
+    /**
+     * Updates the administration of ready and delayed queues after the jobs of a queue have changed.
+     */
+    private void onQueueChanged(KeyQueue queue) {
+        ScheduledJob firstJob = queue.idleJobs.peekFirst();
+        if (queue.runningJob != null || firstJob == null) {
+            readyQueues.remove(queue);
+            queue.delayedFirstJob = null;
+            if (queue.runningJob == null) {
+                removeQueue(queue);
+            }
+            return;
+        }
+
+        Instant scheduledAtInstant = firstJob.getJob().getScheduledAtInstant();
+        if (scheduledAtInstant == null || !scheduledAtInstant.isAfter(clock.instant())) {
+            queue.delayedFirstJob = null;
+            readyQueues.add(queue);
+        } else {
+            readyQueues.remove(queue);
+            if (queue.delayedFirstJob != firstJob) {
+                queue.delayedFirstJob = firstJob;
+                delayedQueues.add(new DelayedQueue(queue, firstJob));
+            }
+        }
+    }
+
+    private void removeQueue(KeyQueue queue) {
+        if (queue.isOrderingKey) {
+            orderingKeyToQueue.remove(queue.key);
+        } else {
+            jobIdToQueueOfJobWithoutOrderingKey.remove(queue.key);
+        }
+    }
+
+    private static class KeyQueue {
+        /** The ordering key, or the job id for the queue of a job without ordering key. */
+        private final String key;
+        private final boolean isOrderingKey;
+        private ArrayDeque<ScheduledJob> idleJobs = new ArrayDeque<>(2);
+        private ScheduledJob runningJob;
+        private ScheduledJob delayedFirstJob;
+
+        KeyQueue(String key, boolean isOrderingKey) {
+            this.key = key;
+            this.isOrderingKey = isOrderingKey;
+        }
+    }
+
+    private static class DelayedQueue {
+        private final KeyQueue queue;
+        private final ScheduledJob firstJob;
+
+        DelayedQueue(KeyQueue queue, ScheduledJob firstJob) {
+            this.queue = queue;
+            this.firstJob = firstJob;
+        }
+    }
+}
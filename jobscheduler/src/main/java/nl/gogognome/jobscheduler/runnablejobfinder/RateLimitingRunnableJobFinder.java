@@ -0,0 +1,65 @@
+package nl.gogognome.jobscheduler.runnablejobfinder;
+
+import nl.gogognome.jobscheduler.scheduler.ScheduledJob;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This runnable job finder limits the rate at which jobs of a type are started, for example because the jobs
+ * call an API that allows 50 requests per second. Each rate limited type has a token bucket. Starting a job
+ * takes a token from the bucket of its type. While the bucket is empty, jobs of the type are skipped without
+ * scanning them, and other types are started instead.
+ *
+ * <p>The instant at which the next token becomes available is reported by {@link #getNextRunnableInstant()},
+ * so threads waiting for a runnable job sleep exactly until then. Types without a rate limit are not limited.
+ */
+public class RateLimitingRunnableJobFinder extends TypeQueuesRunnableJobFinder {
+
+    private final Map<String, TokenBucket> typeToTokenBucket = new HashMap<>();
+
+    public RateLimitingRunnableJobFinder() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Creates a rate limiting runnable job finder that uses the specified clock.
+     * @param clock the clock used to determine whether jobs are runnable, when tokens become available and when
+     *              started jobs time out
+     */
+    public RateLimitingRunnableJobFinder(Clock clock) {
+        super(clock);
+    }
+
+    /**
+     * Limits the rate at which jobs of the specified type are started.
+     * @param type the type of the jobs
+     * @param maxNrJobsPerSecond the maximum number of jobs started per second, averaged over time
+     * @param burstSize the maximum number of jobs that can be started at once after a period without jobs
+     */
+    public void setRateLimit(String type, double maxNrJobsPerSecond, int burstSize) {
+        typeToTokenBucket.put(type, new TokenBucket(maxNrJobsPerSecond, burstSize, getClock().instant()));
+    }
+
+    @Override
+    protected boolean canStartJobOfType(String type, Instant now) {
+        TokenBucket tokenBucket = typeToTokenBucket.get(type);
+        return tokenBucket == null || tokenBucket.hasToken(now);
+    }
+
+    @Override
+    protected Instant getInstantJobOfTypeCanBeStarted(String type, Instant now) {
+        TokenBucket tokenBucket = typeToTokenBucket.get(type);
+        return tokenBucket != null ? tokenBucket.getInstantTokenAvailable(now) : now;
+    }
+
+    @Override
+    protected void onJobStarted(ScheduledJob scheduledJob) {
+        TokenBucket tokenBucket = typeToTokenBucket.get(scheduledJob.getJob().getType());
+        if (tokenBucket != null) {
+            tokenBucket.takeToken(getClock().instant());
+        }
+    }
+}
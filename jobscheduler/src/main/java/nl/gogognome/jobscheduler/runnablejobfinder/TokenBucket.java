@@ -0,0 +1,80 @@
+package nl.gogognome.jobscheduler.runnablejobfinder;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A token bucket holds at most a maximum number of tokens and is refilled at a fixed rate. The number of tokens
+ * is only updated when the bucket is used, so an idle bucket costs no time at all.
+ */
+class TokenBucket {
+
+    private final int capacity;
+    private final long nanosPerToken;
+
+    private long nrTokens;
+    private Instant lastRefillInstant;
+
+    /**
+     * Creates a full token bucket.
+     * @param tokensPerSecond the number of tokens added per second
+     * @param capacity the maximum number of tokens in the bucket
+     * @param now the current instant
+     */
+    TokenBucket(double tokensPerSecond, int capacity, Instant now) {
+        if (tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("tokensPerSecond must be positive");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least one");
+        }
+        this.capacity = capacity;
+        this.nanosPerToken = Math.max(1, Math.round(1_000_000_000 / tokensPerSecond));
+        this.nrTokens = capacity;
+        this.lastRefillInstant = now;
+    }
+
+    boolean hasToken(Instant now) {
+        refill(now);
+        return nrTokens > 0;
+    }
+
+    /**
+     * Takes a token from the bucket. If the bucket is empty, the token is borrowed from the future,
+     * which delays the instant at which the next token becomes available.
+     * @param now the current instant
+     */
+    void takeToken(Instant now) {
+        refill(now);
+        nrTokens--;
+    }
+
+    /**
+     * @param now the current instant
+     * @return the instant at which the bucket contains at least one token; now if it contains a token already
+     */
+    Instant getInstantTokenAvailable(Instant now) {
+        refill(now);
+        if (nrTokens > 0) {
+            return now;
+        }
+        return lastRefillInstant.plusNanos((1 - nrTokens) * nanosPerToken);
+    }
+
+    private void refill(Instant now) {
+        if (!now.isAfter(lastRefillInstant)) {
+            return;
+        }
+        long nrNewTokens = Duration.between(lastRefillInstant, now).toNanos() / nanosPerToken;
+        if (nrNewTokens == 0) {
+            return;
+        }
+        if (nrTokens + nrNewTokens >= capacity) {
+            nrTokens = capacity;
+            lastRefillInstant = now;
+        } else {
+            nrTokens += nrNewTokens;
+            lastRefillInstant = lastRefillInstant.plusNanos(nrNewTokens * nanosPerToken);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package nl.gogognome.jobscheduler.runnablejobfinder;
+
+import nl.gogognome.jobscheduler.scheduler.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static nl.gogognome.jobscheduler.scheduler.JobState.IDLE;
+import static nl.gogognome.jobscheduler.scheduler.JobState.RUNNING;
+
+/**
+ * This runnable job finder starts jobs in the same order as the {@link FifoRunnableJobFinder}: the idle job
+ * with the oldest scheduled at instant is started first. It keeps a sorted queue of idle jobs per job type,
+ * so that the next runnable job of a specific type is found in O(log n) time. This makes it cheap for the job
+ * scheduler to gather a batch of jobs of the same type.
+ *
+ * <p>Finding the next runnable job of any type takes O(t) time, where t is the number of job types. The queues
+ * are indexed by the id of the type in {@link SymbolTable#jobTypes()}, so no map lookup by type string is needed.
+ *
+ * <p>Subclasses can prevent jobs of a type from being started for a while by overriding
+ * {@link #canStartJobOfType(String, Instant)}. Jobs of such a type are skipped without being scanned.
+ */
+public class TypeQueuesRunnableJobFinder implements RunnableJobFinder {
+
+    private final static Comparator<Entry> BY_SCHEDULED_AT_INSTANT =
+            Comparator.comparing((Entry e) -> e.scheduledJob.getJob().getScheduledAtInstant(), Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparingLong(e -> e.sequenceNumber);
+    private final static long TIMEOUT_MILLISECONDS = Duration.ofHours(1).toMillis();
+
+    private final Map<String, Entry> idToEntry = new LinkedHashMap<>();
+    private final SymbolTable types = SymbolTable.jobTypes();
+    /** Per type id the queue of idle jobs of that type; null if there are no idle jobs of the type. */
+    private final List<TreeSet<Entry>> typeIdToIdleJobs = new ArrayList<>();
+    private long nextSequenceNumber;
+    private final Clock clock;
+
+    public TypeQueuesRunnableJobFinder() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Creates a runnable job finder that uses the specified clock.
+     * @param clock the clock used to determine whether jobs are runnable and when started jobs time out
+     */
+    public TypeQueuesRunnableJobFinder(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public ScheduledJob findById(String jobId) {
+        Entry entry = idToEntry.get(jobId);
+        return entry != null ? entry.scheduledJob : null;
+    }
+
+    @Override
+    public void addJob(ScheduledJob scheduledJob) {
+        String jobId = scheduledJob.getJob().getId();
+        if (idToEntry.containsKey(jobId)) {
+            throw new DuplicateJobException("A job with id " + jobId + " already exists. Jobs must have a unique id!");
+        }
+        addEntry(new Entry(scheduledJob, types.idOf(scheduledJob.getJob().getType()), nextSequenceNumber++));
+    }
+
+    @Override
+    public void updateJob(ScheduledJob scheduledJob) {
+        String jobId = scheduledJob.getJob().getId();
+        Entry oldEntry = idToEntry.get(jobId);
+        if (oldEntry == null) {
+            throw new UnknownJobException("A job with id " + jobId + " does not exist. Only existing jobs can be updated!");
+        }
+        removeFromQueue(oldEntry);
+        addEntry(new Entry(scheduledJob, types.idOf(scheduledJob.getJob().getType()), oldEntry.sequenceNumber));
+        if (oldEntry.scheduledJob.getState() == IDLE && scheduledJob.getState() == RUNNING) {
+            onJobStarted(scheduledJob);
+        }
+    }
+
+    @Override
+    public void removeJob(String jobId) {
+        Entry entry = idToEntry.remove(jobId);
+        if (entry == null) {
+            throw new UnknownJobException("Cannot remove job with id " + jobId + " because it does not exist!");
+        }
+        removeFromQueue(entry);
+    }
+
+    @Override
+    public ScheduledJob findNextRunnableJob() {
+        Instant now = clock.instant();
+        Entry bestCandidate = null;
+        for (int typeId = 0; typeId < typeIdToIdleJobs.size(); typeId++) {
+            TreeSet<Entry> idleJobs = typeIdToIdleJobs.get(typeId);
+            if (idleJobs == null) {
+                continue;
+            }
+            Entry first = idleJobs.first();
+            if (isRunnableAt(first, now)
+                    && (bestCandidate == null || BY_SCHEDULED_AT_INSTANT.compare(first, bestCandidate) < 0)
+                    && canStartJobOfType(types.get(typeId), now)) {
+                bestCandidate = first;
+            }
+        }
+        return bestCandidate != null ? bestCandidate.scheduledJob : null;
+    }
+
+    @Override
+    public ScheduledJob findNextRunnableJobOfType(String type) {
+        TreeSet<Entry> idleJobs = getIdleJobs(types.findId(type));
+        if (idleJobs == null) {
+            return null;
+        }
+        Instant now = clock.instant();
+        Entry first = idleJobs.first();
+        return isRunnableAt(first, now) && canStartJobOfType(type, now) ? first.scheduledJob : null;
+    }
+
+    @Override
+    public Instant getNextRunnableInstant() {
+        Instant now = clock.instant();
+        Instant nextRunnableInstant = null;
+        for (int typeId = 0; typeId < typeIdToIdleJobs.size(); typeId++) {
+            nextRunnableInstant = earliest(nextRunnableInstant, getNextRunnableInstantOfType(typeId, now));
+        }
+        return nextRunnableInstant;
+    }
+
+    @Override
+    public Instant getNextRunnableInstant(Set<String> types) {
+        if (types == null) {
+            return getNextRunnableInstant();
+        }
+        Instant now = clock.instant();
+        Instant nextRunnableInstant = null;
+        for (String type : types) {
+            nextRunnableInstant = earliest(nextRunnableInstant, getNextRunnableInstantOfType(this.types.findId(type), now));
+        }
+        return nextRunnableInstant;
+    }
+
+    private Instant getNextRunnableInstantOfType(int typeId, Instant now) {
+        TreeSet<Entry> idleJobs = getIdleJobs(typeId);
+        if (idleJobs == null) {
+            return null;
+        }
+        Instant instant = idleJobs.first().scheduledJob.getJob().getScheduledAtInstant();
+        if (instant == null || instant.isBefore(now)) {
+            instant = now;
+        }
+        Instant typeInstant = getInstantJobOfTypeCanBeStarted(types.get(typeId), now);
+        return typeInstant.isAfter(instant) ? typeInstant : instant;
+    }
+
+    private static Instant earliest(Instant instant, Instant otherInstant) {
+        if (instant == null) {
+            return otherInstant;
+        }
+        return otherInstant != null && otherInstant.isBefore(instant) ? otherInstant : instant;
+    }
+
+    @Override
+    public List<ScheduledJob> findAllJobs() {
+        List<ScheduledJob> scheduledJobs = new ArrayList<>(idToEntry.size());
+        for (Entry entry : idToEntry.values()) {
+            scheduledJobs.add(entry.scheduledJob);
+        }
+        return scheduledJobs;
+    }
+
+    @Override
+    public void removeAllScheduledJobs() {
+        idToEntry.clear();
+        typeIdToIdleJobs.clear();
+    }
+
+    @Override
+    public int getEstimatedBytesPerJob() {
+        // A linked hash map entry, an entry and a tree set node
+        return 120;
+    }
+
+    @Override
+    public Instant getTimeoutInstant(Job jobToStart) {
+        return Instant.ofEpochMilli(clock.millis() + TIMEOUT_MILLISECONDS);
+    }
+
+    /**
+     * @return the clock used to determine whether jobs are runnable
+     */
+    protected Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Determines whether a job of the specified type can be started now. This implementation always returns true.
+     * @param type the type of the job
+     * @param now the current instant
+     * @return true if a job of the type can be started; false otherwise
+     */
+    protected boolean canStartJobOfType(String type, Instant now) {
+        return true;
+    }
+
+    /**
+     * Determines the instant from which a job of the specified type can be started. This implementation
+     * always returns now.
+     * @param type the type of the job
+     * @param now the current instant
+     * @return the instant from which a job of the type can be started; now if it can be started right away
+     */
+    protected Instant getInstantJobOfTypeCanBeStarted(String type, Instant now) {
+        return now;
+    }
+
+    /**
+     * Called when the state of a job has changed from idle to running. This implementation does nothing.
+     * @param scheduledJob the started job
+     */
+    protected void onJobStarted(ScheduledJob scheduledJob) {
+    }
+
+    private void addEntry(Entry entry) {
+        ScheduledJob scheduledJob = entry.scheduledJob;
+        idToEntry.put(scheduledJob.getJob().getId(), entry);
+        if (scheduledJob.getState() == IDLE) {
+            while (typeIdToIdleJobs.size() <= entry.typeId) {
+                typeIdToIdleJobs.add(null);
+            }
+            TreeSet<Entry> idleJobs = typeIdToIdleJobs.get(entry.typeId);
+            if (idleJobs == null) {
+                idleJobs = new TreeSet<>(BY_SCHEDULED_AT_INSTANT);
+                typeIdToIdleJobs.set(entry.typeId, idleJobs);
+            }
+            idleJobs.add(entry);
+        }
+    }
+
+    private TreeSet<Entry> getIdleJobs(int typeId) {
+        return typeId != SymbolTable.NO_SYMBOL && typeId < typeIdToIdleJobs.size() ? typeIdToIdleJobs.get(typeId) : null;
+    }
+
+    private void removeFromQueue(Entry entry) {
+        if (entry.scheduledJob.getState() != IDLE) {
+            return; // only idle jobs are present in the queues
+        }
+        TreeSet<Entry> idleJobs = typeIdToIdleJobs.get(entry.typeId);
+        idleJobs.remove(entry);
+        if (idleJobs.isEmpty()) {
+            typeIdToIdleJobs.set(entry.typeId, null);
+        }
+    }
+
+    private boolean isRunnableAt(Entry entry, Instant now) {
+        Instant scheduledAtInstant = entry.scheduledJob.getJob().getScheduledAtInstant();
+        return scheduledAtInstant == null || !scheduledAtInstant.isAfter(now);
+    }
+
+    private static class Entry {
+        private final ScheduledJob scheduledJob;
+        private final int typeId;
+        private final long sequenceNumber;
+
+        Entry(ScheduledJob scheduledJob, int typeId, long sequenceNumber) {
+            this.scheduledJob = scheduledJob;
+            this.typeId = typeId;
+            this.sequenceNumber = sequenceNumber;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The maximum number of jobs that a job scheduler keeps, in total and per job type, the maximum estimated heap used
+ * for these jobs, and what to do with new jobs once a limit has been reached. All jobs count, whatever their state.
+ */
+public class CapacityLimits {
+
+    private final static CapacityLimits UNLIMITED = new CapacityLimits(0, Collections.emptyMap(), 0, OverflowPolicy.REJECT, 0);
+
+    private final int maxNrJobs;
+    private final Map<String, Integer> typeToMaxNrJobs;
+    private final long maxMemoryBytes;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMilliseconds;
+
+    private CapacityLimits(int maxNrJobs, Map<String, Integer> typeToMaxNrJobs, long maxMemoryBytes,
+                           OverflowPolicy overflowPolicy, long blockTimeoutMilliseconds) {
+        this.maxNrJobs = maxNrJobs;
+        this.typeToMaxNrJobs = typeToMaxNrJobs;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMilliseconds = blockTimeoutMilliseconds;
+    }
+
+    /**
+     * @return capacity limits without any limit; new jobs are never rejected
+     */
+    public static CapacityLimits unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Creates a copy of these limits with the specified maximum total number of jobs.
+     * @param maxNrJobs the maximum number of jobs; zero if the total number of jobs is unlimited
+     * @return the copy of the limits
+     */
+    public CapacityLimits withMaxNrJobs(int maxNrJobs) {
+        if (maxNrJobs < 0) {
+            throw new IllegalArgumentException("maxNrJobs must be at least zero");
+        }
+        return new CapacityLimits(maxNrJobs, typeToMaxNrJobs, maxMemoryBytes, overflowPolicy, blockTimeoutMilliseconds);
+    }
+
+    /**
+     * Creates a copy of these limits with a maximum number of jobs of the specified type.
+     * @param type the type of the jobs
+     * @param maxNrJobsOfType the maximum number of jobs of the type
+     * @return the copy of the limits
+     */
+    public CapacityLimits withMaxNrJobsOfType(String type, int maxNrJobsOfType) {
+        if (maxNrJobsOfType < 1) {
+            throw new IllegalArgumentException("maxNrJobsOfType must be at least one");
+        }
+        Map<String, Integer> newTypeToMaxNrJobs = new HashMap<>(typeToMaxNrJobs);
+        newTypeToMaxNrJobs.put(type, maxNrJobsOfType);
+        return new CapacityLimits(maxNrJobs, Collections.unmodifiableMap(newTypeToMaxNrJobs), maxMemoryBytes, overflowPolicy, blockTimeoutMilliseconds);
+    }
+
+    /**
+     * Creates a copy of these limits with a memory budget: the maximum estimated heap used for the jobs, as
+     * reported by {@link JobSchedulerMetrics#getMemoryUsage()}.
+     * @param maxMemoryBytes the maximum number of bytes; zero if the memory is unlimited
+     * @return the copy of the limits
+     */
+    public CapacityLimits withMaxMemoryBytes(long maxMemoryBytes) {
+        if (maxMemoryBytes < 0) {
+            throw new IllegalArgumentException("maxMemoryBytes must be at least zero");
+        }
+        return new CapacityLimits(maxNrJobs, typeToMaxNrJobs, maxMemoryBytes, overflowPolicy, blockTimeoutMilliseconds);
+    }
+
+    public CapacityLimits withOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) {
+            throw new NullPointerException("overflowPolicy");
+        }
+        return new CapacityLimits(maxNrJobs, typeToMaxNrJobs, maxMemoryBytes, overflowPolicy, blockTimeoutMilliseconds);
+    }
+
+    /**
+     * Creates a copy of these limits with the specified block timeout, which is used by the policy
+     * {@link OverflowPolicy#BLOCK}.
+     * @param blockTimeoutMilliseconds the maximum time to wait for room for a new job
+     * @return the copy of the limits
+     */
+    public CapacityLimits withBlockTimeoutMilliseconds(long blockTimeoutMilliseconds) {
+        if (blockTimeoutMilliseconds < 0) {
+            throw new IllegalArgumentException("blockTimeoutMilliseconds must be at least zero");
+        }
+        return new CapacityLimits(maxNrJobs, typeToMaxNrJobs, maxMemoryBytes, overflowPolicy, blockTimeoutMilliseconds);
+    }
+
+    /**
+     * @return the maximum total number of jobs; zero if unlimited
+     */
+    public int getMaxNrJobs() {
+        return maxNrJobs;
+    }
+
+    /**
+     * @param type the type of jobs
+     * @return the maximum number of jobs of the type; null if unlimited
+     */
+    public Integer getMaxNrJobsOfType(String type) {
+        return typeToMaxNrJobs.get(type);
+    }
+
+    /**
+     * @return the maximum estimated heap used for the jobs in bytes; zero if unlimited
+     */
+    public long getMaxMemoryBytes() {
+        return maxMemoryBytes;
+    }
+
+    /**
+     * @return true if none of the limits has been set, so that new jobs are never refused; false otherwise
+     */
+    public boolean isUnlimited() {
+        return maxNrJobs == 0 && typeToMaxNrJobs.isEmpty() && maxMemoryBytes == 0;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public long getBlockTimeoutMilliseconds() {
+        return blockTimeoutMilliseconds;
+    }
+}
@@ -0,0 +1,13 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+/**
+ * Thrown when a batch changes a job that another batch has changed and not committed yet, see
+ * {@link JobScheduler#runBatchCommittedConcurrently(java.util.function.Consumer)}. The batch can be run again once
+ * the other batch has been committed.
+ */
+public class ConcurrentBatchException extends JobSchedulerException {
+
+    public ConcurrentBatchException(String message) {
+        super(message);
+    }
+}
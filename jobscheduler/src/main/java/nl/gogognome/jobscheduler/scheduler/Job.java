@@ -11,12 +11,62 @@ public class Job {
     private final String type;
     private final String data;
     private final Instant scheduledAtInstant;
+    private final Instant deadline;
+    private final String orderingKey;
+    private final String coalescingKey;
 
     public Job(String id, String type, String data, Instant scheduledAtInstant) {
+        this(id, type, data, scheduledAtInstant, null, null, null);
+    }
+
+    private Job(String id, String type, String data, Instant scheduledAtInstant, Instant deadline, String orderingKey,
+                String coalescingKey) {
         this.id = id;
         this.type = type;
         this.data = data;
         this.scheduledAtInstant = scheduledAtInstant;
+        this.deadline = deadline;
+        this.orderingKey = orderingKey;
+        this.coalescingKey = coalescingKey;
+    }
+
+    /**
+     * Creates a copy of this job with the specified scheduled at instant.
+     * @param scheduledAtInstant the instant at which the job can be started at the earliest
+     * @return the copy of the job
+     */
+    public Job withScheduledAtInstant(Instant scheduledAtInstant) {
+        return new Job(id, type, data, scheduledAtInstant, deadline, orderingKey, coalescingKey);
+    }
+
+    /**
+     * Creates a copy of this job with the specified deadline.
+     * @param deadline the instant before which the job must have been started; null if the job has no deadline
+     * @return the copy of the job
+     */
+    public Job withDeadline(Instant deadline) {
+        return new Job(id, type, data, scheduledAtInstant, deadline, orderingKey, coalescingKey);
+    }
+
+    /**
+     * Creates a copy of this job with the specified ordering key. Jobs with the same ordering key are executed
+     * one at a time, in the order in which they were scheduled, if the runnable job finder supports ordering keys.
+     * @param orderingKey the ordering key, for example the id of a customer; null if the job has no ordering key
+     * @return the copy of the job
+     */
+    public Job withOrderingKey(String orderingKey) {
+        return new Job(id, type, data, scheduledAtInstant, deadline, orderingKey, coalescingKey);
+    }
+
+    /**
+     * Creates a copy of this job with the specified coalescing key. If the runnable job finder supports coalescing,
+     * then scheduling a job while an idle job with the same coalescing key exists does not add a new job.
+     * @param coalescingKey the coalescing key, for example "reindex-" followed by the id of a document;
+     *                      null if the job must never be coalesced
+     * @return the copy of the job
+     */
+    public Job withCoalescingKey(String coalescingKey) {
+        return new Job(id, type, data, scheduledAtInstant, deadline, orderingKey, coalescingKey);
     }
 
     public String getId() {
@@ -35,6 +85,27 @@ public class Job {
         return scheduledAtInstant;
     }
 
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    public String getOrderingKey() {
+        return orderingKey;
+    }
+
+    public String getCoalescingKey() {
+        return coalescingKey;
+    }
+
+    /**
+     * Checks whether the deadline of this job has passed.
+     * @param now the current instant
+     * @return true if the job has a deadline that lies before now; false otherwise
+     */
+    public boolean isDeadlineMissed(Instant now) {
+        return deadline != null && deadline.isBefore(now);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof Job) {
@@ -0,0 +1,179 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Secondary index of the jobs of a job scheduler, used to answer {@link JobQuery job queries} without scanning
+ * all jobs. The jobs are kept per state and per type in a map sorted by scheduled at instant and id. A query
+ * for a state and type only visits the jobs of that state and type that are on the requested page.
+ *
+ * <p>This class is not thread safe. The job scheduler only accesses it while holding its lock.
+ */
+class JobIndex {
+
+    private final Map<JobState, Map<String, TreeMap<Key, ScheduledJob>>> stateToTypeToJobs = new EnumMap<>(JobState.class);
+
+    void add(ScheduledJob scheduledJob) {
+        stateToTypeToJobs.computeIfAbsent(scheduledJob.getState(), state -> new HashMap<>())
+                .computeIfAbsent(scheduledJob.getJob().getType(), type -> new TreeMap<>())
+                .put(Key.of(scheduledJob), scheduledJob);
+    }
+
+    void remove(ScheduledJob scheduledJob) {
+        if (scheduledJob == null) {
+            return;
+        }
+        Map<String, TreeMap<Key, ScheduledJob>> typeToJobs = stateToTypeToJobs.get(scheduledJob.getState());
+        if (typeToJobs == null) {
+            return;
+        }
+        String type = scheduledJob.getJob().getType();
+        TreeMap<Key, ScheduledJob> jobs = typeToJobs.get(type);
+        if (jobs == null) {
+            return;
+        }
+        jobs.remove(Key.of(scheduledJob));
+        if (jobs.isEmpty()) {
+            typeToJobs.remove(type);
+            if (typeToJobs.isEmpty()) {
+                stateToTypeToJobs.remove(scheduledJob.getState());
+            }
+        }
+    }
+
+    void clear() {
+        stateToTypeToJobs.clear();
+    }
+
+    /**
+     * Finds a page of jobs using the state, type and scheduled at instant filters of the query.
+     * @param query the query
+     * @return the page of jobs
+     */
+    JobPage find(JobQuery query) {
+        Key lowerBound = Key.of(query.getScheduledAtOrAfter(), "");
+        boolean lowerBoundInclusive = true;
+        Key cursorKey = Key.parseCursor(query.getCursor());
+        if (cursorKey != null && (query.getScheduledAtOrAfter() == null || cursorKey.compareTo(lowerBound) >= 0)) {
+            lowerBound = cursorKey;
+            lowerBoundInclusive = false;
+        }
+        Key upperBound = query.getScheduledBefore() != null ? Key.of(query.getScheduledBefore(), "") : null;
+        if (upperBound != null && lowerBound != null && lowerBound.compareTo(upperBound) >= 0) {
+            return new JobPage(Collections.emptyList(), null);
+        }
+
+        List<ScheduledJob> candidates = new ArrayList<>();
+        for (Map.Entry<JobState, Map<String, TreeMap<Key, ScheduledJob>>> stateAndTypeToJobs : stateToTypeToJobs.entrySet()) {
+            if (query.getState() != null && query.getState() != stateAndTypeToJobs.getKey()) {
+                continue;
+            }
+            Map<String, TreeMap<Key, ScheduledJob>> typeToJobs = stateAndTypeToJobs.getValue();
+            Collection<TreeMap<Key, ScheduledJob>> jobMaps = query.getType() == null ? typeToJobs.values()
+                    : typeToJobs.containsKey(query.getType()) ? Collections.singleton(typeToJobs.get(query.getType()))
+                    : Collections.emptySet();
+            for (TreeMap<Key, ScheduledJob> jobs : jobMaps) {
+                NavigableMap<Key, ScheduledJob> range = jobs;
+                if (lowerBound != null) {
+                    range = range.tailMap(lowerBound, lowerBoundInclusive);
+                }
+                if (upperBound != null) {
+                    range = range.headMap(upperBound, false);
+                }
+                int nrCandidates = 0;
+                for (ScheduledJob scheduledJob : range.values()) {
+                    if (query.matches(scheduledJob)) {
+                        candidates.add(scheduledJob);
+                        if (++nrCandidates > query.getLimit()) {
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return page(candidates, query);
+    }
+
+    /**
+     * Creates a page of jobs from candidate jobs, for example the jobs of a requester.
+     * @param candidates the candidate jobs in any order
+     * @param query the query
+     * @return the page containing the candidates that match the query and come after the cursor of the query
+     */
+    static JobPage page(Collection<ScheduledJob> candidates, JobQuery query) {
+        Key cursorKey = Key.parseCursor(query.getCursor());
+        List<ScheduledJob> jobs = new ArrayList<>();
+        for (ScheduledJob scheduledJob : candidates) {
+            if (query.matches(scheduledJob) && (cursorKey == null || Key.of(scheduledJob).compareTo(cursorKey) > 0)) {
+                jobs.add(scheduledJob);
+            }
+        }
+        jobs.sort(Comparator.comparing(Key::of));
+        if (jobs.size() <= query.getLimit()) {
+            return new JobPage(jobs, null);
+        }
+        jobs = new ArrayList<>(jobs.subList(0, query.getLimit()));
+        return new JobPage(jobs, Key.of(jobs.get(jobs.size() - 1)).toCursor());
+    }
+
+    /**
+     * Sort key of a job. Jobs without scheduled at instant come first.
+     */
+    private static class Key implements Comparable<Key> {
+        private final Instant instant;
+        private final String jobId;
+
+        private Key(Instant instant, String jobId) {
+            this.instant = instant;
+            this.jobId = jobId;
+        }
+
+        static Key of(ScheduledJob scheduledJob) {
+            Instant scheduledAtInstant = scheduledJob.getJob().getScheduledAtInstant();
+            return new Key(scheduledAtInstant != null ? scheduledAtInstant : Instant.MIN, scheduledJob.getJob().getId());
+        }
+
+        static Key of(Instant instant, String jobId) {
+            return instant != null ? new Key(instant, jobId) : null;
+        }
+
+        static Key parseCursor(String cursor) {
+            if (cursor == null) {
+                return null;
+            }
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+                return new Key(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])), parts[2]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+            }
+        }
+
+        String toCursor() {
+            String cursor = instant.getEpochSecond() + ":" + instant.getNano() + ":" + jobId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int compareTo(Key that) {
+            int result = this.instant.compareTo(that.instant);
+            return result != 0 ? result : this.jobId.compareTo(that.jobId);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Key) {
+                Key that = (Key) obj;
+                return this.instant.equals(that.instant) && this.jobId.equals(that.jobId);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return instant.hashCode() * 31 + jobId.hashCode();
+        }
+    }
+}
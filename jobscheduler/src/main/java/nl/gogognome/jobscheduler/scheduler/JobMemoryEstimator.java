@@ -0,0 +1,73 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import java.time.Instant;
+
+/**
+ * Estimates the heap used for a job, assuming a 64-bit JVM with compressed object pointers. The estimate
+ * does not measure the heap; it adds up the sizes of the objects that the job scheduler keeps per job. Strings
+ * are counted at two bytes per character, which is an upper bound for JVMs that store Latin-1 strings compactly.
+ * The type and the requester id are not counted, because they are shared by all jobs of the same type or requester:
+ * types are interned by a {@link SymbolTable} and the job scheduler keeps one instance per requester id while the
+ * requester is known. Only the references to them are part of the job.
+ */
+public class JobMemoryEstimator {
+
+    private final static int SCHEDULED_JOB_BYTES = 24;
+    private final static int JOB_BYTES = 40;
+    private final static int INSTANT_BYTES = 24;
+    private final static int STRING_BYTES = 24;
+    private final static int ARRAY_HEADER_BYTES = 16;
+
+    /** The slot and amortized node of the job in the {@link JobsSnapshot}. */
+    private final static int SNAPSHOT_ENTRY_BYTES = 24;
+    /** The tree map entry and key of the job in the index used by {@link JobScheduler#findJobs(JobQuery)}. */
+    private final static int JOB_INDEX_ENTRY_BYTES = 64;
+    /** A hash map entry plus a list slot; used for runnable job finders that do not estimate their own entries. */
+    final static int DEFAULT_RUNNABLE_JOB_FINDER_BYTES_PER_JOB = 48;
+
+    private JobMemoryEstimator() {
+    }
+
+    /**
+     * Estimates the heap used for a job, assuming the runnable job finder keeps a hash map entry plus a list slot
+     * per job.
+     * @param scheduledJob the job
+     * @return the estimated memory usage of the job
+     */
+    public static MemoryUsage estimate(ScheduledJob scheduledJob) {
+        return estimate(scheduledJob, DEFAULT_RUNNABLE_JOB_FINDER_BYTES_PER_JOB);
+    }
+
+    /**
+     * Estimates the heap used for a job.
+     * @param scheduledJob the job
+     * @param runnableJobFinderBytesPerJob the bytes that the runnable job finder keeps per job, as returned by
+     *                                     {@link RunnableJobFinder#getEstimatedBytesPerJob()}
+     * @return the estimated memory usage of the job
+     */
+    public static MemoryUsage estimate(ScheduledJob scheduledJob, int runnableJobFinderBytesPerJob) {
+        Job job = scheduledJob.getJob();
+        long payloadBytes = stringBytes(job.getData());
+        long objectOverheadBytes = SCHEDULED_JOB_BYTES + JOB_BYTES
+                + stringBytes(job.getId()) + stringBytes(job.getOrderingKey()) + stringBytes(job.getCoalescingKey())
+                + instantBytes(job.getScheduledAtInstant()) + instantBytes(job.getDeadline())
+                + instantBytes(scheduledJob.getTimeoutAtInstant());
+        long indexEntryBytes = SNAPSHOT_ENTRY_BYTES + JOB_INDEX_ENTRY_BYTES + runnableJobFinderBytesPerJob;
+        return new MemoryUsage(payloadBytes, objectOverheadBytes, indexEntryBytes);
+    }
+
+    private static long stringBytes(String string) {
+        if (string == null) {
+            return 0;
+        }
+        return STRING_BYTES + align(ARRAY_HEADER_BYTES + 2L * string.length());
+    }
+
+    private static long instantBytes(Instant instant) {
+        return instant != null ? INSTANT_BYTES : 0;
+    }
+
+    private static long align(long nrBytes) {
+        return (nrBytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,28 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import java.util.List;
+
+/**
+ * A page of jobs returned for a {@link JobQuery}.
+ */
+public class JobPage {
+
+    private final List<ScheduledJob> jobs;
+    private final String nextCursor;
+
+    public JobPage(List<ScheduledJob> jobs, String nextCursor) {
+        this.jobs = jobs;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ScheduledJob> getJobs() {
+        return jobs;
+    }
+
+    /**
+     * @return the cursor to get the next page with {@link JobQuery#withCursor(String)}; null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
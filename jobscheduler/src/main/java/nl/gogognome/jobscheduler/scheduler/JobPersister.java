@@ -1,5 +1,11 @@
 package nl.gogognome.jobscheduler.scheduler;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static nl.gogognome.jobscheduler.scheduler.JobState.IDLE;
+
 public interface JobPersister {
 
     /**
@@ -20,9 +26,82 @@ public interface JobPersister {
      */
     void update(ScheduledJob job);
 
+    /**
+     * Updates several existing persisted jobs at once. Persisters that can update jobs in bulk should override
+     * this method. The default implementation updates the jobs one by one.
+     * @param jobs the jobs
+     */
+    default void updateAll(List<ScheduledJob> jobs) {
+        for (ScheduledJob job : jobs) {
+            update(job);
+        }
+    }
+
     /**
      * Gets all persisted jobs.
      * @return all persisted jobs
      */
     Iterable<ScheduledJob> findAllJobs();
+
+    /**
+     * Gets a persisted job by its id. Persisters that can search jobs by id should override this method. The default
+     * implementation searches all persisted jobs.
+     * @param jobId the id of the job
+     * @return the job or null if no job with the id has been persisted
+     */
+    default ScheduledJob findById(String jobId) {
+        for (ScheduledJob job : findAllJobs()) {
+            if (jobId.equals(job.getJob().getId())) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the persisted idle jobs whose scheduled at instant lies within a time window. The job scheduler uses
+     * this method to load jobs that it only kept in the persister because they were scheduled beyond its horizon.
+     * Persisters that can search jobs by scheduled at instant should override this method. The default
+     * implementation filters all persisted jobs.
+     * @param after the start of the window (exclusive)
+     * @param notAfter the end of the window (inclusive)
+     * @return the idle jobs scheduled within the window
+     */
+    default List<ScheduledJob> findIdleJobsScheduledBetween(Instant after, Instant notAfter) {
+        List<ScheduledJob> jobs = new ArrayList<>();
+        for (ScheduledJob job : findAllJobs()) {
+            Instant scheduledAtInstant = job.getJob().getScheduledAtInstant();
+            if (job.getState() == IDLE && scheduledAtInstant != null
+                    && scheduledAtInstant.isAfter(after) && !scheduledAtInstant.isAfter(notAfter)) {
+                jobs.add(job);
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Gets persisted idle jobs of a type, preferably the jobs with the oldest scheduled at instant. The job
+     * scheduler uses this method to read jobs back that it spilled to the persister, so it asks for a limited
+     * number of jobs only. Persisters that can search jobs by type should override this method. The default
+     * implementation filters all persisted jobs and returns the first matching jobs it finds.
+     * @param type the type of the jobs
+     * @param notAfter the latest scheduled at instant (inclusive); null for any instant. Jobs without scheduled at
+     *                 instant are always returned.
+     * @param maxNrJobs the maximum number of jobs to return
+     * @return at most maxNrJobs idle jobs of the type
+     */
+    default List<ScheduledJob> findIdleJobsOfType(String type, Instant notAfter, int maxNrJobs) {
+        List<ScheduledJob> jobs = new ArrayList<>();
+        for (ScheduledJob job : findAllJobs()) {
+            if (jobs.size() >= maxNrJobs) {
+                break;
+            }
+            Instant scheduledAtInstant = job.getJob().getScheduledAtInstant();
+            if (job.getState() == IDLE && type.equals(job.getJob().getType())
+                    && (notAfter == null || scheduledAtInstant == null || !scheduledAtInstant.isAfter(notAfter))) {
+                jobs.add(job);
+            }
+        }
+        return jobs;
+    }
 }
@@ -0,0 +1,131 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import java.time.Instant;
+
+/**
+ * A query for jobs of a job scheduler. All filters are optional: a filter that is null matches all jobs.
+ * The jobs are returned ordered by scheduled at instant and id, in pages of at most {@link #getLimit()} jobs.
+ * To get the next page, repeat the query with the cursor of the previous page.
+ */
+public class JobQuery {
+
+    public final static int DEFAULT_LIMIT = 100;
+
+    private final JobState state;
+    private final String type;
+    private final String requesterId;
+    private final Instant scheduledAtOrAfter;
+    private final Instant scheduledBefore;
+    private final String cursor;
+    private final int limit;
+
+    public JobQuery() {
+        this(null, null, null, null, null, null, DEFAULT_LIMIT);
+    }
+
+    private JobQuery(JobState state, String type, String requesterId, Instant scheduledAtOrAfter, Instant scheduledBefore,
+                     String cursor, int limit) {
+        this.state = state;
+        this.type = type;
+        this.requesterId = requesterId;
+        this.scheduledAtOrAfter = scheduledAtOrAfter;
+        this.scheduledBefore = scheduledBefore;
+        this.cursor = cursor;
+        this.limit = limit;
+    }
+
+    public JobQuery withState(JobState state) {
+        return new JobQuery(state, type, requesterId, scheduledAtOrAfter, scheduledBefore, cursor, limit);
+    }
+
+    public JobQuery withType(String type) {
+        return new JobQuery(state, type, requesterId, scheduledAtOrAfter, scheduledBefore, cursor, limit);
+    }
+
+    /**
+     * Creates a copy of this query that only matches jobs of the specified requester. Only running jobs have
+     * a requester.
+     * @param requesterId the id of the requester
+     * @return the copy of the query
+     */
+    public JobQuery withRequesterId(String requesterId) {
+        return new JobQuery(state, type, requesterId, scheduledAtOrAfter, scheduledBefore, cursor, limit);
+    }
+
+    /**
+     * Creates a copy of this query that only matches jobs whose scheduled at instant is at or after the
+     * specified instant. Jobs without scheduled at instant do not match.
+     * @param scheduledAtOrAfter the instant
+     * @return the copy of the query
+     */
+    public JobQuery withScheduledAtOrAfter(Instant scheduledAtOrAfter) {
+        return new JobQuery(state, type, requesterId, scheduledAtOrAfter, scheduledBefore, cursor, limit);
+    }
+
+    /**
+     * Creates a copy of this query that only matches jobs whose scheduled at instant is before the specified
+     * instant. Jobs without scheduled at instant match too.
+     * @param scheduledBefore the instant
+     * @return the copy of the query
+     */
+    public JobQuery withScheduledBefore(Instant scheduledBefore) {
+        return new JobQuery(state, type, requesterId, scheduledAtOrAfter, scheduledBefore, cursor, limit);
+    }
+
+    /**
+     * Creates a copy of this query that continues after the last job of a previous page.
+     * @param cursor the cursor of the previous page; null to start at the first job
+     * @return the copy of the query
+     */
+    public JobQuery withCursor(String cursor) {
+        return new JobQuery(state, type, requesterId, scheduledAtOrAfter, scheduledBefore, cursor, limit);
+    }
+
+    public JobQuery withLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least one");
+        }
+        return new JobQuery(state, type, requesterId, scheduledAtOrAfter, scheduledBefore, cursor, limit);
+    }
+
+    public JobState getState() {
+        return state;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getRequesterId() {
+        return requesterId;
+    }
+
+    public Instant getScheduledAtOrAfter() {
+        return scheduledAtOrAfter;
+    }
+
+    public Instant getScheduledBefore() {
+        return scheduledBefore;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param scheduledJob a job
+     * @return true if the job matches all filters of this query, ignoring the cursor; false otherwise
+     */
+    public boolean matches(ScheduledJob scheduledJob) {
+        Instant scheduledAtInstant = scheduledJob.getJob().getScheduledAtInstant();
+        return (state == null || state == scheduledJob.getState())
+                && (type == null || type.equals(scheduledJob.getJob().getType()))
+                && (requesterId == null || requesterId.equals(scheduledJob.getRequesterId()))
+                && (scheduledAtOrAfter == null || (scheduledAtInstant != null && !scheduledAtInstant.isBefore(scheduledAtOrAfter)))
+                && (scheduledBefore == null || scheduledAtInstant == null || scheduledAtInstant.isBefore(scheduledBefore));
+    }
+}
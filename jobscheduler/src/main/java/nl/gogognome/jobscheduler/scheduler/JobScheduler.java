@@ -1,10 +1,23 @@
 package nl.gogognome.jobscheduler.scheduler;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Semaphore;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static nl.gogognome.jobscheduler.scheduler.JobState.IDLE;
 import static nl.gogognome.jobscheduler.scheduler.JobState.RUNNING;
 
@@ -12,14 +25,112 @@ public class JobScheduler {
 
     private final RunnableJobFinder runnableJobFinder;
     private final JobPersister jobPersister;
+    private final JobSchedulerMetrics metrics;
 
-    private final Object lock = new Object();
-    private final Semaphore startNextRunnableJobSemaphore = new Semaphore(1);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private final RequesterRegistry requesterRegistry = new RequesterRegistry();
+    private final JobIndex jobIndex = new JobIndex();
+    private volatile JobsSnapshot jobsSnapshot = JobsSnapshot.empty();
+    private CapacityLimits capacityLimits = CapacityLimits.unlimited();
+    private final Condition capacityAvailable = lock.newCondition();
+    private final Map<String, Integer> typeToNrJobs = new HashMap<>();
+    private final Map<String, Integer> typeToNrSpilledJobs = new HashMap<>();
+    private Duration horizon;
+    private Instant persistedOnlyAfter;
     private final AtomicBoolean unblockThreadsWithingOnNextRunnableJobImmediately = new AtomicBoolean(false);
+    private final Clock clock;
+    private Thread batchThread;
+    private Map<String, ScheduledJob> batchUndoLog;
+    /** The ids of the jobs changed by batches that commit concurrently and have not been committed yet. */
+    private final Set<String> jobIdsOfUncommittedBatches = new HashSet<>();
+    private int nrUncommittedBatches;
+    private int nrThreadsAwaitingUncommittedBatches;
+    private final Condition uncommittedBatchEnded = lock.newCondition();
 
     public JobScheduler(RunnableJobFinder runnableJobFinder, JobPersister jobPersister) {
+        this(runnableJobFinder, jobPersister, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a job scheduler that uses the specified clock. Pass the same clock to the runnable job finder, so that
+     * both agree on which jobs are runnable and which deadlines have passed.
+     * @param runnableJobFinder the runnable job finder
+     * @param jobPersister the job persister
+     * @param clock the clock used for deadlines, the horizon, heartbeats of requesters and the timeouts of methods
+     *              that wait; with a clock that does not advance, these methods never time out
+     */
+    public JobScheduler(RunnableJobFinder runnableJobFinder, JobPersister jobPersister, Clock clock) {
         this.runnableJobFinder = runnableJobFinder;
         this.jobPersister = jobPersister;
+        this.clock = clock;
+        this.metrics = new JobSchedulerMetrics(runnableJobFinder.getEstimatedBytesPerJob());
+    }
+
+    /**
+     * Sets the capacity limits. The limits apply to jobs that are scheduled after this method has been called.
+     * Jobs that are already present are never removed because of new limits.
+     * @param capacityLimits the capacity limits
+     */
+    public void setCapacityLimits(CapacityLimits capacityLimits) {
+        ensureIsNotNull(capacityLimits, "capacityLimits");
+        lock.lock();
+        try {
+            awaitNoUncommittedBatchesUnsynchronized(); // the overflow policy determines whether batches commit concurrently
+            this.capacityLimits = capacityLimits;
+            capacityAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CapacityLimits getCapacityLimits() {
+        lock.lock();
+        try {
+            return capacityLimits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the horizon of the job scheduler. Idle jobs that are scheduled further in the future than the horizon
+     * are only kept in the persister, so that the heap only holds the jobs that become due soon. Shortly before
+     * such jobs become due, they are loaded from the persister a time window at a time: when the horizon reaches
+     * the end of the loaded window, the jobs of the next window of twice the horizon are loaded.
+     * @param horizon the horizon; null to keep all jobs in memory
+     */
+    public void setHorizon(Duration horizon) {
+        if (horizon != null && (horizon.isNegative() || horizon.isZero())) {
+            throw new IllegalArgumentException("horizon must be positive");
+        }
+        lock.lock();
+        try {
+            awaitNoUncommittedBatchesUnsynchronized(); // a horizon prevents batches from committing concurrently
+            boolean jobsArePersistedOnly = persistedOnlyAfter != null;
+            this.horizon = horizon;
+            persistedOnlyAfter = horizon != null ? clock.instant().plus(horizon.multipliedBy(2)) : null;
+            if (horizon == null && jobsArePersistedOnly) {
+                loadPersistedJobs();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Determines whether all persisted jobs are kept in memory. That is the case if no horizon has been set and no
+     * jobs have been spilled to the persister. Then a job that is not present in the jobs of the job scheduler does
+     * not exist at all.
+     * @return true if all persisted jobs are kept in memory; false otherwise
+     */
+    public boolean keepsAllJobsInMemory() {
+        lock.lock();
+        try {
+            return persistedOnlyAfter == null && typeToNrSpilledJobs.isEmpty();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -27,26 +138,144 @@ public class JobScheduler {
      * your application starts and you jobs persisted in a database.
      */
     public void loadPersistedJobs() {
-        synchronized (lock) {
+        lock.lock();
+        try {
+            awaitNoUncommittedBatchesUnsynchronized();
             runnableJobFinder.removeAllScheduledJobs();
+            requesterRegistry.clear();
+            jobIndex.clear();
+            typeToNrJobs.clear();
+            typeToNrSpilledJobs.clear();
+            metrics.onAllJobsRemoved();
+            jobsSnapshot = jobsSnapshot.cleared();
+            Instant now = clock.instant();
+            persistedOnlyAfter = horizon != null ? now.plus(horizon.multipliedBy(2)) : null;
+            JobsSnapshot snapshot = jobsSnapshot;
             for (ScheduledJob job : jobPersister.findAllJobs()) {
+                if (job.getState() == IDLE && isBeyondHorizonUnsynchronized(job.getJob())) {
+                    continue;
+                }
+                String type = job.getJob().getType();
+                if (capacityLimits.getOverflowPolicy() == OverflowPolicy.SPILL && job.getState() == IDLE
+                        && !hasCapacityForUnsynchronized(type, snapshot.size())) {
+                    typeToNrSpilledJobs.merge(type, 1, Integer::sum);
+                    continue;
+                }
+                if (job.getState() == RUNNING && job.getRequesterId() != null) {
+                    // The running jobs of a requester share the instance of the requester id kept by the registry
+                    String requesterId = requesterRegistry.intern(job.getRequesterId(), now);
+                    job = new ScheduledJob(job.getJob(), RUNNING, requesterId, job.getTimeoutAtInstant());
+                    requesterRegistry.addRunningJob(requesterId, job.getJob().getId(), now);
+                }
                 runnableJobFinder.addJob(job);
+                typeToNrJobs.merge(type, 1, Integer::sum);
+                metrics.onJobAdded(job);
+                snapshot = snapshot.with(job);
+                jobIndex.add(job);
             }
-            lock.notify();
-       }
+            jobsSnapshot = snapshot;
+            signalAllWaiters();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * Schedules a new job. The job will have the state idle.
+     *
+     * <p>If the job has a coalescing key and the runnable job finder knows an idle job with the same coalescing key,
+     * then the job is coalesced with that idle job: the idle job is kept and the new job is dropped without being
+     * added or persisted. The idle job will do the work of the new job when it runs. If the new job is scheduled
+     * earlier or has an earlier deadline, then the idle job takes over that scheduled at instant or deadline, so that
+     * coalescing never delays the work of the new job.
+     *
+     * <p>If the capacity limits have been reached, then the overflow policy of the {@link CapacityLimits} determines
+     * whether the job is rejected, the calling thread waits for room, or the job is spilled to the persister.
+     *
+     * <p>If a horizon has been set and the job is scheduled beyond the horizon, then the job is only persisted.
      * @param job the job
+     * @throws QueueFullException if the job is rejected because the capacity limits have been reached
      */
     public void schedule(Job job) {
         ensureIsNotNull(job, "job");
-        synchronized (lock) {
+        lock.lock();
+        try {
+            ScheduledJob idleJob = findIdleJobToCoalesceWithUnsynchronized(job);
+            if (idleJob != null) {
+                coalesceUnsynchronized(idleJob, job);
+                metrics.onJobCoalesced();
+                return;
+            }
+            if (isBeyondHorizonUnsynchronized(job)) {
+                jobPersister.create(new ScheduledJob(job, IDLE));
+                metrics.onJobPersistedBeyondHorizon();
+                return;
+            }
+            if (!hasCapacityForUnsynchronized(job.getType(), jobsSnapshot.size())) {
+                switch (capacityLimits.getOverflowPolicy()) {
+                    case REJECT:
+                        metrics.onJobRejected();
+                        throw new QueueFullException("Cannot schedule job with id " + job.getId() + " of type "
+                                + job.getType() + " because the capacity limits have been reached");
+                    case BLOCK:
+                        awaitCapacityUnsynchronized(job);
+                        break;
+                    case SPILL:
+                        jobPersister.create(new ScheduledJob(job, IDLE));
+                        typeToNrSpilledJobs.merge(job.getType(), 1, Integer::sum);
+                        metrics.onJobSpilled();
+                        return;
+                }
+            }
             ScheduledJob scheduledJob = new ScheduledJob(job, IDLE);
-            runnableJobFinder.addJob(scheduledJob);
+            addJobUnsynchronized(scheduledJob);
             jobPersister.create(scheduledJob);
-            lock.notify();
+            signalWaiter(job.getType());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the idle job with the same coalescing key as a new job. Waits until neither the new job nor the idle job
+     * is changed by a batch that has not been committed yet.
+     * @param job the new job
+     * @return the idle job; null if the new job has no coalescing key or no idle job has the same coalescing key
+     */
+    private ScheduledJob findIdleJobToCoalesceWithUnsynchronized(Job job) {
+        while (true) {
+            awaitJobCommittedUnsynchronized(job.getId());
+            if (job.getCoalescingKey() == null) {
+                return null;
+            }
+            ScheduledJob idleJob = runnableJobFinder.findIdleJobByCoalescingKey(job.getCoalescingKey());
+            if (idleJob == null || !jobIdsOfUncommittedBatches.contains(idleJob.getJob().getId())) {
+                return idleJob;
+            }
+            awaitJobCommittedUnsynchronized(idleJob.getJob().getId());
+        }
+    }
+
+    /**
+     * Coalesces a new job with an idle job. The idle job gets the earliest scheduled at instant and the earliest
+     * deadline of both jobs. A job without scheduled at instant can be started immediately; a job without deadline
+     * has no deadline at all.
+     */
+    private void coalesceUnsynchronized(ScheduledJob idleJob, Job newJob) {
+        Job job = idleJob.getJob();
+        Job coalescedJob = job;
+        if (job.getScheduledAtInstant() != null && (newJob.getScheduledAtInstant() == null
+                || newJob.getScheduledAtInstant().isBefore(job.getScheduledAtInstant()))) {
+            coalescedJob = coalescedJob.withScheduledAtInstant(newJob.getScheduledAtInstant());
+        }
+        if (newJob.getDeadline() != null && (job.getDeadline() == null || newJob.getDeadline().isBefore(job.getDeadline()))) {
+            coalescedJob = coalescedJob.withDeadline(newJob.getDeadline());
+        }
+        if (coalescedJob != job) {
+            ScheduledJob scheduledJob = new ScheduledJob(coalescedJob, IDLE);
+            jobPersister.update(scheduledJob); // persisted first, so that a failure leaves the job unchanged in memory
+            updateJobUnsynchronized(scheduledJob);
+            signalWaiter(coalescedJob.getType());
         }
     }
 
@@ -56,16 +285,21 @@ public class JobScheduler {
      */
     public void reschedule(Job job) {
         ensureIsNotNull(job, "job");
-        synchronized (lock) {
+        lock.lock();
+        try {
+            awaitJobCommittedUnsynchronized(job.getId());
             ScheduledJob scheduledJob = getScheduledJob(job.getId());
             if (scheduledJob.getState() != RUNNING) {
                 throw new IllegalJobStateException("Cannot stop the job with id " + job.getId() + " because its state is "
                         + scheduledJob.getState() + " instead of " + RUNNING);
             }
+            requesterRegistry.onJobStopped(scheduledJob.getRequesterId(), job.getId());
             scheduledJob = scheduledJob.onReschedule();
-            runnableJobFinder.updateJob(scheduledJob);
+            updateJobUnsynchronized(scheduledJob);
             jobPersister.update(scheduledJob);
-            lock.notify();
+            signalWaiter(scheduledJob.getJob().getType());
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -76,15 +310,45 @@ public class JobScheduler {
      *     <li>remove a failed job that cannot be rescheduled (retried) anymore.</li>
      *     <li>remove a job that has been scheduled in the future but is no longer needed.</li>
      * </ul>
+     * A job that is not kept in memory, because it was scheduled beyond the horizon or spilled, is removed from
+     * the persister only.
      * @param jobId the id of the job
+     * @throws UnknownJobException if no job with the id exists
      */
     public void remove(String jobId) {
         ensureIsNotNull(jobId, "jobId");
-        synchronized (lock) {
-            getScheduledJob(jobId); // ensure the job exists
-            runnableJobFinder.removeJob(jobId);
+        lock.lock();
+        try {
+            awaitJobCommittedUnsynchronized(jobId);
+            if (runnableJobFinder.findById(jobId) == null && (persistedOnlyAfter != null || !typeToNrSpilledJobs.isEmpty())) {
+                removePersistedOnlyJobUnsynchronized(jobId); // the job can only exist in the persister
+                return;
+            }
+            ScheduledJob scheduledJob = getScheduledJob(jobId); // ensure the job exists
+            requesterRegistry.onJobStopped(scheduledJob.getRequesterId(), jobId);
+            removeJobUnsynchronized(jobId);
             jobPersister.remove(jobId);
-            lock.notify();
+            signalWaiter(scheduledJob.getJob().getType());
+            refillSpilledJobsUnsynchronized(scheduledJob.getJob().getType());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a job that is only kept in the persister. Such a job has either been scheduled beyond the horizon or
+     * it has been spilled. In the latter case the number of spilled jobs of its type must be lowered, otherwise
+     * the job scheduler would keep looking for spilled jobs that do not exist anymore.
+     */
+    private void removePersistedOnlyJobUnsynchronized(String jobId) {
+        ScheduledJob scheduledJob = jobPersister.findById(jobId);
+        if (scheduledJob == null) {
+            throw new UnknownJobException("No job exists with the id " + jobId);
+        }
+        jobPersister.remove(jobId);
+        if (!isBeyondHorizonUnsynchronized(scheduledJob.getJob())) {
+            typeToNrSpilledJobs.computeIfPresent(scheduledJob.getJob().getType(),
+                    (type, nrSpilledJobs) -> nrSpilledJobs > 1 ? nrSpilledJobs - 1 : null);
         }
     }
 
@@ -95,16 +359,21 @@ public class JobScheduler {
      */
     public void jobFailed(String jobId) {
         ensureIsNotNull(jobId, "jobId");
-        synchronized (lock) {
+        lock.lock();
+        try {
+            awaitJobCommittedUnsynchronized(jobId);
             ScheduledJob scheduledJob = getScheduledJob(jobId);
             if (scheduledJob.getState() != RUNNING) {
                 throw new IllegalJobStateException("Cannot stop the job with id " + jobId + " because its state is "
                         + scheduledJob.getState() + " instead of " + RUNNING);
             }
+            requesterRegistry.onJobStopped(scheduledJob.getRequesterId(), jobId);
             scheduledJob = scheduledJob.onError();
-            runnableJobFinder.updateJob(scheduledJob);
+            updateJobUnsynchronized(scheduledJob);
             jobPersister.update(scheduledJob);
-            lock.notify();
+            signalWaiter(scheduledJob.getJob().getType());
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -115,16 +384,312 @@ public class JobScheduler {
      */
     public void jobFinished(String jobId) {
         ensureIsNotNull(jobId, "jobId");
-        synchronized (lock) {
+        lock.lock();
+        try {
+            awaitJobCommittedUnsynchronized(jobId);
             ScheduledJob scheduledJob = getScheduledJob(jobId);
             if (scheduledJob.getState() != RUNNING) {
                 throw new IllegalJobStateException("Cannot stop the job with id " + jobId + " because its state is "
                         + scheduledJob.getState() + " instead of " + RUNNING);
             }
-            runnableJobFinder.removeJob(jobId);
+            requesterRegistry.onJobStopped(scheduledJob.getRequesterId(), jobId);
+            removeJobUnsynchronized(jobId);
             jobPersister.remove(jobId);
-            lock.notify();
+            signalWaiter(scheduledJob.getJob().getType());
+            refillSpilledJobsUnsynchronized(scheduledJob.getJob().getType());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Notify the job scheduler about jobs that finished with a failure, for example the jobs of a batch.
+     * Only allowed if all jobs have state running. Either the state of all jobs is changed to error,
+     * or, if one of the jobs does not exist or is not running, none of the jobs is changed. The jobs are changed
+     * in a batch (see {@link #runBatch(Runnable)}), so if the persister fails for one of the jobs, then the jobs in
+     * memory are restored too. Call this method in a transaction to persist the changes atomically as well.
+     * @param jobIds the ids of the jobs
+     */
+    public void jobsFailed(List<String> jobIds) {
+        ensureIsNotNull(jobIds, "jobIds");
+        runBatch(() -> {
+            for (ScheduledJob scheduledJob : getRunningScheduledJobs(jobIds)) {
+                requesterRegistry.onJobStopped(scheduledJob.getRequesterId(), scheduledJob.getJob().getId());
+                scheduledJob = scheduledJob.onError();
+                updateJobUnsynchronized(scheduledJob);
+                jobPersister.update(scheduledJob);
+                signalWaiter(scheduledJob.getJob().getType());
+            }
+        });
+    }
+
+    /**
+     * Notify the job scheduler about jobs that finished successfully, for example the jobs of a batch.
+     * Only allowed if all jobs have state running. Either all jobs are removed from the scheduler,
+     * or, if one of the jobs does not exist or is not running, none of the jobs is removed. The jobs are removed
+     * in a batch (see {@link #runBatch(Runnable)}), so if the persister fails for one of the jobs, then the jobs in
+     * memory are restored too. Call this method in a transaction to persist the changes atomically as well.
+     * @param jobIds the ids of the jobs
+     */
+    public void jobsFinished(List<String> jobIds) {
+        ensureIsNotNull(jobIds, "jobIds");
+        runBatch(() -> {
+            for (ScheduledJob scheduledJob : getRunningScheduledJobs(jobIds)) {
+                String jobId = scheduledJob.getJob().getId();
+                requesterRegistry.onJobStopped(scheduledJob.getRequesterId(), jobId);
+                removeJobUnsynchronized(jobId);
+                jobPersister.remove(jobId);
+                signalWaiter(scheduledJob.getJob().getType());
+                refillSpilledJobsUnsynchronized(scheduledJob.getJob().getType());
+            }
+        });
+    }
+
+    /**
+     * Determines whether a job of the specified type can be scheduled without exceeding the capacity limits.
+     * Job ingesters use this method to stop consuming new jobs while the job scheduler is full. With the policy
+     * {@link OverflowPolicy#SPILL} there is always room, because jobs that do not fit are spilled to the persister.
+     * @param type the type of the job
+     * @return true if there is room for a job of the type; false otherwise
+     */
+    public boolean hasCapacityFor(String type) {
+        lock.lock();
+        try {
+            return capacityLimits.getOverflowPolicy() == OverflowPolicy.SPILL
+                    || hasCapacityForUnsynchronized(type, jobsSnapshot.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasCapacityForUnsynchronized(String type, int nrJobs) {
+        int maxNrJobs = capacityLimits.getMaxNrJobs();
+        if (maxNrJobs > 0 && nrJobs >= maxNrJobs) {
+            return false;
+        }
+        long maxMemoryBytes = capacityLimits.getMaxMemoryBytes();
+        if (maxMemoryBytes > 0 && metrics.getMemoryUsage().getTotalBytes() >= maxMemoryBytes) {
+            return false;
+        }
+        Integer maxNrJobsOfType = capacityLimits.getMaxNrJobsOfType(type);
+        return maxNrJobsOfType == null || typeToNrJobs.getOrDefault(type, 0) < maxNrJobsOfType;
+    }
+
+    private void awaitCapacityUnsynchronized(Job job) {
+        if (batchThread == Thread.currentThread()) {
+            // Waiting would release the lock in the middle of the batch, so other threads would see its changes
+            metrics.onJobRejected();
+            throw new QueueFullException("Cannot schedule job with id " + job.getId() + " of type " + job.getType()
+                    + " because the capacity limits have been reached and a batch cannot wait for room");
+        }
+        long endTime = clock.millis() + capacityLimits.getBlockTimeoutMilliseconds();
+        while (!hasCapacityForUnsynchronized(job.getType(), jobsSnapshot.size())) {
+            long waitTime = endTime - clock.millis();
+            if (waitTime <= 0) {
+                metrics.onJobRejected();
+                throw new QueueFullException("Cannot schedule job with id " + job.getId() + " of type " + job.getType()
+                        + " because no room became available within " + capacityLimits.getBlockTimeoutMilliseconds() + " ms");
+            }
+            try {
+                capacityAvailable.await(waitTime, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QueueFullException("Interrupted while waiting for room for job with id " + job.getId());
+            }
+        }
+    }
+
+    /**
+     * Reads spilled jobs back from the persister after a job has been removed from the persister. This only happens
+     * once the number of jobs has dropped to 90% of a limit that caused jobs to be spilled, so that the persisted
+     * jobs are not read again after every removed job.
+     */
+    private void refillSpilledJobsUnsynchronized(String typeOfRemovedJob) {
+        if (typeToNrSpilledJobs.isEmpty() || !isBelowRefillThreshold(typeOfRemovedJob)) {
+            return;
+        }
+        for (String type : new ArrayList<>(typeToNrSpilledJobs.keySet())) {
+            refillSpilledJobsOfTypeUnsynchronized(type);
+        }
+    }
+
+    /**
+     * Reads as many spilled jobs of a type back as fit within the capacity limits. The persister cannot tell spilled
+     * jobs apart from the idle jobs that are kept in memory, so it is asked for as many more jobs as there are jobs
+     * of the type in memory. Thus the persister returns enough spilled jobs, while it never returns more jobs than
+     * the capacity limits allow to keep in memory.
+     */
+    private void refillSpilledJobsOfTypeUnsynchronized(String type) {
+        int nrSpilledJobs = typeToNrSpilledJobs.get(type);
+        int maxNrJobsToLoad = Math.min(nrSpilledJobs, getFreeCapacityUnsynchronized(type));
+        if (maxNrJobsToLoad == 0) {
+            return;
+        }
+        int maxNrJobsToFind = (int) Math.min(Integer.MAX_VALUE, (long) typeToNrJobs.getOrDefault(type, 0) + maxNrJobsToLoad);
+        List<ScheduledJob> idleJobs = jobPersister.findIdleJobsOfType(type, persistedOnlyAfter, maxNrJobsToFind);
+        int nrSpilledJobsFound = 0;
+        int nrLoadedJobs = 0;
+        for (ScheduledJob scheduledJob : idleJobs) {
+            if (jobsSnapshot.findById(scheduledJob.getJob().getId()) != null) {
+                continue;
+            }
+            nrSpilledJobsFound++;
+            if (nrLoadedJobs < maxNrJobsToLoad && hasCapacityForUnsynchronized(type, jobsSnapshot.size())) {
+                addJobUnsynchronized(scheduledJob);
+                signalWaiter(type);
+                nrLoadedJobs++;
+            }
+        }
+
+        int nrRemainingSpilledJobs = nrSpilledJobs - nrLoadedJobs;
+        if (idleJobs.size() < maxNrJobsToFind) {
+            // All idle jobs of the type have been found. Spilled jobs that were not found have been removed from
+            // the persister by someone else.
+            nrRemainingSpilledJobs = nrSpilledJobsFound - nrLoadedJobs;
+        }
+        if (nrRemainingSpilledJobs > 0) {
+            typeToNrSpilledJobs.put(type, nrRemainingSpilledJobs);
+        } else {
+            typeToNrSpilledJobs.remove(type);
+        }
+    }
+
+    /**
+     * Determines how many more jobs of a type fit within the capacity limits. For the memory budget the number of
+     * jobs is estimated from the average memory usage of the jobs in memory.
+     */
+    private int getFreeCapacityUnsynchronized(String type) {
+        long freeCapacity = Integer.MAX_VALUE;
+        int nrJobs = jobsSnapshot.size();
+        int maxNrJobs = capacityLimits.getMaxNrJobs();
+        if (maxNrJobs > 0) {
+            freeCapacity = Math.min(freeCapacity, maxNrJobs - nrJobs);
+        }
+        long maxMemoryBytes = capacityLimits.getMaxMemoryBytes();
+        long totalBytes = metrics.getMemoryUsage().getTotalBytes();
+        if (maxMemoryBytes > 0 && nrJobs > 0 && totalBytes > 0) {
+            freeCapacity = Math.min(freeCapacity, (maxMemoryBytes - totalBytes) / (totalBytes / nrJobs + 1));
+        }
+        Integer maxNrJobsOfType = capacityLimits.getMaxNrJobsOfType(type);
+        if (maxNrJobsOfType != null) {
+            freeCapacity = Math.min(freeCapacity, maxNrJobsOfType - typeToNrJobs.getOrDefault(type, 0));
+        }
+        return (int) Math.max(0, freeCapacity);
+    }
+
+    private boolean isBeyondHorizonUnsynchronized(Job job) {
+        return persistedOnlyAfter != null && job.getScheduledAtInstant() != null
+                && job.getScheduledAtInstant().isAfter(persistedOnlyAfter);
+    }
+
+    /**
+     * Loads the next time window of jobs from the persister once the horizon has reached the end of the window
+     * that has been loaded.
+     */
+    private void prefetchJobsWithinHorizonUnsynchronized() {
+        if (persistedOnlyAfter == null) {
+            return;
+        }
+        Instant now = clock.instant();
+        if (!now.plus(horizon).isAfter(persistedOnlyAfter)) {
+            return;
         }
+        Instant endOfWindow = now.plus(horizon.multipliedBy(2));
+        int nrPrefetchedJobs = 0;
+        for (ScheduledJob scheduledJob : jobPersister.findIdleJobsScheduledBetween(persistedOnlyAfter, endOfWindow)) {
+            String type = scheduledJob.getJob().getType();
+            if (jobsSnapshot.findById(scheduledJob.getJob().getId()) != null) {
+                continue;
+            }
+            if (capacityLimits.getOverflowPolicy() == OverflowPolicy.SPILL && !hasCapacityForUnsynchronized(type, jobsSnapshot.size())) {
+                typeToNrSpilledJobs.merge(type, 1, Integer::sum);
+                continue;
+            }
+            addJobUnsynchronized(scheduledJob);
+            signalWaiter(type);
+            nrPrefetchedJobs++;
+        }
+        persistedOnlyAfter = endOfWindow;
+        metrics.onJobsPrefetched(nrPrefetchedJobs);
+    }
+
+    private boolean isBelowRefillThreshold(String type) {
+        int maxNrJobs = capacityLimits.getMaxNrJobs();
+        if (maxNrJobs > 0 && jobsSnapshot.size() <= maxNrJobs * 9L / 10) {
+            return true;
+        }
+        long maxMemoryBytes = capacityLimits.getMaxMemoryBytes();
+        if (maxMemoryBytes > 0 && metrics.getMemoryUsage().getTotalBytes() <= maxMemoryBytes / 10 * 9) {
+            return true;
+        }
+        Integer maxNrJobsOfType = capacityLimits.getMaxNrJobsOfType(type);
+        return maxNrJobsOfType != null && typeToNrSpilledJobs.containsKey(type)
+                && typeToNrJobs.getOrDefault(type, 0) <= maxNrJobsOfType * 9L / 10;
+    }
+
+    private void addJobUnsynchronized(ScheduledJob scheduledJob) {
+        recordUndoUnsynchronized(scheduledJob.getJob().getId());
+        runnableJobFinder.addJob(scheduledJob);
+        jobsSnapshot = jobsSnapshot.with(scheduledJob);
+        jobIndex.add(scheduledJob);
+        typeToNrJobs.merge(scheduledJob.getJob().getType(), 1, Integer::sum);
+        metrics.onJobAdded(scheduledJob);
+    }
+
+    private void updateJobUnsynchronized(ScheduledJob scheduledJob) {
+        recordUndoUnsynchronized(scheduledJob.getJob().getId());
+        runnableJobFinder.updateJob(scheduledJob);
+        ScheduledJob oldScheduledJob = jobsSnapshot.findById(scheduledJob.getJob().getId());
+        String type = scheduledJob.getJob().getType();
+        if (oldScheduledJob != null) {
+            jobIndex.remove(oldScheduledJob);
+            metrics.onJobRemoved(oldScheduledJob);
+        }
+        if (oldScheduledJob == null || !oldScheduledJob.getJob().getType().equals(type)) {
+            if (oldScheduledJob != null) {
+                decrementNrJobsOfType(oldScheduledJob.getJob().getType());
+            }
+            typeToNrJobs.merge(type, 1, Integer::sum);
+        }
+        jobIndex.add(scheduledJob);
+        metrics.onJobAdded(scheduledJob);
+        jobsSnapshot = jobsSnapshot.with(scheduledJob);
+    }
+
+    private void removeJobUnsynchronized(String jobId) {
+        recordUndoUnsynchronized(jobId);
+        runnableJobFinder.removeJob(jobId);
+        ScheduledJob oldScheduledJob = jobsSnapshot.findById(jobId);
+        if (oldScheduledJob == null) {
+            return;
+        }
+        jobIndex.remove(oldScheduledJob);
+        decrementNrJobsOfType(oldScheduledJob.getJob().getType());
+        metrics.onJobRemoved(oldScheduledJob);
+        jobsSnapshot = jobsSnapshot.without(jobId);
+        capacityAvailable.signalAll();
+    }
+
+    private void decrementNrJobsOfType(String type) {
+        typeToNrJobs.computeIfPresent(type, (t, nrJobs) -> nrJobs > 1 ? nrJobs - 1 : null);
+    }
+
+    private List<ScheduledJob> getRunningScheduledJobs(List<String> jobIds) {
+        List<ScheduledJob> scheduledJobs = new ArrayList<>(jobIds.size());
+        Set<String> distinctJobIds = new HashSet<>();
+        for (String jobId : jobIds) {
+            if (!distinctJobIds.add(jobId)) {
+                throw new IllegalJobStateException("Cannot stop the job with id " + jobId + " twice");
+            }
+            awaitJobCommittedUnsynchronized(jobId);
+            ScheduledJob scheduledJob = getScheduledJob(jobId);
+            if (scheduledJob.getState() != RUNNING) {
+                throw new IllegalJobStateException("Cannot stop the job with id " + jobId + " because its state is "
+                        + scheduledJob.getState() + " instead of " + RUNNING);
+            }
+            scheduledJobs.add(scheduledJob);
+        }
+        return scheduledJobs;
     }
 
     private ScheduledJob getScheduledJob(String jobId) {
@@ -142,8 +707,12 @@ public class JobScheduler {
      */
     public Job tryStartNextRunnableJob(String jobRequesterId) {
         ensureIsNotNull(jobRequesterId, "jobRequesterId");
-        synchronized (lock) {
-            return tryStartNextRunnableJobUnsynchronized(jobRequesterId);
+        lock.lock();
+        try {
+            ScheduledJob startedJob = tryStartNextRunnableJobUnsynchronized(jobRequesterId, null);
+            return startedJob != null ? startedJob.getJob() : null;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -154,82 +723,593 @@ public class JobScheduler {
      * @return the started job or null if no job can be started right now
      */
     public Job startNextRunnableJob(String jobRequesterId, long timeoutMilliseconds) {
+        return startNextRunnableJob(jobRequesterId, null, timeoutMilliseconds);
+    }
+
+    /**
+     * Starts a job of one of the accepted types. If no such job is runnable at the moment, wait at most the specified
+     * amount in milliseconds for a job to become runnable. Scheduling or finishing a job only wakes up a waiting
+     * thread that accepts the type of that job.
+     * @param jobRequesterId the identifier of the the application that will execute the job
+     * @param acceptedTypes the types of jobs that the requester can execute; null if it can execute jobs of any type
+     * @param timeoutMilliseconds the maximum time to wait for a runnable job. Must be at least zero.
+     * @return the started job or null if no job can be started right now
+     */
+    public Job startNextRunnableJob(String jobRequesterId, Set<String> acceptedTypes, long timeoutMilliseconds) {
+        List<Job> jobs = startNextRunnableJobs(jobRequesterId, acceptedTypes, 1, timeoutMilliseconds);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    /**
+     * Starts a batch of jobs of the same type. If no job is runnable at the moment, wait at most the specified amount
+     * in milliseconds for a job to become runnable. As soon as one job is runnable, the batch is completed with
+     * runnable jobs of the same type that the runnable job finder returns by
+     * {@link RunnableJobFinder#findNextRunnableJobOfType(String)}, without waiting any further.
+     * All jobs of the batch get the same time out instant, so the requester can handle them as one unit.
+     * Use {@link #jobsFinished(List)} and {@link #jobsFailed(List)} to report the result of the batch.
+     * @param jobRequesterId the identifier of the the application that will execute the jobs
+     * @param maxNrJobs the maximum number of jobs to start. Must be at least one.
+     * @param timeoutMilliseconds the maximum time to wait for a runnable job. Must be at least zero.
+     * @return the started jobs; an empty list if no job can be started right now
+     */
+    public List<Job> startNextRunnableJobs(String jobRequesterId, int maxNrJobs, long timeoutMilliseconds) {
+        return startNextRunnableJobs(jobRequesterId, null, maxNrJobs, timeoutMilliseconds);
+    }
+
+    /**
+     * Starts a batch of jobs of the same type, which is one of the accepted types. See
+     * {@link #startNextRunnableJobs(String, int, long)} and {@link #startNextRunnableJob(String, Set, long)}.
+     * @param jobRequesterId the identifier of the the application that will execute the jobs
+     * @param acceptedTypes the types of jobs that the requester can execute; null if it can execute jobs of any type
+     * @param maxNrJobs the maximum number of jobs to start. Must be at least one.
+     * @param timeoutMilliseconds the maximum time to wait for a runnable job. Must be at least zero.
+     * @return the started jobs; an empty list if no job can be started right now
+     */
+    public List<Job> startNextRunnableJobs(String jobRequesterId, Set<String> acceptedTypes, int maxNrJobs, long timeoutMilliseconds) {
         ensureIsNotNull(jobRequesterId, "jobRequesterId");
+        if (acceptedTypes != null && acceptedTypes.isEmpty()) {
+            throw new IllegalArgumentException("acceptedTypes must not be empty");
+        }
+        if (maxNrJobs < 1) {
+            throw new IllegalArgumentException("maxNrJobs must be at least one");
+        }
         if (timeoutMilliseconds < 0) {
             throw new IllegalArgumentException("timeoutMilliseconds must be at least zero");
         }
 
-        long endTime = System.currentTimeMillis() + timeoutMilliseconds;
-        // The semaphore is used to ensure only one thread at a time tries to start a job. If no job is runnable now,
-        // then busy waiting is with exponential backoff is applied, and that is something that should be done by
-        // at most one thread.
+        long endTime = clock.millis() + timeoutMilliseconds;
+        // Each waiting thread has a condition of its own, so that a change to a job only wakes up a thread that
+        // accepts the type of that job. A thread that is not woken up tries again when its wait time has passed:
+        // when the runnable job finder expects the next job to become runnable, or else after an exponential backoff.
+        // The waiter is only created once the thread actually has to wait.
+        Waiter waiter = null;
+        long delay = 10;
+        lock.lock();
         try {
-            boolean acquiredPermit = startNextRunnableJobSemaphore.tryAcquire(timeoutMilliseconds, TimeUnit.MILLISECONDS);
-            if (!acquiredPermit) {
-                return null;
+            requesterRegistry.onHeartbeat(jobRequesterId, clock.instant());
+            while (!unblockThreadsWithingOnNextRunnableJobImmediately.get()) {
+                ScheduledJob startedJob = tryStartNextRunnableJobUnsynchronized(jobRequesterId, acceptedTypes);
+                if (startedJob != null) {
+                    return completeBatchUnsynchronized(startedJob, jobRequesterId, maxNrJobs);
+                }
+                if (clock.millis() >= endTime) {
+                    return emptyList();
+                }
+                if (waiter == null) {
+                    waiter = new Waiter(acceptedTypes, lock.newCondition());
+                }
+                waiters.add(waiter);
+                try {
+                    waiter.condition.await(determineWaitTime(acceptedTypes, delay, endTime), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return emptyList();
+                } finally {
+                    waiters.remove(waiter);
+                    waiter.signalled = false;
+                }
+                delay = Math.min(2 * delay, 1000);
             }
-        } catch (InterruptedException e) {
+        } finally {
+            lock.unlock();
+        }
+        return emptyList();
+    }
+
+    /**
+     * Wakes up the longest waiting thread that accepts jobs of the specified type and that has not been
+     * woken up yet.
+     */
+    private void signalWaiter(String type) {
+        for (Waiter waiter : waiters) {
+            if (!waiter.signalled && waiter.accepts(type)) {
+                waiter.signalled = true;
+                waiter.condition.signal();
+                return;
+            }
+        }
+    }
+
+    private void signalAllWaiters() {
+        for (Waiter waiter : waiters) {
+            waiter.signalled = true;
+            waiter.condition.signal();
+        }
+    }
+
+    /**
+     * Determines how long to wait for a job of one of the accepted types to become runnable. If the runnable job
+     * finder knows when the next job of these types becomes runnable, then wait exactly until then. Otherwise use
+     * the delay of the exponential backoff. An instant in the past means that the job that the runnable job finder
+     * expected to be runnable could not be started by this thread, so then the backoff is used too.
+     */
+    private long determineWaitTime(Set<String> acceptedTypes, long backoffDelay, long endTime) {
+        Instant nextRunnableInstant = runnableJobFinder.getNextRunnableInstant(acceptedTypes);
+        if (nextRunnableInstant == null) {
+            return backoffDelay;
+        }
+        long now = clock.millis();
+        long delayUntilRunnable = nextRunnableInstant.toEpochMilli() - now;
+        if (delayUntilRunnable < 0) {
+            return backoffDelay;
+        }
+        long waitTime = Math.min(delayUntilRunnable, endTime - now);
+        return Math.max(1, waitTime);
+    }
+
+    private ScheduledJob tryStartNextRunnableJobUnsynchronized(String jobRequesterId, Set<String> acceptedTypes) {
+        prefetchJobsWithinHorizonUnsynchronized();
+        Instant now = clock.instant();
+        ScheduledJob scheduledJob = findNextRunnableJobUnsynchronized(acceptedTypes, null, now);
+        if (scheduledJob == null) {
             return null;
         }
+        return start(scheduledJob, jobRequesterId, runnableJobFinder.getTimeoutInstant(scheduledJob.getJob()), now);
+    }
+
+    private List<Job> completeBatchUnsynchronized(ScheduledJob firstStartedJob, String jobRequesterId, int maxNrJobs) {
+        List<Job> jobs = new ArrayList<>(maxNrJobs);
+        jobs.add(firstStartedJob.getJob());
+        String type = firstStartedJob.getJob().getType();
+        Instant now = clock.instant();
+        while (jobs.size() < maxNrJobs) {
+            ScheduledJob scheduledJob = findNextRunnableJobUnsynchronized(null, type, now);
+            if (scheduledJob == null) {
+                break;
+            }
+            jobs.add(start(scheduledJob, jobRequesterId, firstStartedJob.getTimeoutAtInstant(), now).getJob());
+        }
+        return jobs;
+    }
+
+    /**
+     * Finds the next runnable job of the specified type, or else of one of the accepted types. Jobs whose deadline
+     * has passed are expired. The finder is selected by the parameters instead of a lambda, so that dispatching a
+     * job does not allocate a capturing lambda.
+     * @param acceptedTypes the accepted types; null if jobs of any type are accepted
+     * @param type the type of the job; null if the accepted types determine the type
+     * @param now the current instant
+     * @return the next idle job whose deadline has not passed; null if no such job is runnable
+     */
+    private ScheduledJob findNextRunnableJobUnsynchronized(Set<String> acceptedTypes, String type, Instant now) {
+        while (true) {
+            ScheduledJob scheduledJob;
+            if (type != null) {
+                scheduledJob = runnableJobFinder.findNextRunnableJobOfType(type);
+            } else if (acceptedTypes != null) {
+                scheduledJob = runnableJobFinder.findNextRunnableJobOfTypes(acceptedTypes);
+            } else {
+                scheduledJob = runnableJobFinder.findNextRunnableJob();
+            }
+            if (scheduledJob == null) {
+                return null;
+            }
+            if (jobIdsOfUncommittedBatches.contains(scheduledJob.getJob().getId())) {
+                return null; // the waiting threads are signalled once the batch of the job has been committed
+            }
+            if (scheduledJob.getState() != IDLE) {
+                throw new IllegalJobStateException("Cannot start job with id " + scheduledJob.getJob().getId() + " because its state is "
+                        + scheduledJob.getState() + " instead of " + IDLE);
+            }
+            if (!scheduledJob.getJob().isDeadlineMissed(now)) {
+                return scheduledJob;
+            }
+            expire(scheduledJob);
+        }
+    }
+
+    private ScheduledJob start(ScheduledJob scheduledJob, String jobRequesterId, Instant timeoutInstant, Instant now) {
+        scheduledJob = scheduledJob.onStart(requesterRegistry.intern(jobRequesterId, now), timeoutInstant);
+        jobPersister.update(scheduledJob); // persisted first, so that a failure leaves the job unchanged in memory
+        updateJobUnsynchronized(scheduledJob);
+        requesterRegistry.onJobStarted(jobRequesterId, scheduledJob.getJob().getId(), now);
+        return scheduledJob;
+    }
+
+    /**
+     * Expires a job whose deadline has passed, so that it no longer occupies a worker.
+     */
+    private void expire(ScheduledJob scheduledJob) {
+        scheduledJob = scheduledJob.onExpire();
+        jobPersister.update(scheduledJob);
+        updateJobUnsynchronized(scheduledJob);
+        metrics.onDeadlineMissed();
+    }
+
+    /**
+     * Registers that the requester is alive. A requester that executes jobs must send heartbeats regularly, otherwise
+     * {@link #reclaimJobsOfDeadRequesters(Duration)} considers it dead. Requesting or starting a job also counts
+     * as a heartbeat.
+     * @param jobRequesterId the identifier of the requester
+     */
+    public void heartbeat(String jobRequesterId) {
+        ensureIsNotNull(jobRequesterId, "jobRequesterId");
+        lock.lock();
+        try {
+            requesterRegistry.onHeartbeat(jobRequesterId, clock.instant());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the running jobs of a requester. Uses an index from requester to jobs, so no scan of all jobs is needed.
+     * @param jobRequesterId the identifier of the requester
+     * @return the running jobs of the requester
+     */
+    public List<ScheduledJob> findRunningJobsOfRequester(String jobRequesterId) {
+        ensureIsNotNull(jobRequesterId, "jobRequesterId");
+        lock.lock();
         try {
-            long delay = 10;
-            synchronized (lock) {
-                while (!unblockThreadsWithingOnNextRunnableJobImmediately.get()) {
-                    Job job = tryStartNextRunnableJobUnsynchronized(jobRequesterId);
-                    if (job != null || System.currentTimeMillis() >= endTime) {
-                        return job;
-                    }
-                    try {
-                        lock.wait(delay);
-                    } catch (InterruptedException e) {
-                        return null;
-                    }
-                    delay = Math.min(2 * delay, 1000);
-                }
+            List<ScheduledJob> scheduledJobs = new ArrayList<>();
+            for (String jobId : requesterRegistry.getJobIds(jobRequesterId)) {
+                scheduledJobs.add(getScheduledJob(jobId));
             }
+            return scheduledJobs;
         } finally {
-            startNextRunnableJobSemaphore.release();
+            lock.unlock();
         }
-        return null;
     }
 
-    private Job tryStartNextRunnableJobUnsynchronized(String jobRequesterId) {
-        ScheduledJob scheduledJob = runnableJobFinder.findNextRunnableJob();
-        if (scheduledJob == null) {
-			return null;
-		}
-
-        Job jobToStart = scheduledJob.getJob();
-        if (scheduledJob.getState() != IDLE) {
-			throw new IllegalJobStateException("Cannot start job with id " + jobToStart.getId() + " because its state is "
-					+ scheduledJob.getState() + " instead of " + IDLE);
-		}
-        scheduledJob = scheduledJob.onStart(jobRequesterId, runnableJobFinder.getTimeoutInstant(jobToStart));
-        runnableJobFinder.updateJob(scheduledJob);
-        jobPersister.update(scheduledJob);
-        return jobToStart;
+    /**
+     * Reclaims the jobs of requesters that have not been seen for longer than the heartbeat timeout. These requesters
+     * are considered dead: they are forgotten and their running jobs get state idle again, so that other requesters
+     * can execute them. The reclaimed jobs are persisted with a single call to {@link JobPersister#updateAll(List)}.
+     * @param heartbeatTimeout the maximum time between two heartbeats of a living requester
+     * @return the reclaimed jobs
+     */
+    public List<Job> reclaimJobsOfDeadRequesters(Duration heartbeatTimeout) {
+        ensureIsNotNull(heartbeatTimeout, "heartbeatTimeout");
+        lock.lock();
+        try {
+            awaitNoUncommittedBatchesUnsynchronized();
+            List<String> jobIds = requesterRegistry.removeRequestersNotSeenSince(clock.instant().minus(heartbeatTimeout));
+            if (jobIds.isEmpty()) {
+                return emptyList();
+            }
+            List<ScheduledJob> reclaimedJobs = new ArrayList<>(jobIds.size());
+            for (String jobId : jobIds) {
+                reclaimedJobs.add(getScheduledJob(jobId).onReschedule());
+            }
+            try {
+                jobPersister.updateAll(reclaimedJobs);
+            } catch (RuntimeException e) {
+                // The jobs are still running, so keep them as running jobs of their requesters
+                Instant now = clock.instant();
+                for (String jobId : jobIds) {
+                    requesterRegistry.addRunningJob(getScheduledJob(jobId).getRequesterId(), jobId, now);
+                }
+                throw e;
+            }
+            for (ScheduledJob scheduledJob : reclaimedJobs) {
+                updateJobUnsynchronized(scheduledJob);
+            }
+            metrics.onJobsReclaimed(reclaimedJobs.size());
+
+            List<Job> jobs = new ArrayList<>(reclaimedJobs.size());
+            for (ScheduledJob scheduledJob : reclaimedJobs) {
+                jobs.add(scheduledJob.getJob());
+                signalWaiter(scheduledJob.getJob().getType());
+            }
+            return jobs;
+        } finally {
+            lock.unlock();
+        }
     }
 
+    /**
+     * Runs an action while holding the lock of the job scheduler, so that other threads cannot see or change the
+     * jobs until the action has finished. Let the action start and end the transaction in which the jobs are
+     * persisted.
+     *
+     * <p>While the action runs, the state that each changed job had before the batch is kept in an undo log. If the
+     * action throws an exception, then the transaction has been rolled back and the changes of the batch are undone
+     * with the undo log, so that the jobs in memory match the persisted jobs again. Only the jobs changed by the
+     * batch are touched. Only if undoing fails, all jobs are reloaded with {@link #loadPersistedJobs()}. The runnable
+     * job finder is told when the batch starts and ends, so that it can restore the order of the jobs that the batch
+     * removed.
+     *
+     * <p>The batch starts once all batches that commit concurrently, see
+     * {@link #runBatchCommittedConcurrently(Consumer)}, have been committed.
+     * @param runnable the action
+     */
     public void runBatch(Runnable runnable) {
-        synchronized (lock) {
-            runnable.run();
+        lock.lock();
+        try {
+            if (batchUndoLog != null) {
+                runnable.run(); // nested batch: the outer batch undoes the changes
+                return;
+            }
+            awaitNoUncommittedBatchesUnsynchronized();
+            Map<String, ScheduledJob> undoLog = new LinkedHashMap<>();
+            Map<String, Integer> oldTypeToNrSpilledJobs = new HashMap<>(typeToNrSpilledJobs);
+            Instant oldPersistedOnlyAfter = persistedOnlyAfter;
+            batchUndoLog = undoLog;
+            batchThread = Thread.currentThread();
+            runnableJobFinder.batchStarted();
+            boolean undone = false;
+            try {
+                runnable.run();
+            } catch (RuntimeException | Error e) {
+                batchUndoLog = null;
+                batchThread = null;
+                undone = true;
+                undoBatchUnsynchronized(undoLog, oldTypeToNrSpilledJobs, oldPersistedOnlyAfter, e);
+                throw e;
+            } finally {
+                batchUndoLog = null;
+                batchThread = null;
+                runnableJobFinder.batchEnded(undone);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a batch like {@link #runBatch(Runnable)}, but only holds the lock of the job scheduler while the batch
+     * changes the jobs, not while its unit of work commits. Batches that change different jobs can thus commit their
+     * units of work concurrently, for example the partitions of a batch of job commands that each commit a
+     * transaction of their own.
+     *
+     * <p>The unit of work gets a consumer that it must call once with the action that changes the jobs. It commits
+     * after the action has run. Until the unit of work has committed, the jobs changed by the batch are not started,
+     * other threads that change them wait and other batches that change them fail with a
+     * {@link ConcurrentBatchException}. Queries can already see the changes. If the unit of work fails, then the
+     * changes of the batch are undone with its undo log, like in {@link #runBatch(Runnable)}. Batches of
+     * {@link #runBatch(Runnable)} and methods that change all jobs wait until the batches that commit concurrently
+     * have been committed.
+     *
+     * <p>The undo log only restores jobs in memory. If a horizon has been set or jobs can be spilled, then a batch can
+     * change jobs that are only persisted, so then the lock is held until the unit of work has committed, like in
+     * {@link #runBatch(Runnable)}.
+     * @param unitOfWork runs the action that it gets through the consumer in a unit of work and commits that unit of
+     *                   work
+     */
+    public void runBatchCommittedConcurrently(Consumer<Consumer<Runnable>> unitOfWork) {
+        lock.lock();
+        try {
+            while (batchUndoLog == null && canCommitConcurrentlyUnsynchronized() && nrThreadsAwaitingUncommittedBatches > 0) {
+                uncommittedBatchEnded.awaitUninterruptibly();
+            }
+            if (batchUndoLog != null || !canCommitConcurrentlyUnsynchronized()) {
+                runBatch(() -> unitOfWork.accept(Runnable::run));
+                return;
+            }
+            nrUncommittedBatches++;
+        } finally {
+            lock.unlock();
+        }
+
+        UncommittedBatch batch = new UncommittedBatch();
+        try {
+            unitOfWork.accept(action -> runUncommittedBatchAction(batch, action));
+        } catch (RuntimeException | Error e) {
+            lock.lock();
+            try {
+                endUncommittedBatchUnsynchronized(batch);
+                // A batch that commits concurrently never spills jobs and no horizon has been set
+                undoBatchUnsynchronized(batch.undoLog, emptyMap(), null, e);
+            } finally {
+                if (batch.actionStarted) {
+                    runnableJobFinder.batchEnded(true);
+                }
+                lock.unlock();
+            }
+            throw e;
+        }
+        lock.lock();
+        try {
+            endUncommittedBatchUnsynchronized(batch);
+            if (batch.actionStarted) {
+                runnableJobFinder.batchEnded(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the action of a batch that commits concurrently. The jobs changed by the action are held until the
+     * batch ends, also if the action fails, because the changes are only undone once the unit of work has failed.
+     */
+    private void runUncommittedBatchAction(UncommittedBatch batch, Runnable action) {
+        lock.lock();
+        try {
+            batchUndoLog = batch.undoLog;
+            batchThread = Thread.currentThread();
+            batch.actionStarted = true;
+            runnableJobFinder.batchStarted();
+            try {
+                action.run();
+            } finally {
+                batchUndoLog = null;
+                batchThread = null;
+                jobIdsOfUncommittedBatches.addAll(batch.undoLog.keySet());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the jobs of a batch that commits concurrently and wakes up the threads that wait for them.
+     */
+    private void endUncommittedBatchUnsynchronized(UncommittedBatch batch) {
+        nrUncommittedBatches--;
+        jobIdsOfUncommittedBatches.removeAll(batch.undoLog.keySet());
+        uncommittedBatchEnded.signalAll();
+        signalAllWaiters();
+    }
+
+    /**
+     * Determines whether batches can commit concurrently. Such a batch is undone with its undo log only, which does
+     * not cover the jobs that are only persisted.
+     */
+    private boolean canCommitConcurrentlyUnsynchronized() {
+        return persistedOnlyAfter == null && typeToNrSpilledJobs.isEmpty()
+                && capacityLimits.getOverflowPolicy() != OverflowPolicy.SPILL;
+    }
+
+    /**
+     * Waits until a job is no longer changed by a batch that has not been committed yet. A batch cannot wait,
+     * because waiting would release the lock in the middle of the batch, so then the batch fails instead.
+     */
+    private void awaitJobCommittedUnsynchronized(String jobId) {
+        while (jobIdsOfUncommittedBatches.contains(jobId)) {
+            if (batchThread == Thread.currentThread()) {
+                throw new ConcurrentBatchException("Cannot change the job with id " + jobId
+                        + " because another batch has changed it and has not been committed yet");
+            }
+            uncommittedBatchEnded.awaitUninterruptibly();
+        }
+    }
+
+    /**
+     * Waits until all batches that commit concurrently have been committed. Meanwhile new batches of that kind wait,
+     * so that a steady stream of such batches cannot keep the calling thread waiting.
+     */
+    private void awaitNoUncommittedBatchesUnsynchronized() {
+        if (nrUncommittedBatches == 0) {
+            return;
+        }
+        if (batchThread == Thread.currentThread()) {
+            throw new ConcurrentBatchException("A batch cannot wait until other batches have been committed");
+        }
+        nrThreadsAwaitingUncommittedBatches++;
+        try {
+            while (nrUncommittedBatches > 0) {
+                uncommittedBatchEnded.awaitUninterruptibly();
+            }
+        } finally {
+            nrThreadsAwaitingUncommittedBatches--;
+            uncommittedBatchEnded.signalAll();
+        }
+    }
+
+    /**
+     * Restores the jobs changed by a batch to the state they had before the batch.
+     */
+    private void undoBatchUnsynchronized(Map<String, ScheduledJob> undoLog, Map<String, Integer> oldTypeToNrSpilledJobs,
+                                         Instant oldPersistedOnlyAfter, Throwable cause) {
+        try {
+            Instant now = clock.instant();
+            for (Map.Entry<String, ScheduledJob> entry : undoLog.entrySet()) {
+                String jobId = entry.getKey();
+                ScheduledJob oldScheduledJob = entry.getValue();
+                ScheduledJob currentScheduledJob = jobsSnapshot.findById(jobId);
+                if (currentScheduledJob != null && currentScheduledJob.getState() == RUNNING) {
+                    requesterRegistry.onJobStopped(currentScheduledJob.getRequesterId(), jobId);
+                }
+                if (oldScheduledJob == null) {
+                    if (currentScheduledJob != null) {
+                        removeJobUnsynchronized(jobId);
+                    }
+                } else if (currentScheduledJob == null) {
+                    addJobUnsynchronized(oldScheduledJob);
+                } else if (currentScheduledJob != oldScheduledJob) {
+                    updateJobUnsynchronized(oldScheduledJob);
+                }
+                if (oldScheduledJob != null && oldScheduledJob.getState() == RUNNING && oldScheduledJob.getRequesterId() != null) {
+                    requesterRegistry.addRunningJob(oldScheduledJob.getRequesterId(), jobId, now);
+                }
+            }
+            typeToNrSpilledJobs.clear();
+            typeToNrSpilledJobs.putAll(oldTypeToNrSpilledJobs);
+            persistedOnlyAfter = oldPersistedOnlyAfter;
+            metrics.onBatchUndone();
+            signalAllWaiters();
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+            loadPersistedJobs();
+        }
+    }
+
+    /**
+     * Records the state of a job before the current batch changes it for the first time.
+     */
+    private void recordUndoUnsynchronized(String jobId) {
+        if (batchUndoLog != null && batchThread == Thread.currentThread() && !batchUndoLog.containsKey(jobId)) {
+            batchUndoLog.put(jobId, jobsSnapshot.findById(jobId));
         }
     }
 
     /**
      * Gets a list of the jobs that have been scheduled, including jobs that are currently running or have failed.
+     * The list is created from the latest snapshot, so this method does not block the job scheduler.
+     * The order of the jobs is not defined.
      * @return the jobs
      */
     public List<ScheduledJob> findAllJobs() {
-        synchronized (lock) {
-            return runnableJobFinder.findAllJobs();
+        return jobsSnapshot.toList();
+    }
+
+    /**
+     * Finds a page of jobs that match the query. The jobs are found with secondary indexes on state, type and
+     * scheduled at instant, and on the requester of running jobs, so no scan of all jobs is needed.
+     * @param query the query
+     * @return the page of jobs
+     */
+    public JobPage findJobs(JobQuery query) {
+        ensureIsNotNull(query, "query");
+        lock.lock();
+        try {
+            if (query.getRequesterId() != null) {
+                List<ScheduledJob> candidates = new ArrayList<>();
+                for (String jobId : requesterRegistry.getJobIds(query.getRequesterId())) {
+                    candidates.add(getScheduledJob(jobId));
+                }
+                return JobIndex.page(candidates, query);
+            }
+            return jobIndex.find(query);
+        } finally {
+            lock.unlock();
         }
     }
 
+    /**
+     * Gets an immutable snapshot of the jobs. Getting and reading the snapshot does not block the job scheduler,
+     * and does not copy the jobs, so monitoring code can call this method as often as it likes.
+     * @return the snapshot of the jobs after the latest change
+     */
+    public JobsSnapshot getJobsSnapshot() {
+        return jobsSnapshot;
+    }
+
+    /**
+     * Gets the metrics of this job scheduler. Reading the metrics does not block the job scheduler.
+     * @return the metrics
+     */
+    public JobSchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
     public void unblockThreadsWithingOnNextRunnableJobImmediately(boolean unlockThreadsImmediately) {
-        synchronized (lock) {
+        lock.lock();
+        try {
             unblockThreadsWithingOnNextRunnableJobImmediately.set(unlockThreadsImmediately);
-            lock.notifyAll();
+            signalAllWaiters();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -238,4 +1318,24 @@ public class JobScheduler {
             throw new NullPointerException(variableName);
         }
     }
+
+    private static class UncommittedBatch {
+        private final Map<String, ScheduledJob> undoLog = new LinkedHashMap<>();
+        private boolean actionStarted;
+    }
+
+    private static class Waiter {
+        private final Set<String> acceptedTypes;
+        private final Condition condition;
+        private boolean signalled;
+
+        Waiter(Set<String> acceptedTypes, Condition condition) {
+            this.acceptedTypes = acceptedTypes;
+            this.condition = condition;
+        }
+
+        boolean accepts(String type) {
+            return acceptedTypes == null || acceptedTypes.contains(type);
+        }
+    }
 }
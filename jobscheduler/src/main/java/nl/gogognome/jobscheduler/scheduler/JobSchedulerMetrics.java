@@ -0,0 +1,189 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters that describe what the job scheduler has done since it was created, and the estimated heap used for the
+ * jobs it currently keeps. The counters can be read at any moment without blocking the job scheduler.
+ */
+public class JobSchedulerMetrics {
+
+    private final AtomicLong nrMissedDeadlines = new AtomicLong();
+    private final AtomicLong nrCoalescedJobs = new AtomicLong();
+    private final AtomicLong nrReclaimedJobs = new AtomicLong();
+    private final AtomicLong nrRejectedJobs = new AtomicLong();
+    private final AtomicLong nrSpilledJobs = new AtomicLong();
+    private final AtomicLong nrJobsPersistedBeyondHorizon = new AtomicLong();
+    private final AtomicLong nrPrefetchedJobs = new AtomicLong();
+    private final AtomicLong nrUndoneBatches = new AtomicLong();
+    private final AtomicLong payloadBytes = new AtomicLong();
+    private final AtomicLong objectOverheadBytes = new AtomicLong();
+    private final AtomicLong indexEntryBytes = new AtomicLong();
+    private final Map<JobState, Map<String, MemoryUsage>> stateToTypeToMemoryUsage = new EnumMap<>(JobState.class);
+    private final int runnableJobFinderBytesPerJob;
+
+    public JobSchedulerMetrics() {
+        this(JobMemoryEstimator.DEFAULT_RUNNABLE_JOB_FINDER_BYTES_PER_JOB);
+    }
+
+    /**
+     * Creates metrics for a job scheduler.
+     * @param runnableJobFinderBytesPerJob the bytes that the runnable job finder of the job scheduler keeps per job
+     */
+    public JobSchedulerMetrics(int runnableJobFinderBytesPerJob) {
+        this.runnableJobFinderBytesPerJob = runnableJobFinderBytesPerJob;
+        for (JobState state : JobState.values()) {
+            stateToTypeToMemoryUsage.put(state, new ConcurrentHashMap<>());
+        }
+    }
+
+    void onDeadlineMissed() {
+        nrMissedDeadlines.incrementAndGet();
+    }
+
+    void onJobCoalesced() {
+        nrCoalescedJobs.incrementAndGet();
+    }
+
+    void onJobsReclaimed(int nrJobs) {
+        nrReclaimedJobs.addAndGet(nrJobs);
+    }
+
+    void onJobRejected() {
+        nrRejectedJobs.incrementAndGet();
+    }
+
+    void onJobSpilled() {
+        nrSpilledJobs.incrementAndGet();
+    }
+
+    void onJobPersistedBeyondHorizon() {
+        nrJobsPersistedBeyondHorizon.incrementAndGet();
+    }
+
+    void onJobsPrefetched(int nrJobs) {
+        nrPrefetchedJobs.addAndGet(nrJobs);
+    }
+
+    void onBatchUndone() {
+        nrUndoneBatches.incrementAndGet();
+    }
+
+    void onJobAdded(ScheduledJob scheduledJob) {
+        MemoryUsage memoryUsage = JobMemoryEstimator.estimate(scheduledJob, runnableJobFinderBytesPerJob);
+        payloadBytes.addAndGet(memoryUsage.getPayloadBytes());
+        objectOverheadBytes.addAndGet(memoryUsage.getObjectOverheadBytes());
+        indexEntryBytes.addAndGet(memoryUsage.getIndexEntryBytes());
+        stateToTypeToMemoryUsage.get(scheduledJob.getState()).merge(scheduledJob.getJob().getType(), memoryUsage, MemoryUsage::plus);
+    }
+
+    void onJobRemoved(ScheduledJob scheduledJob) {
+        MemoryUsage memoryUsage = JobMemoryEstimator.estimate(scheduledJob, runnableJobFinderBytesPerJob);
+        payloadBytes.addAndGet(-memoryUsage.getPayloadBytes());
+        objectOverheadBytes.addAndGet(-memoryUsage.getObjectOverheadBytes());
+        indexEntryBytes.addAndGet(-memoryUsage.getIndexEntryBytes());
+        stateToTypeToMemoryUsage.get(scheduledJob.getState()).computeIfPresent(scheduledJob.getJob().getType(),
+                (type, oldMemoryUsage) -> {
+                    MemoryUsage newMemoryUsage = oldMemoryUsage.minus(memoryUsage);
+                    return newMemoryUsage.isNone() ? null : newMemoryUsage;
+                });
+    }
+
+    void onAllJobsRemoved() {
+        payloadBytes.set(0);
+        objectOverheadBytes.set(0);
+        indexEntryBytes.set(0);
+        stateToTypeToMemoryUsage.values().forEach(Map::clear);
+    }
+
+    /**
+     * @return the number of jobs that were expired because their deadline passed before they could be started
+     */
+    public long getNrMissedDeadlines() {
+        return nrMissedDeadlines.get();
+    }
+
+    /**
+     * @return the number of scheduled jobs that were not added because an idle job with the same coalescing key existed
+     */
+    public long getNrCoalescedJobs() {
+        return nrCoalescedJobs.get();
+    }
+
+    /**
+     * @return the number of running jobs that got state idle again because their requester stopped sending heartbeats
+     */
+    public long getNrReclaimedJobs() {
+        return nrReclaimedJobs.get();
+    }
+
+    /**
+     * @return the number of scheduled jobs that were rejected because the capacity limits had been reached
+     */
+    public long getNrRejectedJobs() {
+        return nrRejectedJobs.get();
+    }
+
+    /**
+     * @return the number of scheduled jobs that were only persisted because the capacity limits had been reached
+     */
+    public long getNrSpilledJobs() {
+        return nrSpilledJobs.get();
+    }
+
+    /**
+     * @return the number of scheduled jobs that were only persisted because they were scheduled beyond the horizon
+     */
+    public long getNrJobsPersistedBeyondHorizon() {
+        return nrJobsPersistedBeyondHorizon.get();
+    }
+
+    /**
+     * @return the number of jobs that were loaded from the persister because they came within the horizon
+     */
+    public long getNrPrefetchedJobs() {
+        return nrPrefetchedJobs.get();
+    }
+
+    /**
+     * @return the number of batches whose changes were undone because the batch failed
+     */
+    public long getNrUndoneBatches() {
+        return nrUndoneBatches.get();
+    }
+
+    /**
+     * @return the estimated heap used for all jobs kept by the job scheduler
+     */
+    public MemoryUsage getMemoryUsage() {
+        return new MemoryUsage(payloadBytes.get(), objectOverheadBytes.get(), indexEntryBytes.get());
+    }
+
+    /**
+     * @param state the state of the jobs
+     * @param type the type of the jobs
+     * @return the estimated heap used for the jobs with the specified state and type
+     */
+    public MemoryUsage getMemoryUsage(JobState state, String type) {
+        return stateToTypeToMemoryUsage.get(state).getOrDefault(type, MemoryUsage.none());
+    }
+
+    /**
+     * @return a copy of the estimated heap used for the jobs per state and per type. States and types without
+     * jobs are left out.
+     */
+    public Map<JobState, Map<String, MemoryUsage>> getMemoryUsageByStateAndType() {
+        Map<JobState, Map<String, MemoryUsage>> result = new EnumMap<>(JobState.class);
+        stateToTypeToMemoryUsage.forEach((state, typeToMemoryUsage) -> {
+            if (!typeToMemoryUsage.isEmpty()) {
+                result.put(state, Collections.unmodifiableMap(new HashMap<>(typeToMemoryUsage)));
+            }
+        });
+        return result;
+    }
+}
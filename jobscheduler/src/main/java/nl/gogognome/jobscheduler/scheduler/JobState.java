@@ -3,5 +3,6 @@ package nl.gogognome.jobscheduler.scheduler;
 public enum JobState {
     IDLE,
     RUNNING,
-    ERROR
+    ERROR,
+    EXPIRED
 }
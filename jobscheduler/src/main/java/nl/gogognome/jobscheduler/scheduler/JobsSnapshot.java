@@ -0,0 +1,403 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * An immutable snapshot of the jobs of a job scheduler. The job scheduler publishes a new snapshot after each change,
+ * so monitoring code can read the jobs at any moment without blocking the job scheduler.
+ *
+ * <p>The snapshot is a persistent hash array mapped trie from job id to scheduled job. Each node has at most 32
+ * children, selected by 5 bits of the hash code of the job id. Adding, replacing or removing a job copies only the
+ * nodes on the path from the root to that job, so it takes O(log n) time and memory, and all other nodes are shared
+ * with the previous snapshot.
+ *
+ * <p>The order in which the jobs of a snapshot are iterated is not defined.
+ */
+public final class JobsSnapshot implements Iterable<ScheduledJob> {
+
+    private static final int BITS_PER_LEVEL = 5;
+    private static final int MAX_SHIFT = 30;
+
+    private static final JobsSnapshot EMPTY = new JobsSnapshot(BitmapNode.EMPTY, 0, 0);
+
+    private final Node root;
+    private final int size;
+    private final long version;
+
+    private JobsSnapshot(Node root, int size, long version) {
+        this.root = root;
+        this.size = size;
+        this.version = version;
+    }
+
+    public static JobsSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return the number of jobs in this snapshot
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the version of this snapshot. The version increases with each change.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param jobId the id of a job
+     * @return the job with the specified id; null if this snapshot does not contain such a job
+     */
+    public ScheduledJob findById(String jobId) {
+        return root.get(jobId, hash(jobId), 0);
+    }
+
+    /**
+     * Returns a snapshot that contains the specified job, replacing the job with the same id if present.
+     * This snapshot is not changed.
+     * @param scheduledJob the job
+     * @return the new snapshot
+     */
+    public JobsSnapshot with(ScheduledJob scheduledJob) {
+        String jobId = scheduledJob.getJob().getId();
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(jobId, hash(jobId), 0, scheduledJob, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new JobsSnapshot(newRoot, added[0] ? size + 1 : size, version + 1);
+    }
+
+    /**
+     * Returns a snapshot without the job with the specified id. This snapshot is not changed.
+     * @param jobId the id of the job
+     * @return the new snapshot
+     */
+    public JobsSnapshot without(String jobId) {
+        Node newRoot = root.remove(jobId, hash(jobId), 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return new JobsSnapshot(newRoot != null ? newRoot : BitmapNode.EMPTY, size - 1, version + 1);
+    }
+
+    /**
+     * Returns an empty snapshot with a version that is higher than the version of this snapshot.
+     * @return the new snapshot
+     */
+    public JobsSnapshot cleared() {
+        return new JobsSnapshot(BitmapNode.EMPTY, 0, version + 1);
+    }
+
+    /**
+     * @return a new list that contains the jobs of this snapshot
+     */
+    public List<ScheduledJob> toList() {
+        List<ScheduledJob> scheduledJobs = new ArrayList<>(size);
+        forEach(scheduledJobs::add);
+        return scheduledJobs;
+    }
+
+    @Override
+    public void forEach(Consumer<? super ScheduledJob> action) {
+        root.forEach(action);
+    }
+
+    @Override
+    public Iterator<ScheduledJob> iterator() {
+        return new SnapshotIterator(root);
+    }
+
+    private static int hash(String jobId) {
+        int h = jobId.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static String keyOf(ScheduledJob scheduledJob) {
+        return scheduledJob.getJob().getId();
+    }
+
+    private static abstract class Node {
+        abstract ScheduledJob get(String key, int hash, int shift);
+        abstract Node put(String key, int hash, int shift, ScheduledJob value, boolean[] added);
+        /** @return this node if the key is not present, null if the node became empty, otherwise a new node */
+        abstract Node remove(String key, int hash, int shift);
+        abstract void forEach(Consumer<? super ScheduledJob> action);
+        abstract Object[] entries();
+    }
+
+    /**
+     * A node whose entries are either a {@link ScheduledJob} or a child {@link Node}. The bitmap tells which of the
+     * 32 possible entries are present; the entries are stored in a compact array.
+     */
+    private static final class BitmapNode extends Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] entries;
+
+        BitmapNode(int bitmap, Object[] entries) {
+            this.bitmap = bitmap;
+            this.entries = entries;
+        }
+
+        @Override
+        ScheduledJob get(String key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object entry = entries[index(bit)];
+            if (entry instanceof Node) {
+                return ((Node) entry).get(key, hash, shift + BITS_PER_LEVEL);
+            }
+            ScheduledJob scheduledJob = (ScheduledJob) entry;
+            return keyOf(scheduledJob).equals(key) ? scheduledJob : null;
+        }
+
+        @Override
+        Node put(String key, int hash, int shift, ScheduledJob value, boolean[] added) {
+            int bit = bit(hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Object[] newEntries = new Object[entries.length + 1];
+                System.arraycopy(entries, 0, newEntries, 0, index);
+                newEntries[index] = value;
+                System.arraycopy(entries, index, newEntries, index + 1, entries.length - index);
+                return new BitmapNode(bitmap | bit, newEntries);
+            }
+
+            Object entry = entries[index];
+            Object newEntry;
+            if (entry instanceof Node) {
+                newEntry = ((Node) entry).put(key, hash, shift + BITS_PER_LEVEL, value, added);
+            } else {
+                ScheduledJob scheduledJob = (ScheduledJob) entry;
+                String existingKey = keyOf(scheduledJob);
+                if (existingKey.equals(key)) {
+                    newEntry = value;
+                } else {
+                    added[0] = true;
+                    newEntry = createNode(scheduledJob, hash(existingKey), value, hash, shift + BITS_PER_LEVEL);
+                }
+            }
+            if (newEntry == entry) {
+                return this;
+            }
+            Object[] newEntries = entries.clone();
+            newEntries[index] = newEntry;
+            return new BitmapNode(bitmap, newEntries);
+        }
+
+        @Override
+        Node remove(String key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object entry = entries[index];
+            Object newEntry;
+            if (entry instanceof Node) {
+                Node child = (Node) entry;
+                Node newChild = child.remove(key, hash, shift + BITS_PER_LEVEL);
+                if (newChild == child) {
+                    return this;
+                }
+                newEntry = newChild;
+                if (newChild != null && newChild.entries().length == 1 && !(newChild.entries()[0] instanceof Node)) {
+                    newEntry = newChild.entries()[0]; // inline a child that only contains a job
+                }
+            } else if (keyOf((ScheduledJob) entry).equals(key)) {
+                newEntry = null;
+            } else {
+                return this;
+            }
+
+            if (newEntry != null) {
+                Object[] newEntries = entries.clone();
+                newEntries[index] = newEntry;
+                return new BitmapNode(bitmap, newEntries);
+            }
+            if (entries.length == 1) {
+                return null;
+            }
+            Object[] newEntries = new Object[entries.length - 1];
+            System.arraycopy(entries, 0, newEntries, 0, index);
+            System.arraycopy(entries, index + 1, newEntries, index, entries.length - index - 1);
+            return new BitmapNode(bitmap & ~bit, newEntries);
+        }
+
+        @Override
+        void forEach(Consumer<? super ScheduledJob> action) {
+            for (Object entry : entries) {
+                if (entry instanceof Node) {
+                    ((Node) entry).forEach(action);
+                } else {
+                    action.accept((ScheduledJob) entry);
+                }
+            }
+        }
+
+        @Override
+        Object[] entries() {
+            return entries;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & 31);
+        }
+    }
+
+    /**
+     * A node for jobs whose ids have the same hash code.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final ScheduledJob[] entries;
+
+        CollisionNode(ScheduledJob[] entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        ScheduledJob get(String key, int hash, int shift) {
+            int index = indexOf(key);
+            return index >= 0 ? entries[index] : null;
+        }
+
+        @Override
+        Node put(String key, int hash, int shift, ScheduledJob value, boolean[] added) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (entries[index] == value) {
+                    return this;
+                }
+                ScheduledJob[] newEntries = entries.clone();
+                newEntries[index] = value;
+                return new CollisionNode(newEntries);
+            }
+            added[0] = true;
+            ScheduledJob[] newEntries = Arrays.copyOf(entries, entries.length + 1);
+            newEntries[entries.length] = value;
+            return new CollisionNode(newEntries);
+        }
+
+        @Override
+        Node remove(String key, int hash, int shift) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            if (entries.length == 1) {
+                return null;
+            }
+            ScheduledJob[] newEntries = new ScheduledJob[entries.length - 1];
+            System.arraycopy(entries, 0, newEntries, 0, index);
+            System.arraycopy(entries, index + 1, newEntries, index, entries.length - index - 1);
+            return new CollisionNode(newEntries);
+        }
+
+        @Override
+        void forEach(Consumer<? super ScheduledJob> action) {
+            for (ScheduledJob entry : entries) {
+                action.accept(entry);
+            }
+        }
+
+        @Override
+        Object[] entries() {
+            return entries;
+        }
+
+        private int indexOf(String key) {
+            for (int i = 0; i < entries.length; i++) {
+                if (keyOf(entries[i]).equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static Node createNode(ScheduledJob job1, int hash1, ScheduledJob job2, int hash2, int shift) {
+        if (shift > MAX_SHIFT) {
+            return new CollisionNode(new ScheduledJob[] { job1, job2 });
+        }
+        int bit1 = BitmapNode.bit(hash1, shift);
+        int bit2 = BitmapNode.bit(hash2, shift);
+        if (bit1 == bit2) {
+            return new BitmapNode(bit1, new Object[] { createNode(job1, hash1, job2, hash2, shift + BITS_PER_LEVEL) });
+        }
+        return Integer.compareUnsigned(bit1, bit2) < 0
+                ? new BitmapNode(bit1 | bit2, new Object[] { job1, job2 })
+                : new BitmapNode(bit1 | bit2, new Object[] { job2, job1 });
+    }
+
+    private static class SnapshotIterator implements Iterator<ScheduledJob> {
+
+        private final Deque<Object[]> arrays = new ArrayDeque<>();
+        private final Deque<Integer> positions = new ArrayDeque<>();
+        private ScheduledJob next;
+
+        SnapshotIterator(Node root) {
+            push(root);
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public ScheduledJob next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            ScheduledJob result = next;
+            advance();
+            return result;
+        }
+
+        private void push(Node node) {
+            arrays.push(node.entries());
+            positions.push(0);
+        }
+
+        private void advance() {
+            next = null;
+            while (!arrays.isEmpty()) {
+                Object[] entries = arrays.peek();
+                int position = positions.pop();
+                if (position >= entries.length) {
+                    arrays.pop();
+                    continue;
+                }
+                positions.push(position + 1);
+                Object entry = entries[position];
+                if (entry instanceof Node) {
+                    push((Node) entry);
+                } else {
+                    next = (ScheduledJob) entry;
+                    return;
+                }
+            }
+        }
+    }
+}
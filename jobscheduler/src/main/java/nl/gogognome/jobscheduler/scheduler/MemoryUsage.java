@@ -0,0 +1,79 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+/**
+ * Estimated number of bytes of heap used for jobs. The bytes are split into the payload (the data of the jobs),
+ * the object overhead (the job objects with their ids, types, keys and instants) and the index entries (the
+ * entries that the job scheduler, its snapshot and its runnable job finder keep per job).
+ */
+public class MemoryUsage {
+
+    private final static MemoryUsage NONE = new MemoryUsage(0, 0, 0);
+
+    private final long payloadBytes;
+    private final long objectOverheadBytes;
+    private final long indexEntryBytes;
+
+    public MemoryUsage(long payloadBytes, long objectOverheadBytes, long indexEntryBytes) {
+        this.payloadBytes = payloadBytes;
+        this.objectOverheadBytes = objectOverheadBytes;
+        this.indexEntryBytes = indexEntryBytes;
+    }
+
+    /**
+     * @return memory usage of zero bytes
+     */
+    public static MemoryUsage none() {
+        return NONE;
+    }
+
+    public MemoryUsage plus(MemoryUsage that) {
+        return new MemoryUsage(this.payloadBytes + that.payloadBytes, this.objectOverheadBytes + that.objectOverheadBytes,
+                this.indexEntryBytes + that.indexEntryBytes);
+    }
+
+    public MemoryUsage minus(MemoryUsage that) {
+        return new MemoryUsage(this.payloadBytes - that.payloadBytes, this.objectOverheadBytes - that.objectOverheadBytes,
+                this.indexEntryBytes - that.indexEntryBytes);
+    }
+
+    public long getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    public long getObjectOverheadBytes() {
+        return objectOverheadBytes;
+    }
+
+    public long getIndexEntryBytes() {
+        return indexEntryBytes;
+    }
+
+    public long getTotalBytes() {
+        return payloadBytes + objectOverheadBytes + indexEntryBytes;
+    }
+
+    public boolean isNone() {
+        return payloadBytes == 0 && objectOverheadBytes == 0 && indexEntryBytes == 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof MemoryUsage) {
+            MemoryUsage that = (MemoryUsage) obj;
+            return this.payloadBytes == that.payloadBytes && this.objectOverheadBytes == that.objectOverheadBytes
+                    && this.indexEntryBytes == that.indexEntryBytes;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(payloadBytes) * 961 + Long.hashCode(objectOverheadBytes) * 31 + Long.hashCode(indexEntryBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "payload: " + payloadBytes + " bytes, object overhead: " + objectOverheadBytes
+                + " bytes, index entries: " + indexEntryBytes + " bytes";
+    }
+}
@@ -0,0 +1,24 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+/**
+ * Determines what the job scheduler does with a new job when its capacity limits have been reached.
+ */
+public enum OverflowPolicy {
+
+    /** The job is rejected with a {@link QueueFullException}. */
+    REJECT,
+
+    /**
+     * The thread that schedules the job waits until there is room for the job. If no room becomes available within
+     * the block timeout, then the job is rejected with a {@link QueueFullException}. A job scheduled inside
+     * {@link JobScheduler#runBatch(Runnable)} is rejected at once, because waiting would let other threads see the
+     * changes of the batch.
+     */
+    BLOCK,
+
+    /**
+     * The job is only persisted, not kept in memory. Spilled jobs are read back from the persister when enough jobs
+     * have been removed. Only use this policy with a persister that stores jobs, like the database job persister.
+     */
+    SPILL
+}
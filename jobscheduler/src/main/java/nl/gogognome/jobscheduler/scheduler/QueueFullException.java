@@ -0,0 +1,11 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+/**
+ * Thrown when a job cannot be scheduled because the capacity limits of the job scheduler have been reached.
+ */
+public class QueueFullException extends JobSchedulerException {
+
+    public QueueFullException(String message) {
+        super(message);
+    }
+}
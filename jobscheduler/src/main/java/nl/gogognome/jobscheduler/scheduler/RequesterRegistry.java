@@ -0,0 +1,108 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * The requester registry keeps track of the requesters that execute jobs: the instant at which each requester was
+ * last seen and the ids of the jobs that it is running. A requester is seen when it sends a heartbeat, requests
+ * a job or starts a job.
+ *
+ * <p>The requesters are kept in the order in which they were last seen, so finding the requesters that have not
+ * been seen for a while takes time proportional to the number of such requesters, not to the number of requesters.
+ *
+ * <p>This class is not thread safe. The job scheduler only accesses it while holding its lock.
+ */
+class RequesterRegistry {
+
+    private final LinkedHashMap<String, Requester> requesterIdToRequester = new LinkedHashMap<>();
+
+    void onHeartbeat(String requesterId, Instant now) {
+        Requester requester = requesterIdToRequester.remove(requesterId);
+        if (requester == null) {
+            requester = new Requester(requesterId);
+        }
+        requester.lastSeenInstant = now;
+        requesterIdToRequester.put(requesterId, requester);
+    }
+
+    /**
+     * Gets the instance of the requester id that this registry keeps, so that all running jobs of a requester share
+     * a single string that can be garbage collected once the requester has been removed. A requester that is not
+     * known yet is considered to be seen now.
+     * @param requesterId the requester id
+     * @param now the current instant
+     * @return the instance of the requester id that is kept by this registry
+     */
+    String intern(String requesterId, Instant now) {
+        Requester requester = requesterIdToRequester.get(requesterId);
+        if (requester == null) {
+            onHeartbeat(requesterId, now);
+            requester = requesterIdToRequester.get(requesterId);
+        }
+        return requester.id;
+    }
+
+    void onJobStarted(String requesterId, String jobId, Instant now) {
+        onHeartbeat(requesterId, now);
+        requesterIdToRequester.get(requesterId).jobIds.add(jobId);
+    }
+
+    /**
+     * Adds a running job of a requester without changing the instant at which the requester was last seen.
+     * A requester that is not known yet is considered to be seen now. Used when jobs are loaded from the persister.
+     */
+    void addRunningJob(String requesterId, String jobId, Instant now) {
+        requesterIdToRequester.get(intern(requesterId, now)).jobIds.add(jobId);
+    }
+
+    void onJobStopped(String requesterId, String jobId) {
+        Requester requester = requesterId != null ? requesterIdToRequester.get(requesterId) : null;
+        if (requester != null) {
+            requester.jobIds.remove(jobId);
+        }
+    }
+
+    Set<String> getJobIds(String requesterId) {
+        Requester requester = requesterIdToRequester.get(requesterId);
+        return requester != null ? Collections.unmodifiableSet(requester.jobIds) : Collections.emptySet();
+    }
+
+    Instant getLastSeenInstant(String requesterId) {
+        Requester requester = requesterIdToRequester.get(requesterId);
+        return requester != null ? requester.lastSeenInstant : null;
+    }
+
+    /**
+     * Removes the requesters that have not been seen since the specified instant.
+     * @param instant the instant
+     * @return the ids of the jobs that the removed requesters were running
+     */
+    List<String> removeRequestersNotSeenSince(Instant instant) {
+        List<String> jobIds = new ArrayList<>();
+        Iterator<Requester> iterator = requesterIdToRequester.values().iterator();
+        while (iterator.hasNext()) {
+            Requester requester = iterator.next();
+            if (!requester.lastSeenInstant.isBefore(instant)) {
+                break;
+            }
+            jobIds.addAll(requester.jobIds);
+            iterator.remove();
+        }
+        return jobIds;
+    }
+
+    void clear() {
+        requesterIdToRequester.clear();
+    }
+
+    private static class Requester {
+        private final String id;
+        private Instant lastSeenInstant;
+        private final Set<String> jobIds = new LinkedHashSet<>();
+
+        private Requester(String id) {
+            this.id = id;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package nl.gogognome.jobscheduler.scheduler;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A runnable job finder maintains a collection of jobs to be run. Modifications to this collection
@@ -42,6 +43,17 @@ public interface RunnableJobFinder {
      */
     void removeJob(String jobId);
 
+    /**
+     * Finds an idle job with the specified coalescing key. The job scheduler uses this method to coalesce a newly
+     * scheduled job with an idle job that will do the same work. The default implementation does not support
+     * coalescing and always returns null.
+     * @param coalescingKey the coalescing key
+     * @return an idle job with the coalescing key; null if no such job exists or coalescing is not supported
+     */
+    default ScheduledJob findIdleJobByCoalescingKey(String coalescingKey) {
+        return null;
+    }
+
     /**
      * Determine the next scheduled job that can be started. The returned scheduled job must have status idle.
      *
@@ -49,6 +61,101 @@ public interface RunnableJobFinder {
      */
     ScheduledJob findNextRunnableJob();
 
+    /**
+     * Determine the next scheduled job of the specified type that can be started. The job scheduler uses this method
+     * to complete a batch of jobs of the same type. The returned scheduled job must have status idle.
+     *
+     * <p>The default implementation only returns the job returned by {@link #findNextRunnableJob()} if it has
+     * the specified type. Implementations that keep runnable jobs per type should override this method.
+     *
+     * @param type the type of the job
+     * @return the next scheduled job of the type that can be started; null if no such job can be started
+     */
+    default ScheduledJob findNextRunnableJobOfType(String type) {
+        ScheduledJob scheduledJob = findNextRunnableJob();
+        return scheduledJob != null && type.equals(scheduledJob.getJob().getType()) ? scheduledJob : null;
+    }
+
+    /**
+     * Determine the next scheduled job of one of the specified types that can be started. The job scheduler uses this
+     * method for requesters that can only execute jobs of some types. The returned scheduled job must have status idle.
+     *
+     * <p>The default implementation calls {@link #findNextRunnableJobOfType(String)} for each type and returns the job
+     * with the oldest scheduled at instant. For a runnable job finder with a queue per type, this takes time
+     * proportional to the number of types, not to the number of jobs.
+     *
+     * @param types the types of the job
+     * @return the next scheduled job of one of the types that can be started; null if no such job can be started
+     */
+    default ScheduledJob findNextRunnableJobOfTypes(Set<String> types) {
+        ScheduledJob bestCandidate = null;
+        for (String type : types) {
+            ScheduledJob scheduledJob = findNextRunnableJobOfType(type);
+            if (scheduledJob != null && (bestCandidate == null || isScheduledBefore(scheduledJob, bestCandidate))) {
+                bestCandidate = scheduledJob;
+            }
+        }
+        return bestCandidate;
+    }
+
+    /**
+     * Determines the instant at which the next job is expected to become runnable. The job scheduler uses this
+     * instant to decide how long threads waiting for a runnable job can sleep. Scheduling, rescheduling,
+     * finishing or removing a job wakes up waiting threads anyway. The default implementation returns null.
+     *
+     * @return the instant at which the next job is expected to become runnable; null if unknown, in which case
+     *         the job scheduler polls with exponential backoff
+     */
+    default Instant getNextRunnableInstant() {
+        return null;
+    }
+
+    /**
+     * Determines the instant at which the next job of one of the specified types is expected to become runnable.
+     * The job scheduler uses this instant for threads that wait for jobs of some types only, so that these threads
+     * are not woken up by jobs of other types. The default implementation returns {@link #getNextRunnableInstant()}
+     * if types is null and null otherwise, because it cannot tell which type the next runnable job has.
+     *
+     * @param types the types of the job; null for any type
+     * @return the instant at which the next job of one of the types is expected to become runnable; null if unknown,
+     *         in which case the job scheduler polls with exponential backoff
+     */
+    default Instant getNextRunnableInstant(Set<String> types) {
+        return types == null ? getNextRunnableInstant() : null;
+    }
+
+    /**
+     * Estimates the heap that this runnable job finder keeps per job, not counting the {@link ScheduledJob} and
+     * {@link Job} themselves, which the job scheduler keeps anyway. The job scheduler adds this estimate to the
+     * memory usage of each job. The default implementation returns the size of a hash map entry plus a list slot.
+     *
+     * @return the estimated number of bytes per job
+     */
+    default int getEstimatedBytesPerJob() {
+        return JobMemoryEstimator.DEFAULT_RUNNABLE_JOB_FINDER_BYTES_PER_JOB;
+    }
+
+    /**
+     * Tells this runnable job finder that the job scheduler starts a batch, see {@link JobScheduler#runBatch(Runnable)}.
+     * Batches that commit concurrently can overlap, see
+     * {@link JobScheduler#runBatchCommittedConcurrently(java.util.function.Consumer)}: each of them is started before
+     * it changes jobs and ends once it has been committed or undone.
+     * The default implementation does nothing.
+     */
+    default void batchStarted() {
+    }
+
+    /**
+     * Tells this runnable job finder that the batch has ended. If the batch failed, then the job scheduler has
+     * already undone the changes of the batch by adding, updating and removing jobs. A job that the batch removed
+     * has thus been added again, after the jobs that were added later. Runnable job finders that promise to keep
+     * jobs in the order in which they were added restore that order here. The default implementation does nothing.
+     *
+     * @param undone true if the changes of the batch have been undone; false if the batch succeeded
+     */
+    default void batchEnded(boolean undone) {
+    }
+
     /**
      * Gets a collection of the jobs that have been scheduled, including jobs that are currently running or have failed.
      * Ensure to return an unmodifiable collection of jobs
@@ -67,4 +174,10 @@ public interface RunnableJobFinder {
      * @return the time out instant
      */
     Instant getTimeoutInstant(Job jobToStart);
+
+    static boolean isScheduledBefore(ScheduledJob scheduledJob, ScheduledJob otherScheduledJob) {
+        Instant instant = scheduledJob.getJob().getScheduledAtInstant();
+        Instant otherInstant = otherScheduledJob.getJob().getScheduledAtInstant();
+        return otherInstant != null && (instant == null || instant.isBefore(otherInstant));
+    }
 }
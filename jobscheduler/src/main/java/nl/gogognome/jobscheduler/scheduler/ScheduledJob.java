@@ -3,6 +3,7 @@ package nl.gogognome.jobscheduler.scheduler;
 import java.time.Instant;
 
 import static nl.gogognome.jobscheduler.scheduler.JobState.ERROR;
+import static nl.gogognome.jobscheduler.scheduler.JobState.EXPIRED;
 import static nl.gogognome.jobscheduler.scheduler.JobState.IDLE;
 import static nl.gogognome.jobscheduler.scheduler.JobState.RUNNING;
 
@@ -56,6 +57,10 @@ public class ScheduledJob {
         return new ScheduledJob(job, ERROR, null, null);
     }
 
+    public ScheduledJob onExpire() {
+        return new ScheduledJob(job, EXPIRED, null, null);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof ScheduledJob) {
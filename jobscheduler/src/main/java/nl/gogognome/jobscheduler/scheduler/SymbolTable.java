@@ -0,0 +1,98 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A symbol table interns strings that occur in many jobs, like job types. Each distinct string
+ * is stored once and gets a compact int id. Jobs loaded from a database get a new string instance per row, so
+ * without interning a million jobs of twenty types keep a million copies of twenty strings.
+ *
+ * <p>Ids are assigned in the order in which strings are interned, starting at zero, and are never removed. Only
+ * intern strings of which there are few distinct values that live as long as the application, so not requester ids,
+ * which come and go with the requesters. This class is thread safe.
+ */
+public class SymbolTable {
+
+    /** The id of null. */
+    public final static int NO_SYMBOL = -1;
+
+    private final static SymbolTable JOB_TYPES = new SymbolTable();
+
+    private final Map<String, Integer> symbolToId = new ConcurrentHashMap<>();
+    private volatile String[] symbols = new String[16];
+    private int nrSymbols;
+
+    /**
+     * @return the symbol table shared by the job scheduler, the persisters and the ingesters for job types
+     */
+    public static SymbolTable jobTypes() {
+        return JOB_TYPES;
+    }
+
+    /**
+     * Interns a string.
+     * @param string the string; can be null
+     * @return the instance of the symbol table that is equal to the string; null if the string is null
+     */
+    public String intern(String string) {
+        return get(idOf(string));
+    }
+
+    /**
+     * Gets the id of a string. If the string has not been interned before, it is interned.
+     * @param string the string; can be null
+     * @return the id of the string; {@link #NO_SYMBOL} if the string is null
+     */
+    public int idOf(String string) {
+        if (string == null) {
+            return NO_SYMBOL;
+        }
+        Integer id = symbolToId.get(string);
+        return id != null ? id : add(string);
+    }
+
+    /**
+     * Finds the id of a string without interning it.
+     * @param string the string; can be null
+     * @return the id of the string; {@link #NO_SYMBOL} if the string is null or has not been interned
+     */
+    public int findId(String string) {
+        if (string == null) {
+            return NO_SYMBOL;
+        }
+        Integer id = symbolToId.get(string);
+        return id != null ? id : NO_SYMBOL;
+    }
+
+    /**
+     * Gets the string with the specified id.
+     * @param id the id, as returned by {@link #idOf(String)}
+     * @return the string; null if the id is {@link #NO_SYMBOL}
+     */
+    public String get(int id) {
+        return id != NO_SYMBOL ? symbols[id] : null;
+    }
+
+    /**
+     * @return the number of interned strings; all ids are less than this number
+     */
+    public synchronized int size() {
+        return nrSymbols;
+    }
+
+    private synchronized int add(String string) {
+        Integer id = symbolToId.get(string);
+        if (id != null) {
+            return id; // added by another thread in the meantime
+        }
+        // The new symbol is stored in the array before its id is published in the map, so a thread that
+        // reads the id from the map always finds the symbol in the array.
+        String[] newSymbols = nrSymbols < symbols.length ? symbols : Arrays.copyOf(symbols, symbols.length * 2);
+        newSymbols[nrSymbols] = string;
+        symbols = newSymbols;
+        symbolToId.put(string, nrSymbols);
+        return nrSymbols++;
+    }
+}
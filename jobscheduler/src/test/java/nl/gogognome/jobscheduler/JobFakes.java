@@ -20,6 +20,22 @@ public class JobFakes {
         return new Job(nextId(), "someType", null, startAtInstant);
     }
 
+    public static Job withType(String type) {
+        return new Job(nextId(), type, null, Instant.now());
+    }
+
+    public static Job withDeadline(Instant deadline) {
+        return defaultJob().withDeadline(deadline);
+    }
+
+    public static Job withOrderingKey(String orderingKey) {
+        return defaultJob().withOrderingKey(orderingKey);
+    }
+
+    public static Job withCoalescingKey(String coalescingKey) {
+        return defaultJob().withCoalescingKey(coalescingKey);
+    }
+
     private static String nextId() {
         return Integer.toString(nextId++);
     }
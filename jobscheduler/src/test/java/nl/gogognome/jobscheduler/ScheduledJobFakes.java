@@ -26,6 +26,10 @@ public class ScheduledJobFakes {
         return new ScheduledJob(job, state);
     }
 
+    public static ScheduledJob idleJobWithDeadline(Instant deadline) {
+        return new ScheduledJob(JobFakes.withDeadline(deadline), IDLE);
+    }
+
     public static ScheduledJob with(Job job) {
         return new ScheduledJob(job, IDLE);
     }
@@ -0,0 +1,138 @@
+package nl.gogognome.jobscheduler.runnablejobfinder;
+
+import nl.gogognome.jobscheduler.JobFakes;
+import nl.gogognome.jobscheduler.ScheduledJobFakes;
+import nl.gogognome.jobscheduler.scheduler.DuplicateJobException;
+import nl.gogognome.jobscheduler.scheduler.ScheduledJob;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.Assert.*;
+
+public class CoalescingRunnableJobFinderTest {
+
+    private final CoalescingRunnableJobFinder finder = new CoalescingRunnableJobFinder(new FifoRunnableJobFinder());
+
+    @Test
+    public void noJobsPresent_findIdleJobByCoalescingKey_returnsNull() {
+        assertNull(finder.findIdleJobByCoalescingKey("reindex-1"));
+    }
+
+    @Test
+    public void idleJobWithCoalescingKeyPresent_findIdleJobByCoalescingKey_returnsJob() {
+        ScheduledJob scheduledJob = addIdleJob("reindex-1");
+        addIdleJob("reindex-2");
+
+        assertSame(scheduledJob, finder.findIdleJobByCoalescingKey("reindex-1"));
+    }
+
+    @Test
+    public void idleJobWithoutCoalescingKeyPresent_findIdleJobByCoalescingKey_returnsNull() {
+        finder.addJob(ScheduledJobFakes.defaultIdleJob());
+
+        assertNull(finder.findIdleJobByCoalescingKey("reindex-1"));
+    }
+
+    @Test
+    public void jobWithCoalescingKeyStarted_findIdleJobByCoalescingKey_returnsNull() {
+        ScheduledJob scheduledJob = addIdleJob("reindex-1");
+
+        finder.updateJob(scheduledJob.onStart("tester", Instant.now().plus(Duration.ofHours(1))));
+
+        assertNull(finder.findIdleJobByCoalescingKey("reindex-1"));
+    }
+
+    @Test
+    public void jobWithCoalescingKeyRescheduled_findIdleJobByCoalescingKey_returnsRescheduledJob() {
+        ScheduledJob startedJob = addIdleJob("reindex-1").onStart("tester", Instant.now().plus(Duration.ofHours(1)));
+        finder.updateJob(startedJob);
+
+        ScheduledJob rescheduledJob = startedJob.onReschedule();
+        finder.updateJob(rescheduledJob);
+
+        assertSame(rescheduledJob, finder.findIdleJobByCoalescingKey("reindex-1"));
+    }
+
+    @Test
+    public void jobWithCoalescingKeyRemoved_findIdleJobByCoalescingKey_returnsNull() {
+        ScheduledJob scheduledJob = addIdleJob("reindex-1");
+
+        finder.removeJob(scheduledJob.getJob().getId());
+
+        assertNull(finder.findIdleJobByCoalescingKey("reindex-1"));
+    }
+
+    @Test
+    public void runningJobAndNewIdleJobWithSameCoalescingKey_runningJobFinished_findIdleJobByCoalescingKey_returnsNewJob() {
+        ScheduledJob runningJob = addIdleJob("reindex-1").onStart("tester", Instant.now().plus(Duration.ofHours(1)));
+        finder.updateJob(runningJob);
+        ScheduledJob newJob = addIdleJob("reindex-1");
+
+        finder.removeJob(runningJob.getJob().getId());
+
+        assertSame(newJob, finder.findIdleJobByCoalescingKey("reindex-1"));
+    }
+
+    @Test
+    public void twoIdleJobsWithSameCoalescingKey_firstJobStarted_findIdleJobByCoalescingKey_returnsSecondJob() {
+        ScheduledJob runningJob = addIdleJob("reindex-1").onStart("tester", Instant.now().plus(Duration.ofHours(1)));
+        finder.updateJob(runningJob);
+        ScheduledJob newJob = addIdleJob("reindex-1");
+        ScheduledJob rescheduledJob = runningJob.onReschedule();
+        finder.updateJob(rescheduledJob);
+
+        finder.updateJob(newJob.onStart("tester", Instant.now().plus(Duration.ofHours(1))));
+
+        assertSame(rescheduledJob, finder.findIdleJobByCoalescingKey("reindex-1"));
+    }
+
+    @Test
+    public void twoIdleJobsWithSameCoalescingKey_bothRemoved_findIdleJobByCoalescingKey_returnsNull() {
+        ScheduledJob runningJob = addIdleJob("reindex-1").onStart("tester", Instant.now().plus(Duration.ofHours(1)));
+        finder.updateJob(runningJob);
+        ScheduledJob newJob = addIdleJob("reindex-1");
+        finder.updateJob(runningJob.onReschedule());
+
+        finder.removeJob(newJob.getJob().getId());
+        finder.removeJob(runningJob.getJob().getId());
+
+        assertNull(finder.findIdleJobByCoalescingKey("reindex-1"));
+    }
+
+    @Test
+    public void jobsPresent_removeAllScheduledJobs_findIdleJobByCoalescingKey_returnsNull() {
+        addIdleJob("reindex-1");
+
+        finder.removeAllScheduledJobs();
+
+        assertNull(finder.findIdleJobByCoalescingKey("reindex-1"));
+        assertTrue(finder.findAllJobs().isEmpty());
+    }
+
+    @Test
+    public void addJob_addSameJobTwice_shouldFailAndKeepIndex() {
+        ScheduledJob scheduledJob = addIdleJob("reindex-1");
+
+        try {
+            finder.addJob(scheduledJob);
+            fail("Expected exception was not thrown");
+        } catch (DuplicateJobException e) {
+            assertSame(scheduledJob, finder.findIdleJobByCoalescingKey("reindex-1"));
+        }
+    }
+
+    @Test
+    public void idleJobPresent_findNextRunnableJob_delegatesToOtherFinder() {
+        ScheduledJob scheduledJob = addIdleJob("reindex-1");
+
+        assertSame(scheduledJob, finder.findNextRunnableJob());
+    }
+
+    private ScheduledJob addIdleJob(String coalescingKey) {
+        ScheduledJob scheduledJob = ScheduledJobFakes.with(JobFakes.withCoalescingKey(coalescingKey));
+        finder.addJob(scheduledJob);
+        return scheduledJob;
+    }
+}
@@ -0,0 +1,199 @@
+package nl.gogognome.jobscheduler.runnablejobfinder;
+
+import nl.gogognome.jobscheduler.ScheduledJobFakes;
+import nl.gogognome.jobscheduler.persister.NoOperationPersister;
+import nl.gogognome.jobscheduler.scheduler.*;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static java.util.Collections.singleton;
+import static nl.gogognome.jobscheduler.scheduler.JobState.RUNNING;
+import static org.junit.Assert.*;
+
+public class EarliestDeadlineFirstRunnableJobFinderTest {
+
+    private final EarliestDeadlineFirstRunnableJobFinder finder = new EarliestDeadlineFirstRunnableJobFinder();
+
+    @Test
+    public void noJobsPresent_findNextRunnableJob_returnsNull() {
+        assertNull(finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void jobsPresent_findById_returnsJob() {
+        ScheduledJob scheduledJob = ScheduledJobFakes.defaultIdleJob();
+        finder.addJob(scheduledJob);
+
+        assertSame(scheduledJob, finder.findById(scheduledJob.getJob().getId()));
+        assertNull(finder.findById("non-existing"));
+    }
+
+    @Test
+    public void jobsWithDifferentDeadlines_findNextRunnableJob_returnsJobWithEarliestDeadline() {
+        Instant now = Instant.now();
+        ScheduledJob late = ScheduledJobFakes.idleJobWithDeadline(now.plus(Duration.ofHours(2)));
+        ScheduledJob early = ScheduledJobFakes.idleJobWithDeadline(now.plus(Duration.ofHours(1)));
+        ScheduledJob withoutDeadline = ScheduledJobFakes.defaultIdleJob();
+        finder.addJob(withoutDeadline);
+        finder.addJob(late);
+        finder.addJob(early);
+
+        assertSame(early, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void jobsWithoutDeadline_findNextRunnableJob_returnsFirstScheduledJob() {
+        ScheduledJob scheduledJob0 = ScheduledJobFakes.defaultIdleJobStartingAfter(Duration.ofSeconds(-2));
+        ScheduledJob scheduledJob1 = ScheduledJobFakes.defaultIdleJobStartingAfter(Duration.ofSeconds(-1));
+        finder.addJob(scheduledJob1);
+        finder.addJob(scheduledJob0);
+
+        assertSame(scheduledJob0, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void jobWithEarliestDeadlineIsNotRunnableYet_findNextRunnableJob_returnsRunnableJob() {
+        Instant now = Instant.now();
+        ScheduledJob notRunnableYet = ScheduledJobFakes.with(
+                new Job("not-runnable-yet", "someType", null, now.plus(Duration.ofMinutes(1))).withDeadline(now.plus(Duration.ofMinutes(2))));
+        ScheduledJob runnable = ScheduledJobFakes.idleJobWithDeadline(now.plus(Duration.ofHours(1)));
+        finder.addJob(notRunnableYet);
+        finder.addJob(runnable);
+
+        assertSame(runnable, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void nextRunnableJobHasOtherType_findNextRunnableJobOfType_returnsJobOfTypeWithEarliestDeadline() {
+        Instant now = Instant.now();
+        ScheduledJob emailJob = ScheduledJobFakes.with(new Job("email", "email", null, now).withDeadline(now.plus(Duration.ofHours(1))));
+        ScheduledJob lateSmsJob = ScheduledJobFakes.with(new Job("late-sms", "sms", null, now).withDeadline(now.plus(Duration.ofHours(3))));
+        ScheduledJob earlySmsJob = ScheduledJobFakes.with(new Job("early-sms", "sms", null, now).withDeadline(now.plus(Duration.ofHours(2))));
+        finder.addJob(emailJob);
+        finder.addJob(lateSmsJob);
+        finder.addJob(earlySmsJob);
+
+        assertSame(earlySmsJob, finder.findNextRunnableJobOfType("sms"));
+        assertSame(earlySmsJob, finder.findNextRunnableJobOfTypes(singleton("sms")));
+        assertSame(emailJob, finder.findNextRunnableJobOfTypes(new HashSet<>(Arrays.asList("email", "sms"))));
+        assertNull(finder.findNextRunnableJobOfType("push"));
+    }
+
+    @Test
+    public void jobSchedulerWithRequesterOfOtherType_startNextRunnableJob_startsJobBehindNextRunnableJob() {
+        JobScheduler jobScheduler = new JobScheduler(finder, new NoOperationPersister());
+        Instant now = Instant.now();
+        jobScheduler.schedule(new Job("email", "email", null, now).withDeadline(now.plus(Duration.ofHours(1))));
+        jobScheduler.schedule(new Job("sms", "sms", null, now));
+
+        Job job = jobScheduler.startNextRunnableJob("sms-requester", singleton("sms"), 0);
+
+        assertEquals("sms", job.getId());
+    }
+
+    @Test
+    public void startedJob_findNextRunnableJob_returnsNextJob() {
+        Instant now = Instant.now();
+        ScheduledJob early = ScheduledJobFakes.idleJobWithDeadline(now.plus(Duration.ofHours(1)));
+        ScheduledJob late = ScheduledJobFakes.idleJobWithDeadline(now.plus(Duration.ofHours(2)));
+        finder.addJob(early);
+        finder.addJob(late);
+
+        finder.updateJob(early.onStart("tester", now.plus(Duration.ofHours(1))));
+
+        assertSame(late, finder.findNextRunnableJob());
+        assertEquals(RUNNING, finder.findById(early.getJob().getId()).getState());
+    }
+
+    @Test
+    public void rescheduledJob_findNextRunnableJob_returnsRescheduledJob() {
+        Instant now = Instant.now();
+        ScheduledJob early = ScheduledJobFakes.idleJobWithDeadline(now.plus(Duration.ofHours(1)));
+        ScheduledJob late = ScheduledJobFakes.idleJobWithDeadline(now.plus(Duration.ofHours(2)));
+        finder.addJob(early);
+        finder.addJob(late);
+        ScheduledJob startedJob = early.onStart("tester", now.plus(Duration.ofHours(1)));
+        finder.updateJob(startedJob);
+
+        ScheduledJob rescheduledJob = startedJob.onReschedule();
+        finder.updateJob(rescheduledJob);
+
+        assertSame(rescheduledJob, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void removedJob_findNextRunnableJob_returnsNull() {
+        ScheduledJob scheduledJob = ScheduledJobFakes.idleJobWithDeadline(Instant.now().plus(Duration.ofHours(1)));
+        finder.addJob(scheduledJob);
+
+        finder.removeJob(scheduledJob.getJob().getId());
+
+        assertNull(finder.findNextRunnableJob());
+        assertNull(finder.findById(scheduledJob.getJob().getId()));
+    }
+
+    @Test
+    public void manyJobsRemoved_findNextRunnableJob_returnsRemainingJobs() {
+        Instant now = Instant.now();
+        for (int i = 0; i < 5000; i++) {
+            ScheduledJob scheduledJob = ScheduledJobFakes.idleJobWithDeadline(now.plus(Duration.ofSeconds(i)));
+            finder.addJob(scheduledJob);
+            finder.removeJob(scheduledJob.getJob().getId());
+        }
+        ScheduledJob remainingJob = ScheduledJobFakes.idleJobWithDeadline(now.plus(Duration.ofHours(2)));
+        finder.addJob(remainingJob);
+
+        assertSame(remainingJob, finder.findNextRunnableJob());
+        assertEquals(1, finder.findAllJobs().size());
+    }
+
+    @Test
+    public void addJob_addSameJobTwice_shouldFail() {
+        ScheduledJob scheduledJob = ScheduledJobFakes.defaultIdleJob();
+        finder.addJob(scheduledJob);
+
+        try {
+            finder.addJob(scheduledJob);
+            fail("Expected exception was not thrown");
+        } catch (DuplicateJobException e) {
+            assertEquals("A job with id " + scheduledJob.getJob().getId() + " already exists. Jobs must have a unique id!", e.getMessage());
+        }
+    }
+
+    @Test
+    public void updateJob_nonExistingJob_shouldFail() {
+        ScheduledJob scheduledJob = ScheduledJobFakes.defaultIdleJob();
+
+        try {
+            finder.updateJob(scheduledJob);
+            fail("Expected exception was not thrown");
+        } catch (UnknownJobException e) {
+            assertEquals("A job with id " + scheduledJob.getJob().getId() + " does not exist. Only existing jobs can be updated!", e.getMessage());
+        }
+    }
+
+    @Test
+    public void removeJob_noJobPresent_shouldFail() {
+        try {
+            finder.removeJob("two");
+            fail("Expected exception was not thrown");
+        } catch (UnknownJobException e) {
+            assertEquals("Cannot remove job with id two because it does not exist!", e.getMessage());
+        }
+    }
+
+    @Test
+    public void multipleJobsPresent_removeAllScheduledJobs_noJobsPresent() {
+        finder.addJob(ScheduledJobFakes.defaultIdleJob());
+        finder.addJob(ScheduledJobFakes.defaultIdleJob());
+
+        finder.removeAllScheduledJobs();
+
+        assertTrue(finder.findAllJobs().isEmpty());
+        assertNull(finder.findNextRunnableJob());
+    }
+}
@@ -1,11 +1,14 @@
 package nl.gogognome.jobscheduler.runnablejobfinder;
 
+import nl.gogognome.jobscheduler.JobFakes;
 import nl.gogognome.jobscheduler.ScheduledJobFakes;
 import nl.gogognome.jobscheduler.scheduler.*;
 import org.junit.Test;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
 
 import static java.time.Duration.ZERO;
 import static nl.gogognome.jobscheduler.scheduler.JobState.IDLE;
@@ -93,6 +96,26 @@ public class FifoRunnableJobFinderTest {
         assertNull(nextRunnableScheduledJob);
     }
 
+    @Test
+    public void getNextRunnableScheduledJob_clockAfterStartTimeOfJob_returnsJob() {
+        fifoRunnableJobFinder = new FifoRunnableJobFinder(Clock.offset(Clock.systemUTC(), Duration.ofMinutes(2)));
+        ScheduledJob scheduledJob = ScheduledJobFakes.defaultIdleJobStartingAfter(Duration.ofMinutes(1));
+
+        ScheduledJob nextRunnableScheduledJob = getNextRunnableScheduledJob(scheduledJob);
+
+        assertSame(scheduledJob, nextRunnableScheduledJob);
+    }
+
+    @Test
+    public void getTimeoutInstant_returnsOneHourAfterInstantOfClock() {
+        Instant now = Instant.parse("2020-01-01T10:00:00Z");
+        fifoRunnableJobFinder = new FifoRunnableJobFinder(Clock.fixed(now, ZoneOffset.UTC));
+
+        Instant timeoutInstant = fifoRunnableJobFinder.getTimeoutInstant(JobFakes.defaultJob());
+
+        assertEquals(now.plus(Duration.ofHours(1)), timeoutInstant);
+    }
+
     @Test
     public void getNextRunnableScheduledJob_threeJobs_oldestHasScheduledAtTimeInFuture_returnsSecondOldestJob() {
         ScheduledJob scheduledJob0 = ScheduledJobFakes.defaultIdleJobStartingAfter(Duration.ofMinutes(1));
@@ -118,6 +141,19 @@ public class FifoRunnableJobFinderTest {
         }
     }
 
+    @Test
+    public void findNextRunnableJobOfType_jobsOfDifferentTypesPresent_returnsOldestJobOfType() {
+        ScheduledJob emailJob = ScheduledJobFakes.with(JobFakes.withType("email"));
+        ScheduledJob smsJob1 = ScheduledJobFakes.with(JobFakes.withType("sms"));
+        ScheduledJob smsJob2 = ScheduledJobFakes.with(JobFakes.withType("sms"));
+        fifoRunnableJobFinder.addJob(emailJob);
+        fifoRunnableJobFinder.addJob(smsJob1);
+        fifoRunnableJobFinder.addJob(smsJob2);
+
+        assertSame(smsJob1, fifoRunnableJobFinder.findNextRunnableJobOfType("sms"));
+        assertNull(fifoRunnableJobFinder.findNextRunnableJobOfType("push"));
+    }
+
     @Test
     public void addJob_findNextRunnableScheduledJob_returnsJob() {
         ScheduledJob scheduledJob = ScheduledJobFakes.defaultIdleJob();
@@ -0,0 +1,306 @@
+package nl.gogognome.jobscheduler.runnablejobfinder;
+
+import nl.gogognome.jobscheduler.JobFakes;
+import nl.gogognome.jobscheduler.ScheduledJobFakes;
+import nl.gogognome.jobscheduler.persister.NoOperationPersister;
+import nl.gogognome.jobscheduler.scheduler.*;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static java.util.Collections.singleton;
+import static nl.gogognome.test.AssertExtensions.assertThrows;
+import static org.junit.Assert.*;
+
+public class OrderingKeyRunnableJobFinderTest {
+
+    private final OrderingKeyRunnableJobFinder finder = new OrderingKeyRunnableJobFinder();
+
+    @Test
+    public void noJobsPresent_findNextRunnableJob_returnsNull() {
+        assertNull(finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void jobsPresent_findById_returnsJob() {
+        ScheduledJob scheduledJob = addIdleJob("customer-1");
+
+        assertSame(scheduledJob, finder.findById(scheduledJob.getJob().getId()));
+        assertNull(finder.findById("non-existing"));
+    }
+
+    @Test
+    public void twoJobsWithSameOrderingKey_firstJobRunning_findNextRunnableJob_returnsNull() {
+        ScheduledJob first = addIdleJob("customer-1");
+        addIdleJob("customer-1");
+
+        start(first);
+
+        assertNull(finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void twoJobsWithSameOrderingKey_firstJobFinished_findNextRunnableJob_returnsSecondJob() {
+        ScheduledJob first = addIdleJob("customer-1");
+        ScheduledJob second = addIdleJob("customer-1");
+        start(first);
+
+        finder.removeJob(first.getJob().getId());
+
+        assertSame(second, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void twoJobsWithSameOrderingKey_firstJobFailed_findNextRunnableJob_returnsSecondJob() {
+        ScheduledJob first = addIdleJob("customer-1");
+        ScheduledJob second = addIdleJob("customer-1");
+        ScheduledJob startedJob = start(first);
+
+        finder.updateJob(startedJob.onError());
+
+        assertSame(second, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void twoJobsWithSameOrderingKey_firstJobRescheduled_findNextRunnableJob_returnsFirstJobAgain() {
+        ScheduledJob first = addIdleJob("customer-1");
+        addIdleJob("customer-1");
+        ScheduledJob startedJob = start(first);
+
+        ScheduledJob rescheduledJob = startedJob.onReschedule();
+        finder.updateJob(rescheduledJob);
+
+        assertSame(rescheduledJob, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void jobsWithDifferentOrderingKeys_findNextRunnableJob_returnsJobsOfBothKeysInParallel() {
+        ScheduledJob customer1Job1 = addIdleJob("customer-1");
+        addIdleJob("customer-1");
+        ScheduledJob customer2Job1 = addIdleJob("customer-2");
+
+        assertSame(customer1Job1, finder.findNextRunnableJob());
+        start(customer1Job1);
+        assertSame(customer2Job1, finder.findNextRunnableJob());
+        start(customer2Job1);
+        assertNull(finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void jobsWithoutOrderingKey_findNextRunnableJob_returnsJobsInParallel() {
+        ScheduledJob job1 = addIdleJob(null);
+        ScheduledJob job2 = addIdleJob(null);
+
+        assertSame(job1, finder.findNextRunnableJob());
+        start(job1);
+        assertSame(job2, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void firstJobOfOrderingKeyIsScheduledInFuture_findNextRunnableJob_blocksLaterJobsWithSameKey() {
+        ScheduledJob futureJob = ScheduledJobFakes.with(
+                JobFakes.withStartInstant(Instant.now().plus(Duration.ofMinutes(1))).withOrderingKey("customer-1"));
+        finder.addJob(futureJob);
+        addIdleJob("customer-1");
+        ScheduledJob otherCustomerJob = addIdleJob("customer-2");
+
+        assertSame(otherCustomerJob, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void firstJobOfOrderingKeyBecomesRunnable_findNextRunnableJob_returnsThatJob() throws InterruptedException {
+        ScheduledJob soonRunnableJob = ScheduledJobFakes.with(
+                JobFakes.withStartInstant(Instant.now().plus(Duration.ofMillis(50))).withOrderingKey("customer-1"));
+        finder.addJob(soonRunnableJob);
+        assertNull(finder.findNextRunnableJob());
+
+        Thread.sleep(100);
+
+        assertSame(soonRunnableJob, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void removeIdleJobThatIsNotFirst_findNextRunnableJob_keepsOrder() {
+        ScheduledJob first = addIdleJob("customer-1");
+        ScheduledJob second = addIdleJob("customer-1");
+        ScheduledJob third = addIdleJob("customer-1");
+
+        finder.removeJob(second.getJob().getId());
+        start(first);
+        finder.removeJob(first.getJob().getId());
+
+        assertSame(third, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void runningJobLoaded_findNextRunnableJob_blocksIdleJobsWithSameKey() {
+        finder.addJob(new ScheduledJob(JobFakes.withOrderingKey("customer-1"), JobState.RUNNING, "tester", Instant.now()));
+        addIdleJob("customer-1");
+
+        assertNull(finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void addJob_addSameJobTwice_shouldFail() {
+        ScheduledJob scheduledJob = addIdleJob("customer-1");
+
+        try {
+            finder.addJob(scheduledJob);
+            fail("Expected exception was not thrown");
+        } catch (DuplicateJobException e) {
+            assertEquals("A job with id " + scheduledJob.getJob().getId() + " already exists. Jobs must have a unique id!", e.getMessage());
+        }
+    }
+
+    @Test
+    public void updateJob_nonExistingJob_shouldFail() {
+        ScheduledJob scheduledJob = ScheduledJobFakes.defaultIdleJob();
+
+        try {
+            finder.updateJob(scheduledJob);
+            fail("Expected exception was not thrown");
+        } catch (UnknownJobException e) {
+            assertEquals("A job with id " + scheduledJob.getJob().getId() + " does not exist. Only existing jobs can be updated!", e.getMessage());
+        }
+    }
+
+    @Test
+    public void removeJob_noJobPresent_shouldFail() {
+        try {
+            finder.removeJob("two");
+            fail("Expected exception was not thrown");
+        } catch (UnknownJobException e) {
+            assertEquals("Cannot remove job with id two because it does not exist!", e.getMessage());
+        }
+    }
+
+    @Test
+    public void multipleJobsPresent_removeAllScheduledJobs_noJobsPresent() {
+        addIdleJob("customer-1");
+        addIdleJob(null);
+
+        finder.removeAllScheduledJobs();
+
+        assertTrue(finder.findAllJobs().isEmpty());
+        assertNull(finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void nextRunnableJobHasOtherType_findNextRunnableJobOfType_returnsFirstReadyJobOfType() {
+        ScheduledJob emailJob = addIdleJobOf(new Job("email", "email", null, Instant.now()).withOrderingKey("customer-1"));
+        ScheduledJob smsJob1 = addIdleJobOf(new Job("sms-1", "sms", null, Instant.now()).withOrderingKey("customer-2"));
+        addIdleJobOf(new Job("sms-2", "sms", null, Instant.now()).withOrderingKey("customer-2"));
+
+        assertSame(emailJob, finder.findNextRunnableJob());
+        assertSame(smsJob1, finder.findNextRunnableJobOfType("sms"));
+        assertSame(smsJob1, finder.findNextRunnableJobOfTypes(singleton("sms")));
+        assertNull(finder.findNextRunnableJobOfType("push"));
+    }
+
+    @Test
+    public void jobOfTypeBlockedByRunningJobWithSameOrderingKey_findNextRunnableJobOfType_returnsNull() {
+        ScheduledJob smsJob1 = addIdleJobOf(new Job("sms-1", "sms", null, Instant.now()).withOrderingKey("customer-1"));
+        addIdleJobOf(new Job("sms-2", "sms", null, Instant.now()).withOrderingKey("customer-1"));
+        addIdleJobOf(new Job("email", "email", null, Instant.now()).withOrderingKey("customer-2"));
+
+        start(smsJob1);
+
+        assertNull(finder.findNextRunnableJobOfType("sms"));
+    }
+
+    @Test
+    public void jobSchedulerWithRequesterOfOtherType_startNextRunnableJob_startsJobBehindNextRunnableJob() {
+        JobScheduler jobScheduler = new JobScheduler(finder, new NoOperationPersister());
+        jobScheduler.schedule(new Job("email", "email", null, Instant.now()));
+        jobScheduler.schedule(new Job("sms", "sms", null, Instant.now()));
+
+        Job job = jobScheduler.startNextRunnableJob("sms-requester", singleton("sms"), 0);
+
+        assertEquals("sms", job.getId());
+    }
+
+    @Test
+    public void jobSchedulerWithTwoJobsWithSameOrderingKey_batchRemovesFirstJobAndFails_firstJobIsStartedFirst() {
+        JobScheduler jobScheduler = new JobScheduler(finder, new NoOperationPersister());
+        jobScheduler.schedule(new Job("first", "someType", null, Instant.now()).withOrderingKey("customer-1"));
+        jobScheduler.schedule(new Job("second", "someType", null, Instant.now()).withOrderingKey("customer-1"));
+
+        assertThrows(IllegalStateException.class, () -> jobScheduler.runBatch(() -> {
+            jobScheduler.remove("first");
+            throw new IllegalStateException("transaction rolled back");
+        }));
+
+        assertEquals("first", jobScheduler.startNextRunnableJob("tester", 0).getId());
+        assertNull(jobScheduler.tryStartNextRunnableJob("tester"));
+    }
+
+    @Test
+    public void threeJobsWithSameOrderingKey_batchRemovesMiddleAndFirstJobAndIsUndone_jobsKeepTheirOrder() {
+        ScheduledJob first = addIdleJob("customer-1");
+        ScheduledJob second = addIdleJob("customer-1");
+        ScheduledJob third = addIdleJob("customer-1");
+
+        finder.batchStarted();
+        finder.removeJob(second.getJob().getId());
+        finder.removeJob(first.getJob().getId());
+        finder.addJob(second);
+        finder.addJob(first);
+        finder.batchEnded(true);
+
+        assertSame(first, finder.findNextRunnableJob());
+        finder.removeJob(first.getJob().getId());
+        assertSame(second, finder.findNextRunnableJob());
+        finder.removeJob(second.getJob().getId());
+        assertSame(third, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void threeJobsWithSameOrderingKey_overlappingBatchesRemoveFirstAndSecondJobAndSecondBatchIsUndone_secondJobIsNextRunnableJob() {
+        ScheduledJob first = addIdleJob("customer-1");
+        ScheduledJob second = addIdleJob("customer-1");
+        ScheduledJob third = addIdleJob("customer-1");
+
+        finder.batchStarted();
+        finder.removeJob(first.getJob().getId());
+        finder.batchStarted();
+        finder.removeJob(second.getJob().getId());
+        finder.batchEnded(false);
+        finder.addJob(second);
+        finder.batchEnded(true);
+
+        assertSame(second, finder.findNextRunnableJob());
+        finder.removeJob(second.getJob().getId());
+        assertSame(third, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void twoJobsWithSameOrderingKey_batchRemovesFirstJobAndSucceeds_secondJobIsNextRunnableJob() {
+        ScheduledJob first = addIdleJob("customer-1");
+        ScheduledJob second = addIdleJob("customer-1");
+
+        finder.batchStarted();
+        finder.removeJob(first.getJob().getId());
+        finder.batchEnded(false);
+
+        assertSame(second, finder.findNextRunnableJob());
+    }
+
+    private ScheduledJob addIdleJobOf(Job job) {
+        ScheduledJob scheduledJob = ScheduledJobFakes.with(job);
+        finder.addJob(scheduledJob);
+        return scheduledJob;
+    }
+
+    private ScheduledJob addIdleJob(String orderingKey) {
+        ScheduledJob scheduledJob = ScheduledJobFakes.with(JobFakes.withOrderingKey(orderingKey));
+        finder.addJob(scheduledJob);
+        return scheduledJob;
+    }
+
+    private ScheduledJob start(ScheduledJob scheduledJob) {
+        ScheduledJob startedJob = scheduledJob.onStart("tester", Instant.now().plus(Duration.ofHours(1)));
+        finder.updateJob(startedJob);
+        return startedJob;
+    }
+}
@@ -0,0 +1,119 @@
+package nl.gogognome.jobscheduler.runnablejobfinder;
+
+import nl.gogognome.jobscheduler.JobFakes;
+import nl.gogognome.jobscheduler.ScheduledJobFakes;
+import nl.gogognome.jobscheduler.persister.NoOperationPersister;
+import nl.gogognome.jobscheduler.scheduler.Job;
+import nl.gogognome.jobscheduler.scheduler.JobScheduler;
+import nl.gogognome.jobscheduler.scheduler.ScheduledJob;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.Assert.*;
+
+public class RateLimitingRunnableJobFinderTest {
+
+    private final RateLimitingRunnableJobFinder finder = new RateLimitingRunnableJobFinder();
+
+    @Test
+    public void typeWithoutRateLimit_findNextRunnableJob_returnsAllJobs() {
+        ScheduledJob job1 = addIdleJob("email");
+        ScheduledJob job2 = addIdleJob("email");
+
+        assertSame(job1, finder.findNextRunnableJob());
+        start(job1);
+        assertSame(job2, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void rateLimitedTypeWithoutTokens_findNextRunnableJob_returnsNull() {
+        finder.setRateLimit("api", 1, 1);
+        ScheduledJob job1 = addIdleJob("api");
+        addIdleJob("api");
+
+        start(job1);
+
+        assertNull(finder.findNextRunnableJob());
+        assertNull(finder.findNextRunnableJobOfType("api"));
+    }
+
+    @Test
+    public void rateLimitedTypeWithoutTokens_findNextRunnableJob_returnsJobOfOtherType() {
+        finder.setRateLimit("api", 1, 1);
+        ScheduledJob apiJob1 = addIdleJob("api");
+        addIdleJob("api");
+        ScheduledJob emailJob = addIdleJob("email");
+
+        start(apiJob1);
+
+        assertSame(emailJob, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void rateLimitedTypeWithBurst_findNextRunnableJob_returnsJobsUntilBurstIsUsed() {
+        finder.setRateLimit("api", 1, 2);
+        ScheduledJob job1 = addIdleJob("api");
+        ScheduledJob job2 = addIdleJob("api");
+        addIdleJob("api");
+
+        start(job1);
+        assertSame(job2, finder.findNextRunnableJob());
+        start(job2);
+        assertNull(finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void rateLimitedTypeWithoutTokens_getNextRunnableInstant_returnsInstantNextTokenIsAvailable() {
+        Instant beforeStart = Instant.now();
+        finder.setRateLimit("api", 1, 1);
+        ScheduledJob job1 = addIdleJob("api");
+        addIdleJob("api");
+
+        start(job1);
+
+        Instant nextRunnableInstant = finder.getNextRunnableInstant();
+        assertFalse(nextRunnableInstant.isBefore(beforeStart.plus(Duration.ofSeconds(1))));
+        assertTrue(nextRunnableInstant.isBefore(Instant.now().plus(Duration.ofMillis(1100))));
+    }
+
+    @Test
+    public void noIdleJobs_getNextRunnableInstant_returnsNull() {
+        assertNull(finder.getNextRunnableInstant());
+    }
+
+    @Test
+    public void jobScheduledInFuture_getNextRunnableInstant_returnsScheduledAtInstant() {
+        Instant scheduledAtInstant = Instant.now().plus(Duration.ofMinutes(1));
+        finder.addJob(ScheduledJobFakes.with(JobFakes.withStartInstant(scheduledAtInstant)));
+
+        assertEquals(scheduledAtInstant, finder.getNextRunnableInstant());
+    }
+
+    @Test
+    public void rateLimitedType_jobSchedulerWaitsUntilTokenIsAvailable() {
+        finder.setRateLimit("api", 1, 1);
+        JobScheduler jobScheduler = new JobScheduler(finder, new NoOperationPersister());
+        jobScheduler.schedule(JobFakes.withType("api"));
+        jobScheduler.schedule(JobFakes.withType("api"));
+        assertNotNull(jobScheduler.startNextRunnableJob("tester", 0));
+        long start = System.currentTimeMillis();
+
+        Job job = jobScheduler.startNextRunnableJob("tester", 3000);
+
+        long duration = System.currentTimeMillis() - start;
+        assertNotNull(job);
+        assertTrue("waited " + duration + " ms", duration >= 900 && duration < 1200);
+    }
+
+    private ScheduledJob addIdleJob(String type) {
+        ScheduledJob scheduledJob = ScheduledJobFakes.with(JobFakes.withType(type));
+        finder.addJob(scheduledJob);
+        return scheduledJob;
+    }
+
+    private void start(ScheduledJob scheduledJob) {
+        finder.updateJob(scheduledJob.onStart("tester", Instant.now().plus(Duration.ofHours(1))));
+    }
+}
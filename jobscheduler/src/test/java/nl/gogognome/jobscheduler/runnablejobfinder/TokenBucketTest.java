@@ -0,0 +1,85 @@
+package nl.gogognome.jobscheduler.runnablejobfinder;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.Assert.*;
+
+public class TokenBucketTest {
+
+    private final Instant start = Instant.now();
+
+    @Test
+    public void newBucket_isFull() {
+        TokenBucket tokenBucket = new TokenBucket(10, 3, start);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(tokenBucket.hasToken(start));
+            tokenBucket.takeToken(start);
+        }
+        assertFalse(tokenBucket.hasToken(start));
+    }
+
+    @Test
+    public void emptyBucket_getInstantTokenAvailable_returnsInstantOfNextRefill() {
+        TokenBucket tokenBucket = new TokenBucket(10, 1, start);
+        tokenBucket.takeToken(start);
+
+        assertEquals(start.plus(Duration.ofMillis(100)), tokenBucket.getInstantTokenAvailable(start));
+        assertEquals(start.plus(Duration.ofMillis(100)), tokenBucket.getInstantTokenAvailable(start.plus(Duration.ofMillis(50))));
+    }
+
+    @Test
+    public void emptyBucket_timePasses_bucketIsRefilled() {
+        TokenBucket tokenBucket = new TokenBucket(10, 1, start);
+        tokenBucket.takeToken(start);
+
+        assertFalse(tokenBucket.hasToken(start.plus(Duration.ofMillis(99))));
+        assertTrue(tokenBucket.hasToken(start.plus(Duration.ofMillis(100))));
+    }
+
+    @Test
+    public void bucketWithTokens_getInstantTokenAvailable_returnsNow() {
+        TokenBucket tokenBucket = new TokenBucket(10, 1, start);
+
+        assertEquals(start, tokenBucket.getInstantTokenAvailable(start));
+    }
+
+    @Test
+    public void bucketIdleForLongTime_containsAtMostCapacityTokens() {
+        TokenBucket tokenBucket = new TokenBucket(10, 2, start);
+        Instant later = start.plus(Duration.ofHours(1));
+
+        tokenBucket.takeToken(later);
+        tokenBucket.takeToken(later);
+
+        assertFalse(tokenBucket.hasToken(later));
+    }
+
+    @Test
+    public void tokenTakenFromEmptyBucket_nextTokenIsDelayed() {
+        TokenBucket tokenBucket = new TokenBucket(10, 1, start);
+        tokenBucket.takeToken(start);
+        tokenBucket.takeToken(start);
+
+        assertEquals(start.plus(Duration.ofMillis(200)), tokenBucket.getInstantTokenAvailable(start));
+    }
+
+    @Test
+    public void invalidParameters_throwsException() {
+        try {
+            new TokenBucket(0, 1, start);
+            fail("Expected exception was not thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("tokensPerSecond must be positive", e.getMessage());
+        }
+        try {
+            new TokenBucket(1, 0, start);
+            fail("Expected exception was not thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("capacity must be at least one", e.getMessage());
+        }
+    }
+}
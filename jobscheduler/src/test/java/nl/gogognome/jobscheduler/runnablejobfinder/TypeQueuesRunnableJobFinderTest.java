@@ -0,0 +1,216 @@
+package nl.gogognome.jobscheduler.runnablejobfinder;
+
+import nl.gogognome.jobscheduler.JobFakes;
+import nl.gogognome.jobscheduler.ScheduledJobFakes;
+import nl.gogognome.jobscheduler.persister.NoOperationPersister;
+import nl.gogognome.jobscheduler.scheduler.*;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.Collections.singleton;
+import static org.junit.Assert.*;
+
+public class TypeQueuesRunnableJobFinderTest {
+
+    private final TypeQueuesRunnableJobFinder finder = new TypeQueuesRunnableJobFinder();
+
+    @Test
+    public void noJobsPresent_findNextRunnableJob_returnsNull() {
+        assertNull(finder.findNextRunnableJob());
+        assertNull(finder.findNextRunnableJobOfType("email"));
+    }
+
+    @Test
+    public void jobsPresent_findById_returnsJob() {
+        ScheduledJob scheduledJob = addIdleJob("email");
+
+        assertSame(scheduledJob, finder.findById(scheduledJob.getJob().getId()));
+        assertNull(finder.findById("non-existing"));
+    }
+
+    @Test
+    public void jobsOfDifferentTypesPresent_findNextRunnableJob_returnsOldestJob() {
+        ScheduledJob oldest = ScheduledJobFakes.with(new Job("oldest", "sms", null, Instant.now().minus(Duration.ofMinutes(1))));
+        addIdleJob("email");
+        finder.addJob(oldest);
+
+        assertSame(oldest, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void jobsWithSameScheduledAtInstant_findNextRunnableJob_returnsFirstAddedJob() {
+        Instant scheduledAtInstant = Instant.now();
+        ScheduledJob first = ScheduledJobFakes.with(new Job("first", "email", null, scheduledAtInstant));
+        ScheduledJob second = ScheduledJobFakes.with(new Job("second", "sms", null, scheduledAtInstant));
+        finder.addJob(first);
+        finder.addJob(second);
+
+        assertSame(first, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void jobsOfDifferentTypesPresent_findNextRunnableJobOfType_returnsOldestJobOfType() {
+        addIdleJob("email");
+        ScheduledJob smsJob1 = addIdleJob("sms");
+        addIdleJob("sms");
+
+        assertSame(smsJob1, finder.findNextRunnableJobOfType("sms"));
+        assertNull(finder.findNextRunnableJobOfType("push"));
+    }
+
+    @Test
+    public void jobsOfDifferentTypesPresent_findNextRunnableJobOfTypes_returnsOldestJobOfAcceptedTypes() {
+        ScheduledJob oldest = ScheduledJobFakes.with(new Job("oldest", "sms", null, Instant.now().minus(Duration.ofMinutes(2))));
+        ScheduledJob older = ScheduledJobFakes.with(new Job("older", "email", null, Instant.now().minus(Duration.ofMinutes(1))));
+        finder.addJob(oldest);
+        finder.addJob(older);
+        addIdleJob("push");
+
+        assertSame(older, finder.findNextRunnableJobOfTypes(new HashSet<>(Arrays.asList("email", "push"))));
+        assertNull(finder.findNextRunnableJobOfTypes(singleton("letter")));
+    }
+
+    @Test
+    public void jobsOfDifferentTypesPresent_getNextRunnableInstantOfTypes_ignoresJobsOfOtherTypes() {
+        Instant inOneMinute = Instant.now().plus(Duration.ofMinutes(1));
+        addIdleJob("email");
+        finder.addJob(ScheduledJobFakes.with(new Job("sms", "sms", null, inOneMinute)));
+
+        assertEquals(inOneMinute, finder.getNextRunnableInstant(singleton("sms")));
+        assertNull(finder.getNextRunnableInstant(singleton("letter")));
+        assertTrue(finder.getNextRunnableInstant(null).isBefore(inOneMinute));
+    }
+
+    @Test
+    public void jobSchedulerWithWaitingRequesters_scheduleJob_wakesUpRequesterThatAcceptsType() throws Exception {
+        JobScheduler jobScheduler = new JobScheduler(finder, new NoOperationPersister());
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<Job> emailJob = executorService.submit(() -> jobScheduler.startNextRunnableJob("email-requester", singleton("email"), 2000));
+            Future<Job> smsJob = executorService.submit(() -> jobScheduler.startNextRunnableJob("sms-requester", singleton("sms"), 2000));
+            Thread.sleep(100);
+
+            Job job = JobFakes.withType("sms");
+            jobScheduler.schedule(job);
+
+            assertEquals(job, smsJob.get());
+            assertNull(emailJob.get());
+            assertEquals("sms-requester", finder.findById(job.getId()).getRequesterId());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void jobOfTypeNotRunnableYet_findNextRunnableJobOfType_returnsNull() {
+        finder.addJob(ScheduledJobFakes.with(new Job("future", "email", null, Instant.now().plus(Duration.ofMinutes(1)))));
+
+        assertNull(finder.findNextRunnableJobOfType("email"));
+        assertNull(finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void clockAfterScheduledAtInstant_findNextRunnableJobOfType_returnsJob() {
+        TypeQueuesRunnableJobFinder finder = new TypeQueuesRunnableJobFinder(Clock.offset(Clock.systemUTC(), Duration.ofMinutes(2)));
+        ScheduledJob scheduledJob = ScheduledJobFakes.with(new Job("future", "email", null, Instant.now().plus(Duration.ofMinutes(1))));
+        finder.addJob(scheduledJob);
+
+        assertSame(scheduledJob, finder.findNextRunnableJobOfType("email"));
+        assertSame(scheduledJob, finder.findNextRunnableJob());
+    }
+
+    @Test
+    public void startedJobs_findNextRunnableJobOfType_returnsNextIdleJobOfType() {
+        ScheduledJob emailJob1 = addIdleJob("email");
+        ScheduledJob emailJob2 = addIdleJob("email");
+
+        finder.updateJob(emailJob1.onStart("tester", Instant.now().plus(Duration.ofHours(1))));
+
+        assertSame(emailJob2, finder.findNextRunnableJobOfType("email"));
+        finder.updateJob(emailJob2.onStart("tester", Instant.now().plus(Duration.ofHours(1))));
+        assertNull(finder.findNextRunnableJobOfType("email"));
+    }
+
+    @Test
+    public void rescheduledJob_findNextRunnableJobOfType_returnsRescheduledJobFirst() {
+        ScheduledJob emailJob1 = addIdleJob("email");
+        addIdleJob("email");
+        ScheduledJob startedJob = emailJob1.onStart("tester", Instant.now().plus(Duration.ofHours(1)));
+        finder.updateJob(startedJob);
+
+        ScheduledJob rescheduledJob = startedJob.onReschedule();
+        finder.updateJob(rescheduledJob);
+
+        assertSame(rescheduledJob, finder.findNextRunnableJobOfType("email"));
+    }
+
+    @Test
+    public void removedJob_findNextRunnableJob_returnsNull() {
+        ScheduledJob scheduledJob = addIdleJob("email");
+
+        finder.removeJob(scheduledJob.getJob().getId());
+
+        assertNull(finder.findNextRunnableJob());
+        assertNull(finder.findNextRunnableJobOfType("email"));
+        assertNull(finder.findById(scheduledJob.getJob().getId()));
+    }
+
+    @Test
+    public void addJob_addSameJobTwice_shouldFail() {
+        ScheduledJob scheduledJob = addIdleJob("email");
+
+        try {
+            finder.addJob(scheduledJob);
+            fail("Expected exception was not thrown");
+        } catch (DuplicateJobException e) {
+            assertEquals("A job with id " + scheduledJob.getJob().getId() + " already exists. Jobs must have a unique id!", e.getMessage());
+        }
+    }
+
+    @Test
+    public void updateJob_nonExistingJob_shouldFail() {
+        ScheduledJob scheduledJob = ScheduledJobFakes.defaultIdleJob();
+
+        try {
+            finder.updateJob(scheduledJob);
+            fail("Expected exception was not thrown");
+        } catch (UnknownJobException e) {
+            assertEquals("A job with id " + scheduledJob.getJob().getId() + " does not exist. Only existing jobs can be updated!", e.getMessage());
+        }
+    }
+
+    @Test
+    public void removeJob_noJobPresent_shouldFail() {
+        try {
+            finder.removeJob("two");
+            fail("Expected exception was not thrown");
+        } catch (UnknownJobException e) {
+            assertEquals("Cannot remove job with id two because it does not exist!", e.getMessage());
+        }
+    }
+
+    @Test
+    public void multipleJobsPresent_removeAllScheduledJobs_noJobsPresent() {
+        addIdleJob("email");
+        addIdleJob("sms");
+
+        finder.removeAllScheduledJobs();
+
+        assertTrue(finder.findAllJobs().isEmpty());
+        assertNull(finder.findNextRunnableJob());
+    }
+
+    private ScheduledJob addIdleJob(String type) {
+        ScheduledJob scheduledJob = ScheduledJobFakes.with(JobFakes.withType(type));
+        finder.addJob(scheduledJob);
+        return scheduledJob;
+    }
+}
@@ -0,0 +1,57 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import org.junit.Test;
+
+import static nl.gogognome.test.AssertExtensions.assertThrows;
+import static org.junit.Assert.*;
+
+public class CapacityLimitsTest {
+
+    @Test
+    public void unlimited_hasNoLimits() {
+        CapacityLimits capacityLimits = CapacityLimits.unlimited();
+
+        assertEquals(0, capacityLimits.getMaxNrJobs());
+        assertNull(capacityLimits.getMaxNrJobsOfType("someType"));
+        assertEquals(0, capacityLimits.getMaxMemoryBytes());
+        assertEquals(OverflowPolicy.REJECT, capacityLimits.getOverflowPolicy());
+        assertTrue(capacityLimits.isUnlimited());
+    }
+
+    @Test
+    public void anyLimitSet_isUnlimited_returnsFalse() {
+        assertFalse(CapacityLimits.unlimited().withMaxNrJobs(10).isUnlimited());
+        assertFalse(CapacityLimits.unlimited().withMaxNrJobsOfType("email", 3).isUnlimited());
+        assertFalse(CapacityLimits.unlimited().withMaxMemoryBytes(1_000_000).isUnlimited());
+        assertTrue(CapacityLimits.unlimited().withOverflowPolicy(OverflowPolicy.SPILL).isUnlimited());
+    }
+
+    @Test
+    public void withers_returnCopyWithChangedLimit() {
+        CapacityLimits original = CapacityLimits.unlimited();
+
+        CapacityLimits capacityLimits = original.withMaxNrJobs(10)
+                .withMaxNrJobsOfType("email", 3)
+                .withMaxMemoryBytes(1_000_000)
+                .withOverflowPolicy(OverflowPolicy.BLOCK)
+                .withBlockTimeoutMilliseconds(500);
+
+        assertEquals(10, capacityLimits.getMaxNrJobs());
+        assertEquals(Integer.valueOf(3), capacityLimits.getMaxNrJobsOfType("email"));
+        assertNull(capacityLimits.getMaxNrJobsOfType("sms"));
+        assertEquals(1_000_000, capacityLimits.getMaxMemoryBytes());
+        assertEquals(OverflowPolicy.BLOCK, capacityLimits.getOverflowPolicy());
+        assertEquals(500, capacityLimits.getBlockTimeoutMilliseconds());
+        assertEquals(0, original.getMaxNrJobs());
+        assertNull(original.getMaxNrJobsOfType("email"));
+    }
+
+    @Test
+    public void invalidLimits_throwException() {
+        assertThrows(IllegalArgumentException.class, () -> CapacityLimits.unlimited().withMaxNrJobs(-1));
+        assertThrows(IllegalArgumentException.class, () -> CapacityLimits.unlimited().withMaxNrJobsOfType("email", 0));
+        assertThrows(IllegalArgumentException.class, () -> CapacityLimits.unlimited().withMaxMemoryBytes(-1));
+        assertThrows(IllegalArgumentException.class, () -> CapacityLimits.unlimited().withBlockTimeoutMilliseconds(-1));
+        assertThrows(NullPointerException.class, () -> CapacityLimits.unlimited().withOverflowPolicy(null));
+    }
+}
@@ -0,0 +1,128 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static nl.gogognome.jobscheduler.scheduler.JobState.*;
+import static nl.gogognome.test.AssertExtensions.assertThrows;
+import static org.junit.Assert.*;
+
+public class JobIndexTest {
+
+    private final Instant now = Instant.now();
+    private final JobIndex jobIndex = new JobIndex();
+
+    @Test
+    public void noJobs_find_returnsEmptyLastPage() {
+        JobPage page = jobIndex.find(new JobQuery());
+
+        assertTrue(page.getJobs().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void jobsOfDifferentStatesAndTypes_findWithStateAndType_returnsMatchingJobsOrderedByScheduledAtInstant() {
+        ScheduledJob job1 = add("1", "email", ERROR, now.minusSeconds(10));
+        add("2", "email", IDLE, now.minusSeconds(20));
+        add("3", "sms", ERROR, now.minusSeconds(30));
+        ScheduledJob job4 = add("4", "email", ERROR, now.minusSeconds(40));
+
+        JobPage page = jobIndex.find(new JobQuery().withState(ERROR).withType("email"));
+
+        assertEquals(Arrays.asList(job4, job1), page.getJobs());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void jobsWithDifferentScheduledAtInstants_findScheduledBefore_returnsOlderJobsAndJobsWithoutScheduledAtInstant() {
+        ScheduledJob jobWithoutInstant = add("1", "email", ERROR, null);
+        ScheduledJob oldJob = add("2", "email", ERROR, now.minus(Duration.ofHours(2)));
+        add("3", "email", ERROR, now);
+
+        JobPage page = jobIndex.find(new JobQuery().withState(ERROR).withScheduledBefore(now.minus(Duration.ofHours(1))));
+
+        assertEquals(Arrays.asList(jobWithoutInstant, oldJob), page.getJobs());
+    }
+
+    @Test
+    public void jobsWithDifferentScheduledAtInstants_findScheduledAtOrAfter_returnsNewerJobs() {
+        add("1", "email", IDLE, null);
+        add("2", "email", IDLE, now.minusSeconds(1));
+        ScheduledJob job3 = add("3", "email", IDLE, now);
+        ScheduledJob job4 = add("4", "sms", IDLE, now.plusSeconds(1));
+
+        JobPage page = jobIndex.find(new JobQuery().withScheduledAtOrAfter(now));
+
+        assertEquals(Arrays.asList(job3, job4), page.getJobs());
+    }
+
+    @Test
+    public void moreJobsThanLimit_findWithCursor_returnsAllJobsPageByPage() {
+        List<ScheduledJob> expectedJobs = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            expectedJobs.add(add("job-" + i, i % 2 == 0 ? "email" : "sms", IDLE, now.plusSeconds(i)));
+        }
+
+        List<ScheduledJob> foundJobs = new ArrayList<>();
+        JobQuery query = new JobQuery().withLimit(3);
+        int nrPages = 0;
+        do {
+            JobPage page = jobIndex.find(query);
+            foundJobs.addAll(page.getJobs());
+            query = query.withCursor(page.getNextCursor());
+            nrPages++;
+        } while (query.getCursor() != null);
+
+        assertEquals(expectedJobs, foundJobs);
+        assertEquals(3, nrPages);
+    }
+
+    @Test
+    public void jobsWithSameScheduledAtInstant_pagesAreOrderedById() {
+        ScheduledJob jobA = add("a", "email", IDLE, now);
+        ScheduledJob jobB = add("b", "email", IDLE, now);
+
+        JobPage firstPage = jobIndex.find(new JobQuery().withLimit(1));
+        JobPage secondPage = jobIndex.find(new JobQuery().withLimit(1).withCursor(firstPage.getNextCursor()));
+
+        assertEquals(Arrays.asList(jobA), firstPage.getJobs());
+        assertEquals(Arrays.asList(jobB), secondPage.getJobs());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    public void removedJob_find_doesNotReturnJob() {
+        ScheduledJob scheduledJob = add("1", "email", IDLE, now);
+
+        jobIndex.remove(scheduledJob);
+
+        assertTrue(jobIndex.find(new JobQuery()).getJobs().isEmpty());
+    }
+
+    @Test
+    public void invalidCursor_find_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> jobIndex.find(new JobQuery().withCursor("invalid")));
+    }
+
+    @Test
+    public void page_candidatesInAnyOrder_returnsMatchingCandidatesInOrder() {
+        ScheduledJob job1 = new ScheduledJob(new Job("1", "email", null, now), RUNNING, "tester", null);
+        ScheduledJob job2 = new ScheduledJob(new Job("2", "sms", null, now.minusSeconds(1)), RUNNING, "tester", null);
+        ScheduledJob job3 = new ScheduledJob(new Job("3", "email", null, now.minusSeconds(2)), RUNNING, "tester", null);
+
+        JobPage page = JobIndex.page(Arrays.asList(job1, job2, job3), new JobQuery().withType("email").withRequesterId("tester"));
+
+        assertEquals(Arrays.asList(job3, job1), page.getJobs());
+    }
+
+    private ScheduledJob add(String id, String type, JobState state, Instant scheduledAtInstant) {
+        ScheduledJob scheduledJob = new ScheduledJob(new Job(id, type, null, scheduledAtInstant), state);
+        jobIndex.add(scheduledJob);
+        return scheduledJob;
+    }
+}
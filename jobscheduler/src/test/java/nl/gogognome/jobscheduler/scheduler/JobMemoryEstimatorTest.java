@@ -0,0 +1,64 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static nl.gogognome.jobscheduler.scheduler.JobState.IDLE;
+import static nl.gogognome.jobscheduler.scheduler.JobState.RUNNING;
+import static org.junit.Assert.*;
+
+public class JobMemoryEstimatorTest {
+
+    @Test
+    public void jobWithoutData_hasNoPayloadBytes() {
+        MemoryUsage memoryUsage = JobMemoryEstimator.estimate(new ScheduledJob(new Job("1", "email", null, null), IDLE));
+
+        assertEquals(0, memoryUsage.getPayloadBytes());
+        assertTrue(memoryUsage.getObjectOverheadBytes() > 0);
+        assertTrue(memoryUsage.getIndexEntryBytes() > 0);
+    }
+
+    @Test
+    public void largerData_increasesOnlyPayloadBytes() {
+        MemoryUsage small = JobMemoryEstimator.estimate(new ScheduledJob(new Job("1", "email", "a", null), IDLE));
+        MemoryUsage large = JobMemoryEstimator.estimate(new ScheduledJob(new Job("1", "email", new String(new char[1000]), null), IDLE));
+
+        assertTrue(large.getPayloadBytes() >= 2000);
+        assertTrue(large.getPayloadBytes() > small.getPayloadBytes());
+        assertEquals(small.getObjectOverheadBytes(), large.getObjectOverheadBytes());
+        assertEquals(small.getIndexEntryBytes(), large.getIndexEntryBytes());
+    }
+
+    @Test
+    public void runningJob_countsTimeoutInstant() {
+        Job job = new Job("1", "email", null, Instant.now());
+
+        MemoryUsage idle = JobMemoryEstimator.estimate(new ScheduledJob(job, IDLE));
+        MemoryUsage running = JobMemoryEstimator.estimate(new ScheduledJob(job, RUNNING, "tester", Instant.now()));
+
+        assertTrue(running.getObjectOverheadBytes() > idle.getObjectOverheadBytes());
+    }
+
+    @Test
+    public void longerTypeAndRequesterId_doNotChangeEstimate() {
+        Instant timeoutAtInstant = Instant.now();
+        MemoryUsage shortStrings = JobMemoryEstimator.estimate(
+                new ScheduledJob(new Job("1", "a", null, null), RUNNING, "r", timeoutAtInstant));
+        MemoryUsage longStrings = JobMemoryEstimator.estimate(
+                new ScheduledJob(new Job("1", new String(new char[100]), null, null), RUNNING, new String(new char[100]), timeoutAtInstant));
+
+        assertEquals(shortStrings, longStrings);
+    }
+
+    @Test
+    public void bytesPerJobOfRunnableJobFinder_areAddedToIndexEntryBytes() {
+        ScheduledJob scheduledJob = new ScheduledJob(new Job("1", "email", null, null), IDLE);
+
+        MemoryUsage small = JobMemoryEstimator.estimate(scheduledJob, 8);
+        MemoryUsage large = JobMemoryEstimator.estimate(scheduledJob, 108);
+
+        assertEquals(100, large.getIndexEntryBytes() - small.getIndexEntryBytes());
+        assertEquals(small.getObjectOverheadBytes(), large.getObjectOverheadBytes());
+    }
+}
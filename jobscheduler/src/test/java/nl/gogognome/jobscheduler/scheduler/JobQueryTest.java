@@ -0,0 +1,42 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static nl.gogognome.jobscheduler.scheduler.JobState.*;
+import static nl.gogognome.test.AssertExtensions.assertThrows;
+import static org.junit.Assert.*;
+
+public class JobQueryTest {
+
+    private final Instant now = Instant.now();
+    private final ScheduledJob runningJob = new ScheduledJob(new Job("1", "email", null, now), RUNNING, "tester", null);
+
+    @Test
+    public void queryWithoutFilters_matchesAllJobs() {
+        assertTrue(new JobQuery().matches(runningJob));
+        assertTrue(new JobQuery().matches(new ScheduledJob(new Job("2", "sms", null, null), IDLE)));
+    }
+
+    @Test
+    public void queryWithFilters_matchesOnlyJobsThatMatchAllFilters() {
+        assertTrue(new JobQuery().withState(RUNNING).withType("email").withRequesterId("tester").matches(runningJob));
+        assertFalse(new JobQuery().withState(IDLE).matches(runningJob));
+        assertFalse(new JobQuery().withType("sms").matches(runningJob));
+        assertFalse(new JobQuery().withRequesterId("other").matches(runningJob));
+    }
+
+    @Test
+    public void queryWithScheduledAtFilters_matchesJobsInInterval() {
+        assertTrue(new JobQuery().withScheduledAtOrAfter(now).matches(runningJob));
+        assertFalse(new JobQuery().withScheduledAtOrAfter(now.plusSeconds(1)).matches(runningJob));
+        assertTrue(new JobQuery().withScheduledBefore(now.plusSeconds(1)).matches(runningJob));
+        assertFalse(new JobQuery().withScheduledBefore(now).matches(runningJob));
+    }
+
+    @Test
+    public void withLimit_limitLessThanOne_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> new JobQuery().withLimit(0));
+    }
+}
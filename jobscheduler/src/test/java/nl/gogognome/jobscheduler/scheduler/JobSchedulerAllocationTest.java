@@ -0,0 +1,76 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import nl.gogognome.jobscheduler.persister.NoOperationPersister;
+import nl.gogognome.jobscheduler.runnablejobfinder.FifoRunnableJobFinder;
+import nl.gogognome.jobscheduler.runnablejobfinder.TypeQueuesRunnableJobFinder;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks the number of bytes allocated on the heap per job that is scheduled, started and finished. The
+ * allocations are measured per thread with {@link com.sun.management.ThreadMXBean}, after a warm up so that
+ * the JIT compiler has had the chance to eliminate allocations. The budget is about twice the allocations measured
+ * when the test was written, so that it only fails if the dispatch path starts allocating substantially more.
+ */
+public class JobSchedulerAllocationTest {
+
+    private final static int NR_WARM_UP_JOBS = 100_000;
+    private final static int NR_JOBS = 100_000;
+    private final static int NR_QUEUED_JOBS = 100;
+    private final static long MAX_BYTES_PER_JOB = 4096;
+
+    @Test
+    public void scheduleStartAndFinishJobs_allocationsPerJobStayWithinBudget() {
+        assumeTrue(allocatedBytesCanBeMeasured());
+        Clock clock = Clock.systemUTC();
+        assertAllocationsPerJobWithinBudget("FifoRunnableJobFinder", FifoRunnableJobFinder::new, clock);
+        assertAllocationsPerJobWithinBudget("TypeQueuesRunnableJobFinder", TypeQueuesRunnableJobFinder::new, clock);
+    }
+
+    private void assertAllocationsPerJobWithinBudget(String name, Function<Clock, RunnableJobFinder> runnableJobFinderFactory, Clock clock) {
+        JobScheduler jobScheduler = new JobScheduler(runnableJobFinderFactory.apply(clock), new NoOperationPersister(), clock);
+        Instant scheduledAtInstant = clock.instant();
+        for (int i = 0; i < NR_QUEUED_JOBS; i++) {
+            jobScheduler.schedule(new Job("job-" + i, "type", null, scheduledAtInstant));
+        }
+
+        runCycles(jobScheduler, scheduledAtInstant, NR_WARM_UP_JOBS);
+        long allocatedBytesBefore = allocatedBytesOfCurrentThread();
+        runCycles(jobScheduler, scheduledAtInstant, NR_JOBS);
+        long bytesPerJob = (allocatedBytesOfCurrentThread() - allocatedBytesBefore) / NR_JOBS;
+
+        assertTrue(name + " allocated " + bytesPerJob + " bytes per scheduled, started and finished job",
+                bytesPerJob <= MAX_BYTES_PER_JOB);
+    }
+
+    /**
+     * Starts and finishes a job and schedules a job with the same id again, so the number of jobs stays constant.
+     */
+    private void runCycles(JobScheduler jobScheduler, Instant scheduledAtInstant, int nrCycles) {
+        for (int i = 0; i < nrCycles; i++) {
+            Job job = jobScheduler.tryStartNextRunnableJob("benchmark");
+            jobScheduler.jobFinished(job.getId());
+            jobScheduler.schedule(new Job(job.getId(), job.getType(), null, scheduledAtInstant));
+        }
+    }
+
+    private boolean allocatedBytesCanBeMeasured() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled();
+    }
+
+    private long allocatedBytesOfCurrentThread() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
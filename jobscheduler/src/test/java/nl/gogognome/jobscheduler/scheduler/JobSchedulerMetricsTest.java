@@ -0,0 +1,56 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import org.junit.Test;
+
+import static nl.gogognome.jobscheduler.scheduler.JobState.IDLE;
+import static nl.gogognome.jobscheduler.scheduler.JobState.RUNNING;
+import static org.junit.Assert.*;
+
+public class JobSchedulerMetricsTest {
+
+    private final JobSchedulerMetrics metrics = new JobSchedulerMetrics();
+
+    @Test
+    public void noJobs_memoryUsageIsNone() {
+        assertTrue(metrics.getMemoryUsage().isNone());
+        assertTrue(metrics.getMemoryUsageByStateAndType().isEmpty());
+    }
+
+    @Test
+    public void jobsAdded_memoryUsageIsKeptPerStateAndType() {
+        ScheduledJob emailJob = new ScheduledJob(new Job("1", "email", "data", null), IDLE);
+        ScheduledJob smsJob = new ScheduledJob(new Job("2", "sms", "more data", null), RUNNING, "tester", null);
+
+        metrics.onJobAdded(emailJob);
+        metrics.onJobAdded(smsJob);
+
+        MemoryUsage emailMemoryUsage = JobMemoryEstimator.estimate(emailJob);
+        MemoryUsage smsMemoryUsage = JobMemoryEstimator.estimate(smsJob);
+        assertEquals(emailMemoryUsage.plus(smsMemoryUsage), metrics.getMemoryUsage());
+        assertEquals(emailMemoryUsage, metrics.getMemoryUsage(IDLE, "email"));
+        assertEquals(smsMemoryUsage, metrics.getMemoryUsage(RUNNING, "sms"));
+        assertEquals(MemoryUsage.none(), metrics.getMemoryUsage(RUNNING, "email"));
+        assertEquals(2, metrics.getMemoryUsageByStateAndType().size());
+    }
+
+    @Test
+    public void jobRemoved_memoryUsageOfJobIsSubtracted() {
+        ScheduledJob scheduledJob = new ScheduledJob(new Job("1", "email", "data", null), IDLE);
+        metrics.onJobAdded(scheduledJob);
+
+        metrics.onJobRemoved(scheduledJob);
+
+        assertTrue(metrics.getMemoryUsage().isNone());
+        assertTrue(metrics.getMemoryUsageByStateAndType().isEmpty());
+    }
+
+    @Test
+    public void allJobsRemoved_memoryUsageIsNone() {
+        metrics.onJobAdded(new ScheduledJob(new Job("1", "email", "data", null), IDLE));
+
+        metrics.onAllJobsRemoved();
+
+        assertTrue(metrics.getMemoryUsage().isNone());
+        assertTrue(metrics.getMemoryUsageByStateAndType().isEmpty());
+    }
+}
@@ -2,13 +2,32 @@ package nl.gogognome.jobscheduler.scheduler;
 
 import nl.gogognome.jobscheduler.JobFakes;
 import nl.gogognome.jobscheduler.ScheduledJobFakes;
+import nl.gogognome.jobscheduler.runnablejobfinder.FifoRunnableJobFinder;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
 
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static nl.gogognome.jobscheduler.scheduler.JobState.*;
 import static nl.gogognome.test.AssertExtensions.assertThrows;
 import static org.junit.Assert.*;
@@ -40,6 +59,65 @@ public class JobSchedulerTest {
         verify(jobPersister).create(createdScheduledJob);
     }
 
+    @Test
+    public void schedule_idleJobWithSameCoalescingKeyExists_jobIsNotAddedAndNotPersisted() {
+        ScheduledJob idleJob = ScheduledJobFakes.with(JobFakes.withCoalescingKey("reindex-1"));
+        when(runnableJobFinder.findIdleJobByCoalescingKey("reindex-1")).thenReturn(idleJob);
+
+        jobScheduler.schedule(JobFakes.withCoalescingKey("reindex-1"));
+
+        verify(runnableJobFinder, never()).addJob(any(ScheduledJob.class));
+        verify(jobPersister, never()).create(any(ScheduledJob.class));
+        assertEquals(1, jobScheduler.getMetrics().getNrCoalescedJobs());
+    }
+
+    @Test
+    public void schedule_idleJobWithSameCoalescingKeyScheduledLater_idleJobGetsEarliestScheduledAtInstantAndDeadline() {
+        Instant now = Instant.now();
+        Job laterJob = new Job("1", "someType", null, now.plus(Duration.ofHours(1))).withCoalescingKey("reindex-1")
+                .withDeadline(now.plus(Duration.ofHours(3)));
+        Job earlierJob = new Job("2", "someType", null, now).withCoalescingKey("reindex-1")
+                .withDeadline(now.plus(Duration.ofHours(2)));
+        when(runnableJobFinder.findIdleJobByCoalescingKey("reindex-1")).thenReturn(ScheduledJobFakes.with(laterJob));
+
+        jobScheduler.schedule(earlierJob);
+
+        ArgumentCaptor<ScheduledJob> argumentCaptor = ArgumentCaptor.forClass(ScheduledJob.class);
+        verify(jobPersister).update(argumentCaptor.capture());
+        ScheduledJob coalescedJob = argumentCaptor.getValue();
+        assertEquals("1", coalescedJob.getJob().getId());
+        assertEquals(IDLE, coalescedJob.getState());
+        assertEquals(now, coalescedJob.getJob().getScheduledAtInstant());
+        assertEquals(now.plus(Duration.ofHours(2)), coalescedJob.getJob().getDeadline());
+        verify(runnableJobFinder).updateJob(coalescedJob);
+        verify(runnableJobFinder, never()).addJob(any(ScheduledJob.class));
+        verify(jobPersister, never()).create(any(ScheduledJob.class));
+    }
+
+    @Test
+    public void schedule_idleJobWithSameCoalescingKeyScheduledEarlier_idleJobIsNotChanged() {
+        Instant now = Instant.now();
+        Job earlierJob = new Job("1", "someType", null, now).withCoalescingKey("reindex-1");
+        Job laterJob = new Job("2", "someType", null, now.plus(Duration.ofHours(1))).withCoalescingKey("reindex-1");
+        when(runnableJobFinder.findIdleJobByCoalescingKey("reindex-1")).thenReturn(ScheduledJobFakes.with(earlierJob));
+
+        jobScheduler.schedule(laterJob);
+
+        verify(jobPersister, never()).update(any(ScheduledJob.class));
+        verify(runnableJobFinder, never()).updateJob(any(ScheduledJob.class));
+    }
+
+    @Test
+    public void schedule_noIdleJobWithSameCoalescingKeyExists_jobIsAddedAndPersisted() {
+        Job job = JobFakes.withCoalescingKey("reindex-1");
+
+        jobScheduler.schedule(job);
+
+        verify(runnableJobFinder).addJob(any(ScheduledJob.class));
+        verify(jobPersister).create(any(ScheduledJob.class));
+        assertEquals(0, jobScheduler.getMetrics().getNrCoalescedJobs());
+    }
+
     @Test
     public void jobFinished_existingRunningJob_jobIsRemoved() {
         ScheduledJob scheduledJob = scheduleRunningJob();
@@ -183,6 +261,60 @@ public class JobSchedulerTest {
         verify(jobPersister, never()).update(scheduledJob);
     }
 
+    @Test
+    public void tryStartNextRunnableJob_jobWithMissedDeadlineIsChosen_jobIsExpiredAndNextJobIsStarted() {
+        ScheduledJob expiredJob = ScheduledJobFakes.idleJobWithDeadline(Instant.now().minus(Duration.ofMinutes(1)));
+        scheduleJob(expiredJob);
+        ScheduledJob scheduledJob = scheduleIdleJob();
+        when(runnableJobFinder.findNextRunnableJob()).thenReturn(expiredJob, scheduledJob);
+
+        Job startedJob = jobScheduler.tryStartNextRunnableJob("tester");
+
+        assertSame(scheduledJob.getJob(), startedJob);
+        ArgumentCaptor<ScheduledJob> argumentCaptor = ArgumentCaptor.forClass(ScheduledJob.class);
+        verify(jobPersister, times(2)).update(argumentCaptor.capture());
+        assertEquals(expiredJob.getJob(), argumentCaptor.getAllValues().get(0).getJob());
+        assertEquals(EXPIRED, argumentCaptor.getAllValues().get(0).getState());
+        assertEquals(RUNNING, argumentCaptor.getAllValues().get(1).getState());
+        assertEquals(1, jobScheduler.getMetrics().getNrMissedDeadlines());
+    }
+
+    @Test
+    public void tryStartNextRunnableJob_jobWithDeadlineInFutureIsChosen_jobIsStarted() {
+        ScheduledJob scheduledJob = ScheduledJobFakes.idleJobWithDeadline(Instant.now().plus(Duration.ofMinutes(1)));
+        scheduleJob(scheduledJob);
+        setupNextRunnableJob(scheduledJob);
+
+        Job startedJob = jobScheduler.tryStartNextRunnableJob("tester");
+
+        assertJobIsStarted(startedJob);
+        assertEquals(0, jobScheduler.getMetrics().getNrMissedDeadlines());
+    }
+
+    @Test
+    public void clockAfterDeadline_tryStartNextRunnableJob_jobIsExpiredAccordingToClock() {
+        Instant now = Instant.now();
+        JobScheduler jobScheduler = new JobScheduler(runnableJobFinder, jobPersister, Clock.fixed(now.plus(Duration.ofHours(2)), ZoneOffset.UTC));
+        ScheduledJob scheduledJob = ScheduledJobFakes.idleJobWithDeadline(now.plus(Duration.ofHours(1)));
+        scheduleJob(scheduledJob);
+        when(runnableJobFinder.findNextRunnableJob()).thenReturn(scheduledJob, (ScheduledJob) null);
+
+        Job startedJob = jobScheduler.tryStartNextRunnableJob("tester");
+
+        assertNull(startedJob);
+        assertEquals(EXPIRED, getUpdatedScheduledJob().getState());
+        assertEquals(1, jobScheduler.getMetrics().getNrMissedDeadlines());
+    }
+
+    @Test(timeout = 10_000)
+    public void clockPassesTimeout_startNextRunnableJob_returnsNullBeforeTimeoutHasPassedInRealTime() {
+        JobScheduler jobScheduler = new JobScheduler(runnableJobFinder, jobPersister, new AdvancingClock(Duration.ofMinutes(10)));
+
+        Job startedJob = jobScheduler.startNextRunnableJob("tester", Duration.ofHours(1).toMillis());
+
+        assertNull(startedJob);
+    }
+
     @Test
     public void startNextRunnableJob_idleJobPresent_ReturnsJobWithStateUpdated() throws InterruptedException {
         ScheduledJob scheduledJob = scheduleIdleJob();
@@ -236,6 +368,588 @@ public class JobSchedulerTest {
         assertTrue(System.currentTimeMillis() < start + timeout);
     }
 
+    @Test
+    public void startNextRunnableJobs_jobsOfSameTypePresent_startsBatchWithSharedTimeout() {
+        ScheduledJob scheduledJob1 = ScheduledJobFakes.with(JobFakes.withType("email"));
+        ScheduledJob scheduledJob2 = ScheduledJobFakes.with(JobFakes.withType("email"));
+        setupNextRunnableJob(scheduledJob1);
+        when(runnableJobFinder.findNextRunnableJobOfType("email")).thenReturn(scheduledJob2, (ScheduledJob) null);
+        Instant timeoutInstant = Instant.now().plus(Duration.ofHours(1));
+        when(runnableJobFinder.getTimeoutInstant(scheduledJob1.getJob())).thenReturn(timeoutInstant);
+
+        List<Job> startedJobs = jobScheduler.startNextRunnableJobs("tester", 10, 1000L);
+
+        assertEquals(Arrays.asList(scheduledJob1.getJob(), scheduledJob2.getJob()), startedJobs);
+        ArgumentCaptor<ScheduledJob> argumentCaptor = ArgumentCaptor.forClass(ScheduledJob.class);
+        verify(jobPersister, times(2)).update(argumentCaptor.capture());
+        for (ScheduledJob startedJob : argumentCaptor.getAllValues()) {
+            assertEquals(RUNNING, startedJob.getState());
+            assertEquals("tester", startedJob.getRequesterId());
+            assertEquals(timeoutInstant, startedJob.getTimeoutAtInstant());
+        }
+    }
+
+    @Test
+    public void startNextRunnableJobs_moreJobsPresentThanMaximum_startsMaximumNumberOfJobs() {
+        setupNextRunnableJob(ScheduledJobFakes.with(JobFakes.withType("email")));
+        when(runnableJobFinder.findNextRunnableJobOfType("email")).thenReturn(
+                ScheduledJobFakes.with(JobFakes.withType("email")), ScheduledJobFakes.with(JobFakes.withType("email")));
+
+        List<Job> startedJobs = jobScheduler.startNextRunnableJobs("tester", 2, 1000L);
+
+        assertEquals(2, startedJobs.size());
+        verify(runnableJobFinder, times(1)).findNextRunnableJobOfType("email");
+    }
+
+    @Test
+    public void startNextRunnableJobs_noJobsAdded_returnsEmptyList() {
+        List<Job> startedJobs = jobScheduler.startNextRunnableJobs("tester", 10, 0L);
+
+        assertTrue(startedJobs.isEmpty());
+    }
+
+    @Test
+    public void startNextRunnableJobs_invalidParameter_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> jobScheduler.startNextRunnableJobs("tester", 0, 123));
+    }
+
+    @Test
+    public void startNextRunnableJob_acceptedTypes_startsJobOfAcceptedType() {
+        ScheduledJob scheduledJob = ScheduledJobFakes.with(JobFakes.withType("email"));
+        Set<String> acceptedTypes = new HashSet<>(Arrays.asList("email", "sms"));
+        when(runnableJobFinder.findNextRunnableJobOfTypes(acceptedTypes)).thenReturn(scheduledJob);
+
+        Job startedJob = jobScheduler.startNextRunnableJob("tester", acceptedTypes, 1000L);
+
+        assertJobIsStarted(startedJob);
+        verify(runnableJobFinder, never()).findNextRunnableJob();
+    }
+
+    @Test
+    public void startNextRunnableJob_noJobOfAcceptedTypes_returnsNull() {
+        setupNextRunnableJob(ScheduledJobFakes.with(JobFakes.withType("email")));
+
+        Job startedJob = jobScheduler.startNextRunnableJob("tester", singleton("sms"), 0L);
+
+        assertNull(startedJob);
+        verify(jobPersister, never()).update(any(ScheduledJob.class));
+    }
+
+    @Test
+    public void startNextRunnableJob_requesterAcceptsSomeTypes_waitTimeIsBasedOnNextRunnableInstantOfAcceptedTypes() {
+        jobScheduler.startNextRunnableJob("tester", singleton("sms"), 50);
+
+        verify(runnableJobFinder, atLeastOnce()).getNextRunnableInstant(singleton("sms"));
+        verify(runnableJobFinder, never()).getNextRunnableInstant();
+    }
+
+    @Test
+    public void startNextRunnableJob_emptyAcceptedTypes_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> jobScheduler.startNextRunnableJob("tester", emptySet(), 123));
+    }
+
+    @Test
+    public void jobsFinished_runningJobs_jobsAreRemoved() {
+        String jobId1 = scheduleRunningJob().getJob().getId();
+        String jobId2 = scheduleRunningJob().getJob().getId();
+
+        jobScheduler.jobsFinished(Arrays.asList(jobId1, jobId2));
+
+        verify(runnableJobFinder).removeJob(jobId1);
+        verify(runnableJobFinder).removeJob(jobId2);
+        verify(jobPersister).remove(jobId1);
+        verify(jobPersister).remove(jobId2);
+    }
+
+    @Test
+    public void jobsFinished_oneJobNotRunning_noJobIsRemoved() {
+        String jobId1 = scheduleRunningJob().getJob().getId();
+        String jobId2 = scheduleIdleJob().getJob().getId();
+
+        assertThrows(IllegalJobStateException.class, () -> jobScheduler.jobsFinished(Arrays.asList(jobId1, jobId2)));
+
+        verify(runnableJobFinder, never()).removeJob(anyString());
+        verify(jobPersister, never()).remove(anyString());
+    }
+
+    @Test
+    public void jobsFinished_persisterFailsForSecondJob_firstJobIsRunningAgain() {
+        JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), jobPersister);
+        jobScheduler.schedule(JobFakes.defaultWithId("job1"));
+        jobScheduler.schedule(JobFakes.defaultWithId("job2"));
+        jobScheduler.startNextRunnableJobs("requester", 2, 0);
+        doThrow(new RuntimeException("database is down")).when(jobPersister).remove("job2");
+
+        assertThrows(RuntimeException.class, () -> jobScheduler.jobsFinished(Arrays.asList("job1", "job2")));
+
+        assertEquals(RUNNING, jobScheduler.getJobsSnapshot().findById("job1").getState());
+        assertEquals(RUNNING, jobScheduler.getJobsSnapshot().findById("job2").getState());
+        assertEquals(Arrays.asList("job1", "job2"), jobIdsOf(jobScheduler.findRunningJobsOfRequester("requester")));
+    }
+
+    @Test
+    public void jobsFinished_sameJobTwice_noJobIsRemoved() {
+        String jobId = scheduleRunningJob().getJob().getId();
+
+        assertThrows(IllegalJobStateException.class, () -> jobScheduler.jobsFinished(Arrays.asList(jobId, jobId)));
+
+        verify(runnableJobFinder, never()).removeJob(anyString());
+        verify(jobPersister, never()).remove(anyString());
+    }
+
+    @Test
+    public void jobsFailed_runningJobs_jobsGetStateError() {
+        String jobId1 = scheduleRunningJob().getJob().getId();
+        String jobId2 = scheduleRunningJob().getJob().getId();
+
+        jobScheduler.jobsFailed(Arrays.asList(jobId1, jobId2));
+
+        ArgumentCaptor<ScheduledJob> argumentCaptor = ArgumentCaptor.forClass(ScheduledJob.class);
+        verify(jobPersister, times(2)).update(argumentCaptor.capture());
+        assertEquals(jobId1, argumentCaptor.getAllValues().get(0).getJob().getId());
+        assertEquals(jobId2, argumentCaptor.getAllValues().get(1).getJob().getId());
+        assertEquals(ERROR, argumentCaptor.getAllValues().get(0).getState());
+        assertEquals(ERROR, argumentCaptor.getAllValues().get(1).getState());
+    }
+
+    @Test
+    public void startNextRunnableJob_jobStarted_jobIsRunningJobOfRequester() {
+        ScheduledJob scheduledJob = scheduleIdleJob();
+        setupNextRunnableJob(scheduledJob);
+
+        jobScheduler.startNextRunnableJob("tester", 0);
+        scheduleJob(getUpdatedScheduledJob());
+
+        assertEquals(singletonList(scheduledJob), jobScheduler.findRunningJobsOfRequester("tester"));
+        assertTrue(jobScheduler.findRunningJobsOfRequester("other-tester").isEmpty());
+    }
+
+    @Test
+    public void jobFinished_jobIsNoLongerRunningJobOfRequester() {
+        ScheduledJob scheduledJob = startJob("tester");
+
+        jobScheduler.jobFinished(scheduledJob.getJob().getId());
+
+        assertTrue(jobScheduler.findRunningJobsOfRequester("tester").isEmpty());
+    }
+
+    @Test
+    public void reclaimJobsOfDeadRequesters_requesterStoppedSendingHeartbeats_runningJobsBecomeIdle() throws InterruptedException {
+        ScheduledJob scheduledJob = startJob("tester");
+        Thread.sleep(20);
+
+        List<Job> reclaimedJobs = jobScheduler.reclaimJobsOfDeadRequesters(Duration.ofMillis(10));
+
+        assertEquals(singletonList(scheduledJob.getJob()), reclaimedJobs);
+        ArgumentCaptor<ScheduledJob> argumentCaptor = ArgumentCaptor.forClass(ScheduledJob.class);
+        verify(runnableJobFinder, times(2)).updateJob(argumentCaptor.capture());
+        ScheduledJob reclaimedJob = argumentCaptor.getValue();
+        assertEquals(IDLE, reclaimedJob.getState());
+        assertNull(reclaimedJob.getRequesterId());
+        verify(jobPersister).updateAll(singletonList(reclaimedJob));
+        assertTrue(jobScheduler.findRunningJobsOfRequester("tester").isEmpty());
+        assertEquals(1, jobScheduler.getMetrics().getNrReclaimedJobs());
+    }
+
+    @Test
+    public void reclaimJobsOfDeadRequesters_requesterSendsHeartbeats_noJobsReclaimed() {
+        startJob("tester");
+
+        jobScheduler.heartbeat("tester");
+        List<Job> reclaimedJobs = jobScheduler.reclaimJobsOfDeadRequesters(Duration.ofHours(1));
+
+        assertTrue(reclaimedJobs.isEmpty());
+        verify(jobPersister, never()).updateAll(anyList());
+        assertEquals(1, jobScheduler.findRunningJobsOfRequester("tester").size());
+    }
+
+    @Test
+    public void loadPersistedJobs_runningJobsAreRunningJobsOfTheirRequesters() {
+        ScheduledJob runningJob = ScheduledJobFakes.runningJob();
+        scheduleJob(runningJob);
+        when(jobPersister.findAllJobs()).thenReturn(Arrays.asList(runningJob, ScheduledJobFakes.defaultIdleJob()));
+
+        jobScheduler.loadPersistedJobs();
+
+        assertEquals(singletonList(runningJob), jobScheduler.findRunningJobsOfRequester(runningJob.getRequesterId()));
+    }
+
+    @Test
+    public void findAllJobs_returnsJobsFromSnapshotWithoutAskingRunnableJobFinder() {
+        Job job = JobFakes.defaultJob();
+        JobsSnapshot snapshotBeforeSchedule = jobScheduler.getJobsSnapshot();
+
+        jobScheduler.schedule(job);
+
+        List<ScheduledJob> scheduledJobs = jobScheduler.findAllJobs();
+        assertEquals(1, scheduledJobs.size());
+        assertSame(job, scheduledJobs.get(0).getJob());
+        assertTrue(snapshotBeforeSchedule.isEmpty());
+        verify(runnableJobFinder, never()).findAllJobs();
+    }
+
+    @Test
+    public void jobFinished_jobIsRemovedFromSnapshot() {
+        ScheduledJob scheduledJob = startJob("tester");
+        assertEquals(RUNNING, jobScheduler.getJobsSnapshot().findById(scheduledJob.getJob().getId()).getState());
+
+        jobScheduler.jobFinished(scheduledJob.getJob().getId());
+
+        assertTrue(jobScheduler.getJobsSnapshot().isEmpty());
+    }
+
+    @Test
+    public void findJobs_stateAndType_returnsMatchingJobs() {
+        Job emailJob = JobFakes.withType("email");
+        jobScheduler.schedule(emailJob);
+        jobScheduler.schedule(JobFakes.withType("sms"));
+
+        JobPage page = jobScheduler.findJobs(new JobQuery().withState(IDLE).withType("email"));
+
+        assertEquals(1, page.getJobs().size());
+        assertSame(emailJob, page.getJobs().get(0).getJob());
+    }
+
+    @Test
+    public void findJobs_requester_returnsRunningJobsOfRequester() {
+        ScheduledJob scheduledJob = startJob("tester");
+
+        JobPage page = jobScheduler.findJobs(new JobQuery().withRequesterId("tester"));
+
+        assertEquals(singletonList(scheduledJob), page.getJobs());
+        assertTrue(jobScheduler.findJobs(new JobQuery().withRequesterId("other-tester")).getJobs().isEmpty());
+    }
+
+    @Test
+    public void findJobs_jobStateChanged_indexIsUpdated() {
+        ScheduledJob scheduledJob = startJob("tester");
+
+        jobScheduler.jobFailed(scheduledJob.getJob().getId());
+
+        assertTrue(jobScheduler.findJobs(new JobQuery().withState(RUNNING)).getJobs().isEmpty());
+        assertEquals(1, jobScheduler.findJobs(new JobQuery().withState(ERROR)).getJobs().size());
+    }
+
+    @Test
+    public void maxNrJobsReached_rejectPolicy_scheduleThrowsQueueFullException() {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(1));
+        jobScheduler.schedule(JobFakes.defaultJob());
+
+        assertThrows(QueueFullException.class, () -> jobScheduler.schedule(JobFakes.defaultJob()));
+
+        verify(jobPersister, times(1)).create(any(ScheduledJob.class));
+        assertEquals(1, jobScheduler.findAllJobs().size());
+        assertEquals(1, jobScheduler.getMetrics().getNrRejectedJobs());
+    }
+
+    @Test
+    public void maxNrJobsOfTypeReached_jobOfOtherType_isScheduled() {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobsOfType("email", 1));
+        jobScheduler.schedule(JobFakes.withType("email"));
+
+        assertFalse(jobScheduler.hasCapacityFor("email"));
+        assertTrue(jobScheduler.hasCapacityFor("sms"));
+        assertThrows(QueueFullException.class, () -> jobScheduler.schedule(JobFakes.withType("email")));
+        jobScheduler.schedule(JobFakes.withType("sms"));
+
+        assertEquals(2, jobScheduler.findAllJobs().size());
+    }
+
+    @Test
+    public void maxNrJobsReached_jobRemoved_hasCapacityAgain() {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(1));
+        ScheduledJob scheduledJob = scheduleIdleJob();
+        jobScheduler.schedule(scheduledJob.getJob());
+        assertFalse(jobScheduler.hasCapacityFor("someType"));
+
+        jobScheduler.remove(scheduledJob.getJob().getId());
+
+        assertTrue(jobScheduler.hasCapacityFor("someType"));
+    }
+
+    @Test
+    public void maxNrJobsReached_blockPolicy_scheduleThrowsQueueFullExceptionAfterTimeout() {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(1)
+                .withOverflowPolicy(OverflowPolicy.BLOCK).withBlockTimeoutMilliseconds(50));
+        jobScheduler.schedule(JobFakes.defaultJob());
+
+        long startTime = System.currentTimeMillis();
+        assertThrows(QueueFullException.class, () -> jobScheduler.schedule(JobFakes.defaultJob()));
+
+        assertTrue(System.currentTimeMillis() - startTime >= 50);
+        assertEquals(1, jobScheduler.getMetrics().getNrRejectedJobs());
+    }
+
+    @Test
+    public void maxNrJobsReached_blockPolicy_scheduleReturnsWhenJobIsRemoved() {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(1)
+                .withOverflowPolicy(OverflowPolicy.BLOCK).withBlockTimeoutMilliseconds(10_000));
+        ScheduledJob scheduledJob = scheduleIdleJob();
+        jobScheduler.schedule(scheduledJob.getJob());
+        Job newJob = JobFakes.defaultJob();
+
+        ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
+        try {
+            executorService.schedule(() -> jobScheduler.remove(scheduledJob.getJob().getId()), 100, MILLISECONDS);
+            jobScheduler.schedule(newJob);
+        } finally {
+            executorService.shutdown();
+        }
+
+        List<ScheduledJob> scheduledJobs = jobScheduler.findAllJobs();
+        assertEquals(1, scheduledJobs.size());
+        assertSame(newJob, scheduledJobs.get(0).getJob());
+    }
+
+    @Test
+    public void maxNrJobsReached_blockPolicyInsideBatch_scheduleThrowsQueueFullExceptionWithoutWaiting() {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(1)
+                .withOverflowPolicy(OverflowPolicy.BLOCK).withBlockTimeoutMilliseconds(10_000));
+        jobScheduler.schedule(JobFakes.defaultJob());
+
+        long startTime = System.currentTimeMillis();
+        assertThrows(QueueFullException.class, () -> jobScheduler.runBatch(() -> jobScheduler.schedule(JobFakes.defaultJob())));
+
+        assertTrue(System.currentTimeMillis() - startTime < 10_000);
+        assertEquals(1, jobScheduler.getMetrics().getNrRejectedJobs());
+        assertEquals(1, jobScheduler.findAllJobs().size());
+    }
+
+    @Test
+    public void maxNrJobsReached_spillPolicy_jobIsOnlyPersistedAndLoadedWhenJobIsRemoved() {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(1).withOverflowPolicy(OverflowPolicy.SPILL));
+        ScheduledJob scheduledJob = scheduleIdleJob();
+        jobScheduler.schedule(scheduledJob.getJob());
+        Job spilledJob = JobFakes.defaultJob();
+        assertTrue(jobScheduler.hasCapacityFor(spilledJob.getType()));
+
+        jobScheduler.schedule(spilledJob);
+
+        verify(jobPersister, times(2)).create(any(ScheduledJob.class));
+        verify(runnableJobFinder, times(1)).addJob(any(ScheduledJob.class));
+        assertEquals(1, jobScheduler.getMetrics().getNrSpilledJobs());
+
+        ScheduledJob persistedSpilledJob = new ScheduledJob(spilledJob, IDLE);
+        when(jobPersister.findIdleJobsOfType(spilledJob.getType(), null, 1)).thenReturn(singletonList(persistedSpilledJob));
+        jobScheduler.remove(scheduledJob.getJob().getId());
+
+        verify(runnableJobFinder).addJob(persistedSpilledJob);
+        assertEquals(singletonList(persistedSpilledJob), jobScheduler.findAllJobs());
+        assertTrue(jobScheduler.keepsAllJobsInMemory());
+        verify(jobPersister, never()).findAllJobs();
+    }
+
+    @Test
+    public void moreJobsSpilledThanFit_jobIsRemoved_onlyJobsThatFitAreLoadedAndOtherJobsStaySpilled() {
+        JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), jobPersister);
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(2).withOverflowPolicy(OverflowPolicy.SPILL));
+        jobScheduler.schedule(JobFakes.defaultWithId("in-memory"));
+        jobScheduler.schedule(JobFakes.defaultWithId("removed"));
+        Job spilledJob1 = JobFakes.defaultWithId("spilled-1");
+        Job spilledJob2 = JobFakes.defaultWithId("spilled-2");
+        jobScheduler.schedule(spilledJob1);
+        jobScheduler.schedule(spilledJob2);
+        when(jobPersister.findIdleJobsOfType("someType", null, 2)).thenReturn(Arrays.asList(
+                new ScheduledJob(JobFakes.defaultWithId("in-memory"), IDLE), new ScheduledJob(spilledJob1, IDLE)));
+
+        jobScheduler.remove("removed");
+
+        assertEquals(IDLE, jobScheduler.getJobsSnapshot().findById("spilled-1").getState());
+        assertNull(jobScheduler.getJobsSnapshot().findById("spilled-2"));
+        assertFalse(jobScheduler.keepsAllJobsInMemory());
+        when(jobPersister.findById("spilled-2")).thenReturn(new ScheduledJob(spilledJob2, IDLE));
+        jobScheduler.remove("spilled-2");
+        verify(jobPersister).remove("spilled-2");
+        assertTrue(jobScheduler.keepsAllJobsInMemory());
+        verify(jobPersister, never()).findAllJobs();
+    }
+
+    @Test
+    public void jobSpilled_removeJobThatDoesNotExist_throwsUnknownJobException() {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(1).withOverflowPolicy(OverflowPolicy.SPILL));
+        jobScheduler.schedule(JobFakes.defaultJob());
+        jobScheduler.schedule(JobFakes.defaultJob());
+
+        assertThrows(UnknownJobException.class, () -> jobScheduler.remove("unknown"));
+
+        verify(jobPersister, never()).remove("unknown");
+        assertFalse(jobScheduler.keepsAllJobsInMemory());
+    }
+
+    @Test
+    public void horizonSetAndJobSpilled_removeJobScheduledBeyondHorizon_spilledJobIsStillReadBack() {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(1).withOverflowPolicy(OverflowPolicy.SPILL));
+        jobScheduler.setHorizon(Duration.ofHours(1));
+        ScheduledJob scheduledJob = scheduleIdleJob();
+        jobScheduler.schedule(scheduledJob.getJob());
+        jobScheduler.schedule(JobFakes.defaultJob());
+        Job jobBeyondHorizon = JobFakes.withStartInstant(Instant.now().plus(Duration.ofDays(1)));
+        jobScheduler.schedule(jobBeyondHorizon);
+        when(jobPersister.findById(jobBeyondHorizon.getId())).thenReturn(new ScheduledJob(jobBeyondHorizon, IDLE));
+
+        jobScheduler.remove(jobBeyondHorizon.getId());
+        jobScheduler.remove(scheduledJob.getJob().getId());
+
+        verify(jobPersister).remove(jobBeyondHorizon.getId());
+        verify(jobPersister).findIdleJobsOfType(eq(scheduledJob.getJob().getType()), any(Instant.class), eq(1));
+    }
+
+    @Test
+    public void spilledJobRemovedBySomeoneElse_jobIsRemoved_noJobsStaySpilled() {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(1).withOverflowPolicy(OverflowPolicy.SPILL));
+        ScheduledJob scheduledJob = scheduleIdleJob();
+        jobScheduler.schedule(scheduledJob.getJob());
+        jobScheduler.schedule(JobFakes.defaultJob());
+
+        jobScheduler.remove(scheduledJob.getJob().getId());
+
+        assertTrue(jobScheduler.keepsAllJobsInMemory());
+    }
+
+    @Test
+    public void jobStateChanges_memoryUsageFollowsStateOfJob() {
+        ScheduledJob scheduledJob = startJob("tester");
+
+        MemoryUsage memoryUsage = jobScheduler.getMetrics().getMemoryUsage(RUNNING, scheduledJob.getJob().getType());
+        assertEquals(JobMemoryEstimator.estimate(scheduledJob, runnableJobFinder.getEstimatedBytesPerJob()), memoryUsage);
+        assertTrue(jobScheduler.getMetrics().getMemoryUsage(IDLE, scheduledJob.getJob().getType()).isNone());
+
+        jobScheduler.jobFinished(scheduledJob.getJob().getId());
+
+        assertTrue(jobScheduler.getMetrics().getMemoryUsage().isNone());
+    }
+
+    @Test
+    public void jobScheduled_memoryUsageIncludesBytesPerJobOfRunnableJobFinder() {
+        RunnableJobFinder runnableJobFinder = new FifoRunnableJobFinder();
+        JobScheduler jobScheduler = new JobScheduler(runnableJobFinder, jobPersister);
+        Job job = JobFakes.defaultJob();
+
+        jobScheduler.schedule(job);
+
+        assertEquals(JobMemoryEstimator.estimate(new ScheduledJob(job, IDLE), runnableJobFinder.getEstimatedBytesPerJob()),
+                jobScheduler.getMetrics().getMemoryUsage());
+    }
+
+    @Test
+    public void memoryBudgetReached_rejectPolicy_scheduleThrowsQueueFullException() {
+        Job job = JobFakes.defaultJob();
+        long jobBytes = JobMemoryEstimator.estimate(new ScheduledJob(job, IDLE), runnableJobFinder.getEstimatedBytesPerJob()).getTotalBytes();
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxMemoryBytes(jobBytes));
+        jobScheduler.schedule(job);
+
+        assertFalse(jobScheduler.hasCapacityFor(job.getType()));
+        assertThrows(QueueFullException.class, () -> jobScheduler.schedule(JobFakes.defaultJob()));
+    }
+
+    @Test
+    public void loadPersistedJobs_spillPolicy_loadsJobsUpToMaxNrJobs() {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(1).withOverflowPolicy(OverflowPolicy.SPILL));
+        ScheduledJob scheduledJob1 = ScheduledJobFakes.defaultIdleJob();
+        ScheduledJob scheduledJob2 = ScheduledJobFakes.defaultIdleJob();
+        when(jobPersister.findAllJobs()).thenReturn(Arrays.asList(scheduledJob1, scheduledJob2));
+
+        jobScheduler.loadPersistedJobs();
+
+        verify(runnableJobFinder).addJob(scheduledJob1);
+        verify(runnableJobFinder, never()).addJob(scheduledJob2);
+        assertEquals(singletonList(scheduledJob1), jobScheduler.findAllJobs());
+    }
+
+    @Test
+    public void noHorizonAndNoSpilledJobs_keepsAllJobsInMemory_returnsTrue() {
+        jobScheduler.schedule(JobFakes.defaultJob());
+
+        assertTrue(jobScheduler.keepsAllJobsInMemory());
+    }
+
+    @Test
+    public void jobSpilled_keepsAllJobsInMemory_returnsFalse() {
+        jobScheduler.setCapacityLimits(CapacityLimits.unlimited().withMaxNrJobs(1).withOverflowPolicy(OverflowPolicy.SPILL));
+        jobScheduler.schedule(JobFakes.defaultJob());
+        jobScheduler.schedule(JobFakes.defaultJob());
+
+        assertFalse(jobScheduler.keepsAllJobsInMemory());
+    }
+
+    @Test
+    public void horizonSet_keepsAllJobsInMemory_returnsFalse() {
+        jobScheduler.setHorizon(Duration.ofHours(1));
+
+        assertFalse(jobScheduler.keepsAllJobsInMemory());
+    }
+
+    @Test
+    public void horizonSet_jobScheduledBeyondHorizon_isOnlyPersisted() {
+        jobScheduler.setHorizon(Duration.ofHours(1));
+        Job job = JobFakes.withStartInstant(Instant.now().plus(Duration.ofDays(1)));
+
+        jobScheduler.schedule(job);
+
+        verify(jobPersister).create(new ScheduledJob(job, IDLE));
+        verify(runnableJobFinder, never()).addJob(any(ScheduledJob.class));
+        assertTrue(jobScheduler.findAllJobs().isEmpty());
+        assertEquals(1, jobScheduler.getMetrics().getNrJobsPersistedBeyondHorizon());
+    }
+
+    @Test
+    public void horizonSet_jobScheduledWithinHorizon_isKeptInMemory() {
+        jobScheduler.setHorizon(Duration.ofHours(1));
+        Job job = JobFakes.withStartInstant(Instant.now().plus(Duration.ofMinutes(30)));
+
+        jobScheduler.schedule(job);
+
+        verify(runnableJobFinder).addJob(new ScheduledJob(job, IDLE));
+    }
+
+    @Test
+    public void horizonReachesEndOfLoadedWindow_startNextRunnableJob_loadsNextWindowFromPersister() throws InterruptedException {
+        jobScheduler.setHorizon(Duration.ofMillis(50));
+        ScheduledJob persistedJob = ScheduledJobFakes.defaultIdleJobStartingAfter(Duration.ofMillis(150));
+        when(jobPersister.findIdleJobsScheduledBetween(any(Instant.class), any(Instant.class))).thenReturn(singletonList(persistedJob));
+
+        jobScheduler.startNextRunnableJob("tester", 0);
+        verify(jobPersister, never()).findIdleJobsScheduledBetween(any(Instant.class), any(Instant.class));
+        Thread.sleep(100);
+        jobScheduler.startNextRunnableJob("tester", 0);
+
+        verify(jobPersister).findIdleJobsScheduledBetween(any(Instant.class), any(Instant.class));
+        verify(runnableJobFinder).addJob(persistedJob);
+        assertEquals(singletonList(persistedJob), jobScheduler.findAllJobs());
+        assertEquals(1, jobScheduler.getMetrics().getNrPrefetchedJobs());
+    }
+
+    @Test
+    public void horizonSet_loadPersistedJobs_skipsIdleJobsBeyondHorizon() {
+        jobScheduler.setHorizon(Duration.ofHours(1));
+        ScheduledJob nearJob = ScheduledJobFakes.defaultIdleJob();
+        ScheduledJob farJob = ScheduledJobFakes.defaultIdleJobStartingAfter(Duration.ofDays(1));
+        ScheduledJob farRunningJob = ScheduledJobFakes.defaultIdleJobStartingAfter(Duration.ofDays(1), RUNNING);
+        when(jobPersister.findAllJobs()).thenReturn(Arrays.asList(nearJob, farJob, farRunningJob));
+
+        jobScheduler.loadPersistedJobs();
+
+        verify(runnableJobFinder).addJob(nearJob);
+        verify(runnableJobFinder, never()).addJob(farJob);
+        verify(runnableJobFinder).addJob(farRunningJob);
+    }
+
+    @Test
+    public void horizonSet_removeJobThatIsOnlyPersisted_removesJobFromPersister() {
+        jobScheduler.setHorizon(Duration.ofHours(1));
+        Job farJob = new Job("far-future-job", "someType", null, Instant.now().plus(Duration.ofDays(1)));
+        when(jobPersister.findById("far-future-job")).thenReturn(new ScheduledJob(farJob, IDLE));
+
+        jobScheduler.remove("far-future-job");
+
+        verify(jobPersister).remove("far-future-job");
+    }
+
+    @Test
+    public void horizon_mustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> jobScheduler.setHorizon(Duration.ZERO));
+    }
+
     @Test
     public void runBatch_runsAction() {
         Runnable action = mock(Runnable.class);
@@ -245,6 +959,171 @@ public class JobSchedulerTest {
         verify(action).run();
     }
 
+    @Test
+    public void runBatch_actionThrowsException_changesOfBatchAreUndoneWithoutReloadingPersistedJobs() {
+        JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), jobPersister);
+        jobScheduler.schedule(JobFakes.defaultWithId("running"));
+        jobScheduler.startNextRunnableJob("requester", 0);
+        jobScheduler.schedule(JobFakes.defaultWithId("idle"));
+
+        RuntimeException exception = new RuntimeException("transaction rolled back");
+        assertThrows(RuntimeException.class, () -> jobScheduler.runBatch(() -> {
+            jobScheduler.schedule(JobFakes.defaultWithId("new"));
+            jobScheduler.jobFinished("running");
+            jobScheduler.remove("idle");
+            throw exception;
+        }));
+
+        assertEquals(IDLE, jobScheduler.getJobsSnapshot().findById("idle").getState());
+        assertEquals(RUNNING, jobScheduler.getJobsSnapshot().findById("running").getState());
+        assertNull(jobScheduler.getJobsSnapshot().findById("new"));
+        assertEquals(2, jobScheduler.findAllJobs().size());
+        assertEquals(singletonList("running"), jobIdsOf(jobScheduler.findRunningJobsOfRequester("requester")));
+        assertEquals("idle", jobScheduler.tryStartNextRunnableJob("other requester").getId());
+        assertEquals(1, jobScheduler.getMetrics().getNrUndoneBatches());
+        verify(jobPersister, never()).findAllJobs();
+    }
+
+    @Test
+    public void runBatch_actionSucceeds_changesOfBatchAreKept() {
+        JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), jobPersister);
+
+        jobScheduler.runBatch(() -> jobScheduler.schedule(JobFakes.defaultWithId("new")));
+
+        assertEquals(IDLE, jobScheduler.getJobsSnapshot().findById("new").getState());
+        assertEquals(0, jobScheduler.getMetrics().getNrUndoneBatches());
+    }
+
+    @Test
+    public void runBatchCommittedConcurrently_unitOfWorkHasNotCommittedYet_jobOfBatchIsNotStarted() {
+        JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), jobPersister);
+        List<Job> jobsStartedBeforeCommit = new ArrayList<>();
+
+        jobScheduler.runBatchCommittedConcurrently(runAction -> {
+            runAction.accept(() -> jobScheduler.schedule(JobFakes.defaultWithId("new")));
+            jobsStartedBeforeCommit.add(jobScheduler.tryStartNextRunnableJob("requester"));
+        });
+
+        assertEquals(singletonList(null), jobsStartedBeforeCommit);
+        assertEquals("new", jobScheduler.tryStartNextRunnableJob("requester").getId());
+    }
+
+    @Test
+    public void runBatchCommittedConcurrently_unitOfWorkFailsAfterAction_changesOfBatchAreUndone() {
+        JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), jobPersister);
+        jobScheduler.schedule(JobFakes.defaultWithId("running"));
+        jobScheduler.startNextRunnableJob("requester", 0);
+        jobScheduler.schedule(JobFakes.defaultWithId("idle"));
+
+        RuntimeException exception = new RuntimeException("commit failed");
+        assertThrows(RuntimeException.class, () -> jobScheduler.runBatchCommittedConcurrently(runAction -> {
+            runAction.accept(() -> {
+                jobScheduler.schedule(JobFakes.defaultWithId("new"));
+                jobScheduler.jobFinished("running");
+                jobScheduler.remove("idle");
+            });
+            throw exception;
+        }));
+
+        assertEquals(IDLE, jobScheduler.getJobsSnapshot().findById("idle").getState());
+        assertEquals(RUNNING, jobScheduler.getJobsSnapshot().findById("running").getState());
+        assertNull(jobScheduler.getJobsSnapshot().findById("new"));
+        assertEquals(singletonList("running"), jobIdsOf(jobScheduler.findRunningJobsOfRequester("requester")));
+        assertEquals("idle", jobScheduler.tryStartNextRunnableJob("other requester").getId());
+        assertEquals(1, jobScheduler.getMetrics().getNrUndoneBatches());
+    }
+
+    @Test(timeout = 10_000)
+    public void runBatchCommittedConcurrently_twoBatches_secondBatchChangesJobsBeforeFirstBatchCommits() throws Exception {
+        JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), jobPersister);
+        CountDownLatch bothActionsDone = new CountDownLatch(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String jobId : Arrays.asList("job1", "job2")) {
+                futures.add(executor.submit(() -> jobScheduler.runBatchCommittedConcurrently(runAction -> {
+                    runAction.accept(() -> jobScheduler.schedule(JobFakes.defaultWithId(jobId)));
+                    bothActionsDone.countDown();
+                    try {
+                        assertTrue(bothActionsDone.await(5, SECONDS)); // commits once the other batch changed its jobs
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                })));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2, jobScheduler.findAllJobs().size());
+    }
+
+    @Test
+    public void runBatchCommittedConcurrently_otherBatchChangesJobOfUncommittedBatch_otherBatchFailsAndIsUndone() {
+        JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), jobPersister);
+
+        jobScheduler.runBatchCommittedConcurrently(runAction -> {
+            runAction.accept(() -> jobScheduler.schedule(JobFakes.defaultWithId("job")));
+            assertThrows(ConcurrentBatchException.class, () -> jobScheduler.runBatchCommittedConcurrently(otherRunAction ->
+                    otherRunAction.accept(() -> {
+                        jobScheduler.schedule(JobFakes.defaultWithId("other job"));
+                        jobScheduler.remove("job");
+                    })));
+        });
+
+        assertNotNull(jobScheduler.getJobsSnapshot().findById("job"));
+        assertNull(jobScheduler.getJobsSnapshot().findById("other job"));
+    }
+
+    @Test(timeout = 10_000)
+    public void runBatchCommittedConcurrently_otherThreadRemovesJobOfUncommittedBatch_otherThreadWaitsUntilBatchIsCommitted() throws Exception {
+        JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), jobPersister);
+        Thread otherThread = new Thread(() -> jobScheduler.remove("job"));
+
+        jobScheduler.runBatchCommittedConcurrently(runAction -> {
+            runAction.accept(() -> jobScheduler.schedule(JobFakes.defaultWithId("job")));
+            otherThread.start();
+            while (otherThread.getState() != Thread.State.WAITING) {
+                Thread.yield();
+            }
+            assertNotNull(jobScheduler.getJobsSnapshot().findById("job"));
+        });
+        otherThread.join();
+
+        assertNull(jobScheduler.getJobsSnapshot().findById("job"));
+    }
+
+    @Test
+    public void horizonSet_runBatchCommittedConcurrently_lockIsHeldUntilUnitOfWorkHasCommitted() throws Exception {
+        JobScheduler jobScheduler = new JobScheduler(new FifoRunnableJobFinder(), jobPersister);
+        jobScheduler.setHorizon(Duration.ofHours(1));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            jobScheduler.runBatchCommittedConcurrently(runAction -> {
+                runAction.accept(() -> jobScheduler.schedule(JobFakes.defaultWithId("job")));
+                Future<Job> startedJob = executor.submit(() -> jobScheduler.tryStartNextRunnableJob("requester"));
+                assertThrows(TimeoutException.class, () -> startedJob.get(100, MILLISECONDS));
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void startNextRunnableJob_persisterFails_jobIsNotStartedInMemory() {
+        ScheduledJob scheduledJob = ScheduledJobFakes.defaultIdleJob();
+        setupNextRunnableJob(scheduledJob);
+        doThrow(new RuntimeException("database is down")).when(jobPersister).update(any(ScheduledJob.class));
+
+        assertThrows(RuntimeException.class, () -> jobScheduler.startNextRunnableJob("requester", 0));
+
+        verify(runnableJobFinder, never()).updateJob(any(ScheduledJob.class));
+        assertTrue(jobScheduler.findRunningJobsOfRequester("requester").isEmpty());
+    }
+
     @Test
     public void loadPersistedJobs_replacesJobsInRunnableJobFinderByPersistedJobs() {
         ScheduledJob scheduledJob1 = ScheduledJobFakes.defaultIdleJob();
@@ -273,6 +1152,23 @@ public class JobSchedulerTest {
         return scheduledJob;
     }
 
+    private ScheduledJob startJob(String requesterId) {
+        ScheduledJob scheduledJob = scheduleIdleJob();
+        setupNextRunnableJob(scheduledJob);
+        jobScheduler.startNextRunnableJob(requesterId, 0);
+        ScheduledJob startedJob = getUpdatedScheduledJob();
+        scheduleJob(startedJob);
+        return startedJob;
+    }
+
+    private List<String> jobIdsOf(List<ScheduledJob> scheduledJobs) {
+        List<String> jobIds = new ArrayList<>();
+        for (ScheduledJob scheduledJob : scheduledJobs) {
+            jobIds.add(scheduledJob.getJob().getId());
+        }
+        return jobIds;
+    }
+
     private ScheduledJob scheduleRunningJob() {
         ScheduledJob scheduledJob = ScheduledJobFakes.runningJob();
         scheduleJob(scheduledJob);
@@ -295,4 +1191,32 @@ public class JobSchedulerTest {
         return argumentCaptor.getValue();
     }
 
+    /**
+     * A clock that advances a fixed step each time it is read.
+     */
+    private static class AdvancingClock extends Clock {
+
+        private final Duration step;
+        private Instant instant = Instant.now();
+
+        private AdvancingClock(Duration step) {
+            this.step = step;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            instant = instant.plus(step);
+            return instant;
+        }
+    }
 }
@@ -0,0 +1,129 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import nl.gogognome.jobscheduler.ScheduledJobFakes;
+import org.junit.Test;
+
+import java.util.*;
+
+import static nl.gogognome.jobscheduler.scheduler.JobState.RUNNING;
+import static org.junit.Assert.*;
+
+public class JobsSnapshotTest {
+
+    @Test
+    public void emptySnapshot_containsNoJobs() {
+        JobsSnapshot snapshot = JobsSnapshot.empty();
+
+        assertTrue(snapshot.isEmpty());
+        assertEquals(0, snapshot.size());
+        assertNull(snapshot.findById("1"));
+        assertFalse(snapshot.iterator().hasNext());
+    }
+
+    @Test
+    public void with_addsJobWithoutChangingOriginalSnapshot() {
+        JobsSnapshot original = JobsSnapshot.empty();
+        ScheduledJob scheduledJob = ScheduledJobFakes.with(new Job("1", "email", null, null));
+
+        JobsSnapshot snapshot = original.with(scheduledJob);
+
+        assertSame(scheduledJob, snapshot.findById("1"));
+        assertEquals(1, snapshot.size());
+        assertTrue(original.isEmpty());
+        assertTrue(snapshot.getVersion() > original.getVersion());
+    }
+
+    @Test
+    public void with_jobWithSameIdPresent_replacesJob() {
+        ScheduledJob idleJob = ScheduledJobFakes.with(new Job("1", "email", null, null));
+        ScheduledJob runningJob = new ScheduledJob(idleJob.getJob(), RUNNING, "tester", null);
+        JobsSnapshot original = JobsSnapshot.empty().with(idleJob);
+
+        JobsSnapshot snapshot = original.with(runningJob);
+
+        assertSame(runningJob, snapshot.findById("1"));
+        assertEquals(1, snapshot.size());
+        assertSame(idleJob, original.findById("1"));
+    }
+
+    @Test
+    public void without_removesJobWithoutChangingOriginalSnapshot() {
+        JobsSnapshot original = JobsSnapshot.empty()
+                .with(ScheduledJobFakes.with(new Job("1", "email", null, null)))
+                .with(ScheduledJobFakes.with(new Job("2", "email", null, null)));
+
+        JobsSnapshot snapshot = original.without("1");
+
+        assertNull(snapshot.findById("1"));
+        assertNotNull(snapshot.findById("2"));
+        assertEquals(1, snapshot.size());
+        assertEquals(2, original.size());
+        assertNotNull(original.findById("1"));
+    }
+
+    @Test
+    public void without_nonExistingJob_returnsSameSnapshot() {
+        JobsSnapshot snapshot = JobsSnapshot.empty().with(ScheduledJobFakes.with(new Job("1", "email", null, null)));
+
+        assertSame(snapshot, snapshot.without("2"));
+    }
+
+    @Test
+    public void jobIdsWithSameHashCode_allJobsCanBeFoundAndRemoved() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        JobsSnapshot snapshot = JobsSnapshot.empty()
+                .with(ScheduledJobFakes.with(new Job("Aa", "email", null, null)))
+                .with(ScheduledJobFakes.with(new Job("BB", "email", null, null)))
+                .with(ScheduledJobFakes.with(new Job("AaBB", "email", null, null)))
+                .with(ScheduledJobFakes.with(new Job("BBAa", "email", null, null)));
+
+        assertEquals("Aa", snapshot.findById("Aa").getJob().getId());
+        assertEquals("BB", snapshot.findById("BB").getJob().getId());
+        assertEquals(4, snapshot.size());
+
+        snapshot = snapshot.without("Aa");
+
+        assertNull(snapshot.findById("Aa"));
+        assertEquals("BB", snapshot.findById("BB").getJob().getId());
+        assertEquals(3, snapshot.toList().size());
+    }
+
+    @Test
+    public void manyJobsAddedAndRemoved_snapshotContainsSameJobsAsMap() {
+        Random random = new Random(42);
+        Map<String, ScheduledJob> expectedJobs = new HashMap<>();
+        JobsSnapshot snapshot = JobsSnapshot.empty();
+        for (int i = 0; i < 20000; i++) {
+            String jobId = Integer.toString(random.nextInt(5000));
+            if (random.nextInt(3) == 0) {
+                expectedJobs.remove(jobId);
+                snapshot = snapshot.without(jobId);
+            } else {
+                ScheduledJob scheduledJob = ScheduledJobFakes.with(new Job(jobId, "email", null, null));
+                expectedJobs.put(jobId, scheduledJob);
+                snapshot = snapshot.with(scheduledJob);
+            }
+        }
+
+        assertEquals(expectedJobs.size(), snapshot.size());
+        for (ScheduledJob scheduledJob : expectedJobs.values()) {
+            assertSame(scheduledJob, snapshot.findById(scheduledJob.getJob().getId()));
+        }
+        Set<ScheduledJob> iteratedJobs = new HashSet<>();
+        for (ScheduledJob scheduledJob : snapshot) {
+            assertTrue(iteratedJobs.add(scheduledJob));
+        }
+        assertEquals(new HashSet<>(expectedJobs.values()), iteratedJobs);
+        assertEquals(new HashSet<>(expectedJobs.values()), new HashSet<>(snapshot.toList()));
+    }
+
+    @Test
+    public void cleared_returnsEmptySnapshotWithHigherVersion() {
+        JobsSnapshot snapshot = JobsSnapshot.empty().with(ScheduledJobFakes.with(new Job("1", "email", null, null)));
+
+        JobsSnapshot clearedSnapshot = snapshot.cleared();
+
+        assertTrue(clearedSnapshot.isEmpty());
+        assertTrue(clearedSnapshot.getVersion() > snapshot.getVersion());
+    }
+}
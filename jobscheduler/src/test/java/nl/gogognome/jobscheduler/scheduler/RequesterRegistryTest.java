@@ -0,0 +1,103 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static org.junit.Assert.*;
+
+public class RequesterRegistryTest {
+
+    private final Instant start = Instant.now();
+    private final RequesterRegistry requesterRegistry = new RequesterRegistry();
+
+    @Test
+    public void unknownRequester_hasNoJobsAndWasNeverSeen() {
+        assertTrue(requesterRegistry.getJobIds("worker").isEmpty());
+        assertNull(requesterRegistry.getLastSeenInstant("worker"));
+    }
+
+    @Test
+    public void jobsStarted_getJobIds_returnsJobIdsOfRequester() {
+        requesterRegistry.onJobStarted("worker-1", "job-1", start);
+        requesterRegistry.onJobStarted("worker-1", "job-2", start);
+        requesterRegistry.onJobStarted("worker-2", "job-3", start);
+
+        assertEquals(new HashSet<>(Arrays.asList("job-1", "job-2")), requesterRegistry.getJobIds("worker-1"));
+        assertEquals(singleton("job-3"), requesterRegistry.getJobIds("worker-2"));
+    }
+
+    @Test
+    public void equalRequesterIds_intern_returnsSameInstance() {
+        String requesterId = requesterRegistry.intern(new String("worker"), start);
+
+        assertSame(requesterId, requesterRegistry.intern(new String("worker"), start));
+        assertEquals(start, requesterRegistry.getLastSeenInstant("worker"));
+    }
+
+    @Test
+    public void requesterRemoved_intern_returnsNewInstance() {
+        String requesterId = requesterRegistry.intern(new String("worker"), start);
+        requesterRegistry.removeRequestersNotSeenSince(start.plus(Duration.ofMinutes(1)));
+
+        String newRequesterId = new String("worker");
+        assertSame(newRequesterId, requesterRegistry.intern(newRequesterId, start));
+        assertNotSame(requesterId, newRequesterId);
+    }
+
+    @Test
+    public void jobStopped_getJobIds_doesNotReturnStoppedJob() {
+        requesterRegistry.onJobStarted("worker", "job-1", start);
+        requesterRegistry.onJobStarted("worker", "job-2", start);
+
+        requesterRegistry.onJobStopped("worker", "job-1");
+
+        assertEquals(singleton("job-2"), requesterRegistry.getJobIds("worker"));
+    }
+
+    @Test
+    public void heartbeat_updatesLastSeenInstant() {
+        requesterRegistry.onJobStarted("worker", "job-1", start);
+
+        requesterRegistry.onHeartbeat("worker", start.plusSeconds(10));
+
+        assertEquals(start.plusSeconds(10), requesterRegistry.getLastSeenInstant("worker"));
+    }
+
+    @Test
+    public void addRunningJobOfKnownRequester_doesNotUpdateLastSeenInstant() {
+        requesterRegistry.onHeartbeat("worker", start);
+
+        requesterRegistry.addRunningJob("worker", "job-1", start.plusSeconds(10));
+
+        assertEquals(start, requesterRegistry.getLastSeenInstant("worker"));
+        assertEquals(singleton("job-1"), requesterRegistry.getJobIds("worker"));
+    }
+
+    @Test
+    public void removeRequestersNotSeenSince_removesOnlyRequestersThatWereNotSeen() {
+        requesterRegistry.onJobStarted("dead-worker", "job-1", start);
+        requesterRegistry.onJobStarted("living-worker", "job-2", start);
+        requesterRegistry.onJobStarted("dead-worker", "job-3", start.plusSeconds(1));
+        requesterRegistry.onHeartbeat("living-worker", start.plusSeconds(60));
+
+        assertEquals(Arrays.asList("job-1", "job-3"), requesterRegistry.removeRequestersNotSeenSince(start.plus(Duration.ofSeconds(30))));
+
+        assertNull(requesterRegistry.getLastSeenInstant("dead-worker"));
+        assertTrue(requesterRegistry.getJobIds("dead-worker").isEmpty());
+        assertEquals(singleton("job-2"), requesterRegistry.getJobIds("living-worker"));
+    }
+
+    @Test
+    public void allRequestersSeenRecently_removeRequestersNotSeenSince_removesNothing() {
+        requesterRegistry.onJobStarted("worker", "job-1", start);
+
+        assertEquals(emptyList(), requesterRegistry.removeRequestersNotSeenSince(start));
+        assertEquals(singleton("job-1"), requesterRegistry.getJobIds("worker"));
+    }
+}
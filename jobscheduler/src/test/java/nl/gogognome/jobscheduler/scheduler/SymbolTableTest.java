@@ -0,0 +1,86 @@
+package nl.gogognome.jobscheduler.scheduler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class SymbolTableTest {
+
+    private final SymbolTable symbolTable = new SymbolTable();
+
+    @Test
+    public void equalStrings_intern_returnsSameInstance() {
+        String type1 = new String("email");
+        String type2 = new String("email");
+
+        assertSame(symbolTable.intern(type1), symbolTable.intern(type2));
+        assertSame(type1, symbolTable.intern(type2));
+    }
+
+    @Test
+    public void null_intern_returnsNull() {
+        assertNull(symbolTable.intern(null));
+        assertEquals(SymbolTable.NO_SYMBOL, symbolTable.idOf(null));
+        assertNull(symbolTable.get(SymbolTable.NO_SYMBOL));
+    }
+
+    @Test
+    public void differentStrings_idOf_returnsConsecutiveIds() {
+        assertEquals(0, symbolTable.idOf("email"));
+        assertEquals(1, symbolTable.idOf("sms"));
+        assertEquals(0, symbolTable.idOf("email"));
+
+        assertEquals("sms", symbolTable.get(1));
+        assertEquals(2, symbolTable.size());
+    }
+
+    @Test
+    public void stringNotInterned_findId_returnsNoSymbolAndDoesNotIntern() {
+        assertEquals(SymbolTable.NO_SYMBOL, symbolTable.findId("email"));
+        assertEquals(0, symbolTable.size());
+
+        int id = symbolTable.idOf("email");
+
+        assertEquals(id, symbolTable.findId("email"));
+    }
+
+    @Test
+    public void manyStrings_idOf_allStringsCanBeFound() {
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, symbolTable.idOf("type-" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("type-" + i, symbolTable.get(i));
+        }
+    }
+
+    @Test
+    public void multipleThreadsInternSameStrings_eachStringGetsOneId() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executorService.submit(() -> {
+                    int[] ids = new int[100];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = symbolTable.idOf("type-" + i);
+                    }
+                    return ids;
+                }));
+            }
+            int[] expectedIds = futures.get(0).get();
+            for (Future<int[]> future : futures) {
+                assertArrayEquals(expectedIds, future.get());
+            }
+            assertEquals(100, symbolTable.size());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+}
@@ -3,17 +3,27 @@ package nl.gogognome.jobschedulerservice;
 import com.google.gson.Gson;
 import nl.gogognome.dataaccess.transaction.NewTransaction;
 import nl.gogognome.dataaccess.transaction.RequireTransaction;
-import nl.gogognome.jobscheduler.jobingester.database.*;
+import nl.gogognome.jobscheduler.jobingester.JobCommand;
+import nl.gogognome.jobscheduler.jobingester.JobIngester;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterProperties;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterRunner;
+import nl.gogognome.jobscheduler.jobingester.database.DatabaseCommandSource;
+import nl.gogognome.jobscheduler.jobingester.database.JobCommandDAO;
 import nl.gogognome.jobscheduler.jobpersister.database.DatabaseJobPersister;
 import nl.gogognome.jobscheduler.jobpersister.database.DatabaseJobPersisterProperties;
 import nl.gogognome.jobscheduler.jobpersister.database.ScheduledJobDAO;
+import nl.gogognome.jobscheduler.scheduler.CapacityLimits;
 import nl.gogognome.jobscheduler.scheduler.Job;
 import nl.gogognome.jobscheduler.scheduler.JobScheduler;
+import nl.gogognome.jobscheduler.scheduler.JobSchedulerMetrics;
+import nl.gogognome.jobscheduler.scheduler.JobsSnapshot;
+import nl.gogognome.jobscheduler.scheduler.QueueFullException;
 import nl.gogognome.jobscheduler.scheduler.RunnableJobFinder;
 import nl.gogognome.jobscheduler.scheduler.ScheduledJob;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -22,7 +32,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
-import static nl.gogognome.jobscheduler.jobingester.database.Command.*;
+import static nl.gogognome.jobscheduler.jobingester.Command.*;
 
 public class JobSchedulerService {
 
@@ -34,6 +44,7 @@ public class JobSchedulerService {
     private final JobCommandDAO jobCommandDAO;
     private final JobIngesterRunner jobIngesterRunner;
     private final int threadPoolSize;
+    private final int batchSize;
     private ExecutorService executorService;
 
     private final AtomicInteger nextId = new AtomicInteger(1);
@@ -48,12 +59,36 @@ public class JobSchedulerService {
      */
     public JobSchedulerService(RunnableJobFinder runnableJobFinder, JobIngesterProperties jobIngesterProperties,
                                DatabaseJobPersisterProperties databaseJobPersisterProperties, int threadPoolSize) {
+        this(runnableJobFinder, jobIngesterProperties, databaseJobPersisterProperties, threadPoolSize, 1);
+    }
+
+    /**
+     * Creates a job scheduler service. This service has state, so make sure that you treat it as a singleton.
+     * @param runnableJobFinder the runnable job finder
+     * @param jobIngesterProperties properties for the job ingester
+     * @param databaseJobPersisterProperties properties for the database job persister
+     * @param threadPoolSize the maximum number of threads used to execute tasks
+     * @param batchSize the maximum number of jobs of the same type that a thread starts at once. The jobs
+     *                  of a batch are executed one after the other by the same thread, each in a transaction of
+     *                  its own. The results of the batch are reported to the job scheduler together.
+     */
+    public JobSchedulerService(RunnableJobFinder runnableJobFinder, JobIngesterProperties jobIngesterProperties,
+                               DatabaseJobPersisterProperties databaseJobPersisterProperties, int threadPoolSize,
+                               int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least one");
+        }
         DatabaseJobPersister databaseJobPersister = new DatabaseJobPersister(databaseJobPersisterProperties, new ScheduledJobDAO(databaseJobPersisterProperties));
         this.jobScheduler = new JobScheduler(runnableJobFinder, databaseJobPersister);
         this.jobCommandDAO = new JobCommandDAO(jobIngesterProperties);
-        JobIngester jobIngester = new JobIngester(jobScheduler, jobCommandDAO);
+        JobIngester jobIngester = new JobIngester(jobScheduler, new DatabaseCommandSource(jobCommandDAO), Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-ingester-fetch");
+            thread.setDaemon(true);
+            return thread;
+        }));
         this.jobIngesterRunner = new JobIngesterRunner(jobIngesterProperties, jobIngester);
         this.threadPoolSize = threadPoolSize;
+        this.batchSize = batchSize;
     }
 
     public void startProcessingJobs() {
@@ -92,6 +127,24 @@ public class JobSchedulerService {
         LOGGER.trace("Stopped processing jobs");
     }
 
+    /**
+     * Sets the capacity limits of the job scheduler. While the limits have been reached, jobs are rejected by
+     * {@link #schedule(Runnable, Instant, Instant)} and the job ingester leaves new jobs in the database.
+     * @param capacityLimits the capacity limits
+     */
+    public void setCapacityLimits(CapacityLimits capacityLimits) {
+        jobScheduler.setCapacityLimits(capacityLimits);
+    }
+
+    /**
+     * Sets the horizon of the job scheduler. Jobs scheduled further in the future than the horizon are only kept
+     * in the database until they are about to become due.
+     * @param horizon the horizon; null to keep all jobs in memory
+     */
+    public void setHorizon(Duration horizon) {
+        jobScheduler.setHorizon(horizon);
+    }
+
     /**
      * Schedules a job to execute the #Runnable as immediately.
      * @param runnable the #Runnable to be executed
@@ -108,20 +161,43 @@ public class JobSchedulerService {
      * @return the id of the job that has been scheduled
      */
     public String schedule(Runnable runnable, Instant scheduledAtInstant) {
-        return RequireTransaction.returns(() -> {
+        return schedule(runnable, scheduledAtInstant, null);
+    }
+
+    /**
+     * Schedules a job to execute the #Runnable before a deadline. If the job cannot be started before its deadline,
+     * then it gets the state {@link nl.gogognome.jobscheduler.scheduler.JobState#EXPIRED} and is not executed.
+     * The job ingester is woken up afterwards, so the job is ingested as soon as the transaction has been committed
+     * instead of at the next poll. If this method is called within an enclosing transaction, the wake-up precedes the
+     * commit; the job ingester then keeps polling at short intervals until it has found the job command.
+     * @param runnable the #Runnable to be executed
+     * @param scheduledAtInstant instant at which the job should be started
+     * @param deadline instant before which the job must have been started; null if the job has no deadline
+     * @return the id of the job that has been scheduled
+     * @throws QueueFullException if the job scheduler has no room for the job
+     */
+    public String schedule(Runnable runnable, Instant scheduledAtInstant, Instant deadline) {
+        String jobId = RequireTransaction.returns(() -> {
             validateParameters(runnable);
+            if (!jobScheduler.hasCapacityFor(runnable.getClass().getName())) {
+                throw new QueueFullException("Cannot schedule job of type " + runnable.getClass().getName()
+                        + " because the capacity limits have been reached");
+            }
 
             Job job = new Job(
                     JOB_ID_PREFIX + nextId.getAndIncrement(),
                     runnable.getClass().getName(),
                     GSON.toJson(runnable),
-                    scheduledAtInstant);
+                    scheduledAtInstant)
+                    .withDeadline(deadline);
 
             jobCommandDAO.create(new JobCommand(SCHEDULE, job));
             LOGGER.trace("Scheduled job with type " + job.getType() + " and id " + job.getId());
 
             return job.getId();
         });
+        jobIngesterRunner.wakeUp();
+        return jobId;
     }
 
     /**
@@ -133,6 +209,7 @@ public class JobSchedulerService {
             jobCommandDAO.create(new JobCommand(REMOVE, new Job(jobId, null, null, null)));
             LOGGER.trace("Removed job with id " + jobId);
         });
+        jobIngesterRunner.wakeUp();
     }
 
     private void validateParameters(Runnable runnable) {
@@ -144,10 +221,15 @@ public class JobSchedulerService {
     private void jobHandlerLoop(String requesterId) {
         LOGGER.trace("Requester " + requesterId + " starts handling jobs");
         while (started.get()) {
-            Job job = jobScheduler.startNextRunnableJob(requesterId, 10 * 1000);
-            if (job != null) {
+            List<Job> jobs = jobScheduler.startNextRunnableJobs(requesterId, batchSize, 10 * 1000);
+            for (Job job : jobs) {
                 executeJob(requesterId, job);
             }
+            if (!jobs.isEmpty()) {
+                // The results of the batch are stored as consecutive job commands, so the job ingester reports them
+                // to the job scheduler with one call to jobsFinished or jobsFailed.
+                jobIngesterRunner.wakeUp();
+            }
         }
         LOGGER.trace("Requester " + requesterId + " stops handling jobs");
     }
@@ -176,4 +258,12 @@ public class JobSchedulerService {
     public List<ScheduledJob> findAllJobs() {
         return jobScheduler.findAllJobs();
     }
+
+    public JobsSnapshot getJobsSnapshot() {
+        return jobScheduler.getJobsSnapshot();
+    }
+
+    public JobSchedulerMetrics getMetrics() {
+        return jobScheduler.getMetrics();
+    }
 }
@@ -0,0 +1,13 @@
+CREATE TABLE NlGogognomeQuarantinedJobCommands (
+  command_id VARCHAR(1000) NOT NULL,
+  command VARCHAR(20) NOT NULL,
+  id VARCHAR(1000) NOT NULL,
+  scheduledAtInstant TIMESTAMP NULL,
+  type VARCHAR(1000) NULL,
+  data VARCHAR(100000) NULL,
+  deadline TIMESTAMP NULL,
+  orderingKey VARCHAR(1000) NULL,
+  coalescingKey VARCHAR(1000) NULL,
+  error VARCHAR(10000) NOT NULL,
+  PRIMARY KEY (command_id)
+);
@@ -0,0 +1 @@
+CREATE INDEX NlGogognomeJobsStateScheduledAt ON NlGogognomeJobs (state, scheduledAtInstant);
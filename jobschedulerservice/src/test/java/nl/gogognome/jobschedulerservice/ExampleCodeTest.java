@@ -4,7 +4,7 @@ import com.zaxxer.hikari.HikariDataSource;
 import nl.gogognome.dataaccess.migrations.DatabaseMigratorDAO;
 import nl.gogognome.dataaccess.transaction.CompositeDatasourceTransaction;
 import nl.gogognome.dataaccess.transaction.NewTransaction;
-import nl.gogognome.jobscheduler.jobingester.database.JobIngesterProperties;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterProperties;
 import nl.gogognome.jobscheduler.jobpersister.database.DatabaseJobPersisterProperties;
 import nl.gogognome.jobscheduler.runnablejobfinder.FifoRunnableJobFinder;
 import org.junit.Test;
@@ -5,9 +5,10 @@ import nl.gogognome.dataaccess.migrations.DatabaseMigratorDAO;
 import nl.gogognome.dataaccess.transaction.CompositeDatasourceTransaction;
 import nl.gogognome.dataaccess.transaction.CurrentTransaction;
 import nl.gogognome.dataaccess.transaction.NewTransaction;
-import nl.gogognome.jobscheduler.jobingester.database.JobIngesterProperties;
+import nl.gogognome.jobscheduler.jobingester.JobIngesterProperties;
 import nl.gogognome.jobscheduler.jobpersister.database.DatabaseJobPersisterProperties;
 import nl.gogognome.jobscheduler.runnablejobfinder.FifoRunnableJobFinder;
+import nl.gogognome.jobscheduler.runnablejobfinder.TypeQueuesRunnableJobFinder;
 import nl.gogognome.test.AssertExtensions.RunnableThrowingException;
 import org.junit.Before;
 import org.junit.Test;
@@ -26,14 +27,16 @@ import static org.junit.Assert.assertTrue;
 public class JobSchedulerServiceTest {
 
     private JobSchedulerService jobSchedulerService;
+    private JobIngesterProperties jobIngesterProperties;
+    private DatabaseJobPersisterProperties databaseJobPersisterProperties;
 
     private static Semaphore nrExecutions;
     private static Instant lastJobExecutedAt;
 
     @Before
     public void initDataSource() {
-        JobIngesterProperties jobIngesterProperties = new JobIngesterProperties();
-        DatabaseJobPersisterProperties databaseJobPersisterProperties = new DatabaseJobPersisterProperties();
+        jobIngesterProperties = new JobIngesterProperties();
+        databaseJobPersisterProperties = new DatabaseJobPersisterProperties();
 
         HikariDataSource dataSource = buildDataSource();
         CompositeDatasourceTransaction.registerDataSource(jobIngesterProperties.getConnectionName(), dataSource);
@@ -65,9 +68,8 @@ public class JobSchedulerServiceTest {
     }
 
     @Test
-    public void startTwiceFails() {
-        jobSchedulerService.startProcessingJobs();
-        assertThrows(IllegalStateException.class, () -> jobSchedulerService.startProcessingJobs());
+    public void startTwiceFails() throws Exception {
+        withRunningJobs(() -> assertThrows(IllegalStateException.class, () -> jobSchedulerService.startProcessingJobs()));
     }
 
     @Test
@@ -81,6 +83,7 @@ public class JobSchedulerServiceTest {
             SuccessfulJobRunner successfulJobRunner = new SuccessfulJobRunner();
 
             jobSchedulerService.schedule(successfulJobRunner);
+            assertTrue(nrExecutions.tryAcquire(1, 10, SECONDS));
             assertThatEventually(() -> jobSchedulerService.findAllJobs().isEmpty());
         });
     }
@@ -98,6 +101,20 @@ public class JobSchedulerServiceTest {
         });
     }
 
+    @Test
+    public void runTenJobsInBatches_succeeds() throws Exception {
+        jobSchedulerService = new JobSchedulerService(new TypeQueuesRunnableJobFinder(), jobIngesterProperties, databaseJobPersisterProperties, 2, 5);
+        withRunningJobs(() -> {
+            int nrJobs = 10;
+            SuccessfulJobRunner successfulJobRunner = new SuccessfulJobRunner();
+            for (int i = 0; i < nrJobs; i++) {
+                jobSchedulerService.schedule(successfulJobRunner);
+            }
+            assertTrue(nrExecutions.tryAcquire(nrJobs, 10, SECONDS));
+            assertThatEventually(() -> jobSchedulerService.findAllJobs().isEmpty());
+        });
+    }
+
     @Test
     public void scheduleJob_jobFails_removeJob_scheduleHasNoJobsAnymore_succeeds() throws Exception {
         withRunningJobs(() -> {